@@ -1,15 +1,17 @@
 package co.za.letsibogo.potholefinder;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Color;
-import android.media.MediaMetadataRetriever;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.Button;
-import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.VideoView;
@@ -17,19 +19,68 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.MarkerOptions;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import co.za.letsibogo.potholefinder.batch.BatchProcessor;
+import co.za.letsibogo.potholefinder.batch.BatchReport;
+import co.za.letsibogo.potholefinder.batch.VideoBatchJob;
+import co.za.letsibogo.potholefinder.gate.CascadeGate;
+import co.za.letsibogo.potholefinder.gate.SceneChangeGate;
+import co.za.letsibogo.potholefinder.geo.FusedLocationRecorder;
+import co.za.letsibogo.potholefinder.geo.Geotagger;
+import co.za.letsibogo.potholefinder.geo.PotholeIndex;
+import co.za.letsibogo.potholefinder.geo.TelemetryTrack;
+import co.za.letsibogo.potholefinder.geo.TelemetryTracks;
+import co.za.letsibogo.potholefinder.journal.DetectionJournal;
+import co.za.letsibogo.potholefinder.journal.DetectionRecord;
+import co.za.letsibogo.potholefinder.map.MarkerLayer;
+import co.za.letsibogo.potholefinder.memory.BitmapPool;
+import co.za.letsibogo.potholefinder.memory.MemoryPressure;
+import co.za.letsibogo.potholefinder.metrics.PerfOverlay;
+import co.za.letsibogo.potholefinder.metrics.PerfStats;
+import co.za.letsibogo.potholefinder.pipeline.AdaptiveSampler;
+import co.za.letsibogo.potholefinder.pipeline.DropPolicy;
+import co.za.letsibogo.potholefinder.pipeline.FramePipeline;
+import co.za.letsibogo.potholefinder.power.InferenceGovernor;
+import co.za.letsibogo.potholefinder.power.PowerMonitor;
+import co.za.letsibogo.potholefinder.snapshot.BitmapSnapshotCodec;
+import co.za.letsibogo.potholefinder.snapshot.SnapshotCache;
+import co.za.letsibogo.potholefinder.snapshot.SnapshotEncoder;
+import co.za.letsibogo.potholefinder.source.FrameSource;
+import co.za.letsibogo.potholefinder.source.FrameSources;
+import co.za.letsibogo.potholefinder.source.TimedFrame;
+import co.za.letsibogo.potholefinder.tflite.DamageClassifier;
+import co.za.letsibogo.potholefinder.tflite.Detection;
+import co.za.letsibogo.potholefinder.tflite.FrameSlot;
+import co.za.letsibogo.potholefinder.tflite.InterpreterPool;
+import co.za.letsibogo.potholefinder.tflite.ModelLoader;
 import co.za.letsibogo.potholefinder.tflite.PotholeDetector;
+import co.za.letsibogo.potholefinder.tflite.RegionOfInterest;
+import co.za.letsibogo.potholefinder.tflite.TilePlanner;
+import co.za.letsibogo.potholefinder.tracking.PotholeTracker;
+import co.za.letsibogo.potholefinder.tracking.Track;
+import co.za.letsibogo.potholefinder.ui.DetectionFeed;
+import co.za.letsibogo.potholefinder.ui.RecentDetectionsAdapter;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -38,21 +89,111 @@ public class MainActivity extends AppCompatActivity {
     private TextView detectionStatus;
     private TextView currentDetections;
     private TextView totalDetections;
-    private LinearLayout recentDetectionsContainer;
+    private RecentDetectionsAdapter recentAdapter;
     private MapView mapView;
     private GoogleMap googleMap;
 
     private final Handler handler = new Handler();
-    private int totalDetectionCount = 0;
-    private final Random random = new Random();
-    private final List<String> recentDetections = new ArrayList<>();
+
+    // Worker threads publish detection results here; the UI renders the newest once per frame
+    private final DetectionFeed feed = new DetectionFeed(RECENT_DETECTIONS);
+    private DetectionFeed.Snapshot rendered = feed.peek();   // main thread only
+    private final Choreographer.FrameCallback renderFrame = frameTimeNanos -> renderFeed();
+    private final Runnable scheduleRender = () -> Choreographer.getInstance().postFrameCallback(renderFrame);
+
     private boolean isRunning = false; // Start as false until video is ready
     private boolean isVideoPrepared = false;
     private Uri videoUri;
-    private PotholeDetector potholeDetector;
-    private MediaMetadataRetriever retriever;
-    private java.util.concurrent.ExecutorService exec = java.util.concurrent.Executors.newSingleThreadExecutor();
-    private volatile boolean busy = false;  // prevent overlapping inferences
+    private PotholeDetector potholeDetector;   // null until the loader reports READY
+    private ModelLoader<PotholeDetector> detectorLoader;
+    private FrameSource<Bitmap> frameSource;
+    private volatile boolean liveSource;   // frameSource is the live feed, not the video
+    private final Object sourceLock = new Object();
+    private FramePipeline<TimedFrame<Bitmap>, TimedFrame<FrameSlot>,
+            TimedFrame<List<Detection>>> pipeline;
+    private AtomicBoolean pipelineStopped;   // ends the decode stage of the current pipeline
+    private boolean detectorReleased;        // closed under memory pressure; main thread only
+    private final PotholeTracker tracker = new PotholeTracker();
+    private final SceneChangeGate sceneGate = new SceneChangeGate();   // decode thread only
+    // Optional first cascade stage; without a classifier model every frame is detected
+    private volatile DamageClassifier damageClassifier;
+    private CascadeGate cascade;
+    private AdaptiveSampler sampler;   // paces the decode stage, see startPipeline
+    private final PerfStats perf = new PerfStats();
+    private PerfOverlay perfOverlay;
+
+    // Geotagging: a telemetry file next to the video, the phone's own location for the live feed
+    private volatile Geotagger geotagger;
+    private volatile FusedLocationRecorder locationRecorder;
+    private final double[] fix = new double[4];   // postprocess thread only
+    private final boolean[] created = new boolean[1];   // postprocess thread only
+    private final PotholeIndex potholeIndex = new PotholeIndex();   // rebuilt from the journal
+    private MarkerLayer markerLayer;
+
+    // Detection journal: opened, replayed and appended to in order on one thread
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PotholeStore"));
+    private DetectionJournal journal;   // store thread only; null if it could not be opened
+
+    // Evidence snapshots: frames are held from preprocess to postprocess, by frame index,
+    // and those with newly confirmed potholes go to the encoder
+    private volatile SnapshotEncoder<Bitmap> snapshots;   // null until the cache is open
+    private SnapshotCache snapshotCache;                   // store thread only
+    private final Map<Long, Bitmap> heldFrames = new ConcurrentHashMap<>();
+
+    // Decoded frames are pooled; under memory pressure the pool, the frame size, the sampling
+    // rate and finally the models are given up, and restored once the pressure has passed
+    private final BitmapPool framePool = new BitmapPool(FRAME_POOL_BYTES);
+    private final MemoryPressure memoryPressure = new MemoryPressure();   // main thread only
+    private MemoryPressure.Level memoryLevel = MemoryPressure.Level.NORMAL;   // applied; main thread only
+
+    // Thermal and battery governor: trades sampling rate, frame size and inference threads
+    // for temperature before the device throttles on its own
+    private final InferenceGovernor governor = new InferenceGovernor();   // main thread only
+    private final InferenceGovernor.Conditions conditions = new InferenceGovernor.Conditions();
+    private PowerMonitor powerMonitor;
+
+    // Written by the UI loop, read by the pipeline's decode thread
+    private volatile long playbackPositionMs = -1;  // -1 while not playing
+    private volatile long playbackStampNs;          // System.nanoTime() when the position was read
+    private volatile long lastFrameTimestampUs = -1;
+
+    private static final String TAG = "MainActivity";
+
+    // Pipeline shape: frames queued between stages and worker threads per stage
+    private static final int QUEUE_CAPACITY = 2;
+    private static final int PREPROCESS_THREADS = 2;
+    private static final int INFER_THREADS = 2;         // one interpreter per infer thread
+    private static final int THREADS_PER_INTERPRETER = 2;
+    private static final int WARMUP_RUNS = 2;
+    private static final float ROAD_ROI_FRACTION = 1f;  // e.g. 0.6f: dash-cam, skip sky and bonnet
+    private static final float CASCADE_THRESHOLD = 0.3f;   // tune per city from an audited drive
+    private static final int CASCADE_AUDIT_EVERY = 0;      // 1: audit mode, detect every frame to count misses
+    private static final int UI_TICK_MS = 100;
+    private static final int DECODE_IDLE_MS = 20;
+    private static final float MIN_SAMPLE_RATE_HZ = 0.5f;
+    private static final float MAX_SAMPLE_RATE_HZ = 15f;
+    private static final long PERF_OVERLAY_REFRESH_MS = 500;
+    private static final long REWIND_THRESHOLD_US = 1_000_000;  // playback jumped back (restart/seek)
+    private static final int BATCH_STRIDE = 1;  // offline scan: process every Nth frame
+    private static final boolean TILED_BATCH_SCAN = false;  // true: offline scan on native-resolution tiles (4K)
+    private static final int TILE_SIZE = 640;               // model input size, in source pixels
+    private static final float TILE_OVERLAP = 0.2f;
+    private static final int MAX_TILES = 12;
+    private static final String VIDEO_NAME = "demo";  // telemetry sidecar: demo.SRT or demo.gpx
+    private static final long LOCATION_INTERVAL_MS = 1000;
+    private static final String JOURNAL_DIR = "journal";
+    private static final String LEGACY_INDEX_FILE = "potholes.bin";   // pre-journal snapshot, imported once
+    private static final int RECENT_DETECTIONS = 5;
+    private static final String SNAPSHOT_DIR = "snapshots";
+    private static final long SNAPSHOT_CACHE_BYTES = 200L * 1024 * 1024;
+    private static final int SNAPSHOT_JPEG_QUALITY = 85;
+    private static final int SNAPSHOT_FULL_MAX_DIM = 640;
+    // Decode indices count skipped frames; far more than can be in flight at any sampling rate
+    private static final long HELD_FRAME_MAX_AGE = 512;
+    private static final long FRAME_POOL_BYTES = 32L * 1024 * 1024;   // about four 1080p frames
+    private static final long GOVERNOR_INTERVAL_MS = 5000;
+
+    private VideoBatchJob batchJob;
 
 
     private final String MAPVIEW_BUNDLE_KEY = "MapViewBundleKey";
@@ -68,7 +209,11 @@ public class MainActivity extends AppCompatActivity {
         detectionStatus = findViewById(R.id.detection_status);
         currentDetections = findViewById(R.id.current_detections);
         totalDetections = findViewById(R.id.total_detections);
-        recentDetectionsContainer = findViewById(R.id.recent_detections_container);
+        RecyclerView recentList = findViewById(R.id.recent_detections);
+        recentList.setLayoutManager(new LinearLayoutManager(this));
+        recentList.setItemAnimator(null);   // rows churn with every detection
+        recentAdapter = new RecentDetectionsAdapter(rendered);
+        recentList.setAdapter(recentAdapter);
         Button playButton = findViewById(R.id.play_button);
         Button stopButton = findViewById(R.id.stop_button);
         Button restartButton = findViewById(R.id.restart_button);
@@ -89,31 +234,109 @@ public class MainActivity extends AppCompatActivity {
             googleMap.getUiSettings().setZoomControlsEnabled(true);
             googleMap.setMapType(GoogleMap.MAP_TYPE_NORMAL);
             LatLng soweto = new LatLng(-26.041317, 28.958024);
+            markerLayer = new MarkerLayer(googleMap, potholeIndex, getResources().getDisplayMetrics().density);
             googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(soweto, 13));
         });
+        openJournal();
+        openSnapshots();
 
-        // Initialize TFLite detector
-        potholeDetector = new PotholeDetector(this);
+        CascadeGate.Config cascadeConfig = new CascadeGate.Config();
+        cascadeConfig.threshold = CASCADE_THRESHOLD;
+        cascadeConfig.auditEvery = CASCADE_AUDIT_EVERY;
+        cascade = new CascadeGate(cascadeConfig);
+        loadDetector();
 
         // --- Setup video ---
         setupVideo();
+        loadTelemetry();
+
+        // --- Start the UI update loop ---
+        handler.postDelayed(videoRunnable, UI_TICK_MS);
 
-        // --- Start the update loop ---
-        handler.postDelayed(videoRunnable, 500);
+        // --- Thermal and battery governor ---
+        powerMonitor = new PowerMonitor(this);
+        powerMonitor.start(this::updateGovernor);
+        handler.post(governorRunnable);
 
         // --- Buttons ---
         playButton.setOnClickListener(v -> playVideo());
+        playButton.setOnLongClickListener(v -> {
+            runBatchScan();
+            return true;
+        });
         stopButton.setOnClickListener(v -> stopDetection());
         restartButton.setOnClickListener(v -> restartDetection());
+        restartButton.setOnLongClickListener(v -> {
+            toggleLiveSource();
+            return true;
+        });
         clearButton.setOnClickListener(v -> clearDetections());
+
+        // --- Performance overlay ---
+        TextView overlayView = findViewById(R.id.perf_overlay);
+        perfOverlay = new PerfOverlay(overlayView, perf, PERF_OVERLAY_REFRESH_MS, () -> {
+            FramePipeline<?, ?, ?> p = pipeline;
+            if (p != null) {
+                perf.queueDepths(p.queueDepth(FramePipeline.Stage.PREPROCESS),
+                        p.queueDepth(FramePipeline.Stage.INFER), p.queueDepth(FramePipeline.Stage.POSTPROCESS));
+            }
+        });
+        detectionStatus.setOnLongClickListener(v -> {
+            perfOverlay.toggle();
+            return true;
+        });
+        overlayView.setOnClickListener(v -> dumpPerfStats());
+    }
+
+    /**
+     * Maps the models, builds the interpreters and warms them up off the UI thread; the
+     * pipeline starts once the detector reports READY. Also used to reload the models after
+     * memory pressure released them.
+     */
+    private void loadDetector() {
+        // One buffer slot per frame the pipeline can hold
+        int slots = PREPROCESS_THREADS + QUEUE_CAPACITY + INFER_THREADS;
+        InterpreterPool.Options poolOptions = new InterpreterPool.Options();
+        poolOptions.size = INFER_THREADS;
+        poolOptions.threadsPerInterpreter = THREADS_PER_INTERPRETER;
+        poolOptions.nnapiFallback = true;
+        Context appContext = getApplicationContext();
+        detectorLoader = new ModelLoader<>(() -> {
+            PotholeDetector d = new PotholeDetector(appContext, slots, null, poolOptions);
+            if (!d.isLoaded()) throw new IOException("Pothole model failed to load");
+            damageClassifier = DamageClassifier.load(appContext, PREPROCESS_THREADS);
+            return d;
+        }, PotholeDetector::warmUp, WARMUP_RUNS, handler::post);
+        detectorLoader.start(this::onDetectorState);
+    }
+
+    /** Saves the current timings as JSON in app storage so they can be attached to a bug report. */
+    private void dumpPerfStats() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) dir = getFilesDir();
+        File out = new File(dir, "perf-" + System.currentTimeMillis() + ".json");
+        try {
+            perf.writeJson(out);
+            governor.writeJson(new File(dir, "governor-" + System.currentTimeMillis() + ".json"));
+            if (damageClassifier != null) cascade.writeJson(new File(dir, "cascade-" + System.currentTimeMillis() + ".json"));
+            Toast.makeText(this, "Saved " + out.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write " + out, e);
+            Toast.makeText(this, "Could not save timings", Toast.LENGTH_SHORT).show();
+        }
     }
 
     private void setupVideo() {
         videoUri = Uri.parse("android.resource://" + getPackageName() + "/" + R.raw.demo);
         videoView.setVideoURI(videoUri);
 
-        retriever = new MediaMetadataRetriever();
-        retriever.setDataSource(this, videoUri);
+        synchronized (sourceLock) {
+            closeFrameSource();
+            frameSource = FrameSources.open(this, videoUri, framePool);
+            liveSource = false;
+            lastFrameTimestampUs = -1;
+        }
+        applyLimits();
 
         // Hide default media controls
         videoView.setMediaController(null);
@@ -137,8 +360,236 @@ public class MainActivity extends AppCompatActivity {
         videoView.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * Looks for DJI .SRT or GPX telemetry for the video in app storage and loads it off the
+     * UI thread; without one, the video's detections are not located and stay off the map.
+     */
+    private void loadTelemetry() {
+        File sidecar = TelemetryTracks.findSidecar(getExternalFilesDir(null), VIDEO_NAME);
+        if (sidecar == null) {
+            Log.w(TAG, "No telemetry for the video: detections stay off the map");
+            return;
+        }
+        Context appContext = getApplicationContext();
+        Uri video = videoUri;
+        new Thread(() -> {
+            try {
+                TelemetryTrack track = TelemetryTracks.load(sidecar);
+                long startUs = track.timeBase() == TelemetryTrack.TimeBase.EPOCH
+                        ? TelemetryTracks.videoStartEpochUs(appContext, video) : 0;
+                geotagger = new Geotagger(track, startUs);
+                Log.i(TAG, "Telemetry " + sidecar.getName() + ": " + track.size() + " fixes");
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read " + sidecar, e);
+            }
+        }, "TelemetryLoader").start();
+    }
+
+    /**
+     * Position at media time {@code mediaUs}: the phone's location now for the live feed,
+     * the video's telemetry otherwise. False for a video without a telemetry sidecar, whose
+     * detections then count as unlocated. Postprocess thread only.
+     */
+    private boolean locate(long mediaUs, double[] out) {
+        if (liveSource) {
+            FusedLocationRecorder live = locationRecorder;
+            return live != null && live.track().locate(System.currentTimeMillis() * 1000, out);
+        }
+        Geotagger g = geotagger;
+        return g != null && g.locate(mediaUs, out);
+    }
+
+    /** Newly confirmed potholes as pothole index records. */
+    private static final class Sightings {
+        final int[] ids;          // record id, -1 if the pothole could not be located
+        final boolean[] fresh;    // true if the record is new, false if a known pothole was seen again
+        final String[] keys;      // journal record's snapshot key
+
+        Sightings(int n) {
+            ids = new int[n];
+            fresh = new boolean[n];
+            keys = new String[n];
+        }
+    }
+
+    /**
+     * Places newly confirmed potholes where each was first seen, merges them into the
+     * pothole index and journals them; also passes the vehicle speed on to the sampler.
+     */
+    private Sightings geotag(long mediaUs, List<Track> newPotholes) {
+        sampler.setSpeed(locate(mediaUs, fix) ? (float) fix[TelemetryTrack.SPEED] : Float.NaN);
+        Sightings s = new Sightings(newPotholes.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < newPotholes.size(); i++) {
+            Track t = newPotholes.get(i);
+            DetectionRecord record = new DetectionRecord();
+            record.wallTimeMs = now;
+            record.frameTimeUs = t.firstSeenUs;
+            record.ymin = t.ymin();
+            record.xmin = t.xmin();
+            record.ymax = t.ymax();
+            record.xmax = t.xmax();
+            record.score = t.bestScore();
+            record.classId = t.classId;
+            record.trackId = (int) t.id;
+            s.keys[i] = record.snapshotKey();
+            if (locate(t.firstSeenUs, fix)) {
+                record.latitude = fix[TelemetryTrack.LAT];
+                record.longitude = fix[TelemetryTrack.LON];
+                s.ids[i] = potholeIndex.add(record.latitude, record.longitude, record.score, now, created);
+                s.fresh[i] = created[0];
+            } else {
+                s.ids[i] = -1;
+            }
+            storeExecutor.execute(() -> appendToJournal(record));
+        }
+        return s;
+    }
+
+    /**
+     * Opens the detection journal and replays it into the pothole index, the counts and the
+     * recent list, off the UI thread. Appends queue up behind the replay.
+     */
+    private void openJournal() {
+        File dir = new File(getFilesDir(), JOURNAL_DIR);
+        storeExecutor.execute(() -> {
+            long t0 = System.nanoTime();
+            int[] unlocated = {0};
+            ArrayDeque<String> recent = new ArrayDeque<>(RECENT_DETECTIONS + 1);
+            try {
+                journal = new DetectionJournal(dir);
+                if (journal.truncatedBytes() > 0) {
+                    Log.w(TAG, "Journal: cut " + journal.truncatedBytes() + " bytes torn by a crash");
+                }
+                long n = journal.replay((seq, r) -> {
+                    String label;
+                    if (r.isLocated()) {
+                        int id = potholeIndex.add(r.latitude, r.longitude, r.score, r.wallTimeMs);
+                        label = "Pothole #" + (id + 1);
+                    } else {
+                        unlocated[0]++;
+                        label = "Pothole (no location)";
+                    }
+                    recent.addLast(label);
+                    if (recent.size() > RECENT_DETECTIONS) recent.removeFirst();
+                });
+                Log.i(TAG, "Journal: replayed " + n + " detections in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+                importLegacyIndex(recent);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open the detection journal", e);
+                journal = null;
+            }
+            publish(-1, recent.toArray(new String[0]), unlocated[0], true);
+        });
+    }
+
+    /**
+     * Moves the potholes of a {@code potholes.bin} snapshot, which held them before the
+     * journal, into the journal and the index, then deletes it. Each becomes one record at
+     * its last sighting, with its combined confidence. Store thread only.
+     */
+    private void importLegacyIndex(ArrayDeque<String> recent) throws IOException {
+        File file = new File(getFilesDir(), LEGACY_INDEX_FILE);
+        if (!file.isFile()) return;
+        PotholeIndex legacy = new PotholeIndex();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            legacy.readFrom(in);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read " + file + ", leaving it in place", e);
+            return;
+        }
+        DetectionRecord r = new DetectionRecord();
+        r.classId = -1;   // not recorded
+        r.trackId = -1;
+        for (int id = 0; id < legacy.size(); id++) {
+            r.wallTimeMs = legacy.lastSeenMs(id);
+            r.score = legacy.confidence(id);
+            r.latitude = legacy.latitude(id);
+            r.longitude = legacy.longitude(id);
+            journal.append(r);
+            recent.addLast("Pothole #" + (potholeIndex.add(r.latitude, r.longitude, r.score, r.wallTimeMs) + 1));
+            if (recent.size() > RECENT_DETECTIONS) recent.removeFirst();
+        }
+        journal.sync();
+        if (!file.delete()) Log.w(TAG, "Could not delete " + file);
+        Log.i(TAG, "Journal: imported " + legacy.size() + " potholes from " + file.getName());
+    }
+
+    /** Opens the snapshot cache off the UI thread; snapshots start once it is open. */
+    private void openSnapshots() {
+        File dir = new File(getCacheDir(), SNAPSHOT_DIR);
+        storeExecutor.execute(() -> {
+            try {
+                snapshotCache = new SnapshotCache(dir, SNAPSHOT_CACHE_BYTES);
+                snapshots = new SnapshotEncoder<>(
+                        new BitmapSnapshotCodec(SNAPSHOT_JPEG_QUALITY, SNAPSHOT_FULL_MAX_DIM, framePool), snapshotCache);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open the snapshot cache, evidence images are off", e);
+            }
+        });
+    }
+
+    /**
+     * Hands the frame to the snapshot encoder if potholes were confirmed in it, else
+     * returns it to the frame pool. Postprocess thread only.
+     */
+    private void snapshot(long frameIndex, List<Track> newPotholes, Sightings sightings) {
+        Bitmap frame = heldFrames.remove(frameIndex);
+        // Frames that failed between preprocess and postprocess are never claimed
+        long stale = frameIndex - HELD_FRAME_MAX_AGE;
+        for (Map.Entry<Long, Bitmap> e : heldFrames.entrySet()) {
+            if (e.getKey() < stale && heldFrames.remove(e.getKey(), e.getValue())) framePool.release(e.getValue());
+        }
+        if (frame == null) return;
+        SnapshotEncoder<Bitmap> encoder = snapshots;
+        if (encoder == null || newPotholes.isEmpty()) {
+            framePool.release(frame);
+            return;
+        }
+        float[] boxes = new float[newPotholes.size() * 4];
+        for (int i = 0; i < newPotholes.size(); i++) {
+            Track t = newPotholes.get(i);
+            boxes[i * 4] = t.ymin();
+            boxes[i * 4 + 1] = t.xmin();
+            boxes[i * 4 + 2] = t.ymax();
+            boxes[i * 4 + 3] = t.xmax();
+        }
+        encoder.submit(frame, sightings.keys, boxes);
+    }
+
+    private void recycleHeldFrames() {
+        for (Long index : heldFrames.keySet()) {
+            framePool.release(heldFrames.remove(index));
+        }
+    }
+
+    /**
+     * First cascade stage: scores the frame with the damage classifier and lets it on to
+     * the detector if the score passes, or if it is picked for an audit. Preprocess threads.
+     */
+    private boolean passesCascade(DamageClassifier classifier, TimedFrame<Bitmap> f) throws InterruptedException {
+        long t0 = System.nanoTime();
+        float score = classifier.score(f.frame);
+        return cascade.decide(f.index, score, System.nanoTime() - t0) != CascadeGate.Decision.SKIP;
+    }
+
+    /** Store thread only. */
+    private void appendToJournal(DetectionRecord record) {
+        if (journal == null) return;
+        try {
+            journal.append(record);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not journal " + record, e);
+        }
+    }
+
+    @SuppressLint("SetTextI18n")
+    private void updateTotal(DetectionFeed.Snapshot s) {
+        totalDetections.setText("Total: " + (potholeIndex.size() + s.unlocated));
+    }
+
+    /** Updates progress and publishes the playback position the decode stage samples from. */
     private final Runnable videoRunnable = new Runnable() {
-        @SuppressLint("SetTextI18n")
         @Override
         public void run() {
             if (isRunning && isVideoPrepared && videoView.isPlaying()) {
@@ -147,75 +598,450 @@ public class MainActivity extends AppCompatActivity {
                     int progress = (int) (((float) videoView.getCurrentPosition() / videoView.getDuration()) * 100);
                     progressBar.setProgress(progress);
                 }
+                playbackStampNs = System.nanoTime();
+                playbackPositionMs = videoView.getCurrentPosition();
+            } else {
+                playbackPositionMs = -1;
+                if (!isVideoPrepared) {
+                    detectionStatus.setText("Loading video...");
+                }
+            }
 
-                // Throttle: only start a new inference when previous is done
-                if (!busy) {
-                    busy = true;
-                    final long tsUs = videoView.getCurrentPosition() * 1000L;
+            if (memoryPressure.tick(SystemClock.elapsedRealtime())) applyMemoryLevel();
+            handler.postDelayed(this, UI_TICK_MS);
+        }
+    };
 
-                    exec.submit(() -> {
-                        Bitmap frameBitmap = null;
+    private final Runnable governorRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateGovernor();
+            handler.postDelayed(this, GOVERNOR_INTERVAL_MS);
+        }
+    };
+
+    /** Takes a thermal and battery reading; a tier change is logged and applied. Main thread. */
+    private void updateGovernor() {
+        InferenceGovernor.Decision d = governor.update(powerMonitor.read(conditions), SystemClock.elapsedRealtime());
+        if (d == null) return;
+        Log.i(TAG, "Governor: " + d);
+        applyLimits();
+    }
+
+    private void startPipeline() {
+        AdaptiveSampler.Config samplerConfig = new AdaptiveSampler.Config();
+        samplerConfig.minRateHz = MIN_SAMPLE_RATE_HZ;
+        samplerConfig.maxRateHz = MAX_SAMPLE_RATE_HZ;
+        samplerConfig.maxInFlight = 2 * INFER_THREADS;   // one preprocessing while one infers
+        sampler = new AdaptiveSampler(samplerConfig);
+        applyLimits();
+        AtomicBoolean stopped = new AtomicBoolean();
+        pipelineStopped = stopped;
+
+        pipeline = new FramePipeline.Builder<TimedFrame<Bitmap>, TimedFrame<FrameSlot>,
+                TimedFrame<List<Detection>>>()
+                .decoder(() -> decodeNextFrame(stopped))
+                .preprocess(f -> {
+                    DamageClassifier classifier = damageClassifier;
+                    if (classifier != null) {
+                        boolean pass = false;
                         try {
-                            frameBitmap = retriever.getFrameAtTime(tsUs, MediaMetadataRetriever.OPTION_CLOSEST);
-                        } catch (Exception ignore) {}
-
-                        boolean potholeDetected = false;
-                        if (frameBitmap != null && potholeDetector != null) {
-                            // Fast path: boolean
-                            potholeDetected = potholeDetector.detect(frameBitmap);
-                            // Or, if you want to inspect boxes:
-                            // List<PotholeDetector.Detection> dets = potholeDetector.detectWithBoxes(frameBitmap);
-                            // potholeDetected = !dets.isEmpty() && any pothole class etc.
+                            pass = passesCascade(classifier, f);
+                        } finally {
+                            if (!pass) framePool.release(f.frame);
+                        }
+                        if (!pass) {
+                            sampler.onDropped(f.index);
+                            return null;
                         }
+                    }
+                    FrameSlot slot = null;
+                    long t0 = System.nanoTime();
+                    try {
+                        slot = potholeDetector.prepare(f.frame);
+                        if (classifier != null) cascade.recordDetector(System.nanoTime() - t0);
+                    } finally {
+                        // Held for postprocess in case a pothole is confirmed in this frame
+                        if (slot != null && snapshots != null) heldFrames.put(f.index, f.frame);
+                        else framePool.release(f.frame);
+                    }
+                    if (slot == null) {
+                        sampler.onDropped(f.index);
+                        return null;
+                    }
+                    return new TimedFrame<>(slot, f.timestampUs, f.index);
+                })
+                .infer(t -> {
+                    long t0 = System.nanoTime();
+                    List<Detection> detections = potholeDetector.infer(t.frame);
+                    if (damageClassifier != null) cascade.recordDetector(System.nanoTime() - t0);
+                    return new TimedFrame<>(detections, t.timestampUs, t.index);
+                })
+                .postprocess(r -> {
+                    // Single postprocess thread: the tracker is only touched here
+                    List<Detection> potholes = potholeDetector.filterPotholes(r.frame);
+                    if (damageClassifier != null) cascade.detected(r.index, !potholes.isEmpty());
+                    List<Track> newPotholes = tracker.update(r.timestampUs, potholes);
+                    int visible = tracker.visibleCount();
+                    Sightings sightings = geotag(r.timestampUs, newPotholes);
+                    snapshot(r.index, newPotholes, sightings);
+                    publishTrackingResult(visible, sightings);
+                    // Last, so a frame that fails above is accounted as dropped instead
+                    sampler.onCompleted(r.index);
+                    perf.frameCompleted();
+                })
+                .queueCapacity(QUEUE_CAPACITY)
+                .dropPolicy(DropPolicy.DROP_OLDEST)
+                .threads(FramePipeline.Stage.PREPROCESS, PREPROCESS_THREADS)
+                .threads(FramePipeline.Stage.INFER, INFER_THREADS)
+                .onDrop(item -> {
+                    Object payload = ((TimedFrame<?>) item).frame;
+                    if (payload instanceof Bitmap) framePool.release((Bitmap) payload);
+                    else if (payload instanceof FrameSlot) potholeDetector.release((FrameSlot) payload);
+                    abandonFrame(((TimedFrame<?>) item).index);
+                })
+                .onFailure((item, e) -> {
+                    // The stage released its own input; a failed decode has no frame yet
+                    Log.w(TAG, "Pipeline stage failed", e);
+                    if (item != null) abandonFrame(((TimedFrame<?>) item).index);
+                })
+                .build();
+        pipeline.start();
+    }
+
+    /** Undoes the per-frame bookkeeping for a sampled frame that will not complete. */
+    private void abandonFrame(long index) {
+        sampler.onDropped(index);
+        perf.frameDropped();
+        framePool.release(heldFrames.remove(index));
+        cascade.dropped(index);
+    }
 
-                        boolean finalDetected = potholeDetected;
-                        runOnUiThread(() -> {
-                            if (finalDetected) {
-                                totalDetectionCount++;
-                                currentDetections.setText("Current: 1");
-                                totalDetections.setText("Total: " + totalDetectionCount);
-                                String det = "Pothole #" + totalDetectionCount;
-                                recentDetections.add(det);
-                                addRecentDetectionView(det);
-
-                                if (googleMap != null) {
-                                    double lat = -26.041317 + (random.nextDouble() - 0.5) * 0.01;
-                                    double lon = 28.958024 + (random.nextDouble() - 0.5) * 0.01;
-                                    googleMap.addMarker(new com.google.android.gms.maps.model.MarkerOptions()
-                                            .position(new com.google.android.gms.maps.model.LatLng(lat, lon))
-                                            .title(det));
-                                }
-                                detectionStatus.setText("⚠️ Pothole Detected!");
-                            } else {
-                                currentDetections.setText("Current: 0");
-                                detectionStatus.setText("✅ Road is clear...");
-                            }
-                            busy = false;
-                        });
-                    });
+    /**
+     * Stops the pipeline and waits for its stages to drain.
+     * @return false if a stage was still busy after a second
+     */
+    private boolean stopPipeline() {
+        if (pipeline == null) return true;
+        pipelineStopped.set(true);
+        pipeline.stop();
+        try {
+            return pipeline.awaitCompletion(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Steps down to, or back up from, the memory pressure level: frame pool budget, frame
+     * size, sampling rate and, at the critical level, the models. Main thread.
+     */
+    private void applyMemoryLevel() {
+        MemoryPressure.Level level = memoryPressure.level();
+        if (level == memoryLevel) return;
+        Log.i(TAG, "Memory pressure: " + memoryLevel + " -> " + level);
+        memoryLevel = level;
+        framePool.setMaxBytes((long) (FRAME_POOL_BYTES * level.poolFraction));
+        applyLimits();
+        if (level != MemoryPressure.Level.NORMAL && potholeDetector != null) {
+            potholeDetector.trimMemory();   // the slots' frame copies regrow at the downscaled size
+        }
+        if (!level.modelsLoaded) {
+            releaseDetector();
+        } else if (detectorReleased) {
+            detectorReleased = false;
+            loadDetector();
+        } else if (potholeDetector != null && pipeline == null) {
+            startPipeline();   // the models were kept, see releaseDetector
+        }
+    }
+
+    /**
+     * Applies the tighter of the memory level and the governor's tier to the frame size and
+     * the sampling rate, and the governor's tier to the interpreters running at once. Main thread.
+     */
+    private void applyLimits() {
+        InferenceGovernor.Tier tier = governor.tier();
+        if (frameSource != null) frameSource.setDownscale(Math.max(memoryLevel.downscale, tier.downscale));
+        if (sampler != null) sampler.setRateLimitHz(MAX_SAMPLE_RATE_HZ * Math.min(memoryLevel.rateScale, tier.rateScale));
+        if (potholeDetector != null) {
+            potholeDetector.setActiveParallelism(Math.max(1, Math.round(INFER_THREADS * tier.parallelismScale)));
+        }
+    }
+
+    /**
+     * Critical memory pressure: stops detection and closes the interpreters, the largest
+     * allocations the app holds. Playback goes on; the models are reloaded once the
+     * pressure has passed. Main thread.
+     */
+    private void releaseDetector() {
+        if (potholeDetector == null) return;   // still loading (READY closes it) or failed
+        if (batchJob != null) {
+            Log.w(TAG, "Batch scan running, keeping the detector");
+            return;
+        }
+        boolean drained = stopPipeline();
+        pipeline = null;
+        if (!drained) {
+            Log.w(TAG, "Pipeline did not drain, keeping the detector");
+            return;
+        }
+        recycleHeldFrames();
+        potholeDetector.close();
+        potholeDetector = null;
+        if (damageClassifier != null) damageClassifier.close();
+        damageClassifier = null;
+        detectorReleased = true;
+        setStatus("Detection paused: low memory");
+    }
+
+    /**
+     * Playback position extrapolated from the last UI tick, so the decode stage is not
+     * quantized to the tick period; -1 while not playing.
+     */
+    private long currentMediaUs() {
+        long posMs = playbackPositionMs;
+        if (posMs < 0) return -1;
+        long sinceUs = Math.min((System.nanoTime() - playbackStampNs) / 1000, 2_000L * UI_TICK_MS);
+        return posMs * 1000L + sinceUs;
+    }
+
+    /**
+     * Decode stage: takes the next sample as soon as the pipeline has room for it and the
+     * sampler's interval has passed in media time, skipping ahead to the playback position.
+     * Waits while the video is paused; ends the stream once {@code stopped} is set. The live
+     * feed sets its own pace: its frames are taken as they come and kept when a sample is due.
+     */
+    private TimedFrame<Bitmap> decodeNextFrame(AtomicBoolean stopped) throws InterruptedException {
+        while (!isFinishing() && !stopped.get()) {
+            if (!sampler.awaitCapacity(DECODE_IDLE_MS)) continue;
+            if (liveSource) {
+                TimedFrame<Bitmap> frame = nextLiveFrame();
+                if (frame == null) {
+                    Thread.sleep(DECODE_IDLE_MS);   // back to the video, or the feed ended
+                    continue;
                 }
+                if (sampler.isDue(frame.timestampUs) && admit(frame)) return frame;
+                framePool.release(frame.frame);
+                continue;
+            }
+            long posUs = currentMediaUs();
+            if (posUs >= 0) {
+                boolean rewound = posUs < lastFrameTimestampUs - REWIND_THRESHOLD_US;
+                if (rewound || (posUs > lastFrameTimestampUs && sampler.isDue(posUs))) {
+                    TimedFrame<Bitmap> frame = null;
+                    long t0 = PerfStats.start();
+                    synchronized (sourceLock) {
+                        if (frameSource != null) {
+                            try {
+                                frame = frameSource.nextAt(posUs);
+                            } catch (IOException ignore) {}
+                        }
+                    }
+                    if (frame != null) perf.record(PerfStats.Stage.FRAME_DECODE, t0);
+                    if (frame != null) {
+                        lastFrameTimestampUs = frame.timestampUs;
+                        if (admit(frame)) return frame;
+                        framePool.release(frame.frame);
+                        continue;
+                    }
+                } else {
+                    // Sleep until the next sample is due, not for a fixed tick
+                    long dueMs = (sampler.nextSampleUs(posUs) - posUs) / 1000;
+                    Thread.sleep(Math.max(1, Math.min(dueMs, DECODE_IDLE_MS)));
+                    continue;
+                }
+            }
+            Thread.sleep(DECODE_IDLE_MS);
+        }
+        return null;  // activity is going away: end of stream
+    }
+
+    /** The live feed's next frame, waiting for it outside sourceLock; null if there is none. */
+    private TimedFrame<Bitmap> nextLiveFrame() {
+        FrameSource<Bitmap> source;
+        synchronized (sourceLock) {
+            source = liveSource ? frameSource : null;   // not the video's source, which needs the lock
+        }
+        if (source == null) return null;
+        try {
+            // Closing the source from the main thread ends the wait with null
+            return source.next();
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
+    /**
+     * Passes a decoded frame into the pipeline unless it shows the same scene as the last
+     * inferred frame, whose result then stands; the caller releases a rejected frame.
+     */
+    private boolean admit(TimedFrame<Bitmap> frame) {
+        Bitmap bmp = frame.frame;
+        int w = bmp.getWidth();
+        if (!sceneGate.accept((y, row) -> bmp.getPixels(row, 0, w, 0, y, w, 1),
+                w, bmp.getHeight(), frame.timestampUs)) {
+            return false;
+        }
+        sampler.onSampled(frame.index, frame.timestampUs);
+        return true;
+    }
 
-            } else if (!isVideoPrepared) {
-                detectionStatus.setText("Loading video...");
+    // Callers hold sourceLock
+    private void closeFrameSource() {
+        if (frameSource != null) {
+            try {
+                frameSource.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
+            frameSource = null;
+        }
+    }
 
-            // Schedule next frame check every 0.5s
-            handler.postDelayed(this, 500);
+    /**
+     * One event per confirmed pothole; frames that only re-see a tracked pothole update the
+     * count. A pothole already in the index (an earlier pass) gets no second marker; new ones
+     * reach the map through the marker layer. Postprocess thread.
+     */
+    private void publishTrackingResult(int visible, Sightings sightings) {
+        String[] labels = new String[sightings.ids.length];
+        int unlocated = 0;
+        boolean fresh = false;
+        for (int i = 0; i < labels.length; i++) {
+            int id = sightings.ids[i];
+            if (id < 0) {
+                unlocated++;
+                labels[i] = "Pothole (no location)";
+            } else if (sightings.fresh[i]) {
+                labels[i] = "Pothole #" + (id + 1);
+                fresh = true;
+            } else {
+                labels[i] = "Pothole #" + (id + 1) + " seen again (" + potholeIndex.hits(id) + "x)";
+            }
         }
-    };
+        publish(visible, labels, unlocated, fresh);
+    }
+
+    /** Any thread; wakes the UI for the next display frame unless it is already due. */
+    private void publish(int visible, String[] labels, int unlocated, boolean markersChanged) {
+        if (feed.publish(visible, labels, unlocated, markersChanged)) handler.post(scheduleRender);
+    }
+
+    /**
+     * Applies the newest feed snapshot, touching only the views whose value changed since
+     * the last frame. Main thread, from a Choreographer frame callback.
+     */
+    @SuppressLint("SetTextI18n")
+    private void renderFeed() {
+        perf.record(PerfStats.Stage.UI_POST, feed.wokenNs());
+        DetectionFeed.Snapshot s = feed.take();
+        DetectionFeed.Snapshot prev = rendered;
+        if (s == prev) return;
+        rendered = s;
+        if (s.visible != prev.visible || s.generation != prev.generation) {
+            currentDetections.setText("Current: " + s.visible);
+        }
+        if (s.frames != prev.frames) {
+            // Every new frame result reclaims the status line from play/stop messages
+            setStatus(s.visible > 0 ? "⚠️ Pothole Detected!" : "✅ Road is clear...");
+        }
+        recentAdapter.show(s);
+        if (s.recentTotal != prev.recentTotal || s.unlocated != prev.unlocated
+                || s.markerVersion != prev.markerVersion || s.generation != prev.generation) {
+            updateTotal(s);
+        }
+        if (s.markerVersion != prev.markerVersion && markerLayer != null) markerLayer.invalidate();
+    }
+
+    private void setStatus(String text) {
+        if (!TextUtils.equals(detectionStatus.getText(), text)) detectionStatus.setText(text);
+    }
 
-    private void addRecentDetectionView(String text) {
-        TextView tv = new TextView(this);
-        tv.setText(text);
-        tv.setTextColor(Color.WHITE);
-        tv.setPadding(8, 8, 8, 8);
-        recentDetectionsContainer.addView(tv, 0); // add at top
-        if (recentDetectionsContainer.getChildCount() > 5) {
-            recentDetectionsContainer.removeViewAt(recentDetectionsContainer.getChildCount() - 1);
+    @SuppressLint("SetTextI18n")
+    private void onDetectorState(ModelLoader.State state, ModelLoader<PotholeDetector> loader) {
+        switch (state) {
+            case LOADING:
+                detectionStatus.setText("Loading model...");
+                break;
+            case WARMING:
+                detectionStatus.setText("Warming up model...");
+                break;
+            case READY:
+                if (isDestroyed() || !memoryLevel.modelsLoaded) {
+                    // Gone, or memory ran short while loading: reloaded once it recovers
+                    loader.model().close();
+                    if (damageClassifier != null) damageClassifier.close();
+                    damageClassifier = null;
+                    detectorReleased = true;
+                    return;
+                }
+                potholeDetector = loader.model();
+                potholeDetector.setStats(perf);
+                potholeDetector.configureRegionOfInterest(RegionOfInterest.lower(ROAD_ROI_FRACTION));
+                if (damageClassifier != null) {
+                    damageClassifier.configureRegionOfInterest(RegionOfInterest.lower(ROAD_ROI_FRACTION));
+                }
+                Log.i(TAG, "Detector ready on " + potholeDetector.getBackend() + ": load "
+                        + loader.loadTimeMs() + " ms, warm-up " + loader.warmupTimeMs() + " ms");
+                startPipeline();
+                detectionStatus.setText("Ready - Press Play to start");
+                break;
+            case FAILED:
+                Log.e(TAG, "Detector failed to load", loader.error());
+                detectionStatus.setText("Model failed to load");
+                Toast.makeText(this, "Could not load the pothole model", Toast.LENGTH_LONG).show();
+                break;
+            default:
+                break;
         }
     }
 
+    /** Long-press on Play: scan the whole video offline as fast as possible. */
+    @SuppressLint("SetTextI18n")
+    private void runBatchScan() {
+        if (batchJob != null) {
+            batchJob.cancel();
+            return;
+        }
+        if (potholeDetector == null) {
+            Toast.makeText(this, "Model is still loading", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        detectionStatus.setText("Scanning video...");
+        batchJob = new VideoBatchJob(this, videoUri, potholeDetector, BATCH_STRIDE);
+        if (TILED_BATCH_SCAN) batchJob.tiled(new TilePlanner(TILE_SIZE, TILE_SIZE, TILE_OVERLAP, MAX_TILES));
+        batchJob.start(new VideoBatchJob.Listener() {
+            @Override
+            public void onProgress(BatchProcessor.Progress p) {
+                runOnUiThread(() -> {
+                    if (p.fraction() >= 0) progressBar.setProgress((int) (p.fraction() * 100));
+                    detectionStatus.setText(String.format(java.util.Locale.US,
+                            "Scanning... %d frames, %.1f fps", p.framesProcessed, p.framesPerSecond));
+                });
+            }
+
+            @Override
+            public void onFinished(BatchReport report) {
+                runOnUiThread(() -> {
+                    batchJob = null;
+                    detectionStatus.setText("Scan: " + report.hits.size() + " pothole frames, "
+                            + String.format(java.util.Locale.US, "%.1f fps", report.framesPerSecond()));
+                    Toast.makeText(MainActivity.this, report.toString(), Toast.LENGTH_LONG).show();
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                runOnUiThread(() -> {
+                    batchJob = null;
+                    detectionStatus.setText("Scan failed");
+                });
+            }
+        });
+    }
+
     private void playVideo() {
         if (isVideoPrepared) {
             isRunning = true;
@@ -228,11 +1054,21 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void stopDetection() {
+        if (liveSource) setupVideo();   // closes the live feed
         isRunning = false;
         videoView.pause();
         progressBar.setProgress(0); // reset progress bar
         detectionStatus.setText("Detection stopped");
         Toast.makeText(this, "Detection stopped!", Toast.LENGTH_SHORT).show();
+        // Stats only; a slightly stale read from the decode thread is fine
+        Log.i(TAG, String.format(java.util.Locale.US, "Scene gate: skipped %d of %d frames (%.0f%%), %.1f us/frame",
+                sceneGate.framesSkipped(), sceneGate.framesSeen(), sceneGate.skipRate() * 100, sceneGate.meanCostUs()));
+        if (damageClassifier != null) Log.i(TAG, cascade.summary());
+        Log.i(TAG, governor.summary());
+        if (sampler != null) {
+            Log.i(TAG, String.format(java.util.Locale.US, "Sampler: %.1f Hz, latency %d ms",
+                    sampler.rateHz(), sampler.latencyUs() / 1000));
+        }
     }
 
     private void restartDetection() {
@@ -250,19 +1086,68 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Long-press on Restart: detect on the live feed, the aircraft's camera or a debug
+     * recording (see {@link FrameSources#liveStream}), instead of the video; again to go back.
+     */
     @SuppressLint("SetTextI18n")
+    private void toggleLiveSource() {
+        if (liveSource) {
+            setupVideo();
+            detectionStatus.setText("Live feed closed");
+            return;
+        }
+        boolean connected = Boolean.TRUE.equals(((PotholeFinder) getApplication()).isProductConnected.getValue());
+        FrameSource<Bitmap> live;
+        try {
+            live = FrameSources.openLive(this, connected, framePool);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open the live feed", e);
+            Toast.makeText(this, "Could not open the live feed", Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (live == null) {
+            Toast.makeText(this, "No live feed: connect an aircraft", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        isRunning = false;
+        videoView.pause();
+        synchronized (sourceLock) {
+            closeFrameSource();
+            frameSource = live;
+            liveSource = true;
+            lastFrameTimestampUs = -1;
+        }
+        applyLimits();
+        if (locationRecorder == null) {
+            // The video's telemetry does not apply to the feed: place detections where the phone is
+            locationRecorder = new FusedLocationRecorder(this);
+            locationRecorder.start(LOCATION_INTERVAL_MS);
+        }
+        detectionStatus.setText("Live feed - detecting");
+    }
+
     private void clearDetections() {
-        recentDetectionsContainer.removeAllViews();
-        recentDetections.clear();
-        totalDetectionCount = 0;
-        currentDetections.setText("Current: 0");
-        totalDetections.setText("Total: 0");
+        storeExecutor.execute(() -> {
+            // Behind a start-up replay still filling the index and the feed, together with
+            // the journal it came from; the feed's new marker version redraws the map
+            potholeIndex.clear();
+            if (feed.clear()) handler.post(scheduleRender);
+            try {
+                if (journal != null) journal.clear();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not clear the detection journal", e);
+            }
+            try {
+                if (snapshotCache != null) snapshotCache.clear();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not clear the snapshot cache", e);
+            }
+        });
         progressBar.setProgress(0);
         videoView.seekTo(0);
         Toast.makeText(this, "Detections cleared!", Toast.LENGTH_SHORT).show();
-        if (googleMap != null) {
-            googleMap.clear();
-        }
+        if (markerLayer != null) markerLayer.clear();
     }
 
     // --- MapView lifecycle ---
@@ -287,6 +1172,9 @@ public class MainActivity extends AppCompatActivity {
     protected void onStop() {
         super.onStop();
         mapView.onStop();
+        storeExecutor.execute(() -> {
+            if (journal != null) journal.requestSync();
+        });
     }
 
     @Override
@@ -297,16 +1185,39 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onDestroy() {
-        if (retriever != null) {
+        handler.removeCallbacks(videoRunnable);
+        handler.removeCallbacks(governorRunnable);
+        powerMonitor.stop();
+        handler.removeCallbacks(scheduleRender);
+        Choreographer.getInstance().removeFrameCallback(renderFrame);
+        perfOverlay.hide();
+        if (batchJob != null) batchJob.cancel();
+        stopPipeline();
+        synchronized (sourceLock) {
+            closeFrameSource();
+        }
+        recycleHeldFrames();
+        framePool.clear();
+        if (potholeDetector != null) potholeDetector.close();
+        if (damageClassifier != null) damageClassifier.close();
+        if (locationRecorder != null) locationRecorder.stop();
+        if (markerLayer != null) markerLayer.close();
+        storeExecutor.execute(() -> {
             try {
-                retriever.release();
+                if (journal != null) journal.close();
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                Log.e(TAG, "Could not close the detection journal", e);
             }
-        }
+            if (snapshots != null) snapshots.close();
+            try {
+                if (snapshotCache != null) snapshotCache.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not close the snapshot cache", e);
+            }
+        });
+        storeExecutor.shutdown();
 
         mapView.onDestroy();
-        handler.removeCallbacks(videoRunnable);
         super.onDestroy();
     }
 
@@ -325,5 +1236,12 @@ public class MainActivity extends AppCompatActivity {
     public void onLowMemory() {
         super.onLowMemory();
         mapView.onLowMemory();
+        if (memoryPressure.onLowMemory(SystemClock.elapsedRealtime())) applyMemoryLevel();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (memoryPressure.onTrimMemory(level, SystemClock.elapsedRealtime())) applyMemoryLevel();
     }
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
-/*
 package co.za.letsibogo.potholefinder;
 
-import android.app.Application;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.util.Log;
 
 import androidx.lifecycle.MutableLiveData;
 import androidx.multidex.MultiDex;
@@ -16,15 +17,23 @@ import dji.v5.network.DJINetworkManager;
 
 public class PotholeFinder extends MultiDexApplication {
 
-    public MutableLiveData<Boolean> isRegistered = new MutableLiveData<>();
-    public MutableLiveData<Boolean> isProductConnected = new MutableLiveData<>();
-    public MutableLiveData<DJISDKInitEvent> initEvent = new MutableLiveData<>();
+    private static final String TAG = "PotholeFinder";
+    private static final String DJI_KEY_META = "com.dji.sdk.API_KEY";
+
+    public final MutableLiveData<Boolean> isRegistered = new MutableLiveData<>();
+    public final MutableLiveData<Boolean> isProductConnected = new MutableLiveData<>();
+    public final MutableLiveData<DJISDKInitEvent> initEvent = new MutableLiveData<>();
     private boolean isInit = false;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        initMobileSDK(this);
+        // The live aircraft feed needs the DJI SDK; without an API key only video files are used
+        if (hasDjiApiKey()) {
+            initMobileSDK(this);
+        } else {
+            Log.i(TAG, "No DJI API key configured, live ingest disabled");
+        }
     }
 
     @Override
@@ -33,6 +42,16 @@ public class PotholeFinder extends MultiDexApplication {
         MultiDex.install(this);
     }
 
+    private boolean hasDjiApiKey() {
+        try {
+            ApplicationInfo info = getPackageManager().getApplicationInfo(getPackageName(), PackageManager.GET_META_DATA);
+            String key = info.metaData != null ? info.metaData.getString(DJI_KEY_META) : null;
+            return key != null && !key.isEmpty();
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+    }
+
     private void initMobileSDK(Context context) {
         SDKManager.getInstance().init(context, new SDKManagerCallback() {
             @Override
@@ -88,28 +107,3 @@ public class PotholeFinder extends MultiDexApplication {
         SDKManager.getInstance().destroy();
     }
 }
-*/
-
-package co.za.letsibogo.potholefinder;
-
-import android.app.Application;
-import android.content.Context;
-
-import androidx.multidex.MultiDex;
-import androidx.multidex.MultiDexApplication;
-
-public class PotholeFinder extends MultiDexApplication {
-
-    @Override
-    public void onCreate() {
-        super.onCreate();
-        // No DJI SDK init for now, focus only on UI and video feed.
-    }
-
-    @Override
-    protected void attachBaseContext(Context base) {
-        super.attachBaseContext(base);
-        MultiDex.install(this);
-    }
-}
-
@@ -0,0 +1,171 @@
+package co.za.letsibogo.potholefinder.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import co.za.letsibogo.potholefinder.pipeline.DropPolicy;
+import co.za.letsibogo.potholefinder.pipeline.FramePipeline;
+import co.za.letsibogo.potholefinder.source.FrameSource;
+import co.za.letsibogo.potholefinder.source.TimedFrame;
+import co.za.letsibogo.potholefinder.tflite.Detection;
+
+/**
+ * Offline detection over a whole video, as fast as the source and detector allow.
+ * <p>
+ * Frames are pulled sequentially from a {@link FrameSource} (every {@code stride}-th
+ * frame; the rest are skipped without conversion) and pushed through a
+ * {@link FramePipeline} with {@link DropPolicy#BLOCK}, so decoding overlaps inference and
+ * no frame is dropped. No Android or UI types are involved: the caller supplies the
+ * preprocess and infer steps.
+ *
+ * @param <F> decoded frame
+ * @param <T> preprocessed model input
+ */
+public class BatchProcessor<F, T> {
+
+    public interface ProgressListener {
+        /** Called from a worker thread at most every {@link Options#progressIntervalMs}. */
+        void onProgress(Progress progress);
+    }
+
+    public static class Progress {
+        public final long framesProcessed;
+        public final long timestampUs;
+        public final long durationUs;
+        public final double framesPerSecond;
+
+        Progress(long framesProcessed, long timestampUs, long durationUs, double framesPerSecond) {
+            this.framesProcessed = framesProcessed;
+            this.timestampUs = timestampUs;
+            this.durationUs = durationUs;
+            this.framesPerSecond = framesPerSecond;
+        }
+
+        /** 0..1, or -1 if the video length is unknown. */
+        public double fraction() {
+            return durationUs > 0 ? Math.min(1.0, (double) timestampUs / durationUs) : -1;
+        }
+    }
+
+    public static class Options {
+        /** Process every Nth frame; 1 processes every frame. */
+        public int stride = 1;
+        public int queueCapacity = 4;
+        public int preprocessThreads = 1;
+        public int inferThreads = 1;
+        public long progressIntervalMs = 500;
+        /** Receives frames/inputs that are discarded without finishing, e.g. on cancel. */
+        public Consumer<Object> recycler;
+    }
+
+    private final FrameSource<F> source;
+    private final FramePipeline.Transform<F, T> preprocess;
+    private final FramePipeline.Transform<T, List<Detection>> infer;
+    private final Options options;
+    private final ProgressListener listener;
+
+    private volatile boolean cancelled = false;
+    private volatile FramePipeline<?, ?, ?> pipeline;
+
+    public BatchProcessor(FrameSource<F> source,
+                          FramePipeline.Transform<F, T> preprocess,
+                          FramePipeline.Transform<T, List<Detection>> infer,
+                          Options options, ProgressListener listener) {
+        if (options.stride < 1) throw new IllegalArgumentException("stride must be >= 1");
+        this.source = source;
+        this.preprocess = preprocess;
+        this.infer = infer;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    /** Runs to the end of the video (or until {@link #cancel()}) on the calling thread. */
+    public BatchReport run() throws InterruptedException {
+        final long startNs = System.nanoTime();
+        final AtomicLong detections = new AtomicLong();
+        final AtomicLong lastProgressNs = new AtomicLong(startNs);
+        final List<BatchReport.FrameHit> hits = new ArrayList<>();
+        final boolean[] first = {true};
+
+        FramePipeline<TimedFrame<F>, TimedFrame<T>, TimedFrame<List<Detection>>> p =
+                new FramePipeline.Builder<TimedFrame<F>, TimedFrame<T>, TimedFrame<List<Detection>>>()
+                        .decoder(() -> {
+                            if (cancelled) return null;
+                            if (!first[0] && options.stride > 1) {
+                                if (source.skip(options.stride - 1) < options.stride - 1) return null;
+                            }
+                            first[0] = false;
+                            return source.next();
+                        })
+                        .preprocess(f -> {
+                            T input = preprocess.apply(f.frame);
+                            return input != null ? new TimedFrame<>(input, f.timestampUs, f.index) : null;
+                        })
+                        .infer(t -> new TimedFrame<>(infer.apply(t.frame), t.timestampUs, t.index))
+                        .postprocess(r -> {
+                            List<Detection> dets = r.frame;
+                            if (dets != null && !dets.isEmpty()) {
+                                float max = 0f;
+                                for (Detection d : dets) max = Math.max(max, d.score);
+                                detections.addAndGet(dets.size());
+                                synchronized (hits) {
+                                    hits.add(new BatchReport.FrameHit(r.timestampUs, dets.size(), max));
+                                }
+                            }
+                            maybeReportProgress(r.timestampUs, startNs, lastProgressNs);
+                        })
+                        .queueCapacity(options.queueCapacity)
+                        .dropPolicy(DropPolicy.BLOCK)
+                        .threads(FramePipeline.Stage.PREPROCESS, options.preprocessThreads)
+                        .threads(FramePipeline.Stage.INFER, options.inferThreads)
+                        .onDrop(item -> {
+                            if (options.recycler != null && item instanceof TimedFrame) {
+                                options.recycler.accept(((TimedFrame<?>) item).frame);
+                            }
+                        })
+                        .build();
+
+        pipeline = p;
+        p.start();
+        if (cancelled) p.stop();  // cancel() raced with start
+        p.awaitCompletion(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - startNs;
+
+        List<BatchReport.FrameHit> sorted;
+        synchronized (hits) {
+            sorted = new ArrayList<>(hits);
+        }
+        sorted.sort((a, b) -> Long.compare(a.timestampUs, b.timestampUs));
+        return new BatchReport(p.decodedCount(), p.completedCount(), p.failedCount(), detections.get(),
+                elapsed, cancelled, sorted);
+    }
+
+    /** Stops decoding; frames already queued are discarded and {@link #run()} returns early. */
+    public void cancel() {
+        cancelled = true;
+        FramePipeline<?, ?, ?> p = pipeline;
+        if (p != null) p.stop();
+    }
+
+    /** Closes the underlying frame source. */
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private void maybeReportProgress(long timestampUs, long startNs, AtomicLong lastProgressNs) {
+        if (listener == null) return;
+        long now = System.nanoTime();
+        long last = lastProgressNs.get();
+        if (now - last < TimeUnit.MILLISECONDS.toNanos(options.progressIntervalMs)) return;
+        if (!lastProgressNs.compareAndSet(last, now)) return;  // another thread just reported
+
+        FramePipeline<?, ?, ?> p = pipeline;
+        long processed = p != null ? p.completedCount() : 0;
+        double fps = processed * 1e9 / Math.max(1, now - startNs);
+        listener.onProgress(new Progress(processed, timestampUs, source.durationUs(), fps));
+    }
+}
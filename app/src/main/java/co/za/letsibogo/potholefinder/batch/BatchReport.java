@@ -0,0 +1,56 @@
+package co.za.letsibogo.potholefinder.batch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/** Summary of one offline pass over a video. */
+public class BatchReport {
+
+    /** A frame that produced at least one detection. */
+    public static class FrameHit {
+        public final long timestampUs;
+        public final int detections;
+        public final float maxScore;
+
+        public FrameHit(long timestampUs, int detections, float maxScore) {
+            this.timestampUs = timestampUs;
+            this.detections = detections;
+            this.maxScore = maxScore;
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.US, "%.2fs: %d (max %.2f)", timestampUs / 1e6, detections, maxScore);
+        }
+    }
+
+    public final long framesDecoded;
+    public final long framesProcessed;
+    public final long framesFailed;
+    public final long totalDetections;
+    public final long elapsedNs;
+    public final boolean cancelled;
+    /** Frames with detections, in timestamp order. */
+    public final List<FrameHit> hits;
+
+    public BatchReport(long framesDecoded, long framesProcessed, long framesFailed, long totalDetections,
+                       long elapsedNs, boolean cancelled, List<FrameHit> hits) {
+        this.framesDecoded = framesDecoded;
+        this.framesProcessed = framesProcessed;
+        this.framesFailed = framesFailed;
+        this.totalDetections = totalDetections;
+        this.elapsedNs = elapsedNs;
+        this.cancelled = cancelled;
+        this.hits = Collections.unmodifiableList(hits);
+    }
+
+    public double framesPerSecond() {
+        return elapsedNs > 0 ? framesProcessed * 1e9 / elapsedNs : 0;
+    }
+
+    @Override public String toString() {
+        return String.format(Locale.US, "%s%d frames in %.1fs (%.1f fps), %d with potholes, %d detections, %d failed",
+                cancelled ? "[cancelled] " : "", framesProcessed, elapsedNs / 1e9, framesPerSecond(),
+                hits.size(), totalDetections, framesFailed);
+    }
+}
@@ -0,0 +1,123 @@
+package co.za.letsibogo.potholefinder.batch;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+
+import co.za.letsibogo.potholefinder.source.FrameSources;
+import co.za.letsibogo.potholefinder.tflite.FrameSlot;
+import co.za.letsibogo.potholefinder.tflite.PotholeDetector;
+import co.za.letsibogo.potholefinder.tflite.TilePlanner;
+import co.za.letsibogo.potholefinder.tflite.TiledDetector;
+
+/**
+ * Runs a {@link BatchProcessor} over a video file on a background thread, with the
+ * sequential frame source and the shared {@link PotholeDetector}, either on whole frames or,
+ * with {@link #tiled}, on tiles at native resolution. Callbacks arrive on the worker thread;
+ * post to the UI yourself.
+ */
+public class VideoBatchJob {
+
+    public interface Listener {
+        void onProgress(BatchProcessor.Progress progress);
+        void onFinished(BatchReport report);
+        void onFailed(Exception e);
+    }
+
+    private static final String TAG = "VideoBatchJob";
+
+    private final Context ctx;
+    private final Uri videoUri;
+    private final PotholeDetector detector;
+    private final BatchProcessor.Options options;
+    private TilePlanner tilePlanner;   // null: whole frames
+    private volatile BatchProcessor<Bitmap, ?> processor;
+    private Thread worker;
+
+    public VideoBatchJob(Context ctx, Uri videoUri, PotholeDetector detector, int stride) {
+        this.ctx = ctx.getApplicationContext();
+        this.videoUri = videoUri;
+        this.detector = detector;
+        this.options = new BatchProcessor.Options();
+        this.options.stride = stride;
+        this.options.inferThreads = detector.getParallelism();
+        this.options.recycler = item -> {
+            if (item instanceof Bitmap) ((Bitmap) item).recycle();
+            else if (item instanceof FrameSlot) detector.release((FrameSlot) item);
+        };
+    }
+
+    /**
+     * Detects on overlapping tiles of each frame at native resolution ({@link TiledDetector})
+     * instead of the whole frame resized, for small potholes in 4K footage. About as many
+     * times slower as there are tiles. Call before {@link #start}.
+     */
+    public synchronized VideoBatchJob tiled(TilePlanner planner) {
+        if (worker != null) throw new IllegalStateException("Job already started");
+        this.tilePlanner = planner;
+        return this;
+    }
+
+    public synchronized void start(Listener listener) {
+        if (worker != null) throw new IllegalStateException("Job already started");
+        worker = new Thread(() -> run(listener), "VideoBatchJob");
+        worker.start();
+    }
+
+    public void cancel() {
+        BatchProcessor<?, ?> p = processor;
+        if (p != null) p.cancel();
+    }
+
+    private void run(Listener listener) {
+        TiledDetector tiler = tilePlanner != null ? new TiledDetector(detector, tilePlanner) : null;
+        BatchProcessor<Bitmap, ?> p;
+        if (tiler != null) {
+            options.inferThreads = 1;   // each frame's tiles already keep every interpreter busy
+            p = new BatchProcessor<Bitmap, Bitmap>(
+                    FrameSources.open(ctx, videoUri),
+                    frame -> frame,
+                    frame -> {
+                        try {
+                            return tiler.detect(frame);
+                        } finally {
+                            frame.recycle();
+                        }
+                    },
+                    options,
+                    listener::onProgress);
+        } else {
+            p = new BatchProcessor<Bitmap, FrameSlot>(
+                    FrameSources.open(ctx, videoUri),
+                    frame -> {
+                        try {
+                            return detector.prepare(frame);
+                        } finally {
+                            frame.recycle();
+                        }
+                    },
+                    detector::infer,
+                    options,
+                    listener::onProgress);
+        }
+        processor = p;
+        try {
+            BatchReport report = p.run();
+            Log.i(TAG, "Batch done: " + report);
+            listener.onFinished(report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.onFailed(e);
+        } finally {
+            if (tiler != null) tiler.close();
+            try {
+                p.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close frame source", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package co.za.letsibogo.potholefinder.gate;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * First stage of a two-stage cascade: a cheap "damage likely" score per frame decides
+ * whether the frame goes on to the full detector.
+ * <p>
+ * Frames scoring at least {@code threshold} pass; the rest are skipped. To measure what
+ * skipping costs, every {@code auditEvery}-th frame that would be skipped is sent to the
+ * detector anyway (1 audits all of them, 0 turns auditing off). An audited frame in which
+ * the detector finds a pothole is a miss. Misses, scaled by {@code auditEvery}, estimate
+ * the potholes the gate throws away.
+ * <p>
+ * Every detector outcome is also binned by its gate score, separately for frames with and
+ * without potholes. From those bins {@link #passRateAt} and {@link #recallAt} show what
+ * another threshold would have done on the same footage, so a city's threshold can be
+ * tuned from one audited drive. Below the current threshold the bins hold only audited
+ * frames, weighted by {@code auditEvery}.
+ * <p>
+ * Thread-safe: {@link #decide} is called from the preprocess threads and
+ * {@link #detected} from postprocess.
+ */
+public class CascadeGate {
+
+    public enum Decision {
+        /** Score at or over the threshold: run the detector. */
+        PASS,
+        /** Under the threshold: skip the detector. */
+        SKIP,
+        /** Under the threshold but detected anyway, to count misses. */
+        AUDIT
+    }
+
+    public static class Config {
+        /** Gate scores at or above this go to the detector. */
+        public float threshold = 0.3f;
+        /** Detect every n-th frame the gate would skip; 1 audits all, 0 never. */
+        public int auditEvery = 0;
+        /** Score bins over [0,1] for the threshold sweep. */
+        public int bins = 20;
+    }
+
+    /** Frames between decide and detected, by frame index. */
+    private static final class Pending {
+        final float score;
+        final boolean audit;
+
+        Pending(float score, boolean audit) {
+            this.score = score;
+            this.audit = audit;
+        }
+    }
+
+    // Outcomes older than this many frame indices are given up on (failed or dropped frames)
+    private static final long PENDING_MAX_AGE = 512;
+
+    private final Config config;
+    private volatile float threshold;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();   // frames under the threshold, for audit spacing
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong audited = new AtomicLong();
+    private final AtomicLong passedPositive = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong gateNs = new AtomicLong();
+    private final AtomicLong detectorNs = new AtomicLong();
+    private final AtomicLong detectorRuns = new AtomicLong();
+    // Weighted detector outcomes per score bin
+    private final AtomicLongArray positives;
+    private final AtomicLongArray negatives;
+
+    public CascadeGate() {
+        this(new Config());
+    }
+
+    public CascadeGate(Config config) {
+        if (config.auditEvery < 0 || config.bins < 1) {
+            throw new IllegalArgumentException("auditEvery must be >= 0 and bins >= 1");
+        }
+        this.config = config;
+        this.threshold = config.threshold;
+        this.positives = new AtomicLongArray(config.bins);
+        this.negatives = new AtomicLongArray(config.bins);
+    }
+
+    /**
+     * Decides the fate of frame {@code frameIndex}.
+     * @param score   gate score in [0,1]
+     * @param scoreNs what computing the score cost
+     */
+    public Decision decide(long frameIndex, float score, long scoreNs) {
+        frames.incrementAndGet();
+        gateNs.addAndGet(scoreNs);
+        if (score >= threshold) {
+            passed.incrementAndGet();
+            pending.put(frameIndex, new Pending(score, false));
+            return Decision.PASS;
+        }
+        int every = config.auditEvery;
+        if (every > 0 && rejected.incrementAndGet() % every == 0) {
+            audited.incrementAndGet();
+            pending.put(frameIndex, new Pending(score, true));
+            return Decision.AUDIT;
+        }
+        skipped.incrementAndGet();
+        return Decision.SKIP;
+    }
+
+    /** Adds detector time (prepare, invoke) spent on a passed or audited frame. */
+    public void recordDetector(long ns) {
+        detectorNs.addAndGet(ns);
+    }
+
+    /** The detector finished frame {@code frameIndex}; {@code potholes} if it found any. */
+    public void detected(long frameIndex, boolean potholes) {
+        Pending p = pending.remove(frameIndex);
+        sweep(frameIndex);
+        if (p == null) return;
+        detectorRuns.incrementAndGet();
+        int weight = p.audit ? config.auditEvery : 1;
+        (potholes ? positives : negatives).addAndGet(bin(p.score), weight);
+        if (!potholes) return;
+        if (p.audit) missed.incrementAndGet();
+        else passedPositive.incrementAndGet();
+    }
+
+    /** Frame {@code frameIndex} was dropped before the detector finished it. */
+    public void dropped(long frameIndex) {
+        pending.remove(frameIndex);
+    }
+
+    private void sweep(long frameIndex) {
+        if (pending.size() < 16) return;
+        for (Iterator<Long> it = pending.keySet().iterator(); it.hasNext(); ) {
+            if (it.next() < frameIndex - PENDING_MAX_AGE) it.remove();
+        }
+    }
+
+    private int bin(float score) {
+        int b = (int) (score * config.bins);
+        return Math.max(0, Math.min(config.bins - 1, b));
+    }
+
+    public float threshold() { return threshold; }
+
+    /** Changes the threshold from the next frame on, e.g. for another city. */
+    public void setThreshold(float threshold) { this.threshold = threshold; }
+
+    public long frames() { return frames.get(); }
+
+    public long passedCount() { return passed.get(); }
+
+    public long skippedCount() { return skipped.get(); }
+
+    public long auditedCount() { return audited.get(); }
+
+    /** Audited frames the detector found potholes in, which the gate would have skipped. */
+    public long missedCount() { return missed.get(); }
+
+    /** Fraction of frames that passed the gate, 0 before any frame. */
+    public float passRate() {
+        long n = frames.get();
+        return n == 0 ? 0f : (float) passed.get() / n;
+    }
+
+    /**
+     * Estimated fraction of pothole frames the gate lets through, or NaN if no audit has
+     * found a pothole and none has passed yet.
+     */
+    public float recall() {
+        long hit = passedPositive.get();
+        long miss = missed.get() * Math.max(1, config.auditEvery);
+        return hit + miss == 0 ? Float.NaN : (float) hit / (hit + miss);
+    }
+
+    /** Mean gate cost per frame, in milliseconds. */
+    public float meanGateMs() {
+        long n = frames.get();
+        return n == 0 ? 0f : gateNs.get() / 1e6f / n;
+    }
+
+    /** Mean detector cost per frame it ran on, in milliseconds. */
+    public float meanDetectorMs() {
+        long n = detectorRuns.get();
+        return n == 0 ? 0f : detectorNs.get() / 1e6f / n;
+    }
+
+    /**
+     * Net detector time saved per frame in milliseconds: detector runs skipped, less what the
+     * gate costs on every frame. Negative when the gate costs more than it saves.
+     */
+    public float savedMsPerFrame() {
+        long n = frames.get();
+        return n == 0 ? 0f : skipped.get() * meanDetectorMs() / n - meanGateMs();
+    }
+
+    /**
+     * Estimated pass rate had the threshold been {@code t}, from the detector outcomes seen.
+     * Below the current threshold this needs auditing on.
+     */
+    public float passRateAt(float t) {
+        long above = 0, all = 0;
+        int from = bin(t);
+        for (int b = 0; b < config.bins; b++) {
+            long n = positives.get(b) + negatives.get(b);
+            all += n;
+            if (b >= from) above += n;
+        }
+        return all == 0 ? Float.NaN : (float) above / all;
+    }
+
+    /** Estimated recall had the threshold been {@code t}, from the detector outcomes seen. */
+    public float recallAt(float t) {
+        long above = 0, all = 0;
+        int from = bin(t);
+        for (int b = 0; b < config.bins; b++) {
+            long n = positives.get(b);
+            all += n;
+            if (b >= from) above += n;
+        }
+        return all == 0 ? Float.NaN : (float) above / all;
+    }
+
+    /** One line for the log. */
+    public String summary() {
+        return String.format(Locale.US,
+                "Cascade: threshold %.2f, passed %d of %d (%.0f%%), audited %d, missed %d, recall %.2f, "
+                        + "gate %.2f ms, detector %.1f ms, saved %.1f ms/frame",
+                threshold, passed.get(), frames.get(), passRate() * 100, audited.get(), missed.get(),
+                recall(), meanGateMs(), meanDetectorMs(), savedMsPerFrame());
+    }
+
+    /** The counters and the per-threshold sweep, for tuning offline. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append('{');
+        sb.append("\"threshold\":").append(String.format(Locale.US, "%.3f", threshold));
+        sb.append(",\"auditEvery\":").append(config.auditEvery);
+        sb.append(",\"frames\":").append(frames.get());
+        sb.append(",\"passed\":").append(passed.get());
+        sb.append(",\"skipped\":").append(skipped.get());
+        sb.append(",\"audited\":").append(audited.get());
+        sb.append(",\"missed\":").append(missed.get());
+        sb.append(",\"recall\":").append(jsonFloat(recall()));
+        sb.append(",\"meanGateMs\":").append(jsonFloat(meanGateMs()));
+        sb.append(",\"meanDetectorMs\":").append(jsonFloat(meanDetectorMs()));
+        sb.append(",\"savedMsPerFrame\":").append(jsonFloat(savedMsPerFrame()));
+        sb.append(",\"sweep\":[");
+        for (int b = 0; b < config.bins; b++) {
+            float t = (float) b / config.bins;
+            if (b > 0) sb.append(',');
+            sb.append("{\"threshold\":").append(jsonFloat(t))
+                    .append(",\"passRate\":").append(jsonFloat(passRateAt(t)))
+                    .append(",\"recall\":").append(jsonFloat(recallAt(t)))
+                    .append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /** Writes {@link #toJson()} to {@code file}, replacing it. */
+    public void writeJson(File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(toJson());
+        }
+    }
+
+    private static String jsonFloat(float v) {
+        return Float.isNaN(v) ? "null" : String.format(Locale.US, "%.3f", v);
+    }
+}
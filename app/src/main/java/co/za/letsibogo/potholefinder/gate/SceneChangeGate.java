@@ -0,0 +1,151 @@
+package co.za.letsibogo.potholefinder.gate;
+
+import java.util.Arrays;
+
+/**
+ * Cheap pre-inference check that lets a frame through only when it differs enough from the
+ * last frame that was let through, e.g. so a vehicle stopped in traffic is not re-inferred
+ * (and its potholes re-reported) every sample.
+ * <p>
+ * Each frame is reduced to a small luma thumbnail by point-sampling a few source rows per
+ * thumbnail row, so a 1080p frame costs a couple of thousand reads instead of two million. The
+ * difference is the mean absolute luma change across the thumbnail (0..255). A frame is
+ * always let through after {@code maxSkipUs} so slow drift (lighting) still gets inferred.
+ * <p>
+ * Not thread-safe: call from one thread, normally the decode stage.
+ */
+public class SceneChangeGate {
+
+    /** Reads one row of ARGB pixels, e.g. {@code Bitmap.getPixels(dst, 0, w, 0, y, w, 1)}. */
+    public interface RowSource {
+        void readRow(int y, int[] dst);
+    }
+
+    public static class Config {
+        public int thumbWidth = 32;
+        public int thumbHeight = 18;
+        /** Source rows and columns sampled per thumbnail cell, per axis. */
+        public int samplesPerCell = 2;
+        /** Mean absolute luma difference (0..255) below which a frame is skipped. */
+        public float threshold = 4f;
+        /** Let a frame through at least this often even if nothing changed. */
+        public long maxSkipUs = 2_000_000;
+    }
+
+    private final Config config;
+    private final int cells;
+    private final int[] reference;   // luma of the last frame let through
+    private final int[] current;
+    private int[] row = new int[0];
+    private boolean hasReference = false;
+    private long referenceTimestampUs;
+
+    private long seen, skipped;
+    private long costNs;
+    private float lastDifference = Float.NaN;
+
+    public SceneChangeGate() {
+        this(new Config());
+    }
+
+    public SceneChangeGate(Config config) {
+        this.config = config;
+        this.cells = config.thumbWidth * config.thumbHeight;
+        this.reference = new int[cells];
+        this.current = new int[cells];
+    }
+
+    /**
+     * @return true if the frame should be inferred; false to skip it and keep the previous result
+     */
+    public boolean accept(RowSource rows, int w, int h, long timestampUs) {
+        long t0 = System.nanoTime();
+        if (row.length < w) row = new int[w];
+        int s = config.samplesPerCell, th = config.thumbHeight;
+        Arrays.fill(current, 0);
+        for (int ty = 0; ty < th; ty++) {
+            for (int sy = 0; sy < s; sy++) {
+                rows.readRow(sampleRow(ty, sy, h), row);
+                accumulateRow(row, 0, w, ty);
+            }
+        }
+        return decide(timestampUs, t0);
+    }
+
+    /** Same as {@link #accept(RowSource, int, int, long)} for a frame already in memory. */
+    public boolean accept(int[] argb, int w, int h, long timestampUs) {
+        long t0 = System.nanoTime();
+        int s = config.samplesPerCell, th = config.thumbHeight;
+        Arrays.fill(current, 0);
+        for (int ty = 0; ty < th; ty++) {
+            for (int sy = 0; sy < s; sy++) {
+                accumulateRow(argb, sampleRow(ty, sy, h) * w, w, ty);
+            }
+        }
+        return decide(timestampUs, t0);
+    }
+
+    private int sampleRow(int ty, int sy, int h) {
+        int s = config.samplesPerCell, th = config.thumbHeight;
+        return Math.min(h - 1, (int) (((ty * s + sy + 0.5f) / (th * s)) * h));
+    }
+
+    private void accumulateRow(int[] px, int offset, int w, int ty) {
+        int s = config.samplesPerCell;
+        int tw = config.thumbWidth;
+        int base = ty * tw;
+        for (int tx = 0; tx < tw; tx++) {
+            int sum = 0;
+            for (int sx = 0; sx < s; sx++) {
+                int x = Math.min(w - 1, (int) (((tx * s + sx + 0.5f) / (tw * s)) * w));
+                int p = px[offset + x];
+                // BT.601 luma, integer weights summing to 256
+                sum += (77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF)) >> 8;
+            }
+            current[base + tx] += sum;
+        }
+    }
+
+    private boolean decide(long timestampUs, long startNs) {
+        seen++;
+        boolean pass;
+        if (!hasReference || timestampUs < referenceTimestampUs
+                || timestampUs - referenceTimestampUs >= config.maxSkipUs) {
+            pass = true;
+            lastDifference = Float.NaN;
+        } else {
+            long total = 0;
+            for (int i = 0; i < cells; i++) total += Math.abs(current[i] - reference[i]);
+            int samples = config.samplesPerCell * config.samplesPerCell;
+            lastDifference = (float) total / (cells * samples);
+            pass = lastDifference >= config.threshold;
+        }
+        if (pass) {
+            System.arraycopy(current, 0, reference, 0, cells);
+            referenceTimestampUs = timestampUs;
+            hasReference = true;
+        } else {
+            skipped++;
+        }
+        costNs += System.nanoTime() - startNs;
+        return pass;
+    }
+
+    /** Forget the reference frame, e.g. after a seek; the next frame always passes. */
+    public void reset() {
+        hasReference = false;
+    }
+
+    public long framesSeen() { return seen; }
+
+    public long framesSkipped() { return skipped; }
+
+    /** Fraction of frames skipped so far, 0 before any frame. */
+    public float skipRate() { return seen == 0 ? 0f : (float) skipped / seen; }
+
+    /** Mean cost of one {@code accept} call in microseconds. */
+    public float meanCostUs() { return seen == 0 ? 0f : costNs / 1000f / seen; }
+
+    /** Difference of the last frame compared with its reference, NaN if it passed unconditionally. */
+    public float lastDifference() { return lastDifference; }
+}
@@ -0,0 +1,86 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams the per-frame telemetry DJI drones write as a {@code .SRT} subtitle track next to
+ * each video into a {@link TelemetryTrack} timed in media microseconds (the subtitle start
+ * time), so frame timestamps look up directly.
+ * <p>
+ * Both formats in the wild are understood: {@code [latitude: y] [longitude: x]
+ * [rel_alt: a abs_alt: b]} (Mini, Air, Mavic 3) and {@code GPS(x, y, a)} with longitude
+ * first (Phantom, older Mavic).
+ */
+public final class DjiSrtReader {
+
+    private static final String NUMBER = "(-?\\d+(?:\\.\\d+)?)";
+    private static final Pattern TIMING = Pattern.compile(
+            "(\\d+):(\\d{2}):(\\d{2})[,.](\\d{1,3})\\s*-->");
+    private static final Pattern LATITUDE = Pattern.compile("latitude\\s*:\\s*" + NUMBER);
+    private static final Pattern LONGITUDE = Pattern.compile("longitude\\s*:\\s*" + NUMBER);
+    private static final Pattern ABS_ALT = Pattern.compile("abs_alt\\s*:\\s*" + NUMBER);
+    private static final Pattern ALTITUDE = Pattern.compile("altitude\\s*:\\s*" + NUMBER);
+    private static final Pattern GPS = Pattern.compile(
+            "GPS\\s*\\(\\s*" + NUMBER + "\\s*,\\s*" + NUMBER + "(?:\\s*,\\s*" + NUMBER + ")?");
+
+    private DjiSrtReader() {}
+
+    public static TelemetryTrack read(InputStream in) throws IOException {
+        TelemetryTrack track = new TelemetryTrack(TelemetryTrack.TimeBase.MEDIA);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Matcher timing = TIMING.matcher("");
+        StringBuilder block = new StringBuilder(256);
+        long startUs = -1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (timing.reset(line).find()) {
+                if (startUs >= 0) addEntry(track, startUs, block);   // no blank line in between
+                startUs = ((Long.parseLong(timing.group(1)) * 60 + Long.parseLong(timing.group(2))) * 60
+                        + Long.parseLong(timing.group(3))) * 1_000_000
+                        + millis(timing.group(4)) * 1000;
+                block.setLength(0);
+            } else if (line.trim().isEmpty()) {
+                if (startUs >= 0) addEntry(track, startUs, block);
+                startUs = -1;
+                block.setLength(0);
+            } else if (startUs >= 0) {
+                block.append(line).append(' ');
+            }
+        }
+        if (startUs >= 0) addEntry(track, startUs, block);
+        return track;
+    }
+
+    private static long millis(String fraction) {
+        long v = Long.parseLong(fraction);
+        for (int i = fraction.length(); i < 3; i++) v *= 10;
+        return v;
+    }
+
+    private static void addEntry(TelemetryTrack track, long startUs, CharSequence text) {
+        double lat, lon;
+        float alt = Float.NaN;
+        Matcher m = LATITUDE.matcher(text);
+        if (m.find()) {
+            lat = Double.parseDouble(m.group(1));
+            if (!(m = LONGITUDE.matcher(text)).find()) return;
+            lon = Double.parseDouble(m.group(1));
+            if ((m = ABS_ALT.matcher(text)).find() || (m = ALTITUDE.matcher(text)).find()) {
+                alt = Float.parseFloat(m.group(1));
+            }
+        } else if ((m = GPS.matcher(text)).find()) {
+            lon = Double.parseDouble(m.group(1));
+            lat = Double.parseDouble(m.group(2));
+            if (m.group(3) != null) alt = Float.parseFloat(m.group(3));
+        } else {
+            return;
+        }
+        track.add(startUs, lat, lon, alt, Float.NaN);
+    }
+}
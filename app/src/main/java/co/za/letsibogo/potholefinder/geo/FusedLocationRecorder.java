@@ -0,0 +1,72 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+/**
+ * Records the phone's fused location into a {@link TelemetryTrack} in
+ * {@link TelemetryTrack.TimeBase#EPOCH}, for geotagging live capture: a frame taken at wall
+ * time t is looked up at t.
+ */
+public class FusedLocationRecorder {
+
+    private final Context ctx;
+    private final FusedLocationProviderClient client;
+    private final TelemetryTrack track = new TelemetryTrack(TelemetryTrack.TimeBase.EPOCH);
+    private boolean started = false;
+
+    private final LocationCallback callback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            for (Location l : result.getLocations()) {
+                track.add(l.getTime() * 1000, l.getLatitude(), l.getLongitude(),
+                        l.hasAltitude() ? (float) l.getAltitude() : Float.NaN,
+                        l.hasSpeed() ? l.getSpeed() : Float.NaN);
+            }
+        }
+    };
+
+    public FusedLocationRecorder(Context ctx) {
+        this.ctx = ctx.getApplicationContext();
+        this.client = LocationServices.getFusedLocationProviderClient(this.ctx);
+    }
+
+    public TelemetryTrack track() { return track; }
+
+    /**
+     * Starts high-accuracy updates every {@code intervalMs}, delivered on the main looper.
+     * @return false if location permission has not been granted
+     */
+    public synchronized boolean start(long intervalMs) {
+        if (started) return true;
+        if (ContextCompat.checkSelfPermission(ctx, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, intervalMs)
+                .setMinUpdateIntervalMillis(intervalMs / 2)
+                .build();
+        client.requestLocationUpdates(request, callback, Looper.getMainLooper());
+        started = true;
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (!started) return;
+        client.removeLocationUpdates(callback);
+        started = false;
+    }
+}
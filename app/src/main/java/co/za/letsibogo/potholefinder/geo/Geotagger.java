@@ -0,0 +1,46 @@
+package co.za.letsibogo.potholefinder.geo;
+
+/**
+ * Places frames of a recorded video on a {@link TelemetryTrack}: maps the frame's media time
+ * into the track's time base and interpolates a position there.
+ * <p>
+ * Not thread-safe (it holds a lookup cursor); use from one thread, e.g. postprocess.
+ */
+public class Geotagger {
+
+    private final TelemetryTrack track;
+    private final TelemetryTrack.Cursor cursor;
+    private final long offsetUs;
+    private final double[] fix = new double[4];
+
+    /**
+     * @param videoStartEpochUs when the video started recording, for tracks in
+     *                          {@link TelemetryTrack.TimeBase#EPOCH}; negative if unknown, in
+     *                          which case the video is assumed to start at the first fix
+     */
+    public Geotagger(TelemetryTrack track, long videoStartEpochUs) {
+        this.track = track;
+        this.cursor = track.cursor();
+        if (track.timeBase() == TelemetryTrack.TimeBase.MEDIA) {
+            offsetUs = 0;
+        } else {
+            offsetUs = videoStartEpochUs >= 0 ? videoStartEpochUs : (track.isEmpty() ? 0 : track.startUs());
+        }
+    }
+
+    public TelemetryTrack track() { return track; }
+
+    /**
+     * Position of the frame at {@code mediaUs}, written to {@code out} as in
+     * {@link TelemetryTrack#locate}.
+     * @return false if the track has no fix near that time
+     */
+    public boolean locate(long mediaUs, double[] out) {
+        return cursor.locate(mediaUs + offsetUs, out);
+    }
+
+    /** Ground speed at {@code mediaUs} in m/s, NaN if unknown. */
+    public float speedAt(long mediaUs) {
+        return locate(mediaUs, fix) ? (float) fix[TelemetryTrack.SPEED] : Float.NaN;
+    }
+}
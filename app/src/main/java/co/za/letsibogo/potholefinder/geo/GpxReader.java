@@ -0,0 +1,164 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Streams the track points of a GPX 1.0/1.1 file into a {@link TelemetryTrack} with SAX,
+ * so memory is the track itself whatever the file size. Points without a {@code <time>}
+ * cannot be matched to frames and are skipped. Speed is read from GPX 1.0 {@code <speed>}
+ * or a Garmin-style {@code <...:speed>} extension when present.
+ */
+public final class GpxReader {
+
+    private GpxReader() {}
+
+    /** @throws IOException if the stream is not well-formed XML */
+    public static TelemetryTrack read(InputStream in) throws IOException {
+        TelemetryTrack track = new TelemetryTrack(TelemetryTrack.TimeBase.EPOCH);
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.newSAXParser().parse(new InputSource(in), new Handler(track));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Bad GPX: " + e.getMessage(), e);
+        }
+        return track;
+    }
+
+    private static final class Handler extends DefaultHandler {
+        private final TelemetryTrack track;
+        private final StringBuilder text = new StringBuilder(32);
+        private boolean inPoint;
+        private double lat, lon;
+        private float ele, speed;
+        private long timeUs;
+
+        Handler(TelemetryTrack track) {
+            this.track = track;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            text.setLength(0);
+            if ("trkpt".equals(localName(qName))) {
+                inPoint = true;
+                lat = parseDouble(attrs.getValue("lat"));
+                lon = parseDouble(attrs.getValue("lon"));
+                ele = Float.NaN;
+                speed = Float.NaN;
+                timeUs = Long.MIN_VALUE;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inPoint) text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (!inPoint) return;
+            switch (localName(qName)) {
+                case "ele":
+                    ele = (float) parseDouble(text);
+                    break;
+                case "time":
+                    try {
+                        timeUs = parseIso8601Us(text);
+                    } catch (IllegalArgumentException ignore) {
+                        timeUs = Long.MIN_VALUE;
+                    }
+                    break;
+                case "speed":
+                    speed = (float) parseDouble(text);
+                    break;
+                case "trkpt":
+                    inPoint = false;
+                    if (timeUs != Long.MIN_VALUE) track.add(timeUs, lat, lon, ele, speed);
+                    break;
+                default:
+                    break;
+            }
+            text.setLength(0);
+        }
+    }
+
+    private static String localName(String qName) {
+        int colon = qName.indexOf(':');
+        return colon < 0 ? qName : qName.substring(colon + 1);
+    }
+
+    private static double parseDouble(CharSequence s) {
+        if (s == null) return Double.NaN;
+        try {
+            return Double.parseDouble(s.toString().trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm:ss[.fraction][Z|+hh:mm|-hh:mm]} to microseconds since
+     * the epoch. A time without a zone is taken as UTC, which is what GPX requires.
+     * Hand-rolled because java.time needs API 26 and SimpleDateFormat is slow per point.
+     */
+    static long parseIso8601Us(CharSequence raw) {
+        String s = raw.toString().trim();
+        int len = s.length();
+        if (len < 19 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            throw new IllegalArgumentException("Not an ISO-8601 time: " + s);
+        }
+        int year = digits(s, 0, 4), month = digits(s, 5, 2), day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2), minute = digits(s, 14, 2), second = digits(s, 17, 2);
+        int i = 19;
+        long micros = 0;
+        if (i < len && s.charAt(i) == '.') {
+            i++;
+            long scale = 100_000;
+            while (i < len && Character.isDigit(s.charAt(i))) {
+                micros += (s.charAt(i) - '0') * scale;
+                scale /= 10;
+                i++;
+            }
+        }
+        long offsetSec = 0;
+        if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+            int sign = s.charAt(i) == '+' ? 1 : -1;
+            int oh = digits(s, i + 1, 2);
+            int om = i + 3 < len ? digits(s, s.charAt(i + 3) == ':' ? i + 4 : i + 3, 2) : 0;
+            offsetSec = sign * (oh * 3600L + om * 60L);
+        }
+        long days = daysFromCivil(year, month, day);
+        return (days * 86_400 + hour * 3600L + minute * 60L + second - offsetSec) * 1_000_000 + micros;
+    }
+
+    private static int digits(String s, int from, int count) {
+        if (from + count > s.length()) throw new IllegalArgumentException("Truncated time: " + s);
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Bad digit in time: " + s);
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date. */
+    private static long daysFromCivil(long y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+}
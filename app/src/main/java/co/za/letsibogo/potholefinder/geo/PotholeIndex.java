@@ -0,0 +1,343 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * City-wide store of geotagged potholes: a sighting within {@code mergeRadiusM} of a known
+ * pothole is merged into it (hit count, confidence, last-seen time), so driving a road
+ * twice does not double its potholes.
+ * <p>
+ * Records live in parallel primitive arrays, bucketed on two lat/lon grids. A grid cell
+ * maps to the head of a chain of record ids through an open-addressing long-to-int table.
+ * The fine grid, with cells {@code mergeRadiusM} tall, serves inserts and nearest lookups,
+ * which probe a handful of neighbouring cells and allocate nothing (bar amortized
+ * growth). The coarse grid, {@value #COARSE_FACTOR} times larger, serves bounding-box
+ * queries. These walk the coarse cells in the box, or every occupied cell when the box
+ * holds more cells than are occupied.
+ * <p>
+ * Thread-safe: postprocess inserts while the map queries the viewport.
+ */
+public class PotholeIndex {
+
+    public static class Config {
+        /** Sightings closer than this to a known pothole are the same pothole. */
+        public float mergeRadiusM = 4f;
+    }
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int FILE_MAGIC = 0x50484958;   // "PHIX"
+    private static final int FILE_VERSION = 1;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int COARSE_FACTOR = 64;
+
+    private final Config config;
+    private final Grid fine, coarse;
+
+    // Records
+    private double[] lat = new double[256];
+    private double[] lon = new double[256];
+    private float[] weight = new float[256];       // sum of sighting scores, for the weighted position
+    private float[] confidence = new float[256];
+    private int[] hits = new int[256];
+    private long[] firstSeenMs = new long[256];
+    private long[] lastSeenMs = new long[256];
+    private int size = 0;
+
+    public PotholeIndex() {
+        this(new Config());
+    }
+
+    public PotholeIndex(Config config) {
+        if (!(config.mergeRadiusM > 0)) throw new IllegalArgumentException("mergeRadiusM must be > 0");
+        this.config = config;
+        double cellDeg = config.mergeRadiusM / METERS_PER_DEGREE;
+        this.fine = new Grid(cellDeg);
+        this.coarse = new Grid(cellDeg * COARSE_FACTOR);
+    }
+
+    /**
+     * Records a sighting: merges it into the nearest pothole within the merge radius, or
+     * starts a new one.
+     * @param score  detector confidence of the sighting, 0..1
+     * @param timeMs wall-clock time of the sighting
+     * @return id of the pothole record
+     */
+    public int add(double latitude, double longitude, float score, long timeMs) {
+        return add(latitude, longitude, score, timeMs, null);
+    }
+
+    /**
+     * As {@link #add(double, double, float, long)}, telling in {@code created[0]} (if not
+     * null) whether the sighting started a new pothole. Decided under the same lock as the
+     * insert, so a concurrent merge into the record cannot make it look seen before.
+     */
+    public synchronized int add(double latitude, double longitude, float score, long timeMs, boolean[] created) {
+        int id = nearestLocked(latitude, longitude, config.mergeRadiusM);
+        if (created != null) created[0] = id < 0;
+        if (id < 0) {
+            id = append(latitude, longitude, score, 1, score, timeMs, timeMs);
+            link(id);
+            return id;
+        }
+        long oldFine = fine.key(lat[id], lon[id]), oldCoarse = coarse.key(lat[id], lon[id]);
+        float w = weight[id] + score;
+        if (w > 0) {
+            lat[id] += (latitude - lat[id]) * (score / w);
+            lon[id] += (longitude - lon[id]) * (score / w);
+        }
+        weight[id] = w;
+        hits[id]++;
+        // Noisy-OR: the chance that at least one sighting was a real pothole
+        confidence[id] = 1f - (1f - confidence[id]) * (1f - score);
+        firstSeenMs[id] = Math.min(firstSeenMs[id], timeMs);
+        lastSeenMs[id] = Math.max(lastSeenMs[id], timeMs);
+        fine.move(id, oldFine, lat[id], lon[id]);
+        coarse.move(id, oldCoarse, lat[id], lon[id]);
+        return id;
+    }
+
+    /** Closest pothole within {@code radiusM} of the point, or -1. */
+    public synchronized int nearest(double latitude, double longitude, double radiusM) {
+        return nearestLocked(latitude, longitude, radiusM);
+    }
+
+    /**
+     * Ids of the potholes inside the box, up to {@code out.length} of them.
+     * @return number of matches, which may exceed {@code out.length}
+     */
+    public synchronized int query(double south, double west, double north, double east, int[] out) {
+        Grid g = coarse;
+        int r0 = g.row(south), r1 = g.row(north);
+        int c0 = g.col(west), c1 = g.col(east);
+        long boxCells = (long) (r1 - r0 + 1) * (c1 - c0 + 1);
+        int n = 0;
+        if (boxCells <= g.count) {
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    n = collect(g.head(Grid.key(r, c)), south, west, north, east, out, n);
+                }
+            }
+        } else {
+            // Zoomed far out: cheaper to visit the occupied cells than the box's cells
+            for (int s = 0; s < g.keys.length; s++) {
+                long k = g.keys[s];
+                if (k == EMPTY) continue;
+                int r = (int) (k >> 32), c = (int) k;
+                if (r < r0 || r > r1 || c < c0 || c > c1) continue;
+                n = collect(g.heads[s], south, west, north, east, out, n);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Copies the positions of {@code ids[0..n)} into {@code latLon} as lat/lon pairs under one
+     * lock, for callers that read many records at once (the map's clusterer).
+     */
+    public synchronized void positions(int[] ids, int n, double[] latLon) {
+        for (int i = 0; i < n; i++) {
+            latLon[i * 2] = lat[ids[i]];
+            latLon[i * 2 + 1] = lon[ids[i]];
+        }
+    }
+
+    public synchronized int size() { return size; }
+
+    public synchronized double latitude(int id) { return lat[id]; }
+
+    public synchronized double longitude(int id) { return lon[id]; }
+
+    public synchronized int hits(int id) { return hits[id]; }
+
+    public synchronized float confidence(int id) { return confidence[id]; }
+
+    public synchronized long firstSeenMs(int id) { return firstSeenMs[id]; }
+
+    public synchronized long lastSeenMs(int id) { return lastSeenMs[id]; }
+
+    public synchronized void clear() {
+        size = 0;
+        fine.clear();
+        coarse.clear();
+    }
+
+    /**
+     * Adds the records of a {@code potholes.bin} snapshot, which held the index before
+     * detections were journaled, merging any that fall within the radius of a pothole
+     * already in the index. Only read to import such a file once.
+     */
+    public synchronized void readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != FILE_MAGIC) throw new IOException("Not a pothole index");
+        int version = in.readInt();
+        if (version != FILE_VERSION) throw new IOException("Unsupported pothole index version " + version);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            double la = in.readDouble(), lo = in.readDouble();
+            float w = in.readFloat(), conf = in.readFloat();
+            int h = in.readInt();
+            long first = in.readLong(), last = in.readLong();
+            int id = nearestLocked(la, lo, config.mergeRadiusM);
+            if (id < 0) {
+                link(append(la, lo, w, h, conf, first, last));
+            } else {
+                hits[id] += h;
+                weight[id] += w;
+                confidence[id] = 1f - (1f - confidence[id]) * (1f - conf);
+                firstSeenMs[id] = Math.min(firstSeenMs[id], first);
+                lastSeenMs[id] = Math.max(lastSeenMs[id], last);
+            }
+        }
+    }
+
+    private int nearestLocked(double latitude, double longitude, double radiusM) {
+        double dLat = radiusM / METERS_PER_DEGREE;
+        double dLon = dLat / Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        Grid g = fine;
+        int r0 = g.row(latitude - dLat), r1 = g.row(latitude + dLat);
+        int c0 = g.col(longitude - dLon), c1 = g.col(longitude + dLon);
+        int best = -1;
+        double bestM = radiusM;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int id = g.head(Grid.key(r, c)); id >= 0; id = g.next[id]) {
+                    double m = TelemetryTrack.distanceMeters(latitude, longitude, lat[id], lon[id]);
+                    if (m <= bestM) {
+                        bestM = m;
+                        best = id;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int collect(int head, double south, double west, double north, double east, int[] out, int n) {
+        int[] next = coarse.next;
+        for (int id = head; id >= 0; id = next[id]) {
+            if (lat[id] < south || lat[id] > north || lon[id] < west || lon[id] > east) continue;
+            if (n < out.length) out[n] = id;
+            n++;
+        }
+        return n;
+    }
+
+    private void link(int id) {
+        fine.link(id, lat[id], lon[id]);
+        coarse.link(id, lat[id], lon[id]);
+    }
+
+    private int append(double la, double lo, float w, int h, float conf, long first, long last) {
+        if (size == lat.length) {
+            int cap = size * 2;
+            lat = Arrays.copyOf(lat, cap);
+            lon = Arrays.copyOf(lon, cap);
+            weight = Arrays.copyOf(weight, cap);
+            confidence = Arrays.copyOf(confidence, cap);
+            hits = Arrays.copyOf(hits, cap);
+            firstSeenMs = Arrays.copyOf(firstSeenMs, cap);
+            lastSeenMs = Arrays.copyOf(lastSeenMs, cap);
+        }
+        int id = size++;
+        lat[id] = la;
+        lon[id] = lo;
+        weight[id] = w;
+        confidence[id] = conf;
+        hits[id] = h;
+        firstSeenMs[id] = first;
+        lastSeenMs[id] = last;
+        return id;
+    }
+
+    /** Square lat/lon cells, each the head of a chain of record ids. Guarded by the index. */
+    private static final class Grid {
+        final double cellDeg;
+        long[] keys;
+        int[] heads;
+        int[] next = new int[256];    // next record in the same cell, -1 at the end
+        int count;                    // occupied cells
+
+        Grid(double cellDeg) {
+            this.cellDeg = cellDeg;
+            clear();
+        }
+
+        int row(double latitude) { return (int) Math.floor(latitude / cellDeg); }
+
+        int col(double longitude) { return (int) Math.floor(longitude / cellDeg); }
+
+        long key(double latitude, double longitude) { return key(row(latitude), col(longitude)); }
+
+        static long key(int row, int col) { return ((long) row << 32) | (col & 0xFFFFFFFFL); }
+
+        /** First record in the cell, -1 if none. */
+        int head(long k) { return heads[slotOf(k)]; }
+
+        void link(int id, double latitude, double longitude) {
+            if (id >= next.length) next = Arrays.copyOf(next, Math.max(id + 1, next.length * 2));
+            long k = key(latitude, longitude);
+            int s = slotOf(k);
+            if (keys[s] == EMPTY) {
+                keys[s] = k;
+                heads[s] = -1;
+                if (++count * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                    s = slotOf(k);
+                }
+            }
+            next[id] = heads[s];
+            heads[s] = id;
+        }
+
+        /** Re-buckets {@code id} if its new position left the cell {@code oldKey}. */
+        void move(int id, long oldKey, double latitude, double longitude) {
+            if (key(latitude, longitude) == oldKey) return;
+            int s = slotOf(oldKey);
+            if (heads[s] == id) {
+                heads[s] = next[id];
+            } else {
+                for (int p = heads[s]; p >= 0; p = next[p]) {
+                    if (next[p] == id) {
+                        next[p] = next[id];
+                        break;
+                    }
+                }
+            }
+            link(id, latitude, longitude);
+        }
+
+        void clear() {
+            keys = new long[1024];
+            heads = new int[1024];
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(heads, -1);
+            count = 0;
+        }
+
+        /** Slot holding {@code k}, or the empty slot where it would go (whose head reads -1). */
+        private int slotOf(long k) {
+            int mask = keys.length - 1;
+            int s = (int) ((k * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[s] != EMPTY && keys[s] != k) s = (s + 1) & mask;
+            return s;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[capacity];
+            heads = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(heads, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int s = slotOf(oldKeys[i]);
+                keys[s] = oldKeys[i];
+                heads[s] = oldHeads[i];
+            }
+        }
+    }
+}
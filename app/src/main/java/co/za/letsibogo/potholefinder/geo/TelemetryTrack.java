@@ -0,0 +1,183 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import java.util.Arrays;
+
+/**
+ * Time-ordered position fixes in parallel primitive arrays, looked up by timestamp.
+ * <p>
+ * {@link #locate} binary-searches the fix at or before a time, O(log n); a {@link Cursor}
+ * remembers where the last lookup landed, so the mostly-forward lookups of a video being
+ * played cost amortized O(1). A position between two fixes is linearly interpolated; a fix
+ * more than {@code maxGapUs} from the requested time is not used, so a GPS outage yields no
+ * position rather than a stale one.
+ * <p>
+ * Times are in microseconds in whatever base the source uses ({@link #timeBase()}).
+ * Thread-safe: a live recorder may append while the pipeline looks positions up.
+ */
+public class TelemetryTrack {
+
+    /** What the fix timestamps count from. */
+    public enum TimeBase {
+        /** Microseconds since the start of the video (DJI .SRT subtitles). */
+        MEDIA,
+        /** Microseconds since 1970-01-01 UTC (GPX, live location). */
+        EPOCH
+    }
+
+    // Indices into the out array of locate()
+    public static final int LAT = 0, LON = 1, ALT = 2, SPEED = 3;
+
+    private static final long SPEED_WINDOW_US = 2_000_000;
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    private final TimeBase timeBase;
+    private final long maxGapUs;
+
+    private long[] time = new long[64];
+    private double[] lat = new double[64];
+    private double[] lon = new double[64];
+    private float[] alt = new float[64];
+    private float[] speed = new float[64];   // NaN: not reported, derived from neighbours
+    private int size = 0;
+
+    public TelemetryTrack(TimeBase timeBase) {
+        this(timeBase, 5_000_000);
+    }
+
+    /** @param maxGapUs furthest a fix may be from the looked-up time and still be used */
+    public TelemetryTrack(TimeBase timeBase, long maxGapUs) {
+        this.timeBase = timeBase;
+        this.maxGapUs = maxGapUs;
+    }
+
+    public TimeBase timeBase() { return timeBase; }
+
+    /**
+     * Appends a fix. Fixes must arrive in time order; one at or before the last fix is
+     * dropped, as are (0, 0) fixes, which receivers report before they have a lock.
+     * @param altitudeM     NaN if unknown
+     * @param speedMps      ground speed, NaN to derive it from the neighbouring fixes
+     * @return false if the fix was dropped
+     */
+    public synchronized boolean add(long timeUs, double latitude, double longitude, float altitudeM, float speedMps) {
+        if (size > 0 && timeUs <= time[size - 1]) return false;
+        if (latitude == 0 && longitude == 0) return false;
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) return false;
+        if (size == time.length) {
+            int cap = size * 2;
+            time = Arrays.copyOf(time, cap);
+            lat = Arrays.copyOf(lat, cap);
+            lon = Arrays.copyOf(lon, cap);
+            alt = Arrays.copyOf(alt, cap);
+            speed = Arrays.copyOf(speed, cap);
+        }
+        time[size] = timeUs;
+        lat[size] = latitude;
+        lon[size] = longitude;
+        alt[size] = altitudeM;
+        speed[size] = speedMps;
+        size++;
+        return true;
+    }
+
+    public synchronized int size() { return size; }
+
+    public synchronized boolean isEmpty() { return size == 0; }
+
+    /** Time of the first fix; undefined when empty. */
+    public synchronized long startUs() { return time[0]; }
+
+    /** Time of the last fix; undefined when empty. */
+    public synchronized long endUs() { return time[size - 1]; }
+
+    /**
+     * Position at {@code timeUs}, written to {@code out[LAT, LON, ALT, SPEED]}.
+     * @return false if no fix is within {@code maxGapUs}
+     */
+    public synchronized boolean locate(long timeUs, double[] out) {
+        return interpolate(floorIndex(timeUs), timeUs, out);
+    }
+
+    /** A lookup cursor for mostly-monotonic queries. Not thread-safe; one per reader. */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public final class Cursor {
+        private int index = -1;
+
+        private Cursor() {}
+
+        /** Same as {@link TelemetryTrack#locate}, walking from the previous lookup. */
+        public boolean locate(long timeUs, double[] out) {
+            synchronized (TelemetryTrack.this) {
+                int i = Math.min(index, size - 1);
+                if (i >= 0 && time[i] > timeUs) {
+                    // Backwards, e.g. a seek: a short walk or a fresh search
+                    i = (i > 0 && time[i - 1] <= timeUs) ? i - 1 : floorIndex(timeUs);
+                } else {
+                    int steps = 0;
+                    while (i + 1 < size && time[i + 1] <= timeUs) {
+                        i++;
+                        // A long jump forwards is cheaper to search than to walk
+                        if (++steps == 8) {
+                            i = floorIndex(timeUs);
+                            break;
+                        }
+                    }
+                }
+                index = i;
+                return interpolate(i, timeUs, out);
+            }
+        }
+    }
+
+    /** Largest i with time[i] &lt;= timeUs, or -1 before the first fix. */
+    private int floorIndex(long timeUs) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time[mid] <= timeUs) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    private boolean interpolate(int i, long timeUs, double[] out) {
+        boolean before = i >= 0 && timeUs - time[i] <= maxGapUs;
+        boolean after = i + 1 < size && time[i + 1] - timeUs <= maxGapUs;
+        if (before && after) {
+            double f = (double) (timeUs - time[i]) / (time[i + 1] - time[i]);
+            out[LAT] = lat[i] + (lat[i + 1] - lat[i]) * f;
+            out[LON] = lon[i] + (lon[i + 1] - lon[i]) * f;
+            out[ALT] = alt[i] + (alt[i + 1] - alt[i]) * f;
+            out[SPEED] = Float.isNaN(speed[i]) ? derivedSpeed(timeUs) : speed[i] + (speed[i + 1] - speed[i]) * f;
+            return true;
+        }
+        int j = before ? i : (after ? i + 1 : -1);
+        if (j < 0) return false;
+        out[LAT] = lat[j];
+        out[LON] = lon[j];
+        out[ALT] = alt[j];
+        out[SPEED] = Float.isNaN(speed[j]) ? derivedSpeed(timeUs) : speed[j];
+        return true;
+    }
+
+    /** Ground speed from the fixes about a second either side, NaN without two of them. */
+    private double derivedSpeed(long timeUs) {
+        int a = Math.max(0, floorIndex(timeUs - SPEED_WINDOW_US / 2));
+        int b = Math.min(size - 1, floorIndex(timeUs + SPEED_WINDOW_US / 2) + 1);
+        if (b <= a || time[b] - time[a] > 2 * maxGapUs) return Double.NaN;
+        return distanceMeters(lat[a], lon[a], lat[b], lon[b]) / ((time[b] - time[a]) / 1e6);
+    }
+
+    /** Great-circle distance in metres (haversine). */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
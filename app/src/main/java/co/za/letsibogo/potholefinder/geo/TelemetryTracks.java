@@ -0,0 +1,66 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import android.content.Context;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/** Finding and loading the telemetry that goes with a recorded video. */
+public final class TelemetryTracks {
+
+    private static final String TAG = "TelemetryTracks";
+    private static final String[] EXTENSIONS = {".SRT", ".srt", ".gpx", ".GPX"};
+
+    private TelemetryTracks() {}
+
+    /** {@code dir/baseName.srt} or {@code .gpx}, whichever exists first, else null. */
+    public static File findSidecar(File dir, String baseName) {
+        if (dir == null) return null;
+        for (String ext : EXTENSIONS) {
+            File f = new File(dir, baseName + ext);
+            if (f.isFile()) return f;
+        }
+        return null;
+    }
+
+    /** Streams a .SRT or .gpx file into a track, picking the reader by extension. */
+    public static TelemetryTrack load(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.US);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            if (name.endsWith(".srt")) return DjiSrtReader.read(in);
+            if (name.endsWith(".gpx")) return GpxReader.read(in);
+        }
+        throw new IOException("Unknown telemetry format: " + file);
+    }
+
+    /**
+     * Recording time of a video from its container metadata, in epoch microseconds, or -1 if
+     * it has none. Used to line a GPX track up with the video.
+     */
+    public static long videoStartEpochUs(Context ctx, Uri video) {
+        MediaMetadataRetriever r = new MediaMetadataRetriever();
+        try {
+            r.setDataSource(ctx, video);
+            String date = r.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DATE);
+            // e.g. 20230310T142231.000Z
+            if (date == null || date.length() < 15 || date.startsWith("1904")) return -1;
+            String iso = date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6, 8)
+                    + "T" + date.substring(9, 11) + ":" + date.substring(11, 13) + ":" + date.substring(13);
+            return GpxReader.parseIso8601Us(iso);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No recording date for " + video, e);
+            return -1;
+        } finally {
+            try {
+                r.release();
+            } catch (IOException | RuntimeException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package co.za.letsibogo.potholefinder.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe log of confirmed potholes, replayed at start-up to rebuild the
+ * counts, the pothole index and the map.
+ * <p>
+ * Records are fixed-size ({@link DetectionRecord#BYTES}) and go into numbered segment
+ * files of {@code segmentRecords} each. A segment starts with a 16-byte header: magic,
+ * version, and the sequence number of its first record. Appends collect in a heap buffer
+ * that is written through the segment's FileChannel when it fills and on every sync. A
+ * sync also forces the channel to disk; one runs every {@code syncIntervalMs}, so a crash
+ * loses at most that much. Opening scans the newest segment and truncates it after the
+ * last record whose checksum matches, which drops a record torn by a crash mid-write.
+ * Replay streams every segment through one buffer and decodes into a single
+ * {@link DetectionRecord}, skipping corrupt records in sealed segments.
+ * <p>
+ * Thread-safe: postprocess appends while the main thread asks for syncs.
+ */
+public class DetectionJournal implements Closeable {
+
+    public static class Config {
+        /** Records per segment file; 65536 records make 4 MiB segments. */
+        public int segmentRecords = 1 << 16;
+        /** Records buffered in memory before they are written to the channel. */
+        public int bufferRecords = 64;
+        /** Period of the background flush and fsync; 0 to sync only on request. */
+        public long syncIntervalMs = 1000;
+    }
+
+    /** Receives replayed records in append order. The record instance is reused. */
+    public interface Visitor {
+        void onRecord(long sequence, DetectionRecord record);
+    }
+
+    static final int HEADER_BYTES = 16;
+    private static final int MAGIC = 0x444A524E;   // "DJRN"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".journal";
+    private static final int REPLAY_CHUNK_RECORDS = 4096;
+
+    private final File dir;
+    private final Config config;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer buffer;
+    private final ScheduledExecutorService syncer;
+
+    private FileChannel channel;
+    private int segmentCount;        // records in the current segment, buffered ones included
+    private long nextSequence;
+    private long syncedSequence;     // records before it are known to be on disk
+    private boolean closed;
+    private long truncatedBytes;
+
+    public DetectionJournal(File dir) throws IOException {
+        this(dir, new Config());
+    }
+
+    /** Opens the journal in {@code dir}, creating it if needed and repairing a torn tail. */
+    public DetectionJournal(File dir, Config config) throws IOException {
+        if (config.segmentRecords < 1 || config.bufferRecords < 1) {
+            throw new IllegalArgumentException("segmentRecords and bufferRecords must be >= 1");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        this.dir = dir;
+        this.config = config;
+        this.buffer = ByteBuffer.allocate(config.bufferRecords * DetectionRecord.BYTES);
+        recover();
+        if (config.syncIntervalMs > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "JournalSync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncer.scheduleWithFixedDelay(this::backgroundSync,
+                    config.syncIntervalMs, config.syncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Appends one record; it reaches the file on the next buffer flush and the disk on the
+     * next sync.
+     * @return the record's sequence number, unique for the life of the journal
+     */
+    public synchronized long append(DetectionRecord record) throws IOException {
+        if (closed) throw new IOException("Journal closed");
+        if (segmentCount == config.segmentRecords) rotate();
+        record.encode(buffer, crc);
+        segmentCount++;
+        if (!buffer.hasRemaining()) flushBuffer();
+        return nextSequence++;
+    }
+
+    /** Writes buffered records and forces them to disk. */
+    public void sync() throws IOException {
+        FileChannel ch;
+        long upTo;
+        synchronized (this) {
+            if (closed || syncedSequence == nextSequence) return;
+            flushBuffer();
+            upTo = nextSequence;
+            ch = channel;
+        }
+        try {
+            ch.force(false);   // outside the lock so appends are not held up by the disk
+        } catch (ClosedChannelException e) {
+            return;   // rotated or closed meanwhile, which forces the segment itself
+        }
+        // Only now: if force failed, the next sync must try again
+        synchronized (this) {
+            if (upTo > syncedSequence) syncedSequence = upTo;
+        }
+    }
+
+    /** Asks the background thread to sync now, e.g. when the app goes to the background. */
+    public void requestSync() {
+        if (syncer != null && !syncer.isShutdown()) syncer.execute(this::backgroundSync);
+    }
+
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // Kept in the buffer or page cache; the next sync or close tries again
+        }
+    }
+
+    /**
+     * Feeds every stored record to {@code visitor}, oldest first.
+     * @return number of records replayed; corrupt ones are skipped and not counted
+     */
+    public synchronized long replay(Visitor visitor) throws IOException {
+        flushBuffer();
+        DetectionRecord record = new DetectionRecord();
+        ByteBuffer chunk = ByteBuffer.allocate(REPLAY_CHUNK_RECORDS * DetectionRecord.BYTES);
+        long replayed = 0;
+        for (File f : segments()) {
+            try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                FileChannel ch = raf.getChannel();
+                long first = readHeader(ch, f);
+                if (first < 0) continue;
+                long pos = HEADER_BYTES, size = ch.size();
+                long sequence = first;
+                while (pos + DetectionRecord.BYTES <= size) {
+                    chunk.clear();
+                    while (chunk.hasRemaining() && ch.read(chunk, pos + chunk.position()) > 0) { }
+                    int records = chunk.position() / DetectionRecord.BYTES;
+                    for (int i = 0; i < records; i++, sequence++) {
+                        if (record.decode(chunk, i * DetectionRecord.BYTES, crc)) {
+                            visitor.onRecord(sequence, record);
+                            replayed++;
+                        }
+                    }
+                    pos += (long) records * DetectionRecord.BYTES;
+                    if (records == 0) break;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /** Deletes every record. Sequence numbers keep counting up. */
+    public synchronized void clear() throws IOException {
+        if (closed) throw new IOException("Journal closed");
+        buffer.clear();
+        channel.close();
+        for (File f : segments()) {
+            if (!f.delete()) throw new IOException("Cannot delete " + f);
+        }
+        openSegment(nextSequence);
+        syncedSequence = nextSequence;
+    }
+
+    /** Sequence number the next append will get; also the count of records ever appended. */
+    public synchronized long nextSequence() { return nextSequence; }
+
+    /** Bytes cut off the newest segment when the journal was opened. */
+    public synchronized long truncatedBytes() { return truncatedBytes; }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) syncer.shutdownNow();
+        synchronized (this) {
+            if (closed) return;
+            try {
+                flushBuffer();
+                channel.force(false);
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    // --- Segments ---
+
+    private void recover() throws IOException {
+        File[] files = segments();
+        for (int i = files.length - 1; i >= 0; i--) {
+            File f = files[i];
+            RandomAccessFile raf = new RandomAccessFile(f, "rw");
+            FileChannel ch = raf.getChannel();
+            long first = readHeader(ch, f);
+            if (first < 0) {
+                // Torn while being created: nothing in it can be trusted
+                ch.close();
+                if (!f.delete()) throw new IOException("Cannot delete " + f);
+                continue;
+            }
+            int valid = countValid(ch);
+            long end = HEADER_BYTES + (long) valid * DetectionRecord.BYTES;
+            if (ch.size() > end) {
+                truncatedBytes = ch.size() - end;
+                ch.truncate(end);
+                ch.force(true);
+            }
+            ch.position(end);
+            channel = ch;
+            segmentCount = valid;
+            nextSequence = first + valid;
+            syncedSequence = nextSequence;
+            return;
+        }
+        openSegment(0);
+    }
+
+    /** Records from the start of the segment up to the first one that fails its checksum. */
+    private int countValid(FileChannel ch) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(REPLAY_CHUNK_RECORDS * DetectionRecord.BYTES);
+        DetectionRecord scratch = new DetectionRecord();
+        long pos = HEADER_BYTES;
+        int valid = 0;
+        while (true) {
+            chunk.clear();
+            while (chunk.hasRemaining() && ch.read(chunk, pos + chunk.position()) > 0) { }
+            int records = chunk.position() / DetectionRecord.BYTES;
+            for (int i = 0; i < records; i++) {
+                if (!scratch.decode(chunk, i * DetectionRecord.BYTES, crc)) return valid;
+                valid++;
+            }
+            if (records < REPLAY_CHUNK_RECORDS) return valid;
+            pos += (long) records * DetectionRecord.BYTES;
+        }
+    }
+
+    private void rotate() throws IOException {
+        flushBuffer();
+        channel.force(false);
+        channel.close();
+        syncedSequence = nextSequence;
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long first) throws IOException {
+        File f = new File(dir, String.format(Locale.US, "%016x%s", first, SUFFIX));
+        FileChannel ch = new RandomAccessFile(f, "rw").getChannel();
+        ch.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(first).flip();
+        while (header.hasRemaining()) ch.write(header, header.position());
+        ch.force(true);
+        ch.position(HEADER_BYTES);
+        channel = ch;
+        segmentCount = 0;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /** @return the segment's first sequence number, or -1 if the header is missing or wrong */
+    private static long readHeader(FileChannel ch, File f) throws IOException {
+        if (ch.size() < HEADER_BYTES) return -1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && ch.read(header, header.position()) > 0) { }
+        header.flip();
+        if (header.getInt() != MAGIC) return -1;
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported journal version " + version + " in " + f);
+        return header.getLong();
+    }
+
+    private File[] segments() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files);   // zero-padded hex names sort by sequence
+        return files;
+    }
+}
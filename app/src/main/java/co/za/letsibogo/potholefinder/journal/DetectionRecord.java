@@ -0,0 +1,85 @@
+package co.za.letsibogo.potholefinder.journal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One confirmed pothole as stored in the {@link DetectionJournal}: a fixed-size record of
+ * {@value #BYTES} bytes, big-endian, with a CRC-32 of the rest in the last four bytes.
+ * <pre>
+ *  0 long   wallTimeMs     8 long  frameTimeUs
+ * 16 float  ymin, xmin, ymax, xmax (normalized box)
+ * 32 float  score         36 int   classId
+ * 40 double latitude      48 double longitude   (NaN if unknown)
+ * 56 int    trackId       60 int   crc32 of bytes 0..59
+ * </pre>
+ * Mutable so replay can decode a million records into one instance.
+ */
+public class DetectionRecord {
+
+    public static final int BYTES = 64;
+    static final int CRC_OFFSET = 60;
+
+    public long wallTimeMs;
+    public long frameTimeUs;
+    public float ymin, xmin, ymax, xmax;
+    public float score;
+    public int classId;
+    public double latitude = Double.NaN;
+    public double longitude = Double.NaN;
+    public int trackId;
+
+    public boolean isLocated() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * Key of the record's evidence snapshot: wall time and track id, which together are
+     * unique (a track is confirmed once, and track ids are unique within a session).
+     */
+    public String snapshotKey() {
+        return wallTimeMs + "_" + (trackId & 0xFFFFFFFFL);
+    }
+
+    /** Writes the record and its checksum at the buffer's position, advancing it. */
+    void encode(ByteBuffer buf, CRC32 crc) {
+        int start = buf.position();
+        buf.putLong(wallTimeMs).putLong(frameTimeUs)
+                .putFloat(ymin).putFloat(xmin).putFloat(ymax).putFloat(xmax)
+                .putFloat(score).putInt(classId)
+                .putDouble(latitude).putDouble(longitude)
+                .putInt(trackId);
+        buf.putInt(checksum(buf.array(), buf.arrayOffset() + start, crc));
+    }
+
+    /**
+     * Reads the record at {@code offset} of a heap buffer without moving its position.
+     * @return false if the checksum does not match; the fields are then undefined
+     */
+    boolean decode(ByteBuffer buf, int offset, CRC32 crc) {
+        if (buf.getInt(offset + CRC_OFFSET) != checksum(buf.array(), buf.arrayOffset() + offset, crc)) return false;
+        wallTimeMs = buf.getLong(offset);
+        frameTimeUs = buf.getLong(offset + 8);
+        ymin = buf.getFloat(offset + 16);
+        xmin = buf.getFloat(offset + 20);
+        ymax = buf.getFloat(offset + 24);
+        xmax = buf.getFloat(offset + 28);
+        score = buf.getFloat(offset + 32);
+        classId = buf.getInt(offset + 36);
+        latitude = buf.getDouble(offset + 40);
+        longitude = buf.getDouble(offset + 48);
+        trackId = buf.getInt(offset + 56);
+        return true;
+    }
+
+    private static int checksum(byte[] array, int offset, CRC32 crc) {
+        crc.reset();
+        crc.update(array, offset, CRC_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    @Override public String toString() {
+        return "record{t=" + wallTimeMs + " frame=" + frameTimeUs + "us score=" + score
+                + " at " + latitude + "," + longitude + "}";
+    }
+}
@@ -0,0 +1,172 @@
+package co.za.letsibogo.potholefinder.map;
+
+import co.za.letsibogo.potholefinder.geo.PotholeIndex;
+
+/**
+ * Reduces the potholes in a viewport to at most one marker per screen cell.
+ * <p>
+ * Positions are projected to Web Mercator pixels at the (rounded) zoom level and binned
+ * into square cells of {@code cellSizePx}. The cells are anchored to the world origin, not
+ * the viewport, so panning does not reshuffle clusters. A cell with one pothole becomes
+ * that pothole's marker, keyed by its record id; a cell with several becomes a cluster at
+ * their mean position, keyed by zoom and cell. Stable keys let the caller diff successive
+ * results instead of redrawing. At {@code maxClusterZoom} and closer, every pothole gets
+ * its own marker.
+ * <p>
+ * Bins live in dense arrays covering the padded viewport, which is only a few hundred
+ * cells, so 100k potholes in view cost one index query and one pass. Viewports that cross
+ * the antimeridian are not supported.
+ * <p>
+ * Not thread-safe: call from one background thread.
+ */
+public class MarkerClusterer {
+
+    public static class Config {
+        /** Cell edge in screen pixels; scale by display density. */
+        public float cellSizePx = 64f;
+        /** At this zoom and closer, potholes are not clustered. */
+        public float maxClusterZoom = 17f;
+        /** Upper bound on markers returned, whatever the viewport. */
+        public int maxMarkers = 1000;
+    }
+
+    /** One result: parallel arrays of {@code size} markers. */
+    public static final class Clusters {
+        public final int size;
+        /** Record id (&gt;= 0) for a single pothole, a negative cell key for a cluster. */
+        public final long[] keys;
+        public final double[] latitudes;
+        public final double[] longitudes;
+        public final int[] counts;
+
+        Clusters(int size) {
+            this.size = size;
+            this.keys = new long[size];
+            this.latitudes = new double[size];
+            this.longitudes = new double[size];
+            this.counts = new int[size];
+        }
+    }
+
+    private static final int TILE_PX = 256;
+    private static final int MAX_BINS = 1 << 16;
+
+    private final Config config;
+    private int[] ids = new int[1024];
+    private double[] latLon = new double[2048];
+    private int[] binCount = new int[0];
+    private int[] binFirst = new int[0];
+    private double[] binLat = new double[0];
+    private double[] binLon = new double[0];
+
+    public MarkerClusterer() {
+        this(new Config());
+    }
+
+    public MarkerClusterer(Config config) {
+        if (!(config.cellSizePx > 0)) throw new IllegalArgumentException("cellSizePx must be > 0");
+        this.config = config;
+    }
+
+    /** Markers for the potholes in the box, padded by one cell on each side. */
+    public Clusters cluster(PotholeIndex index, double south, double west, double north, double east, float zoom) {
+        int z = Math.max(0, Math.min(22, Math.round(zoom)));
+        double world = (double) TILE_PX * (1L << z);
+        double cell = config.cellSizePx;
+        double x0 = lonToX(west, world) - cell, x1 = lonToX(east, world) + cell;
+        double y0 = latToY(north, world) - cell, y1 = latToY(south, world) + cell;   // y grows southwards
+        int n = query(index, yToLat(y1, world), xToLon(x0, world), yToLat(y0, world), xToLon(x1, world));
+
+        if (zoom >= config.maxClusterZoom) return singles(Math.min(n, config.maxMarkers));
+
+        long cx0 = (long) Math.floor(x0 / cell), cy0 = (long) Math.floor(y0 / cell);
+        int cols = (int) ((long) Math.floor(x1 / cell) - cx0 + 1);
+        int rows = (int) ((long) Math.floor(y1 / cell) - cy0 + 1);
+        if ((long) cols * rows > MAX_BINS) return singles(Math.min(n, config.maxMarkers));   // caller's bounds and zoom disagree
+        int bins = cols * rows;
+        ensureBins(bins);
+        java.util.Arrays.fill(binCount, 0, bins, 0);
+        java.util.Arrays.fill(binLat, 0, bins, 0);
+        java.util.Arrays.fill(binLon, 0, bins, 0);
+
+        int occupied = 0;
+        for (int i = 0; i < n; i++) {
+            double la = latLon[i * 2], lo = latLon[i * 2 + 1];
+            int c = (int) ((long) Math.floor(lonToX(lo, world) / cell) - cx0);
+            int r = (int) ((long) Math.floor(latToY(la, world) / cell) - cy0);
+            if (c < 0 || c >= cols || r < 0 || r >= rows) continue;
+            int b = r * cols + c;
+            if (binCount[b]++ == 0) {
+                binFirst[b] = ids[i];
+                occupied++;
+            }
+            binLat[b] += la;
+            binLon[b] += lo;
+        }
+
+        Clusters out = new Clusters(Math.min(occupied, config.maxMarkers));
+        int m = 0;
+        for (int b = 0; b < bins && m < out.size; b++) {
+            int count = binCount[b];
+            if (count == 0) continue;
+            out.counts[m] = count;
+            out.latitudes[m] = binLat[b] / count;
+            out.longitudes[m] = binLon[b] / count;
+            out.keys[m] = count == 1 ? binFirst[b] : clusterKey(z, cx0 + b % cols, cy0 + b / cols);
+            m++;
+        }
+        return out;
+    }
+
+    private Clusters singles(int n) {
+        Clusters out = new Clusters(n);
+        for (int i = 0; i < n; i++) {
+            out.keys[i] = ids[i];
+            out.latitudes[i] = latLon[i * 2];
+            out.longitudes[i] = latLon[i * 2 + 1];
+            out.counts[i] = 1;
+        }
+        return out;
+    }
+
+    private int query(PotholeIndex index, double south, double west, double north, double east) {
+        int n = index.query(south, west, north, east, ids);
+        if (n > ids.length) {
+            ids = new int[n + n / 4];
+            n = Math.min(ids.length, index.query(south, west, north, east, ids));
+        }
+        if (latLon.length < n * 2) latLon = new double[ids.length * 2];
+        index.positions(ids, n, latLon);
+        return n;
+    }
+
+    private void ensureBins(int bins) {
+        if (binCount.length >= bins) return;
+        binCount = new int[bins];
+        binFirst = new int[bins];
+        binLat = new double[bins];
+        binLon = new double[bins];
+    }
+
+    /** Negative, so it never collides with a record id; unique per zoom level and cell. */
+    static long clusterKey(int zoom, long cx, long cy) {
+        return ~(((long) zoom << 58) | (cx << 29) | cy);
+    }
+
+    static double lonToX(double lon, double world) {
+        return (lon + 180) / 360 * world;
+    }
+
+    static double latToY(double lat, double world) {
+        double s = Math.sin(Math.toRadians(Math.max(-85.05, Math.min(85.05, lat))));
+        return (0.5 - Math.log((1 + s) / (1 - s)) / (4 * Math.PI)) * world;
+    }
+
+    static double xToLon(double x, double world) {
+        return x / world * 360 - 180;
+    }
+
+    static double yToLat(double y, double world) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / world))));
+    }
+}
@@ -0,0 +1,261 @@
+package co.za.letsibogo.potholefinder.map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import co.za.letsibogo.potholefinder.geo.PotholeIndex;
+
+/**
+ * Draws a {@link PotholeIndex} on a GoogleMap, showing only what is in view.
+ * <p>
+ * When the camera settles, or the index changes ({@link #invalidate}), a background thread
+ * clusters the viewport with {@link MarkerClusterer}. Requests that arrive while one is
+ * queued are folded into it. The newest result is applied on the next Choreographer frame
+ * as a single diff against the markers on the map. Markers whose key is unchanged stay and
+ * are moved or relabelled only where their position, count or sightings changed; the rest
+ * are added or removed, so one frame carries all the marker traffic and the map never
+ * holds more than {@code maxMarkers}. Tapping a cluster zooms into it.
+ * <p>
+ * Construct, use and close on the main thread; {@link #invalidate} may be called from any thread.
+ */
+public class MarkerLayer implements GoogleMap.OnCameraIdleListener, GoogleMap.OnMarkerClickListener {
+
+    private static final float CLUSTER_ZOOM_STEP = 2f;
+
+    private final GoogleMap map;
+    private final PotholeIndex index;
+    private final MarkerClusterer clusterer;
+    private final float density;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "MarkerCluster");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+    private volatile Viewport viewport;
+    private MarkerClusterer.Clusters pending;   // guarded by this
+    private int[] pendingHits;                  // sightings per single pothole in pending; guarded by this
+    private volatile boolean closed;
+
+    // Main thread only
+    private Map<Long, Marker> shown = new HashMap<>();
+    private final Map<String, BitmapDescriptor> icons = new HashMap<>();
+    private boolean frameScheduled;
+
+    /** What a marker shows, kept as its tag to diff the next clustering against. */
+    private static final class Shown {
+        final int count, hits;
+        final double latitude, longitude;
+
+        Shown(int count, int hits, double latitude, double longitude) {
+            this.count = count;
+            this.hits = hits;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    private static final class Viewport {
+        final double south, west, north, east;
+        final float zoom;
+
+        Viewport(LatLngBounds b, float zoom) {
+            this.south = b.southwest.latitude;
+            this.west = b.southwest.longitude;
+            this.north = b.northeast.latitude;
+            this.east = b.northeast.longitude;
+            this.zoom = zoom;
+        }
+    }
+
+    private final Choreographer.FrameCallback applyFrame = frameTimeNanos -> {
+        frameScheduled = false;
+        MarkerClusterer.Clusters c;
+        int[] hits;
+        synchronized (this) {
+            c = pending;
+            hits = pendingHits;
+            pending = null;
+            pendingHits = null;
+        }
+        if (c != null && !closed) apply(c, hits);
+    };
+
+    /** @param density display density, to size clustering cells and icons in dp */
+    public MarkerLayer(GoogleMap map, PotholeIndex index, float density) {
+        this.map = map;
+        this.index = index;
+        this.density = density;
+        MarkerClusterer.Config config = new MarkerClusterer.Config();
+        config.cellSizePx = 64 * density;
+        this.clusterer = new MarkerClusterer(config);
+        map.setOnCameraIdleListener(this);
+        map.setOnMarkerClickListener(this);
+    }
+
+    @Override
+    public void onCameraIdle() {
+        CameraPosition camera = map.getCameraPosition();
+        viewport = new Viewport(map.getProjection().getVisibleRegion().latLngBounds, camera.zoom);
+        schedule();
+    }
+
+    /** The index changed; re-cluster the current viewport. */
+    public void invalidate() {
+        schedule();
+    }
+
+    private void schedule() {
+        if (closed || !queued.compareAndSet(false, true)) return;
+        worker.execute(this::recluster);
+    }
+
+    private void recluster() {
+        queued.set(false);   // changes from here on need another pass
+        Viewport v = viewport;
+        if (v == null || closed) return;
+        MarkerClusterer.Clusters c = clusterer.cluster(index, v.south, v.west, v.north, v.east, v.zoom);
+        int[] hits = new int[c.size];
+        for (int i = 0; i < c.size; i++) {
+            if (c.counts[i] == 1) hits[i] = index.hits((int) c.keys[i]);
+        }
+        synchronized (this) {
+            pending = c;
+            pendingHits = hits;
+        }
+        mainHandler.post(() -> {
+            if (frameScheduled || closed) return;
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(applyFrame);
+        });
+    }
+
+    private void apply(MarkerClusterer.Clusters c, int[] hits) {
+        Map<Long, Marker> next = new HashMap<>(c.size * 2);
+        for (int i = 0; i < c.size; i++) {
+            long key = c.keys[i];
+            int count = c.counts[i];
+            double lat = c.latitudes[i], lon = c.longitudes[i];
+            Marker m = shown.remove(key);
+            if (m == null) {
+                m = map.addMarker(options(key, count, hits[i], new LatLng(lat, lon)));
+                if (m == null) continue;
+            } else {
+                // A merged sighting moves a pothole's weighted position and a cluster's mean
+                Shown was = (Shown) m.getTag();
+                if (was.latitude != lat || was.longitude != lon) m.setPosition(new LatLng(lat, lon));
+                if (was.count != count) {
+                    m.setTitle(title(key, count));
+                    m.setIcon(clusterIcon(count));
+                }
+                if (was.hits != hits[i]) {
+                    m.setSnippet(snippet(hits[i]));
+                    if (m.isInfoWindowShown()) m.showInfoWindow();   // redraws it
+                }
+            }
+            m.setTag(new Shown(count, hits[i], lat, lon));
+            next.put(key, m);
+        }
+        for (Marker m : shown.values()) m.remove();
+        shown = next;
+    }
+
+    private MarkerOptions options(long key, int count, int hits, LatLng position) {
+        MarkerOptions o = new MarkerOptions().position(position).title(title(key, count));
+        if (count > 1) {
+            o.icon(clusterIcon(count)).anchor(0.5f, 0.5f);
+        } else {
+            o.snippet(snippet(hits));
+        }
+        return o;
+    }
+
+    private static String snippet(int hits) {
+        return hits + " sightings";
+    }
+
+    private static String title(long key, int count) {
+        return count > 1 ? count + " potholes" : "Pothole #" + (key + 1);
+    }
+
+    /** Icons are cached per label, and labels are bucketed so the cache stays small. */
+    private BitmapDescriptor clusterIcon(int count) {
+        String label = count < 10 ? Integer.toString(count)
+                : count < 100 ? (count / 10 * 10) + "+"
+                : count < 1000 ? (count / 100 * 100) + "+"
+                : (count / 1000) + "k+";
+        BitmapDescriptor icon = icons.get(label);
+        if (icon == null) {
+            icon = BitmapDescriptorFactory.fromBitmap(drawClusterIcon(label));
+            icons.put(label, icon);
+        }
+        return icon;
+    }
+
+    private Bitmap drawClusterIcon(String label) {
+        int size = Math.round(40 * density);
+        Bitmap bmp = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bmp);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.argb(220, 211, 47, 47));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, paint);
+        paint.setColor(Color.WHITE);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(size * (label.length() > 3 ? 0.3f : 0.38f));
+        paint.setFakeBoldText(true);
+        canvas.drawText(label, size / 2f, size / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+        return bmp;
+    }
+
+    @Override
+    public boolean onMarkerClick(Marker marker) {
+        Object tag = marker.getTag();
+        if (tag instanceof Shown && ((Shown) tag).count > 1) {
+            float zoom = map.getCameraPosition().zoom + CLUSTER_ZOOM_STEP;
+            map.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(), zoom));
+            return true;
+        }
+        return false;   // default: show the info window
+    }
+
+    /** Removes every marker at once, e.g. after the index was cleared. */
+    public void clear() {
+        synchronized (this) {
+            pending = null;
+            pendingHits = null;
+        }
+        for (Marker m : shown.values()) m.remove();
+        shown.clear();
+    }
+
+    public void close() {
+        closed = true;
+        worker.shutdownNow();
+        clear();
+        map.setOnCameraIdleListener(null);
+        map.setOnMarkerClickListener(null);
+    }
+}
@@ -0,0 +1,71 @@
+package co.za.letsibogo.potholefinder.memory;
+
+import android.graphics.Bitmap;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Mutable ARGB_8888 frame bitmaps for reuse, so a frame source fills a bitmap that an
+ * earlier frame gave back instead of allocating a full-resolution one per sample. Bitmaps
+ * the pool did not hand out (e.g. a retriever's frames) are recycled on release, so sizes
+ * nobody asks for never take up the budget.
+ * <p>
+ * Thread-safe: frames are acquired on the decode thread and released wherever the
+ * pipeline finishes with them.
+ */
+public class BitmapPool {
+
+    private final SizedPool<Bitmap> pool;
+    private final Set<Bitmap> owned = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>()));
+
+    /** @param maxBytes idle bitmaps kept, in bytes; 0 to allocate and recycle every time */
+    public BitmapPool(long maxBytes) {
+        pool = new SizedPool<>(new SizedPool.Allocator<Bitmap>() {
+            @Override
+            public Bitmap create(int width, int height) {
+                Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                owned.add(bitmap);
+                return bitmap;
+            }
+
+            @Override
+            public void destroy(Bitmap item) {
+                owned.remove(item);
+                item.recycle();
+            }
+        }, 4, maxBytes);
+    }
+
+    /** A mutable ARGB_8888 bitmap of this size; its pixels are whatever they were. */
+    public Bitmap acquire(int width, int height) {
+        return pool.acquire(width, height);
+    }
+
+    /** Gives {@code bitmap} back; it must not be used afterwards. Null is ignored. */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        if (!owned.contains(bitmap)) {
+            bitmap.recycle();
+            return;
+        }
+        pool.release(bitmap, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /** See {@link SizedPool#setMaxBytes}. */
+    public void setMaxBytes(long maxBytes) {
+        pool.setMaxBytes(maxBytes);
+    }
+
+    public void clear() {
+        pool.clear();
+    }
+
+    public long idleBytes() { return pool.idleBytes(); }
+
+    public long hitCount() { return pool.hitCount(); }
+
+    public long missCount() { return pool.missCount(); }
+}
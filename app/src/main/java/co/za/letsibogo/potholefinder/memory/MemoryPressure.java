@@ -0,0 +1,113 @@
+package co.za.letsibogo.potholefinder.memory;
+
+/**
+ * Turns the system's memory signals ({@code onTrimMemory}, {@code onLowMemory}) into a
+ * degradation level, and steps back up once they stop.
+ * <p>
+ * A signal raises the level at once to whatever it maps to; it never lowers it. The
+ * system sends no "pressure cleared" signal, so recovery is by time instead: after
+ * {@code recoveryMs} without a new signal the level drops one step, and each further
+ * step waits as long again. A brief squeeze therefore costs a little throughput for a
+ * while, and repeated ones hold the app down instead of making it oscillate.
+ * <p>
+ * Pure Java: trim levels are the {@code ComponentCallbacks2} values, and time is passed
+ * in. Not thread-safe; call from the main thread.
+ */
+public class MemoryPressure {
+
+    // ComponentCallbacks2 trim levels
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+    public static final int TRIM_MEMORY_MODERATE = 60;
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    /** How far to step down, with what each step gives up. */
+    public enum Level {
+        /** Everything as configured. */
+        NORMAL(1f, 1, 1f, true),
+        /** Smaller frame pool, somewhat fewer samples. */
+        MODERATE(0.5f, 1, 0.75f, true),
+        /** No frame pool, half-resolution frames, half the sampling rate. */
+        LOW(0f, 2, 0.5f, true),
+        /** Detection stops and the interpreters are released. */
+        CRITICAL(0f, 2, 0.25f, false);
+
+        /** Share of the frame pool's budget to keep. */
+        public final float poolFraction;
+        /** Frames are decoded at 1/downscale of their size on each axis. */
+        public final int downscale;
+        /** Share of the maximum sampling rate. */
+        public final float rateScale;
+        /** Whether the detection models stay loaded. */
+        public final boolean modelsLoaded;
+
+        Level(float poolFraction, int downscale, float rateScale, boolean modelsLoaded) {
+            this.poolFraction = poolFraction;
+            this.downscale = downscale;
+            this.rateScale = rateScale;
+            this.modelsLoaded = modelsLoaded;
+        }
+    }
+
+    public static class Config {
+        /** Quiet time before stepping up one level. */
+        public long recoveryMs = 30_000;
+    }
+
+    private final Config config;
+    private Level level = Level.NORMAL;
+    private long lastSignalMs;
+
+    public MemoryPressure() {
+        this(new Config());
+    }
+
+    public MemoryPressure(Config config) {
+        this.config = config;
+    }
+
+    /** The level a trim signal asks for. */
+    public static Level forTrimLevel(int trimLevel) {
+        if (trimLevel >= TRIM_MEMORY_MODERATE) return Level.CRITICAL;   // next in line to be killed
+        if (trimLevel >= TRIM_MEMORY_BACKGROUND) return Level.LOW;
+        if (trimLevel >= TRIM_MEMORY_UI_HIDDEN) return Level.MODERATE;   // not visible: pools only matter
+        if (trimLevel >= TRIM_MEMORY_RUNNING_CRITICAL) return Level.CRITICAL;
+        if (trimLevel >= TRIM_MEMORY_RUNNING_LOW) return Level.LOW;
+        if (trimLevel >= TRIM_MEMORY_RUNNING_MODERATE) return Level.MODERATE;
+        return Level.NORMAL;
+    }
+
+    /** @return true if the level changed */
+    public boolean onTrimMemory(int trimLevel, long nowMs) {
+        return raise(forTrimLevel(trimLevel), nowMs);
+    }
+
+    /** @return true if the level changed */
+    public boolean onLowMemory(long nowMs) {
+        return raise(Level.CRITICAL, nowMs);
+    }
+
+    private boolean raise(Level to, long nowMs) {
+        if (to == Level.NORMAL) return false;
+        lastSignalMs = nowMs;
+        if (to.ordinal() <= level.ordinal()) return false;
+        level = to;
+        return true;
+    }
+
+    /**
+     * Call periodically; steps up one level once the signals have been quiet long enough.
+     * @return true if the level changed
+     */
+    public boolean tick(long nowMs) {
+        if (level == Level.NORMAL || nowMs - lastSignalMs < config.recoveryMs) return false;
+        level = Level.values()[level.ordinal() - 1];
+        lastSignalMs = nowMs;
+        return true;
+    }
+
+    public Level level() { return level; }
+}
@@ -0,0 +1,140 @@
+package co.za.letsibogo.potholefinder.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Idle buffers kept for reuse, keyed by width and height, within a byte budget. A buffer
+ * handed back while the pool is over budget evicts the oldest idle ones. Lowering the
+ * budget evicts at once, so under memory pressure the pool can be shrunk or emptied
+ * without the callers noticing anything but more allocations.
+ * <p>
+ * Idle buffers are few (a handful of frames), so lookup is a linear scan. Allocation and
+ * destruction happen outside the lock. Thread-safe.
+ */
+public class SizedPool<T> {
+
+    /** Makes and frees the pooled buffers. */
+    public interface Allocator<T> {
+        T create(int width, int height);
+
+        void destroy(T item);
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final int width, height;
+
+        Entry(T item, int width, int height) {
+            this.item = item;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final Allocator<T> allocator;
+    private final int bytesPerPixel;
+    private final List<Entry<T>> idle = new ArrayList<>();   // oldest first; guarded by this
+    private long maxBytes;
+    private long idleBytes;
+    private long hits, misses, evictions;
+
+    public SizedPool(Allocator<T> allocator, int bytesPerPixel, long maxBytes) {
+        this.allocator = allocator;
+        this.bytesPerPixel = bytesPerPixel;
+        this.maxBytes = maxBytes;
+    }
+
+    /** An idle buffer of this size, or a new one. */
+    public T acquire(int width, int height) {
+        synchronized (this) {
+            for (int i = idle.size() - 1; i >= 0; i--) {
+                Entry<T> e = idle.get(i);
+                if (e.width == width && e.height == height) {
+                    idle.remove(i);
+                    idleBytes -= bytes(width, height);
+                    hits++;
+                    return e.item;
+                }
+            }
+            misses++;
+        }
+        return allocator.create(width, height);
+    }
+
+    /** Hands a buffer back; it is kept if the budget allows, else destroyed. */
+    public void release(T item, int width, int height) {
+        List<T> evicted;
+        synchronized (this) {
+            if (bytes(width, height) > maxBytes) {
+                evictions++;
+                evicted = null;
+            } else {
+                idle.add(new Entry<>(item, width, height));
+                idleBytes += bytes(width, height);
+                item = null;
+                evicted = evictLocked();
+            }
+        }
+        if (item != null) allocator.destroy(item);
+        destroyAll(evicted);
+    }
+
+    /** Changes the budget; idle buffers over it are destroyed now. 0 turns pooling off. */
+    public void setMaxBytes(long maxBytes) {
+        List<T> evicted;
+        synchronized (this) {
+            this.maxBytes = maxBytes;
+            evicted = evictLocked();
+        }
+        destroyAll(evicted);
+    }
+
+    /** Destroys every idle buffer; the budget stays. */
+    public void clear() {
+        List<T> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (Entry<T> e : idle) evicted.add(e.item);
+            evictions += idle.size();
+            idle.clear();
+            idleBytes = 0;
+        }
+        destroyAll(evicted);
+    }
+
+    private List<T> evictLocked() {
+        List<T> evicted = null;
+        while (idleBytes > maxBytes && !idle.isEmpty()) {
+            Entry<T> e = idle.remove(0);
+            idleBytes -= bytes(e.width, e.height);
+            evictions++;
+            if (evicted == null) evicted = new ArrayList<>();
+            evicted.add(e.item);
+        }
+        return evicted;
+    }
+
+    private void destroyAll(List<T> items) {
+        if (items == null) return;
+        for (T item : items) allocator.destroy(item);
+    }
+
+    private long bytes(int width, int height) {
+        return (long) width * height * bytesPerPixel;
+    }
+
+    public synchronized long maxBytes() { return maxBytes; }
+
+    public synchronized long idleBytes() { return idleBytes; }
+
+    public synchronized int idleCount() { return idle.size(); }
+
+    /** Acquires served from the pool. */
+    public synchronized long hitCount() { return hits; }
+
+    /** Acquires that had to allocate. */
+    public synchronized long missCount() { return misses; }
+
+    /** Buffers destroyed for lack of budget. */
+    public synchronized long evictionCount() { return evictions; }
+}
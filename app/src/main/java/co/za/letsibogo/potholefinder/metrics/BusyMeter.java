@@ -0,0 +1,72 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+/**
+ * How long a thread spends working per second of wall time, from {@link #begin}/{@link #end}
+ * pairs around each unit of work (for the main thread, each Looper message). Work is
+ * counted in the one-second window in which it ends.
+ * <p>
+ * One writer thread; the getters may be read from any thread.
+ */
+public class BusyMeter {
+
+    private static final long WINDOW_NS = 1_000_000_000L;
+
+    // Writer thread only
+    private long windowStartNs = -1;
+    private long windowBusyNs;
+    private long beganNs = -1;
+    private long windowLongestNs;
+
+    private volatile float msPerSecond;
+    private volatile float peakMsPerSecond;
+    private volatile long longestUs;    // longest unit in the last full window
+    private volatile long windows;
+
+    public void begin(long nowNs) {
+        if (windowStartNs < 0) windowStartNs = nowNs;
+        beganNs = nowNs;
+    }
+
+    public void end(long nowNs) {
+        if (beganNs < 0) return;   // started measuring mid-message
+        long busy = nowNs - beganNs;
+        beganNs = -1;
+        windowBusyNs += busy;
+        if (busy > windowLongestNs) windowLongestNs = busy;
+        long elapsed = nowNs - windowStartNs;
+        if (elapsed >= WINDOW_NS) {
+            float ms = windowBusyNs * 1000f / elapsed;
+            msPerSecond = ms;
+            if (ms > peakMsPerSecond) peakMsPerSecond = ms;
+            longestUs = windowLongestNs / 1000;
+            windows++;
+            windowStartNs = nowNs;
+            windowBusyNs = 0;
+            windowLongestNs = 0;
+        }
+    }
+
+    /** Busy milliseconds per second over the last full window. */
+    public float msPerSecond() { return msPerSecond; }
+
+    /** Highest {@link #msPerSecond()} seen since the last reset. */
+    public float peakMsPerSecond() { return peakMsPerSecond; }
+
+    /** Longest single unit of work in the last full window, in microseconds. */
+    public long longestUs() { return longestUs; }
+
+    /** Full windows measured since the last reset. */
+    public long windows() { return windows; }
+
+    /** Writer thread only. */
+    public void reset() {
+        windowStartNs = -1;
+        windowBusyNs = 0;
+        beganNs = -1;
+        windowLongestNs = 0;
+        msPerSecond = 0;
+        peakMsPerSecond = 0;
+        longestUs = 0;
+        windows = 0;
+    }
+}
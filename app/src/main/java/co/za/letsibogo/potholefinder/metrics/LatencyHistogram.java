@@ -0,0 +1,88 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency histogram with HDR-style log-linear buckets over microseconds.
+ * <p>
+ * Values below 32 µs get one bucket each; above that every power of two is split into 16
+ * buckets, so any recorded value is reported within about 6% from 1 µs to over a day.
+ * Recording is a couple of shifts and one atomic increment per counter: no locks and no
+ * allocation, so it is safe on the frame path from any thread. Reads see a slightly
+ * inconsistent view while writers are active, which is fine for monitoring.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 32;        // values [0, 32) map 1:1
+    private static final int SUB = 16;           // buckets per power of two above that
+    private static final int MAX_EXPONENT = 40;  // 2^40 µs, about 12 days
+    static final int BUCKETS = LINEAR + (MAX_EXPONENT - 5 + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long us) {
+        if (us < 0) us = 0;
+        counts.incrementAndGet(bucketOf(us));
+        count.incrementAndGet();
+        sumUs.addAndGet(us);
+        long m;
+        while (us > (m = maxUs.get()) && !maxUs.compareAndSet(m, us)) { /* retry */ }
+    }
+
+    static int bucketOf(long us) {
+        if (us < LINEAR) return (int) us;
+        int e = 63 - Long.numberOfLeadingZeros(us);   // >= 5
+        if (e > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (us >>> (e - 4));              // [16, 32)
+        return LINEAR + (e - 5) * SUB + (sub - SUB);
+    }
+
+    /** Largest value that maps to {@code bucket}. */
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int k = bucket - LINEAR;
+        int e = 5 + k / SUB;
+        long sub = SUB + k % SUB;
+        return ((sub + 1) << (e - 4)) - 1;
+    }
+
+    public long count() { return count.get(); }
+
+    public long maxMicros() { return maxUs.get(); }
+
+    public double meanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sumUs.get() / n;
+    }
+
+    /**
+     * Value at or below which {@code percentile}% of recordings fall, as the upper bound of
+     * its bucket (never above the recorded maximum). 0 when empty.
+     */
+    public long percentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) return Math.min(upperBound(b), maxUs.get());
+        }
+        return maxUs.get();
+    }
+
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) counts.set(b, 0);
+        count.set(0);
+        sumUs.set(0);
+        maxUs.set(0);
+    }
+}
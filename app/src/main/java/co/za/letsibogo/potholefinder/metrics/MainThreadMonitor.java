@@ -0,0 +1,44 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Printer;
+
+/**
+ * Times every message the main Looper dispatches into a {@link BusyMeter}, using the
+ * Looper's message logging (it prints ">>>>> Dispatching" before and "<<<<< Finished"
+ * after each one). That logging builds a string per message, so run it only while
+ * measuring.
+ * <p>
+ * Main thread only.
+ */
+public class MainThreadMonitor {
+
+    private final BusyMeter meter;
+    private final Printer printer = new Printer() {
+        @Override
+        public void println(String x) {
+            long now = SystemClock.elapsedRealtimeNanos();
+            if (x.startsWith(">>>>>")) meter.begin(now);
+            else if (x.startsWith("<<<<<")) meter.end(now);
+        }
+    };
+    private boolean running;
+
+    public MainThreadMonitor(BusyMeter meter) {
+        this.meter = meter;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        meter.reset();
+        Looper.getMainLooper().setMessageLogging(printer);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Looper.getMainLooper().setMessageLogging(null);
+    }
+}
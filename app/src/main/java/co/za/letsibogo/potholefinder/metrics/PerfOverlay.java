@@ -0,0 +1,60 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Shows {@link PerfStats#summary()} in a TextView over the video, refreshed on the main
+ * thread while visible. A refresh hook runs first so the owner can sample queue depths.
+ * Main-thread load is measured only while the overlay is shown.
+ */
+public class PerfOverlay {
+
+    private final TextView view;
+    private final PerfStats stats;
+    private final long refreshMs;
+    private final Runnable beforeRefresh;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final MainThreadMonitor monitor;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            if (beforeRefresh != null) beforeRefresh.run();
+            view.setText(stats.summary());
+            handler.postDelayed(this, refreshMs);
+        }
+    };
+
+    public PerfOverlay(TextView view, PerfStats stats, long refreshMs, Runnable beforeRefresh) {
+        this.view = view;
+        this.stats = stats;
+        this.refreshMs = refreshMs;
+        this.beforeRefresh = beforeRefresh;
+        this.monitor = new MainThreadMonitor(stats.mainThread());
+    }
+
+    public boolean isShown() {
+        return view.getVisibility() == View.VISIBLE;
+    }
+
+    public void show() {
+        view.setVisibility(View.VISIBLE);
+        monitor.start();
+        handler.removeCallbacks(tick);
+        handler.post(tick);
+    }
+
+    public void hide() {
+        handler.removeCallbacks(tick);
+        monitor.stop();
+        view.setVisibility(View.GONE);
+    }
+
+    public void toggle() {
+        if (isShown()) hide();
+        else show();
+    }
+}
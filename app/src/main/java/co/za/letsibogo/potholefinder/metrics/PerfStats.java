@@ -0,0 +1,159 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-stage latency histograms plus frame counters and queue depths for the detection path.
+ * <p>
+ * Writers call {@link #record} with a start time from {@link #start()}; everything on that
+ * path is lock- and allocation-free. Readers format a {@link #summary()} for the on-screen
+ * overlay or a JSON dump for bug reports.
+ */
+public class PerfStats {
+
+    public enum Stage {
+        FRAME_DECODE("decode"),
+        PREPROCESS("preprocess"),
+        INVOKE("invoke"),
+        OUTPUT_DECODE("output_decode"),
+        NMS("nms"),
+        UI_POST("ui_post");
+
+        final String key;
+
+        Stage(String key) { this.key = key; }
+    }
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong framesCompleted = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final BusyMeter mainThread = new BusyMeter();
+    private final long createdNs = System.nanoTime();
+
+    // Latest queue depths, sampled by whoever owns the pipeline
+    private volatile int depthPreprocess, depthInfer, depthPostprocess;
+
+    // Throughput over the window since the last summary/dump
+    private long windowStartNs = createdNs;
+    private long windowStartFrames = 0;
+    private double lastFps = 0;
+
+    public PerfStats() {
+        for (int i = 0; i < stages.length; i++) stages[i] = new LatencyHistogram();
+    }
+
+    /** Start timestamp for {@link #record}. */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Stage stage, long startNs) {
+        stages[stage.ordinal()].recordNanos(System.nanoTime() - startNs);
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /** Main-thread busy time, fed by a {@link MainThreadMonitor} while one runs. */
+    public BusyMeter mainThread() { return mainThread; }
+
+    public void frameCompleted() { framesCompleted.incrementAndGet(); }
+
+    public void frameDropped() { framesDropped.incrementAndGet(); }
+
+    public void queueDepths(int preprocess, int infer, int postprocess) {
+        depthPreprocess = preprocess;
+        depthInfer = infer;
+        depthPostprocess = postprocess;
+    }
+
+    public long framesCompleted() { return framesCompleted.get(); }
+
+    public long framesDropped() { return framesDropped.get(); }
+
+    /** Completed frames per second since the previous call; the first call covers everything so far. */
+    public synchronized double throughputFps() {
+        long now = System.nanoTime();
+        long frames = framesCompleted.get();
+        long dt = now - windowStartNs;
+        if (dt >= 250_000_000L) {   // keep the last value for very short windows
+            lastFps = (frames - windowStartFrames) * 1e9 / dt;
+            windowStartNs = now;
+            windowStartFrames = frames;
+        }
+        return lastFps;
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : stages) h.reset();
+        framesCompleted.set(0);
+        framesDropped.set(0);
+    }
+
+    /** A few lines for the overlay: p50/p95/p99 per stage in ms, then throughput and queues. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(320);
+        sb.append(String.format(Locale.US, "%-13s %6s %6s %6s%n", "stage ms", "p50", "p95", "p99"));
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = histogram(s);
+            if (h.count() == 0) continue;
+            sb.append(String.format(Locale.US, "%-13s %6.1f %6.1f %6.1f%n", s.key,
+                    h.percentileMicros(50) / 1000.0, h.percentileMicros(95) / 1000.0, h.percentileMicros(99) / 1000.0));
+        }
+        sb.append(String.format(Locale.US, "%.1f fps  done %d  dropped %d%nqueues %d/%d/%d",
+                throughputFps(), framesCompleted(), framesDropped(),
+                depthPreprocess, depthInfer, depthPostprocess));
+        if (mainThread.windows() > 0) {
+            sb.append(String.format(Locale.US, "%nmain %.1f ms/s  peak %.1f  longest %.1f ms",
+                    mainThread.msPerSecond(), mainThread.peakMsPerSecond(), mainThread.longestUs() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append('{');
+        sb.append("\"uptimeMs\":").append((System.nanoTime() - createdNs) / 1_000_000);
+        sb.append(",\"framesCompleted\":").append(framesCompleted());
+        sb.append(",\"framesDropped\":").append(framesDropped());
+        sb.append(",\"throughputFps\":").append(String.format(Locale.US, "%.2f", throughputFps()));
+        sb.append(",\"queueDepth\":{\"preprocess\":").append(depthPreprocess)
+                .append(",\"infer\":").append(depthInfer)
+                .append(",\"postprocess\":").append(depthPostprocess).append('}');
+        sb.append(",\"mainThread\":{\"msPerSecond\":").append(String.format(Locale.US, "%.2f", mainThread.msPerSecond()))
+                .append(",\"peakMsPerSecond\":").append(String.format(Locale.US, "%.2f", mainThread.peakMsPerSecond()))
+                .append(",\"longestUs\":").append(mainThread.longestUs())
+                .append(",\"windows\":").append(mainThread.windows()).append('}');
+        sb.append(",\"stages\":{");
+        Stage[] all = Stage.values();
+        for (int i = 0; i < all.length; i++) {
+            LatencyHistogram h = histogram(all[i]);
+            if (i > 0) sb.append(',');
+            sb.append('"').append(all[i].key).append("\":{")
+                    .append("\"count\":").append(h.count())
+                    .append(",\"meanUs\":").append(String.format(Locale.US, "%.1f", h.meanMicros()))
+                    .append(",\"p50Us\":").append(h.percentileMicros(50))
+                    .append(",\"p95Us\":").append(h.percentileMicros(95))
+                    .append(",\"p99Us\":").append(h.percentileMicros(99))
+                    .append(",\"maxUs\":").append(h.maxMicros())
+                    .append('}');
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    /** Writes {@link #toJson()} to {@code file}, replacing it. */
+    public void writeJson(File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(toJson());
+        }
+    }
+}
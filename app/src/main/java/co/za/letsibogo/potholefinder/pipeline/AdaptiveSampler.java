@@ -0,0 +1,186 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+/**
+ * Decides when the decode stage takes the next sample, replacing a fixed polling period.
+ * <p>
+ * Two limits apply. Capacity: at most {@code maxInFlight} sampled frames may be between
+ * decode and postprocess, and the decode thread blocks in {@link #awaitCapacity} until one
+ * completes or is dropped, so a frame is taken as soon as there is room for it. Rate: from the
+ * measured end-to-end latency L, the pipeline sustains about {@code maxInFlight / L} frames/s
+ * (Little's law), and samples are spaced in media time so the rate is
+ * {@code targetUtilization} of that. If the vehicle speed is known, the rate is also capped
+ * at one sample per {@code metersPerSample} of travel, so a slow or stopped vehicle is
+ * sampled less and a fast one more. The result is clamped to [minRateHz, maxRateHz], and
+ * to a lower limit while one is set with {@link #setRateLimitHz} (e.g. under memory pressure).
+ * <p>
+ * Thread-safe: the decode thread samples, pipeline workers report completions.
+ */
+public class AdaptiveSampler {
+
+    public static class Config {
+        public float minRateHz = 0.5f;
+        public float maxRateHz = 15f;
+        /** Sampled frames allowed between decode and postprocess at once. */
+        public int maxInFlight = 2;
+        /** Fraction of the estimated capacity to use, leaving headroom for the UI. */
+        public float targetUtilization = 0.8f;
+        /** Weight of the newest latency in the moving average. */
+        public float smoothing = 0.2f;
+        /** With a known speed: one sample per this much travel. 0 disables the speed cap. */
+        public float metersPerSample = 2f;
+        /** Latency assumed before the first measurement. */
+        public long initialLatencyUs = 200_000;
+    }
+
+    private static final int RING = 64;   // must exceed maxInFlight + frames queued in the pipeline
+
+    private final Config config;
+    // Frames in flight by index, probed from index % RING; -1 marks a free entry
+    private final long[] startNs = new long[RING];
+    private final long[] ringIndex = new long[RING];
+
+    private int inFlight = 0;
+    private double latencyUs;
+    private float speedMps = Float.NaN;
+    private float rateLimitHz = Float.POSITIVE_INFINITY;
+    private long lastSampleUs = Long.MIN_VALUE;
+    private long completed = 0, dropped = 0;
+
+    public AdaptiveSampler() {
+        this(new Config());
+    }
+
+    public AdaptiveSampler(Config config) {
+        if (config.minRateHz <= 0 || config.maxRateHz < config.minRateHz) {
+            throw new IllegalArgumentException("need 0 < minRateHz <= maxRateHz");
+        }
+        if (config.maxInFlight < 1 || config.maxInFlight >= RING) {
+            throw new IllegalArgumentException("maxInFlight must be in [1, " + (RING - 1) + "]");
+        }
+        this.config = config;
+        this.latencyUs = config.initialLatencyUs;
+        java.util.Arrays.fill(ringIndex, -1);
+    }
+
+    /**
+     * Blocks until fewer than {@code maxInFlight} frames are in flight.
+     * @return false if the timeout passed first
+     */
+    public synchronized boolean awaitCapacity(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (inFlight >= config.maxInFlight) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return false;
+            wait(left);
+        }
+        return true;
+    }
+
+    /** True if a frame at {@code mediaTimeUs} is far enough past the previous sample. */
+    public synchronized boolean isDue(long mediaTimeUs) {
+        if (lastSampleUs == Long.MIN_VALUE || mediaTimeUs < lastSampleUs) return true;   // first or rewound
+        return mediaTimeUs - lastSampleUs >= intervalUs();
+    }
+
+    /** Media time of the next sample, for seeking the source straight to it. */
+    public synchronized long nextSampleUs(long mediaTimeUs) {
+        if (lastSampleUs == Long.MIN_VALUE || mediaTimeUs < lastSampleUs) return mediaTimeUs;
+        return Math.max(mediaTimeUs, lastSampleUs + intervalUs());
+    }
+
+    /** The frame {@code index} at {@code mediaTimeUs} entered the pipeline. */
+    public synchronized void onSampled(long index, long mediaTimeUs) {
+        lastSampleUs = mediaTimeUs;
+        int slot = find(-1, (int) (index % RING));
+        if (slot < 0) return;   // more in flight than the ring holds: not paced, see RING
+        startNs[slot] = System.nanoTime();
+        ringIndex[slot] = index;
+        inFlight++;
+    }
+
+    /**
+     * Frame {@code index} came out of postprocess; its end-to-end time updates the estimate.
+     * A frame sampled before the last {@link #reset} no longer counts as in flight.
+     */
+    public synchronized void onCompleted(long index) {
+        completed++;
+        int slot = find(index, (int) (index % RING));
+        if (slot < 0) return;
+        long us = (System.nanoTime() - startNs[slot]) / 1000;
+        latencyUs += config.smoothing * (us - latencyUs);
+        release(slot);
+    }
+
+    /** Frame {@code index} was dropped or discarded without completing. */
+    public synchronized void onDropped(long index) {
+        dropped++;
+        int slot = find(index, (int) (index % RING));
+        if (slot >= 0) release(slot);
+    }
+
+    /** Ring entry holding {@code index} (-1: a free one), probing from {@code home}; -1 if none. */
+    private int find(long index, int home) {
+        for (int i = 0; i < RING; i++) {
+            int slot = (home + i) % RING;
+            if (ringIndex[slot] == index) return slot;
+        }
+        return -1;
+    }
+
+    private void release(int slot) {
+        ringIndex[slot] = -1;
+        inFlight--;
+        notifyAll();
+    }
+
+    /** Vehicle speed in m/s, or NaN when unknown. */
+    public synchronized void setSpeed(float metersPerSecond) {
+        this.speedMps = metersPerSecond;
+    }
+
+    /**
+     * Caps the rate below maxRateHz; {@code Float.POSITIVE_INFINITY} lifts the cap. minRateHz
+     * still applies.
+     */
+    public synchronized void setRateLimitHz(float hz) {
+        this.rateLimitHz = hz;
+    }
+
+    public synchronized float rateLimitHz() { return rateLimitHz; }
+
+    /** Forget in-flight frames and the last sample, e.g. after the pipeline is rebuilt or a seek. */
+    public synchronized void reset() {
+        inFlight = 0;
+        lastSampleUs = Long.MIN_VALUE;
+        java.util.Arrays.fill(ringIndex, -1);
+        notifyAll();
+    }
+
+    /** Current effective sampling rate in frames per second of media time. */
+    public synchronized float rateHz() {
+        double capacity = config.maxInFlight * 1_000_000.0 / Math.max(1.0, latencyUs);
+        double rate = capacity * config.targetUtilization;
+        if (!Float.isNaN(speedMps) && config.metersPerSample > 0) {
+            rate = Math.min(rate, speedMps / config.metersPerSample);
+        }
+        double max = Math.min(config.maxRateHz, rateLimitHz);
+        return (float) Math.max(config.minRateHz, Math.min(max, rate));
+    }
+
+    public synchronized long intervalUs() {
+        return (long) (1_000_000 / rateHz());
+    }
+
+    /** Smoothed end-to-end latency in microseconds. */
+    public synchronized long latencyUs() { return (long) latencyUs; }
+
+    public synchronized int inFlight() { return inFlight; }
+
+    public synchronized long completedCount() { return completed; }
+
+    public synchronized long droppedCount() { return dropped; }
+
+    public float minRateHz() { return config.minRateHz; }
+
+    public float maxRateHz() { return config.maxRateHz; }
+}
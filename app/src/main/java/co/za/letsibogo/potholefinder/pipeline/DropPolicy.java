@@ -0,0 +1,11 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+/** What a full {@link StageQueue} does with a new item. */
+public enum DropPolicy {
+    /** Evict the oldest queued item to make room; keeps the pipeline on the freshest frames. */
+    DROP_OLDEST,
+    /** Reject the new item; whatever is already queued is processed first. */
+    DROP_NEWEST,
+    /** Block the producer until there is room; nothing is dropped. */
+    BLOCK
+}
@@ -0,0 +1,261 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Four-stage frame pipeline: decode -> preprocess -> infer -> postprocess.
+ * <p>
+ * Each stage runs on its own worker threads and the stages are connected by bounded
+ * {@link StageQueue}s, so decoding the next frame overlaps with inference on the current
+ * one. Kept free of Android types so it can be driven by fake sources and detectors in
+ * unit tests.
+ * <p>
+ * Stages that run more than one thread may complete frames out of order. A stage that
+ * throws is responsible for releasing its own input, which is then handed to the failure
+ * listener so per-frame bookkeeping can be undone; items dropped by a queue are handed to
+ * the drop listener.
+ *
+ * @param <F> decoded frame
+ * @param <T> preprocessed model input
+ * @param <R> inference result
+ */
+public class FramePipeline<F, T, R> {
+
+    public enum Stage { DECODE, PREPROCESS, INFER, POSTPROCESS }
+
+    /** Produces the next frame; returns null at end of stream. May block until a frame is due. */
+    public interface Decoder<F> { F decode() throws Exception; }
+
+    /** One processing step; returning null drops the frame without passing anything on. */
+    public interface Transform<A, B> { B apply(A input) throws Exception; }
+
+    /** Final stage, e.g. publishing results to the UI. */
+    public interface Sink<R> { void accept(R result) throws Exception; }
+
+    private final Decoder<F> decoder;
+    private final Transform<F, T> preprocess;
+    private final Transform<T, R> infer;
+    private final Sink<R> postprocess;
+    private final int[] threads;
+    private final BiConsumer<Object, Throwable> onFailure;
+
+    private final StageQueue<F> preprocessQueue;
+    private final StageQueue<T> inferQueue;
+    private final StageQueue<R> postprocessQueue;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final CountDownLatch finished;
+    private volatile boolean running = false;
+    private volatile Throwable lastError;
+
+    private FramePipeline(Builder<F, T, R> b) {
+        this.decoder = b.decoder;
+        this.preprocess = b.preprocess;
+        this.infer = b.infer;
+        this.postprocess = b.postprocess;
+        this.threads = b.threads.clone();
+        this.onFailure = b.onFailure;
+        this.preprocessQueue = new StageQueue<>(b.queueCapacity, b.dropPolicy, b.onDrop);
+        this.inferQueue = new StageQueue<>(b.queueCapacity, b.dropPolicy, b.onDrop);
+        this.postprocessQueue = new StageQueue<>(b.queueCapacity, b.dropPolicy, b.onDrop);
+        this.finished = new CountDownLatch(1);
+    }
+
+    /** Starts all stage threads. A pipeline can only be started once. */
+    public synchronized void start() {
+        if (running || !workers.isEmpty()) throw new IllegalStateException("Pipeline already started");
+        running = true;
+
+        AtomicInteger liveDecoders = new AtomicInteger(threads[Stage.DECODE.ordinal()]);
+        AtomicInteger livePreprocess = new AtomicInteger(threads[Stage.PREPROCESS.ordinal()]);
+        AtomicInteger liveInfer = new AtomicInteger(threads[Stage.INFER.ordinal()]);
+        AtomicInteger livePost = new AtomicInteger(threads[Stage.POSTPROCESS.ordinal()]);
+
+        spawn(Stage.DECODE, () -> {
+            runDecoder();
+            if (liveDecoders.decrementAndGet() == 0) preprocessQueue.close();
+        });
+        spawn(Stage.PREPROCESS, () -> {
+            runStage(preprocessQueue, preprocess, inferQueue);
+            if (livePreprocess.decrementAndGet() == 0) inferQueue.close();
+        });
+        spawn(Stage.INFER, () -> {
+            runStage(inferQueue, infer, postprocessQueue);
+            if (liveInfer.decrementAndGet() == 0) postprocessQueue.close();
+        });
+        spawn(Stage.POSTPROCESS, () -> {
+            runSink();
+            if (livePost.decrementAndGet() == 0) finished.countDown();
+        });
+    }
+
+    /** Stops decoding and discards queued frames; frames already inside a stage are dropped at its output. */
+    public void stop() {
+        running = false;
+        preprocessQueue.clear();
+        inferQueue.clear();
+        postprocessQueue.clear();
+    }
+
+    /** Waits until every stage has drained (end of stream or {@link #stop()}). */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    public boolean isRunning() { return running && finished.getCount() > 0; }
+
+    public long decodedCount() { return decoded.get(); }
+
+    public long completedCount() { return completed.get(); }
+
+    public long failedCount() { return failed.get(); }
+
+    /** Frames dropped by any queue because a downstream stage could not keep up. */
+    public long droppedCount() {
+        return preprocessQueue.droppedCount() + inferQueue.droppedCount() + postprocessQueue.droppedCount();
+    }
+
+    /** Items waiting in front of the given stage (always 0 for DECODE). */
+    public int queueDepth(Stage stage) {
+        switch (stage) {
+            case PREPROCESS: return preprocessQueue.depth();
+            case INFER: return inferQueue.depth();
+            case POSTPROCESS: return postprocessQueue.depth();
+            default: return 0;
+        }
+    }
+
+    public Throwable lastError() { return lastError; }
+
+    private void spawn(Stage stage, Runnable body) {
+        int n = threads[stage.ordinal()];
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(body, "FramePipeline-" + stage.name().toLowerCase() + "-" + i);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    private void runDecoder() {
+        try {
+            while (running) {
+                F frame;
+                try {
+                    frame = decoder.decode();
+                } catch (InterruptedException ie) {
+                    throw ie;
+                } catch (Exception e) {
+                    onError(null, e);
+                    continue;
+                }
+                if (frame == null) break;  // end of stream
+                decoded.incrementAndGet();
+                preprocessQueue.put(frame);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <A, B> void runStage(StageQueue<A> in, Transform<A, B> fn, StageQueue<B> out) {
+        try {
+            A item;
+            while ((item = in.take()) != null) {
+                B result;
+                try {
+                    result = fn.apply(item);
+                } catch (InterruptedException ie) {
+                    throw ie;
+                } catch (Exception e) {
+                    onError(item, e);
+                    continue;
+                }
+                if (result != null) out.put(result);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSink() {
+        try {
+            R item;
+            while ((item = postprocessQueue.take()) != null) {
+                try {
+                    postprocess.accept(item);
+                    completed.incrementAndGet();
+                } catch (InterruptedException ie) {
+                    throw ie;
+                } catch (Exception e) {
+                    onError(item, e);
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onError(Object input, Throwable t) {
+        failed.incrementAndGet();
+        lastError = t;
+        if (onFailure != null) onFailure.accept(input, t);
+    }
+
+    public static class Builder<F, T, R> {
+        private Decoder<F> decoder;
+        private Transform<F, T> preprocess;
+        private Transform<T, R> infer;
+        private Sink<R> postprocess;
+        private int queueCapacity = 2;
+        private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+        private Consumer<Object> onDrop;
+        private BiConsumer<Object, Throwable> onFailure;
+        private final int[] threads = {1, 1, 1, 1};
+
+        public Builder<F, T, R> decoder(Decoder<F> decoder) { this.decoder = decoder; return this; }
+
+        public Builder<F, T, R> preprocess(Transform<F, T> preprocess) { this.preprocess = preprocess; return this; }
+
+        public Builder<F, T, R> infer(Transform<T, R> infer) { this.infer = infer; return this; }
+
+        public Builder<F, T, R> postprocess(Sink<R> postprocess) { this.postprocess = postprocess; return this; }
+
+        /** Capacity of each inter-stage queue. */
+        public Builder<F, T, R> queueCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+            this.queueCapacity = capacity;
+            return this;
+        }
+
+        public Builder<F, T, R> dropPolicy(DropPolicy policy) { this.dropPolicy = policy; return this; }
+
+        /** Called with every frame, input or result a queue drops, so it can be recycled. */
+        public Builder<F, T, R> onDrop(Consumer<Object> onDrop) { this.onDrop = onDrop; return this; }
+
+        /** Called with the input of every stage call that throws (null for the decoder) and the error. */
+        public Builder<F, T, R> onFailure(BiConsumer<Object, Throwable> onFailure) { this.onFailure = onFailure; return this; }
+
+        public Builder<F, T, R> threads(Stage stage, int count) {
+            if (count < 1) throw new IllegalArgumentException("count must be >= 1");
+            threads[stage.ordinal()] = count;
+            return this;
+        }
+
+        public FramePipeline<F, T, R> build() {
+            if (decoder == null || preprocess == null || infer == null || postprocess == null) {
+                throw new IllegalStateException("All four stages must be set");
+            }
+            return new FramePipeline<>(this);
+        }
+    }
+}
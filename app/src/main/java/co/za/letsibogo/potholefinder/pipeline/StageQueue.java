@@ -0,0 +1,91 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off between two pipeline stages. When full, new items are handled
+ * according to the {@link DropPolicy}; every dropped item is passed to the drop
+ * listener so its resources (bitmaps, tensor slots) can be returned.
+ */
+public class StageQueue<T> {
+
+    private static final long POLL_MS = 50;
+
+    private final ArrayBlockingQueue<T> queue;
+    private final DropPolicy policy;
+    private final Consumer<Object> onDrop;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public StageQueue(int capacity, DropPolicy policy, Consumer<Object> onDrop) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.onDrop = onDrop;
+    }
+
+    /**
+     * Offers an item according to the drop policy.
+     * @return false if the item itself was dropped (or the queue is closed)
+     */
+    public boolean put(T item) throws InterruptedException {
+        if (closed) {
+            drop(item);
+            return false;
+        }
+        switch (policy) {
+            case BLOCK:
+                while (!queue.offer(item, POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        drop(item);
+                        return false;
+                    }
+                }
+                return true;
+            case DROP_NEWEST:
+                if (queue.offer(item)) return true;
+                drop(item);
+                return false;
+            case DROP_OLDEST:
+            default:
+                while (!queue.offer(item)) {
+                    T oldest = queue.poll();
+                    if (oldest != null) drop(oldest);
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Waits for the next item.
+     * @return the item, or null once the queue is closed and drained
+     */
+    public T take() throws InterruptedException {
+        while (true) {
+            T item = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            if (item != null) return item;
+            if (closed && queue.isEmpty()) return null;
+        }
+    }
+
+    /** No more items will be accepted; consumers drain what is left and then see null. */
+    public void close() { closed = true; }
+
+    /** Closes the queue and drops everything still in it. */
+    public void clear() {
+        closed = true;
+        T item;
+        while ((item = queue.poll()) != null) drop(item);
+    }
+
+    public int depth() { return queue.size(); }
+
+    public long droppedCount() { return dropped.get(); }
+
+    private void drop(T item) {
+        dropped.incrementAndGet();
+        if (onDrop != null) onDrop.accept(item);
+    }
+}
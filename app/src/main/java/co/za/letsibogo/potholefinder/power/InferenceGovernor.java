@@ -0,0 +1,284 @@
+package co.za.letsibogo.potholefinder.power;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Picks how hard to run detection from the device's thermal state and battery, so a phone
+ * on a sunny dashboard slows down in steps of our choosing instead of being throttled by
+ * the kernel at unpredictable moments.
+ * <p>
+ * Each {@link #update} derives the tier the conditions call for: from the thermal status,
+ * from the thermal headroom forecast (which rises well before the status changes), and from
+ * the battery when it is not charging; the most restrictive wins. A hotter tier is taken at
+ * once. A cooler one is taken only one step at a time, only after {@code minDwellMs} in the
+ * current tier, and only if the conditions would still call for it with the thresholds
+ * moved by their margins. A headroom reading hovering around a threshold therefore costs
+ * one step down and a slow way back, not an oscillation.
+ * <p>
+ * Every change is kept as a {@link Decision}, with the conditions that caused it, for
+ * {@link #toJson}. Pure Java: conditions and time are passed in. Not thread-safe; call
+ * from one thread.
+ */
+public class InferenceGovernor {
+
+    // PowerManager thermal status values
+    public static final int THERMAL_STATUS_NONE = 0;
+    public static final int THERMAL_STATUS_LIGHT = 1;
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+    public static final int THERMAL_STATUS_CRITICAL = 4;
+    public static final int THERMAL_STATUS_EMERGENCY = 5;
+    public static final int THERMAL_STATUS_SHUTDOWN = 6;
+
+    /** How hard detection runs, with what each tier gives up. */
+    public enum Tier {
+        /** Everything as configured. */
+        FULL(1f, 1f, 1),
+        /** Fewer samples. */
+        REDUCED(1f, 0.66f, 1),
+        /** Half the interpreters busy at once, half-resolution frames, fewer samples still. */
+        LOW(0.5f, 0.4f, 2),
+        /** Just enough to keep detecting. */
+        MINIMAL(0.5f, 0.2f, 2);
+
+        /** Share of the interpreters allowed to run at once, i.e. of the inference threads. */
+        public final float parallelismScale;
+        /** Share of the maximum sampling rate. */
+        public final float rateScale;
+        /** Frames are decoded at 1/downscale of their size on each axis. */
+        public final int downscale;
+
+        Tier(float parallelismScale, float rateScale, int downscale) {
+            this.parallelismScale = parallelismScale;
+            this.rateScale = rateScale;
+            this.downscale = downscale;
+        }
+    }
+
+    /** One reading of the device state. */
+    public static class Conditions {
+        /** One of the THERMAL_STATUS values; NONE if unknown. */
+        public int thermalStatus = THERMAL_STATUS_NONE;
+        /** Forecast thermal headroom, 1.0 being where throttling starts; NaN if unknown. */
+        public float headroom = Float.NaN;
+        /** Battery charge in percent, -1 if unknown. */
+        public int batteryPercent = -1;
+        public boolean charging;
+
+        public Conditions set(int thermalStatus, float headroom, int batteryPercent, boolean charging) {
+            this.thermalStatus = thermalStatus;
+            this.headroom = headroom;
+            this.batteryPercent = batteryPercent;
+            this.charging = charging;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "thermal %d, headroom %.2f, battery %d%%%s",
+                    thermalStatus, headroom, batteryPercent, charging ? " charging" : "");
+        }
+    }
+
+    public static class Config {
+        /** Headroom at which to drop to REDUCED, and to LOW. */
+        public float headroomReduced = 0.8f;
+        public float headroomLow = 0.95f;
+        /** Headroom must be this far under a threshold before its tier is left. */
+        public float headroomMargin = 0.1f;
+        /** Battery percentage, not charging, at which to drop to REDUCED, and to LOW. */
+        public int batteryReduced = 30;
+        public int batteryLow = 15;
+        /** Battery must be this many points over a threshold before its tier is left. */
+        public int batteryMargin = 5;
+        /** Time in a tier before stepping to a cooler one. */
+        public long minDwellMs = 60_000;
+        /** Decisions kept for {@link #toJson}. */
+        public int history = 256;
+    }
+
+    /** One tier change. */
+    public static final class Decision {
+        public final long timeMs;
+        public final Tier from, to;
+        /** What called for the change. */
+        public final String reason;
+        public final int thermalStatus;
+        public final float headroom;
+        public final int batteryPercent;
+        public final boolean charging;
+
+        Decision(long timeMs, Tier from, Tier to, String reason, Conditions c) {
+            this.timeMs = timeMs;
+            this.from = from;
+            this.to = to;
+            this.reason = reason;
+            this.thermalStatus = c.thermalStatus;
+            this.headroom = c.headroom;
+            this.batteryPercent = c.batteryPercent;
+            this.charging = c.charging;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s -> %s (%s): thermal %d, headroom %.2f, battery %d%%%s",
+                    from, to, reason, thermalStatus, headroom, batteryPercent, charging ? " charging" : "");
+        }
+    }
+
+    private final Config config;
+    private Tier tier = Tier.FULL;
+    private long enteredMs;
+    private final ArrayDeque<Decision> decisions = new ArrayDeque<>();
+    private long decisionCount;
+    private long updates;
+    private final long[] tierMs = new long[Tier.values().length];
+    private long lastUpdateMs = -1;
+    private final StringBuilder reason = new StringBuilder();
+
+    public InferenceGovernor() {
+        this(new Config());
+    }
+
+    public InferenceGovernor(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Takes a new reading.
+     * @return the tier change it caused, or null if the tier stays
+     */
+    public Decision update(Conditions c, long nowMs) {
+        updates++;
+        if (lastUpdateMs >= 0) tierMs[tier.ordinal()] += nowMs - lastUpdateMs;
+        lastUpdateMs = nowMs;
+
+        Tier wanted = target(c, 0f, 0, reason);
+        if (wanted.ordinal() > tier.ordinal()) return change(wanted, reason.toString(), c, nowMs);
+        if (tier == Tier.FULL || nowMs - enteredMs < config.minDwellMs) return null;
+        // Cooler only if the conditions are clear of the thresholds by their margins
+        Tier relaxed = target(c, config.headroomMargin, config.batteryMargin, reason);
+        if (relaxed.ordinal() >= tier.ordinal()) return null;
+        return change(Tier.values()[tier.ordinal() - 1], "recovered", c, nowMs);
+    }
+
+    /**
+     * The tier {@code c} calls for, with the headroom and battery thresholds made stricter
+     * by the given margins; the reason is written to {@code why}.
+     */
+    private Tier target(Conditions c, float headroomMargin, int batteryMargin, StringBuilder why) {
+        why.setLength(0);
+        Tier t = Tier.FULL;
+        Tier thermal = forThermalStatus(c.thermalStatus);
+        if (thermal != Tier.FULL) {
+            t = thermal;
+            why.append("thermal status ").append(c.thermalStatus);
+        }
+        Tier headroom = Tier.FULL;
+        if (!Float.isNaN(c.headroom)) {
+            if (c.headroom >= config.headroomLow - headroomMargin) headroom = Tier.LOW;
+            else if (c.headroom >= config.headroomReduced - headroomMargin) headroom = Tier.REDUCED;
+        }
+        if (headroom.ordinal() > t.ordinal()) {
+            t = headroom;
+            why.setLength(0);
+            why.append("headroom ").append(String.format(Locale.US, "%.2f", c.headroom));
+        }
+        Tier battery = Tier.FULL;
+        if (!c.charging && c.batteryPercent >= 0) {
+            if (c.batteryPercent <= config.batteryLow + batteryMargin) battery = Tier.LOW;
+            else if (c.batteryPercent <= config.batteryReduced + batteryMargin) battery = Tier.REDUCED;
+        }
+        if (battery.ordinal() > t.ordinal()) {
+            t = battery;
+            why.setLength(0);
+            why.append("battery ").append(c.batteryPercent).append('%');
+        }
+        return t;
+    }
+
+    /** The tier a thermal status calls for on its own. */
+    public static Tier forThermalStatus(int status) {
+        if (status >= THERMAL_STATUS_SEVERE) return Tier.MINIMAL;
+        if (status == THERMAL_STATUS_MODERATE) return Tier.LOW;
+        if (status == THERMAL_STATUS_LIGHT) return Tier.REDUCED;
+        return Tier.FULL;
+    }
+
+    private Decision change(Tier to, String why, Conditions c, long nowMs) {
+        Decision d = new Decision(nowMs, tier, to, why, c);
+        tier = to;
+        enteredMs = nowMs;
+        decisionCount++;
+        decisions.addLast(d);
+        if (decisions.size() > config.history) decisions.removeFirst();
+        return d;
+    }
+
+    public Tier tier() { return tier; }
+
+    /** Readings taken. */
+    public long updateCount() { return updates; }
+
+    /** Tier changes made, including those no longer in the history. */
+    public long decisionCount() { return decisionCount; }
+
+    /** Time spent in {@code t} between the first and the latest reading. */
+    public long timeInTierMs(Tier t) { return tierMs[t.ordinal()]; }
+
+    /** One line for the log. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("Governor: ").append(tier)
+                .append(", ").append(decisionCount).append(" changes in ").append(updates).append(" readings");
+        for (Tier t : Tier.values()) {
+            sb.append(", ").append(t).append(' ').append(tierMs[t.ordinal()] / 1000).append(" s");
+        }
+        return sb.toString();
+    }
+
+    /** The time per tier and the recent decisions, oldest first, for analysis offline. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(256 + decisions.size() * 160);
+        sb.append('{');
+        sb.append("\"tier\":\"").append(tier).append('"');
+        sb.append(",\"updates\":").append(updates);
+        sb.append(",\"decisions\":").append(decisionCount);
+        sb.append(",\"timeInTierMs\":{");
+        for (Tier t : Tier.values()) {
+            if (t.ordinal() > 0) sb.append(',');
+            sb.append('"').append(t).append("\":").append(tierMs[t.ordinal()]);
+        }
+        sb.append("},\"history\":[");
+        boolean first = true;
+        for (Decision d : decisions) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"timeMs\":").append(d.timeMs)
+                    .append(",\"from\":\"").append(d.from)
+                    .append("\",\"to\":\"").append(d.to)
+                    .append("\",\"reason\":\"").append(d.reason)
+                    .append("\",\"thermalStatus\":").append(d.thermalStatus)
+                    .append(",\"headroom\":").append(Float.isNaN(d.headroom)
+                            ? "null" : String.format(Locale.US, "%.3f", d.headroom))
+                    .append(",\"batteryPercent\":").append(d.batteryPercent)
+                    .append(",\"charging\":").append(d.charging)
+                    .append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /** Writes {@link #toJson()} to {@code file}, replacing it. */
+    public void writeJson(File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(toJson());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package co.za.letsibogo.potholefinder.power;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+/**
+ * Reads the device state {@link InferenceGovernor} works from: the thermal status (API 29+),
+ * the thermal headroom forecast (API 30+) and the battery. Whatever the device cannot report
+ * is left unknown, so on older devices only the battery counts.
+ * <p>
+ * Main thread.
+ */
+public class PowerMonitor {
+
+    // Forecast window for the headroom; about how long a tier change takes to show in the temperature
+    private static final int HEADROOM_FORECAST_S = 10;
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+    private PowerManager.OnThermalStatusChangedListener listener;
+    private float lastHeadroom = Float.NaN;
+
+    public PowerMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    /** Fills {@code out} with the current state. */
+    public InferenceGovernor.Conditions read(InferenceGovernor.Conditions out) {
+        int status = InferenceGovernor.THERMAL_STATUS_NONE;
+        float headroom = Float.NaN;
+        if (powerManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            status = powerManager.getCurrentThermalStatus();
+        }
+        if (powerManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // NaN when unsupported, or when polled more often than about once a second:
+            // keep the last reading rather than report the device as cool
+            headroom = powerManager.getThermalHeadroom(HEADROOM_FORECAST_S);
+            if (Float.isNaN(headroom)) headroom = lastHeadroom;
+            else lastHeadroom = headroom;
+        }
+
+        int percent = -1;
+        boolean charging = false;
+        Intent battery = context.registerReceiver(null, batteryFilter);   // sticky: no receiver kept
+        if (battery != null) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) percent = level * 100 / scale;
+            charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        }
+        return out.set(status, headroom, percent, charging);
+    }
+
+    /**
+     * Runs {@code onChange} on the main thread whenever the thermal status changes, so a jump
+     * to a severe status does not wait for the next poll. No-op before API 29.
+     */
+    public void start(Runnable onChange) {
+        if (powerManager == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || listener != null) return;
+        listener = status -> onChange.run();
+        powerManager.addThermalStatusListener(listener);
+    }
+
+    public void stop() {
+        if (listener == null) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) powerManager.removeThermalStatusListener(listener);
+        listener = null;
+    }
+}
@@ -0,0 +1,68 @@
+package co.za.letsibogo.potholefinder.snapshot;
+
+import android.graphics.Bitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import co.za.letsibogo.potholefinder.memory.BitmapPool;
+
+/**
+ * JPEG snapshots of decoded video frames; the full frame is scaled to fit {@code fullMaxDim}.
+ * Encoded frames go back to the frame pool they came from.
+ */
+public class BitmapSnapshotCodec implements SnapshotEncoder.Codec<Bitmap> {
+
+    private final int quality;
+    private final int fullMaxDim;
+    private final BitmapPool pool;
+
+    public BitmapSnapshotCodec(int quality, int fullMaxDim) {
+        this(quality, fullMaxDim, new BitmapPool(0));
+    }
+
+    public BitmapSnapshotCodec(int quality, int fullMaxDim, BitmapPool pool) {
+        this.quality = quality;
+        this.fullMaxDim = fullMaxDim;
+        this.pool = pool;
+    }
+
+    @Override
+    public byte[] encodeCrop(Bitmap frame, float ymin, float xmin, float ymax, float xmax) throws IOException {
+        int w = frame.getWidth(), h = frame.getHeight();
+        int x = Math.min(w - 1, Math.round(xmin * w)), y = Math.min(h - 1, Math.round(ymin * h));
+        int cw = Math.max(1, Math.min(w - x, Math.round(xmax * w) - x));
+        int ch = Math.max(1, Math.min(h - y, Math.round(ymax * h) - y));
+        Bitmap crop = Bitmap.createBitmap(frame, x, y, cw, ch);
+        try {
+            return compress(crop);
+        } finally {
+            if (crop != frame) crop.recycle();
+        }
+    }
+
+    @Override
+    public byte[] encodeFull(Bitmap frame) throws IOException {
+        int w = frame.getWidth(), h = frame.getHeight();
+        float scale = Math.min(1f, (float) fullMaxDim / Math.max(w, h));
+        if (scale >= 1f) return compress(frame);
+        Bitmap small = Bitmap.createScaledBitmap(frame,
+                Math.max(1, Math.round(w * scale)), Math.max(1, Math.round(h * scale)), true);
+        try {
+            return compress(small);
+        } finally {
+            if (small != frame) small.recycle();
+        }
+    }
+
+    private byte[] compress(Bitmap bmp) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (!bmp.compress(Bitmap.CompressFormat.JPEG, quality, out)) throw new IOException("JPEG encoding failed");
+        return out.toByteArray();
+    }
+
+    @Override
+    public void release(Bitmap frame) {
+        pool.release(frame);
+    }
+}
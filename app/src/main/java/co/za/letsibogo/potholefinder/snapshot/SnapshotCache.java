@@ -0,0 +1,91 @@
+package co.za.letsibogo.potholefinder.snapshot;
+
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Size-bounded evidence store on {@link DiskLruCache}: two values per detection key, the
+ * crop ({@link #CROP}) and the downscaled full frame ({@link #FULL}, empty if none). The
+ * least recently used entries are evicted once the total passes {@code maxBytes}.
+ * <p>
+ * Thread-safe (DiskLruCache locks internally).
+ */
+public class SnapshotCache implements SnapshotEncoder.Store, Closeable {
+
+    public static final int CROP = 0;
+    public static final int FULL = 1;
+
+    private static final int APP_VERSION = 1;   // bump to discard snapshots in an older format
+
+    private final File dir;
+    private final long maxBytes;
+    private volatile DiskLruCache cache;
+
+    public SnapshotCache(File dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.cache = DiskLruCache.open(dir, APP_VERSION, 2, maxBytes);
+    }
+
+    @Override
+    public void put(String key, byte[] crop, byte[] full) throws IOException {
+        DiskLruCache.Editor editor = cache.edit(key);
+        if (editor == null) throw new IOException("Snapshot " + key + " is being written");
+        try {
+            write(editor, CROP, crop);
+            write(editor, FULL, full != null ? full : new byte[0]);
+            editor.commit();
+        } catch (IOException | RuntimeException e) {
+            editor.abort();
+            throw e;
+        }
+    }
+
+    private static void write(DiskLruCache.Editor editor, int index, byte[] data) throws IOException {
+        try (OutputStream out = editor.newOutputStream(index)) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Reads one of a snapshot's images.
+     * @param index {@link #CROP} or {@link #FULL}
+     * @return the encoded image, or null if the snapshot is not cached or has no such image
+     */
+    public byte[] read(String key, int index) throws IOException {
+        DiskLruCache.Snapshot snapshot = cache.get(key);
+        if (snapshot == null) return null;
+        try {
+            int length = (int) snapshot.getLength(index);
+            if (length == 0) return null;
+            byte[] data = new byte[length];
+            InputStream in = snapshot.getInputStream(index);
+            int n = 0, r;
+            while (n < length && (r = in.read(data, n, length - n)) > 0) n += r;
+            return n == length ? data : null;
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    /** Bytes stored. */
+    public long size() { return cache.size(); }
+
+    public long maxSize() { return cache.getMaxSize(); }
+
+    /** Deletes every snapshot; writes racing with this fail and are counted as failures. */
+    public synchronized void clear() throws IOException {
+        cache.delete();
+        cache = DiskLruCache.open(dir, APP_VERSION, 2, maxBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+}
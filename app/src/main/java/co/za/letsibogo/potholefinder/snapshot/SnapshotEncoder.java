@@ -0,0 +1,197 @@
+package co.za.letsibogo.potholefinder.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns confirmed detections into evidence images off the inference path: for each, a crop
+ * around the box (widened by {@code cropPadding} for context) and optionally a downscaled
+ * full frame, encoded by a {@link Codec} and written to a {@link Store} under the
+ * detection's key.
+ * <p>
+ * Work runs on a small pool of minimum-priority threads behind a queue of
+ * {@code maxQueued} frames. When the queue is full (slow storage, a burst of detections),
+ * the new frame is shed and released at once rather than making postprocess wait, and
+ * the shed count goes up. Each submitted frame is released exactly once.
+ * <p>
+ * Thread-safe.
+ */
+public class SnapshotEncoder<F> implements Closeable {
+
+    public static class Config {
+        public int threads = 1;
+        /** Frames waiting to be encoded; more are shed. */
+        public int maxQueued = 4;
+        /** The crop is widened by this fraction of the box size on every side. */
+        public float cropPadding = 0.25f;
+        /** Also store a downscaled copy of the whole frame. */
+        public boolean includeFullFrame = true;
+    }
+
+    /** Encodes one frame type, e.g. Bitmap to JPEG. Called on the encoder threads. */
+    public interface Codec<F> {
+        /** The frame inside the normalized box, which is already padded and clamped to [0,1]. */
+        byte[] encodeCrop(F frame, float ymin, float xmin, float ymax, float xmax) throws IOException;
+
+        /** The whole frame, downscaled as the codec sees fit. */
+        byte[] encodeFull(F frame) throws IOException;
+
+        /** The frame is no longer needed. */
+        void release(F frame);
+    }
+
+    /** Where encoded snapshots go, e.g. a size-bounded disk cache. */
+    public interface Store {
+        /** @param full may be null */
+        void put(String key, byte[] crop, byte[] full) throws IOException;
+    }
+
+    private final Config config;
+    private final Codec<F> codec;
+    private final Store store;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong encodeNs = new AtomicLong();
+
+    public SnapshotEncoder(Codec<F> codec, Store store) {
+        this(new Config(), codec, store);
+    }
+
+    public SnapshotEncoder(Config config, Codec<F> codec, Store store) {
+        if (config.threads < 1 || config.maxQueued < 1) {
+            throw new IllegalArgumentException("threads and maxQueued must be >= 1");
+        }
+        this.config = config;
+        this.codec = codec;
+        this.store = store;
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(config.threads, config.threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.maxQueued), r -> {
+                    Thread t = new Thread(r, "SnapshotEncoder-" + n.incrementAndGet());
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    /** One frame and the detections confirmed in it. */
+    private final class Task implements Runnable {
+        final F frame;
+        final String[] keys;
+        final float[] boxes;
+
+        Task(F frame, String[] keys, float[] boxes) {
+            this.frame = frame;
+            this.keys = keys;
+            this.boxes = boxes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long t0 = System.nanoTime();
+                byte[] full = null;
+                if (config.includeFullFrame) {
+                    try {
+                        full = codec.encodeFull(frame);
+                    } catch (IOException | RuntimeException e) {
+                        full = null;   // the crop is what matters; store it without
+                    }
+                }
+                for (int i = 0; i < keys.length; i++) {
+                    try {
+                        float[] box = pad(boxes, i * 4, config.cropPadding);
+                        byte[] crop = codec.encodeCrop(frame, box[0], box[1], box[2], box[3]);
+                        store.put(keys[i], crop, full);
+                        written.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+                encodeNs.addAndGet(System.nanoTime() - t0);
+            } finally {
+                codec.release(frame);
+            }
+        }
+    }
+
+    /**
+     * Queues snapshots of the detections in {@code frame}; takes ownership of the frame.
+     * @param keys  one key per detection
+     * @param boxes normalized ymin, xmin, ymax, xmax per detection
+     * @return false if the frame was shed because the queue is full, or the encoder is closed
+     */
+    public boolean submit(F frame, String[] keys, float[] boxes) {
+        if (boxes.length != keys.length * 4) {
+            codec.release(frame);
+            throw new IllegalArgumentException("Need 4 box coordinates per key");
+        }
+        submitted.addAndGet(keys.length);
+        try {
+            pool.execute(new Task(frame, keys, boxes));
+            return true;
+        } catch (RejectedExecutionException e) {
+            shed.addAndGet(keys.length);
+            codec.release(frame);
+            return false;
+        }
+    }
+
+    /** The box widened by {@code padding} of its size on each side, clamped to [0,1]. */
+    static float[] pad(float[] boxes, int offset, float padding) {
+        float ymin = boxes[offset], xmin = boxes[offset + 1], ymax = boxes[offset + 2], xmax = boxes[offset + 3];
+        float dy = (ymax - ymin) * padding, dx = (xmax - xmin) * padding;
+        return new float[]{
+                Math.max(0f, ymin - dy), Math.max(0f, xmin - dx),
+                Math.min(1f, ymax + dy), Math.min(1f, xmax + dx)};
+    }
+
+    /** Frames waiting for an encoder thread. */
+    public int queueDepth() { return pool.getQueue().size(); }
+
+    /** Detections submitted, whether or not they were shed. */
+    public long submittedCount() { return submitted.get(); }
+
+    public long writtenCount() { return written.get(); }
+
+    /** Detections dropped because the queue was full. */
+    public long shedCount() { return shed.get(); }
+
+    public long failedCount() { return failed.get(); }
+
+    /** Mean time to encode and store one frame's snapshots, in milliseconds. */
+    public float meanEncodeMs() {
+        long frames = pool.getCompletedTaskCount();
+        return frames == 0 ? 0f : encodeNs.get() / 1e6f / frames;
+    }
+
+    /** Finishes the snapshot being encoded; queued ones are released unencoded. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void close() {
+        List<Runnable> pending = new ArrayList<>();
+        pool.getQueue().drainTo(pending);
+        pool.shutdown();
+        for (Runnable r : pending) {
+            Task t = (Task) r;
+            shed.addAndGet(t.keys.length);
+            codec.release(t.frame);
+        }
+        try {
+            pool.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package co.za.letsibogo.potholefinder.source;
+
+import dji.sdk.keyvalue.value.common.ComponentIndexType;
+import dji.v5.manager.datacenter.MediaDataCenter;
+import dji.v5.manager.interfaces.ICameraStreamManager;
+
+/**
+ * {@link H264Stream} from a DJI aircraft's camera through Mobile SDK v5. The SDK must be
+ * registered and an aircraft connected (see {@code PotholeFinder}) before {@link #start}.
+ * The SDK delivers the encoded stream on its own thread; timestamps are arrival times.
+ */
+public class DjiH264Stream implements H264Stream {
+
+    private final ComponentIndexType camera;
+    private ICameraStreamManager.ReceiveStreamListener listener;
+    private Sink sink;
+
+    /** The main camera. */
+    public DjiH264Stream() {
+        this(ComponentIndexType.LEFT_OR_MAIN);
+    }
+
+    public DjiH264Stream(ComponentIndexType camera) {
+        this.camera = camera;
+    }
+
+    @Override
+    public synchronized void start(Sink sink) {
+        if (listener != null) throw new IllegalStateException("Already started");
+        this.sink = sink;
+        long t0 = System.nanoTime();
+        listener = (data, offset, length, info) ->
+                sink.onData(data, offset, length, (System.nanoTime() - t0) / 1000);
+        MediaDataCenter.getInstance().getCameraStreamManager().addReceiveStreamListener(camera, listener);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (listener == null) return;
+        MediaDataCenter.getInstance().getCameraStreamManager().removeReceiveStreamListener(listener);
+        listener = null;
+        sink.onEnd();
+    }
+}
@@ -0,0 +1,141 @@
+package co.za.letsibogo.potholefinder.source;
+
+import java.util.function.Supplier;
+
+/**
+ * Fixed-capacity hand-off of decoded frames from a live decoder to a slower consumer, with
+ * drop-oldest semantics: the producer never waits, and when every slot holds an unread frame
+ * the oldest is overwritten, so the consumer always gets the freshest frames and latency
+ * cannot build up behind a live feed.
+ * <p>
+ * Payloads (pixel buffers) are created once per slot up front and reused. A slot is FREE,
+ * being WRITTEN by the producer, READY in FIFO order, or being READ by the consumer. Slots
+ * being written or read are never evicted.
+ * <p>
+ * Thread-safe: one producer and one consumer thread.
+ */
+public class FrameRing<T> {
+
+    public static final class Slot<T> {
+        public final T payload;
+        final int position;
+        int state = FREE;
+        long timestampUs;
+        long index;
+
+        Slot(T payload, int position) {
+            this.payload = payload;
+            this.position = position;
+        }
+
+        public long timestampUs() { return timestampUs; }
+
+        /** Sequence number of the frame, counting frames that were dropped. */
+        public long index() { return index; }
+    }
+
+    private static final int FREE = 0, WRITING = 1, READY = 2, READING = 3;
+
+    private final Slot<T>[] slots;
+    private final int[] fifo;   // positions of READY slots, oldest first
+    private int head, ready;
+    private long nextIndex;
+    private long published, dropped, taken;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public FrameRing(int capacity, Supplier<T> payloadFactory) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be >= 2");
+        slots = (Slot<T>[]) new Slot<?>[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = new Slot<>(payloadFactory.get(), i);
+        fifo = new int[capacity];
+    }
+
+    /**
+     * Producer: a slot to fill, never blocking. Takes a free slot, or evicts the oldest
+     * unread frame (counted as dropped).
+     * @return the slot, or null if the ring is closed or the consumer holds every slot
+     */
+    public synchronized Slot<T> claim() {
+        if (closed) return null;
+        for (Slot<T> s : slots) {
+            if (s.state == FREE) {
+                s.state = WRITING;
+                return s;
+            }
+        }
+        if (ready == 0) {
+            dropped++;   // the caller's frame has nowhere to go
+            return null;
+        }
+        Slot<T> oldest = slots[fifo[head]];
+        head = (head + 1) % fifo.length;
+        ready--;
+        dropped++;
+        oldest.state = WRITING;
+        return oldest;
+    }
+
+    /** Producer: the claimed slot now holds a frame; it becomes the newest for the consumer. */
+    public synchronized void publish(Slot<T> slot, long timestampUs) {
+        if (slot.state != WRITING) throw new IllegalStateException("Slot was not claimed");
+        if (closed) {
+            slot.state = FREE;
+            return;
+        }
+        slot.timestampUs = timestampUs;
+        slot.index = nextIndex++;
+        slot.state = READY;
+        fifo[(head + ready) % fifo.length] = slot.position;
+        ready++;
+        published++;
+        notifyAll();
+    }
+
+    /** Producer: the claimed slot could not be filled; hand it back unused. */
+    public synchronized void abandon(Slot<T> slot) {
+        if (slot.state == WRITING) slot.state = FREE;
+    }
+
+    /**
+     * Consumer: the oldest unread frame, waiting up to {@code timeoutMs} for one.
+     * @return the slot, to be given back with {@link #release}; null on timeout or once closed
+     */
+    public synchronized Slot<T> take(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (ready == 0) {
+            long left = deadline - System.currentTimeMillis();
+            if (closed || left <= 0) return null;
+            wait(left);
+        }
+        Slot<T> s = slots[fifo[head]];
+        head = (head + 1) % fifo.length;
+        ready--;
+        s.state = READING;
+        taken++;
+        return s;
+    }
+
+    /** Consumer: done with a slot from {@link #take}. */
+    public synchronized void release(Slot<T> slot) {
+        if (slot.state == READING) slot.state = FREE;
+    }
+
+    /** Wakes a waiting consumer; no more frames are accepted. */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    public int capacity() { return slots.length; }
+
+    /** Unread frames. */
+    public synchronized int depth() { return ready; }
+
+    public synchronized long publishedCount() { return published; }
+
+    /** Frames overwritten before the consumer got to them, or with no slot to go to. */
+    public synchronized long droppedCount() { return dropped; }
+
+    public synchronized long takenCount() { return taken; }
+}
@@ -0,0 +1,41 @@
+package co.za.letsibogo.potholefinder.source;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Ordered stream of decoded video frames. Timestamps are relative to the start of the
+ * video, i.e. on the same clock as {@code VideoView.getCurrentPosition()}.
+ * <p>
+ * Implementations are not thread-safe; a source is meant to be driven by a single
+ * decode thread.
+ */
+public interface FrameSource<F> extends Closeable {
+
+    /** Next frame in presentation order, or null at end of stream. */
+    TimedFrame<F> next() throws IOException;
+
+    /**
+     * First frame at or after {@code timestampUs}. Earlier frames are skipped without
+     * being converted; jumping backwards or far ahead may seek.
+     * @return the frame, or null at end of stream
+     */
+    TimedFrame<F> nextAt(long timestampUs) throws IOException;
+
+    /**
+     * Drops the next {@code count} frames as cheaply as the implementation allows.
+     * @return number of frames actually skipped (less than count at end of stream)
+     */
+    int skip(int count) throws IOException;
+
+    /** Length of the video, or -1 if unknown. */
+    long durationUs();
+
+    /**
+     * Asks for frames at 1/{@code factor} of the video's size on each axis from the next
+     * frame on, e.g. under memory pressure; 1 restores full size. Sources that cannot
+     * scale cheaply ignore it, so callers must not rely on the frame size. Unlike the rest
+     * of the interface, this may be called from any thread.
+     */
+    default void setDownscale(int factor) {}
+}
@@ -0,0 +1,62 @@
+package co.za.letsibogo.potholefinder.source;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import co.za.letsibogo.potholefinder.memory.BitmapPool;
+
+/** Picks the fastest {@link FrameSource} that works for a video, or the live feed to detect on. */
+public final class FrameSources {
+
+    private static final String TAG = "FrameSources";
+    /** Raw Annex-B recording in app storage that debug builds replay as a live feed. */
+    public static final String LIVE_REPLAY_FILE = "live.h264";
+    private static final float LIVE_REPLAY_FPS = 30f;
+
+    private FrameSources() {}
+
+    /** Sequential MediaCodec decoding, falling back to MediaMetadataRetriever seeks. */
+    public static FrameSource<Bitmap> open(Context ctx, Uri uri) {
+        return open(ctx, uri, new BitmapPool(0));
+    }
+
+    /** As {@link #open(Context, Uri)}, decoding into bitmaps from {@code pool} where the source can. */
+    public static FrameSource<Bitmap> open(Context ctx, Uri uri, BitmapPool pool) {
+        try {
+            return new MediaCodecFrameSource(ctx, uri, pool);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "MediaCodec source unavailable, falling back to retriever", e);
+            return new RetrieverFrameSource(ctx, uri);
+        }
+    }
+
+    /**
+     * The live feed to detect on: the aircraft's camera if one is connected, else, in debug
+     * builds, {@link #LIVE_REPLAY_FILE} from app storage replayed in real time.
+     * @return the stream, not yet started, or null if there is none
+     */
+    public static H264Stream liveStream(Context ctx, boolean aircraftConnected) {
+        if (aircraftConnected) return new DjiH264Stream();
+        boolean debuggable = (ctx.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        File dir = ctx.getExternalFilesDir(null);
+        File replay = dir != null ? new File(dir, LIVE_REPLAY_FILE) : null;
+        if (debuggable && replay != null && replay.isFile()) return new H264FileStream(replay, LIVE_REPLAY_FPS);
+        return null;
+    }
+
+    /**
+     * Decodes {@link #liveStream} into bitmaps from {@code pool}.
+     * @return the started source, or null if there is no live feed
+     * @throws IOException if the decoder or the stream could not be started
+     */
+    public static FrameSource<Bitmap> openLive(Context ctx, boolean aircraftConnected, BitmapPool pool) throws IOException {
+        H264Stream stream = liveStream(ctx, aircraftConnected);
+        return stream != null ? new LiveFrameSource(stream, new LiveFrameSource.Config(), pool) : null;
+    }
+}
@@ -0,0 +1,154 @@
+package co.za.letsibogo.potholefinder.source;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stand-in for a live {@link H264Stream}: replays a raw Annex-B .h264 file one access unit
+ * at a time, paced at {@code fps} in real time, so the live ingest path can be driven
+ * without an aircraft. Timestamps are frame number / fps.
+ */
+public class H264FileStream implements H264Stream {
+
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private final File file;
+    private final float fps;
+    private Thread thread;
+    private volatile boolean running;
+
+    public H264FileStream(File file, float fps) {
+        if (!(fps > 0)) throw new IllegalArgumentException("fps must be > 0");
+        this.file = file;
+        this.fps = fps;
+    }
+
+    @Override
+    public synchronized void start(Sink sink) throws IOException {
+        if (thread != null) throw new IllegalStateException("Already started");
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        running = true;
+        thread = new Thread(() -> replay(in, sink), "H264FileStream");
+        thread.start();
+    }
+
+    private void replay(InputStream in, Sink sink) {
+        long frameUs = (long) (1_000_000 / fps);
+        long t0 = System.nanoTime();
+        long[] frames = {0};
+        try {
+            AccessUnitSplitter splitter = new AccessUnitSplitter((data, off, len) -> {
+                long ts = frames[0]++ * frameUs;
+                long waitMs = (t0 + ts * 1000 - System.nanoTime()) / 1_000_000;
+                if (waitMs > 0) Thread.sleep(waitMs);
+                sink.onData(data, off, len, ts);
+            });
+            byte[] chunk = new byte[READ_CHUNK];
+            int n;
+            while (running && (n = in.read(chunk)) > 0) splitter.feed(chunk, 0, n);
+            if (running) splitter.finish();
+        } catch (IOException e) {
+            // Treated as the end of the stream
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignore) {}
+        }
+        sink.onEnd();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cuts an Annex-B byte stream into access units. A unit ends before an access unit
+     * delimiter, SEI, SPS or PPS that follows a slice, or before a slice that starts a new
+     * picture ({@code first_mb_in_slice == 0}).
+     */
+    static final class AccessUnitSplitter {
+
+        interface Output {
+            void onAccessUnit(byte[] data, int offset, int length) throws InterruptedException;
+        }
+
+        private final Output out;
+        private byte[] buf = new byte[256 * 1024];
+        private int len;
+        private int unitStart;       // start of the pending access unit in buf
+        private int scanFrom;        // next position to look for a start code
+        private boolean sawSlice;    // the pending unit already holds a slice
+
+        AccessUnitSplitter(Output out) {
+            this.out = out;
+        }
+
+        void feed(byte[] data, int offset, int length) throws InterruptedException {
+            if (len + length > buf.length) {
+                // Compact, then grow if one unit is bigger than the buffer
+                System.arraycopy(buf, unitStart, buf, 0, len - unitStart);
+                len -= unitStart;
+                scanFrom -= unitStart;
+                unitStart = 0;
+                if (len + length > buf.length) buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, len + length));
+            }
+            System.arraycopy(data, offset, buf, len, length);
+            len += length;
+            scan();
+        }
+
+        /** Emits whatever is left at the end of the stream. */
+        void finish() throws InterruptedException {
+            if (len > unitStart) out.onAccessUnit(buf, unitStart, len - unitStart);
+            unitStart = scanFrom = len = 0;
+            sawSlice = false;
+        }
+
+        private void scan() throws InterruptedException {
+            // A start code is 00 00 01; the NAL header byte after it must be buffered too
+            for (int i = Math.max(scanFrom, unitStart); i + 3 < len; i++) {
+                if (buf[i] != 0 || buf[i + 1] != 0 || buf[i + 2] != 1) continue;
+                int nalStart = i > unitStart && buf[i - 1] == 0 ? i - 1 : i;   // 4-byte start code
+                int type = buf[i + 3] & 0x1F;
+                boolean slice = type == 1 || type == 5;
+                boolean boundary;
+                if (slice) {
+                    if (i + 4 >= len) {
+                        scanFrom = i;   // need the slice header's first byte
+                        return;
+                    }
+                    boolean firstInPicture = (buf[i + 4] & 0x80) != 0;   // ue(v) first_mb_in_slice == 0
+                    boundary = sawSlice && firstInPicture;
+                } else {
+                    boundary = sawSlice && (type == 6 || type == 7 || type == 8 || type == 9);
+                }
+                if (boundary && nalStart > unitStart) {
+                    out.onAccessUnit(buf, unitStart, nalStart - unitStart);
+                    unitStart = nalStart;
+                    sawSlice = false;
+                }
+                if (slice) sawSlice = true;
+                i += 2;
+            }
+            scanFrom = Math.max(unitStart, len - 3);
+        }
+    }
+}
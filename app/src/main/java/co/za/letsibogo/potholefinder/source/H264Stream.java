@@ -0,0 +1,39 @@
+package co.za.letsibogo.potholefinder.source;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Live H.264 elementary stream in Annex-B form (start-code delimited NAL units), e.g. from
+ * an aircraft's camera. Implementations push data to the sink on a thread of their own.
+ */
+public interface H264Stream extends Closeable {
+
+    interface Sink {
+        /**
+         * Called with stream bytes, ideally one access unit at a time. The array may be
+         * reused once the call returns.
+         * @param timestampUs capture time relative to the start of the stream
+         */
+        void onData(byte[] data, int offset, int length, long timestampUs);
+
+        /** No more data will come, e.g. the file ended or the aircraft disconnected. */
+        void onEnd();
+    }
+
+    /** Starts delivering data to {@code sink}. May be called once. */
+    void start(Sink sink) throws IOException;
+
+    /** True if the data holds an IDR slice or an SPS (which precedes one). */
+    static boolean containsKeyframe(byte[] data, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i + 3 < end; i++) {
+            if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+                int type = data[i + 3] & 0x1F;
+                if (type == 5 || type == 7) return true;
+                i += 2;
+            }
+        }
+        return false;
+    }
+}
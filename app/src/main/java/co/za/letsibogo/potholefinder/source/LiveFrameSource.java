@@ -0,0 +1,339 @@
+package co.za.letsibogo.potholefinder.source;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.za.letsibogo.potholefinder.memory.BitmapPool;
+
+/**
+ * {@link FrameSource} over a live {@link H264Stream}, e.g. the aircraft's camera feed.
+ * <p>
+ * The stream's thread copies access units into a bounded input queue, reusing a fixed set
+ * of buffers that only grow to the largest unit seen. A decode thread feeds
+ * them to a MediaCodec H.264 decoder, converts each output image to ARGB and publishes it
+ * into a {@link FrameRing} of preallocated pixel buffers. The ring drops the oldest unread
+ * frame when the consumer falls behind, so a slow detector costs frames, not latency. If the
+ * input queue overflows (the decoder itself stalls), compressed data is dropped up to the
+ * next keyframe, since later frames could not be decoded without their references anyway.
+ * <p>
+ * Frames handed out are filled into bitmaps from a {@link BitmapPool}. A downscale is
+ * applied when converting on the decode thread, so it saves conversion work as well as memory;
+ * a stream larger than {@link Config#width} x {@link Config#height} is downscaled until it
+ * fits the ring's buffers, which are never reallocated.
+ * <p>
+ * {@link #next} is called from the pipeline's decode stage and blocks until a frame arrives.
+ * Timestamps are those of the stream; {@link #durationUs} is unknown.
+ */
+public class LiveFrameSource implements FrameSource<Bitmap> {
+
+    public static class Config {
+        /** Largest expected frame size; the ring's buffers are sized for it once. */
+        public int width = 1920;
+        public int height = 1080;
+        /** Decoded frames held for the consumer. */
+        public int ringCapacity = 3;
+        /** Access units held for the decoder. */
+        public int inputCapacity = 60;
+    }
+
+    private static final String TAG = "LiveFrameSource";
+    private static final String MIME = "video/avc";
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    private static final long POLL_MS = 10;
+    private static final long TAKE_TIMEOUT_MS = 100;
+
+    /** One ring slot's pixels. */
+    private static final class Frame {
+        final int[] argb;
+        int width, height;
+
+        Frame(int pixels) {
+            argb = new int[pixels];
+        }
+    }
+
+    /** Reusable copy of one access unit. */
+    private static final class AccessUnit {
+        byte[] data = new byte[0];
+        int length;
+        long timestampUs;
+    }
+
+    private final H264Stream stream;
+    private final MediaCodec codec;
+    private final FrameRing<Frame> ring;
+    private final ArrayBlockingQueue<AccessUnit> input;
+    private final ArrayBlockingQueue<AccessUnit> freeUnits;
+    private final int maxPixels;
+    private final Thread decodeThread;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+    private final BitmapPool pool;
+    private volatile int downscale = 1;
+    private volatile boolean running = true;
+    private volatile boolean streamEnded = false;
+    private boolean awaitingKeyframe = true;   // stream thread only; decoding must start at an IDR
+
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong ingestDropped = new AtomicLong();
+    private final AtomicLong decoded = new AtomicLong();
+
+    public LiveFrameSource(H264Stream stream) throws IOException {
+        this(stream, new Config());
+    }
+
+    public LiveFrameSource(H264Stream stream, Config config) throws IOException {
+        this(stream, config, new BitmapPool(0));
+    }
+
+    public LiveFrameSource(H264Stream stream, Config config, BitmapPool pool) throws IOException {
+        this.stream = stream;
+        this.pool = pool;
+        this.input = new ArrayBlockingQueue<>(config.inputCapacity);
+        // One more than the queue holds: the decoder has one out while the queue is full
+        this.freeUnits = new ArrayBlockingQueue<>(config.inputCapacity + 1);
+        for (int i = 0; i <= config.inputCapacity; i++) freeUnits.add(new AccessUnit());
+        this.maxPixels = config.width * config.height;
+        this.ring = new FrameRing<>(config.ringCapacity, () -> new Frame(maxPixels));
+
+        MediaFormat format = MediaFormat.createVideoFormat(MIME, config.width, config.height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        MediaCodec c = null;
+        try {
+            c = MediaCodec.createDecoderByType(MIME);
+            c.configure(format, null, null, 0);   // no surface: output images are read back directly
+            c.start();
+        } catch (IOException | RuntimeException e) {
+            if (c != null) c.release();
+            throw e instanceof IOException ? (IOException) e : new IOException("Decoder setup failed", e);
+        }
+        codec = c;
+
+        decodeThread = new Thread(this::decodeLoop, "LiveDecode");
+        decodeThread.start();
+        try {
+            stream.start(new H264Stream.Sink() {
+                @Override
+                public void onData(byte[] data, int offset, int length, long timestampUs) {
+                    ingest(data, offset, length, timestampUs);
+                }
+
+                @Override
+                public void onEnd() {
+                    streamEnded = true;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** Stream thread. */
+    private void ingest(byte[] data, int offset, int length, long timestampUs) {
+        ingested.incrementAndGet();
+        if (awaitingKeyframe) {
+            if (!H264Stream.containsKeyframe(data, offset, length)) {
+                ingestDropped.incrementAndGet();
+                return;
+            }
+            awaitingKeyframe = false;
+        }
+        AccessUnit au = freeUnits.poll();
+        if (au != null) {
+            if (au.data.length < length) au.data = new byte[length + length / 4];   // some headroom for the next keyframe
+            System.arraycopy(data, offset, au.data, 0, length);
+            au.length = length;
+            au.timestampUs = timestampUs;
+            if (input.offer(au)) return;
+            freeUnits.offer(au);
+        }
+        // Decoder stalled: skip to the next keyframe rather than feed a broken reference chain
+        ingestDropped.incrementAndGet();
+        awaitingKeyframe = true;
+    }
+
+    private void decodeLoop() {
+        try {
+            while (running) {
+                AccessUnit au = input.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (au != null) {
+                    try {
+                        queueInput(au);
+                    } finally {
+                        freeUnits.offer(au);
+                    }
+                }
+                drainOutput();
+                if (au == null && streamEnded && input.isEmpty()) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            if (running) Log.e(TAG, "Decoder failed", e);
+        }
+        ring.close();
+    }
+
+    private void queueInput(AccessUnit au) {
+        while (running) {
+            int inIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+            if (inIndex >= 0) {
+                ByteBuffer in = codec.getInputBuffer(inIndex);
+                if (in == null || in.capacity() < au.length) {
+                    codec.queueInputBuffer(inIndex, 0, 0, au.timestampUs, 0);
+                    ingestDropped.incrementAndGet();
+                    return;
+                }
+                in.clear();
+                in.put(au.data, 0, au.length);
+                codec.queueInputBuffer(inIndex, 0, au.length, au.timestampUs, 0);
+                return;
+            }
+            drainOutput();   // input buffers come back as output is consumed
+        }
+    }
+
+    private void drainOutput() {
+        int outIndex;
+        while ((outIndex = codec.dequeueOutputBuffer(info, 0)) >= 0) {
+            if (info.size > 0) {
+                Image image = codec.getOutputImage(outIndex);
+                if (image != null) {
+                    try {
+                        publish(image, info.presentationTimeUs);
+                    } finally {
+                        image.close();
+                    }
+                }
+            }
+            codec.releaseOutputBuffer(outIndex, false);
+        }
+    }
+
+    private void publish(Image image, long timestampUs) {
+        decoded.incrementAndGet();
+        FrameRing.Slot<Frame> slot = ring.claim();
+        if (slot == null) return;   // counted as a drop by the ring
+        Frame f = slot.payload;
+        int step = downscale;
+        int w, h;
+        while (true) {
+            w = YuvConverter.scaledSize(image.getWidth(), step);
+            h = YuvConverter.scaledSize(image.getHeight(), step);
+            if ((long) w * h <= maxPixels) break;
+            step++;   // larger than configured: scale down to fit rather than reallocate
+        }
+        f.width = w;
+        f.height = h;
+        Image.Plane[] planes = image.getPlanes();
+        YuvConverter.yuv420ToArgb(
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), step, f.argb);
+        ring.publish(slot, timestampUs);
+    }
+
+    @Override
+    public TimedFrame<Bitmap> next() throws IOException {
+        return nextAt(Long.MIN_VALUE);
+    }
+
+    /** Frames older than {@code timestampUs} are released unconverted. */
+    @Override
+    public TimedFrame<Bitmap> nextAt(long timestampUs) throws IOException {
+        while (true) {
+            FrameRing.Slot<Frame> slot = take();
+            if (slot == null) return null;
+            try {
+                if (slot.timestampUs() < timestampUs) continue;
+                Frame f = slot.payload;
+                Bitmap bmp = pool.acquire(f.width, f.height);
+                bmp.setPixels(f.argb, 0, f.width, 0, 0, f.width, f.height);
+                return new TimedFrame<>(bmp, slot.timestampUs(), slot.index());
+            } finally {
+                ring.release(slot);
+            }
+        }
+    }
+
+    @Override
+    public int skip(int count) throws IOException {
+        int skipped = 0;
+        while (skipped < count) {
+            FrameRing.Slot<Frame> slot = take();
+            if (slot == null) break;
+            ring.release(slot);
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /** Waits for the next decoded frame; null once the stream has ended and the ring is drained. */
+    private FrameRing.Slot<Frame> take() throws IOException {
+        try {
+            while (true) {
+                FrameRing.Slot<Frame> slot = ring.take(TAKE_TIMEOUT_MS);
+                if (slot != null) return slot;
+                if (!running || (!decodeThread.isAlive() && ring.depth() == 0)) return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a live frame", e);
+        }
+    }
+
+    @Override
+    public long durationUs() { return -1; }
+
+    @Override
+    public void setDownscale(int factor) {
+        downscale = Math.max(1, factor);
+    }
+
+    /** Access units received from the stream. */
+    public long ingestedCount() { return ingested.get(); }
+
+    /** Access units discarded before decoding: waiting for a keyframe, or the decoder was behind. */
+    public long ingestDroppedCount() { return ingestDropped.get(); }
+
+    /** Frames that came out of the decoder. */
+    public long decodedCount() { return decoded.get(); }
+
+    /** Decoded frames overwritten before the consumer took them. */
+    public long droppedCount() { return ring.droppedCount(); }
+
+    /** Decoded frames waiting for the consumer. */
+    public int depth() { return ring.depth(); }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Closing the stream failed", e);
+        }
+        ring.close();
+        try {
+            decodeThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignore) {}
+        codec.release();
+    }
+}
@@ -0,0 +1,229 @@
+package co.za.letsibogo.potholefinder.source;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import co.za.letsibogo.potholefinder.memory.BitmapPool;
+
+/**
+ * Sequential {@link FrameSource}: MediaExtractor feeds a MediaCodec decoder that renders
+ * into an {@link ImageReader}. Frames are decoded once, in order; frames that are skipped
+ * are released without rendering, so they cost a decode but no copy or colour conversion.
+ * Only large forward jumps and backward jumps seek.
+ * <p>
+ * The ImageReader's two images are reused for every frame, and rendered frames are
+ * converted into bitmaps taken from a {@link BitmapPool}, so a steady stream allocates
+ * nothing once the pool is warm. With a downscale set, only every n-th pixel is converted.
+ */
+public class MediaCodecFrameSource implements FrameSource<Bitmap> {
+
+    private static final String TAG = "MediaCodecFrameSource";
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    private static final long IMAGE_WAIT_MS = 200;
+    /** Jumping further ahead than this seeks to a keyframe instead of decoding through. */
+    private static final long SEEK_THRESHOLD_US = 2_000_000;
+
+    private final MediaExtractor extractor = new MediaExtractor();
+    private final MediaCodec codec;
+    private final ImageReader imageReader;
+    private final HandlerThread imageThread = new HandlerThread("FrameSource-images");
+    private final Semaphore imageAvailable = new Semaphore(0);
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+    private final int width, height;
+    private final long durationUs;
+    private final long startOffsetUs;   // pts of the first sample; VideoView starts at 0
+    private final int[] argb;
+    private final BitmapPool pool;
+    private volatile int downscale = 1;
+
+    private boolean inputDone = false;
+    private boolean outputDone = false;
+    private long lastTimestampUs = -1;
+    private long index = 0;
+
+    public MediaCodecFrameSource(Context ctx, Uri uri) throws IOException {
+        this(ctx, uri, new BitmapPool(0));
+    }
+
+    public MediaCodecFrameSource(Context ctx, Uri uri, BitmapPool pool) throws IOException {
+        this.pool = pool;
+        extractor.setDataSource(ctx, uri, null);
+
+        MediaFormat format = null;
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat f = extractor.getTrackFormat(i);
+            String mime = f.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("video/")) {
+                extractor.selectTrack(i);
+                format = f;
+                break;
+            }
+        }
+        if (format == null) {
+            extractor.release();
+            throw new IOException("No video track in " + uri);
+        }
+
+        width = format.getInteger(MediaFormat.KEY_WIDTH);
+        height = format.getInteger(MediaFormat.KEY_HEIGHT);
+        durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : -1;
+        startOffsetUs = Math.max(0, extractor.getSampleTime());
+        argb = new int[width * height];
+
+        imageThread.start();
+        imageReader = ImageReader.newInstance(width, height, ImageFormat.YUV_420_888, 2);
+        imageReader.setOnImageAvailableListener(r -> imageAvailable.release(), new Handler(imageThread.getLooper()));
+
+        MediaCodec c = null;
+        try {
+            c = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            c.configure(format, imageReader.getSurface(), null, 0);
+            c.start();
+        } catch (IOException | RuntimeException e) {
+            if (c != null) c.release();
+            imageReader.close();
+            imageThread.quitSafely();
+            extractor.release();
+            throw e instanceof IOException ? (IOException) e : new IOException("Decoder setup failed", e);
+        }
+        codec = c;
+        Log.d(TAG, "Decoding " + width + "x" + height + " " + format.getString(MediaFormat.KEY_MIME));
+    }
+
+    @Override
+    public TimedFrame<Bitmap> next() throws IOException {
+        return decodeUntil(Long.MIN_VALUE, true);
+    }
+
+    @Override
+    public TimedFrame<Bitmap> nextAt(long timestampUs) throws IOException {
+        if (timestampUs < lastTimestampUs || timestampUs - lastTimestampUs > SEEK_THRESHOLD_US) {
+            seek(timestampUs);
+        }
+        return decodeUntil(timestampUs, true);
+    }
+
+    @Override
+    public int skip(int count) throws IOException {
+        int skipped = 0;
+        while (skipped < count && decodeUntil(Long.MIN_VALUE, false) != null) skipped++;
+        return skipped;
+    }
+
+    @Override
+    public long durationUs() { return durationUs; }
+
+    @Override
+    public void setDownscale(int factor) {
+        downscale = Math.max(1, factor);
+    }
+
+    @Override
+    public void close() {
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignore) {}
+        codec.release();
+        imageReader.close();
+        imageThread.quitSafely();
+        extractor.release();
+    }
+
+    private void seek(long timestampUs) {
+        extractor.seekTo(timestampUs + startOffsetUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        codec.flush();
+        inputDone = false;
+        outputDone = false;
+        lastTimestampUs = -1;
+    }
+
+    /**
+     * Decodes forward until a frame at or after {@code minTimestampUs} comes out.
+     * @param render false to only count the frame (used for skipping)
+     * @return the frame (with a null bitmap if not rendered), or null at end of stream
+     */
+    private TimedFrame<Bitmap> decodeUntil(long minTimestampUs, boolean render) throws IOException {
+        while (!outputDone) {
+            if (!inputDone) feedInput();
+
+            int outIndex = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+            if (outIndex < 0) continue;  // try again later / format or buffers changed
+
+            boolean eos = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            long ts = info.presentationTimeUs - startOffsetUs;
+            boolean wanted = info.size > 0 && ts >= minTimestampUs;
+
+            codec.releaseOutputBuffer(outIndex, wanted && render);
+            if (eos) outputDone = true;
+            if (!wanted) continue;
+
+            lastTimestampUs = ts;
+            long frameIndex = index++;
+            if (!render) return new TimedFrame<>(null, ts, frameIndex);
+            Bitmap bmp = readRenderedImage();
+            if (bmp != null) return new TimedFrame<>(bmp, ts, frameIndex);
+        }
+        return null;
+    }
+
+    private void feedInput() {
+        int inIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+        if (inIndex < 0) return;
+        ByteBuffer in = codec.getInputBuffer(inIndex);
+        int size = in != null ? extractor.readSampleData(in, 0) : -1;
+        if (size < 0) {
+            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            inputDone = true;
+        } else {
+            codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+            extractor.advance();
+        }
+    }
+
+    private Bitmap readRenderedImage() throws IOException {
+        try {
+            if (!imageAvailable.tryAcquire(IMAGE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Rendered frame did not reach the ImageReader");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for frame", e);
+        }
+        imageAvailable.drainPermits();
+
+        Image image = imageReader.acquireLatestImage();
+        if (image == null) return null;
+        int step = downscale;
+        int w = YuvConverter.scaledSize(width, step), h = YuvConverter.scaledSize(height, step);
+        try {
+            Image.Plane[] planes = image.getPlanes();
+            YuvConverter.yuv420ToArgb(
+                    planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(),
+                    planes[1].getRowStride(), planes[1].getPixelStride(),
+                    width, height, step, argb);
+        } finally {
+            image.close();
+        }
+        Bitmap bmp = pool.acquire(w, h);
+        bmp.setPixels(argb, 0, w, 0, 0, w, h);
+        return bmp;
+    }
+}
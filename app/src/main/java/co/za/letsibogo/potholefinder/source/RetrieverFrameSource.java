@@ -0,0 +1,105 @@
+package co.za.letsibogo.potholefinder.source;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.IOException;
+
+/**
+ * Fallback {@link FrameSource} over {@link MediaMetadataRetriever}. Every frame is a
+ * seek to the nearest keyframe plus a decode forward, so this is slow; it is kept for
+ * containers or devices where {@link MediaCodecFrameSource} cannot be set up.
+ * <p>
+ * The retriever allocates every frame itself, so no bitmap pool applies. A downscale is
+ * honoured from API 27 on, where the retriever can scale while decoding.
+ */
+public class RetrieverFrameSource implements FrameSource<Bitmap> {
+
+    private static final long DEFAULT_FRAME_INTERVAL_US = 1_000_000L / 30;
+
+    private final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+    private final long durationUs;
+    private final long frameIntervalUs;
+    private final int width, height;   // 0 if the container does not say
+    private volatile int downscale = 1;
+    private long nextTimestampUs = 0;
+
+    public RetrieverFrameSource(Context ctx, Uri uri) {
+        retriever.setDataSource(ctx, uri);
+        String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+        durationUs = duration != null ? Long.parseLong(duration) * 1000L : -1;
+
+        long interval = DEFAULT_FRAME_INTERVAL_US;
+        String frames = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_FRAME_COUNT);
+        if (frames != null && durationUs > 0) {
+            long count = Long.parseLong(frames);
+            if (count > 0) interval = durationUs / count;
+        }
+        frameIntervalUs = interval;
+        width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+        height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public TimedFrame<Bitmap> next() {
+        return nextAt(nextTimestampUs);
+    }
+
+    @Override
+    public TimedFrame<Bitmap> nextAt(long timestampUs) {
+        if (durationUs >= 0 && timestampUs > durationUs) return null;
+        long ts = Math.max(timestampUs, 0);
+        long frameIndex = ts / frameIntervalUs;
+        nextTimestampUs = ts + frameIntervalUs;
+
+        Bitmap frame = null;
+        try {
+            int step = downscale;
+            if (step > 1 && width > 0 && height > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                frame = retriever.getScaledFrameAtTime(ts, MediaMetadataRetriever.OPTION_CLOSEST,
+                        YuvConverter.scaledSize(width, step), YuvConverter.scaledSize(height, step));
+            } else {
+                frame = retriever.getFrameAtTime(ts, MediaMetadataRetriever.OPTION_CLOSEST);
+            }
+        } catch (Exception ignore) {}
+        if (frame == null) return null;
+        return new TimedFrame<>(frame, ts, frameIndex);
+    }
+
+    /** Skipping is free here: nothing is decoded until the next read. */
+    @Override
+    public int skip(int count) {
+        long target = nextTimestampUs + count * frameIntervalUs;
+        int skipped = count;
+        if (durationUs >= 0 && target > durationUs) {
+            skipped = (int) Math.max(0, (durationUs - nextTimestampUs) / frameIntervalUs);
+            target = durationUs + frameIntervalUs;
+        }
+        nextTimestampUs = target;
+        return skipped;
+    }
+
+    @Override
+    public long durationUs() { return durationUs; }
+
+    @Override
+    public void setDownscale(int factor) {
+        downscale = Math.max(1, factor);
+    }
+
+    @Override
+    public void close() throws IOException {
+        retriever.release();
+    }
+}
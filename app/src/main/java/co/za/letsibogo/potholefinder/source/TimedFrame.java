@@ -0,0 +1,19 @@
+package co.za.letsibogo.potholefinder.source;
+
+/** A decoded frame and its presentation time, relative to the start of the video. */
+public class TimedFrame<F> {
+    public final F frame;
+    public final long timestampUs;
+    /** Position of the frame in decode order, counting skipped frames. */
+    public final long index;
+
+    public TimedFrame(F frame, long timestampUs, long index) {
+        this.frame = frame;
+        this.timestampUs = timestampUs;
+        this.index = index;
+    }
+
+    @Override public String toString() {
+        return "frame{#" + index + " @" + timestampUs + "us}";
+    }
+}
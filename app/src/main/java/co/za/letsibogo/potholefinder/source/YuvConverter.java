@@ -0,0 +1,65 @@
+package co.za.letsibogo.potholefinder.source;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YUV 4:2:0 to ARGB conversion (BT.601, limited range) for decoder output planes.
+ * Works on any plane layout {@code android.media.Image} hands out: planar (I420) and
+ * semi-planar (NV12/NV21) only differ in the chroma pixel stride.
+ */
+public final class YuvConverter {
+
+    private YuvConverter() {}
+
+    /**
+     * @param out ARGB destination, at least width * height, row-major
+     */
+    public static void yuv420ToArgb(ByteBuffer y, int yRowStride, int yPixelStride,
+                                    ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                                    int width, int height, int[] out) {
+        yuv420ToArgb(y, yRowStride, yPixelStride, u, v, uvRowStride, uvPixelStride, width, height, 1, out);
+    }
+
+    /**
+     * Converts every {@code step}-th pixel of every {@code step}-th row (nearest neighbour),
+     * giving a {@link #scaledSize}-sized image for 1/step of the work.
+     * @param width  source width
+     * @param height source height
+     * @param out    ARGB destination, at least scaledSize(width, step) * scaledSize(height, step)
+     */
+    public static void yuv420ToArgb(ByteBuffer y, int yRowStride, int yPixelStride,
+                                    ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                                    int width, int height, int step, int[] out) {
+        int outW = scaledSize(width, step), outH = scaledSize(height, step);
+        int o = 0;
+        for (int oy = 0; oy < outH; oy++) {
+            int row = oy * step;
+            int yRow = row * yRowStride;
+            int uvRow = (row >> 1) * uvRowStride;
+            for (int ox = 0; ox < outW; ox++) {
+                int col = ox * step;
+                int yy = (y.get(yRow + col * yPixelStride) & 0xFF) - 16;
+                int uvOff = uvRow + (col >> 1) * uvPixelStride;
+                int uu = (u.get(uvOff) & 0xFF) - 128;
+                int vv = (v.get(uvOff) & 0xFF) - 128;
+                if (yy < 0) yy = 0;
+
+                // Fixed-point BT.601: 1.164, 1.596, 0.391, 0.813, 2.018 scaled by 1024
+                int y1192 = 1192 * yy;
+                int r = (y1192 + 1634 * vv) >> 10;
+                int g = (y1192 - 833 * vv - 400 * uu) >> 10;
+                int b = (y1192 + 2066 * uu) >> 10;
+
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+                out[o++] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /** Output size along one axis when converting every {@code step}-th pixel. */
+    public static int scaledSize(int size, int step) {
+        return Math.max(1, size / step);
+    }
+}
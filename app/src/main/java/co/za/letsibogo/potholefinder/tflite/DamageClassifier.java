@@ -0,0 +1,137 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Tiny binary "road damage likely" classifier, the first stage of the detection cascade
+ * (see {@link co.za.letsibogo.potholefinder.gate.CascadeGate}). The frame's region of
+ * interest is scaled straight into a model-sized bitmap with one filtered draw, so a
+ * 1080p frame costs a draw and a few thousand pixel reads rather than a full copy.
+ * <p>
+ * The model is optional: {@link #load} returns null when the app does not ship
+ * {@value #MODEL_ASSET}. Its output is either one sigmoid score or two softmax scores
+ * ({@code [clear, damage]}). Thread-safe; up to {@code parallelism} frames are scored at once.
+ */
+public class DamageClassifier implements Closeable {
+
+    private static final String TAG = "DamageClassifier";
+    public static final String MODEL_ASSET = "damage_classifier.tflite";
+
+    /** Buffers for one frame in flight. */
+    private static final class Lane {
+        final InferenceBuffers buffers;
+        final Bitmap scaled;
+        final Canvas canvas;
+        final Rect src = new Rect();
+        final Rect dst;
+        final int[] crop = new int[4];
+
+        Lane(InferenceBuffers buffers) {
+            this.buffers = buffers;
+            this.scaled = Bitmap.createBitmap(buffers.inW, buffers.inH, Bitmap.Config.ARGB_8888);
+            this.canvas = new Canvas(scaled);
+            this.dst = new Rect(0, 0, buffers.inW, buffers.inH);
+        }
+    }
+
+    private final InterpreterPool pool;
+    private final BlockingQueue<Lane> lanes;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final int damageIndex;
+    private volatile RegionOfInterest roi = RegionOfInterest.FULL;
+
+    private DamageClassifier(InterpreterPool pool, int parallelism) {
+        this.pool = pool;
+        Interpreter tflite = pool.primary();
+        TensorSpec inSpec = TensorSpec.of(tflite.getInputTensor(0));   // [1, H, W, 3] (assumed NHWC)
+        TensorSpec outSpec = TensorSpec.of(tflite.getOutputTensor(0));
+        if (outSpec.elements() > 2) {
+            throw new IllegalArgumentException("Expected 1 or 2 output scores, got " + outSpec);
+        }
+        this.damageIndex = outSpec.elements() - 1;
+        this.lanes = new ArrayBlockingQueue<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            lanes.add(new Lane(new InferenceBuffers(inSpec, new TensorSpec[]{outSpec})));
+        }
+        Log.d(TAG, "Input " + inSpec + ", output " + outSpec);
+    }
+
+    /**
+     * Maps and builds the classifier, with one interpreter per frame scored in parallel.
+     * @return null if the app has no classifier model or it cannot be built (see log)
+     */
+    public static DamageClassifier load(Context ctx, int parallelism) {
+        ByteBuffer model;
+        try {
+            model = FileUtil.loadMappedFile(ctx, MODEL_ASSET);
+        } catch (IOException e) {
+            Log.i(TAG, "No " + MODEL_ASSET + ", running the detector on every frame");
+            return null;
+        }
+        InterpreterPool pool = null;
+        try {
+            InterpreterPool.Options options = new InterpreterPool.Options();
+            options.size = parallelism;
+            options.threadsPerInterpreter = 1;   // small model: a thread hand-off costs more than it saves
+            pool = new InterpreterPool(model, options);
+            return new DamageClassifier(pool, parallelism);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Could not build the damage classifier", e);
+            if (pool != null) pool.close();
+            return null;
+        }
+    }
+
+    /** Scores only this part of the frame; normally the detector's region of interest. */
+    public void configureRegionOfInterest(RegionOfInterest roi) {
+        this.roi = roi;
+    }
+
+    /** Sets the input normalization, see {@link InferenceBuffers#setNormalization}. */
+    public void configureInput(float mean, float std) {
+        for (Lane lane : lanes) lane.buffers.setNormalization(mean, std);
+    }
+
+    /**
+     * Damage likelihood of {@code frame}, blocking while {@code parallelism} frames are
+     * being scored.
+     * @return score in [0,1]
+     */
+    public float score(Bitmap frame) throws InterruptedException {
+        Lane lane = lanes.take();
+        try {
+            roi.crop(frame.getWidth(), frame.getHeight(), lane.crop);
+            lane.src.set(lane.crop[0], lane.crop[1], lane.crop[0] + lane.crop[2], lane.crop[1] + lane.crop[3]);
+            lane.canvas.drawBitmap(frame, lane.src, lane.dst, paint);
+            InferenceBuffers b = lane.buffers;
+            lane.scaled.getPixels(b.pixels, 0, b.inW, 0, 0, b.inW, b.inH);
+            b.fillInput();
+            b.rewindOutputs();
+            pool.run(b);
+            return Math.max(0f, Math.min(1f, b.outputs[0].get(damageIndex)));
+        } finally {
+            lanes.add(lane);
+        }
+    }
+
+    /** Closes the interpreters. Call once nothing is being scored any more. */
+    @Override
+    public void close() {
+        pool.close();
+        for (Lane lane : lanes) lane.scaled.recycle();
+    }
+}
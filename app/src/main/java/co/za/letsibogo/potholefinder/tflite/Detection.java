@@ -0,0 +1,17 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/** One detected object: a normalized [0..1] box, its score and class. */
+public class Detection {
+    public final float ymin, xmin, ymax, xmax; // normalized [0..1]
+    public final float score;
+    public final int classId;
+
+    public Detection(float ymin, float xmin, float ymax, float xmax, float score, int classId) {
+        this.ymin = ymin; this.xmin = xmin; this.ymax = ymax; this.xmax = xmax;
+        this.score = score; this.classId = classId;
+    }
+
+    @Override public String toString() {
+        return "det{cls=" + classId + ", score=" + score + ", box=["+ymin+","+xmin+","+ymax+","+xmax+"]}";
+    }
+}
@@ -0,0 +1,269 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import co.za.letsibogo.potholefinder.metrics.PerfStats;
+
+/**
+ * The Android-free part of detection: preprocess ARGB pixels into a slot, run the model,
+ * decode the outputs and apply NMS. {@link PotholeDetector} wraps it with model loading and
+ * Bitmap handling; benchmarks drive it directly with a fake {@link ModelRunner}.
+ * <p>
+ * Thread-safe across slots: each frame owns its slot between {@link #prepare} and
+ * {@link #infer}, and the runner bounds how many inferences run at once.
+ */
+public class DetectionEngine {
+
+    private final ModelRunner runner;
+    private final TensorSpec inSpec;
+    private final OutputDecoder decoder;   // output layout, resolved once at construction
+
+    // Steady-state buffers, sized from the tensor shapes and reused for every frame
+    private final List<FrameSlot> slots = new ArrayList<>();
+    private final BlockingQueue<FrameSlot> freeSlots;
+    private volatile RegionOfInterest roi = RegionOfInterest.FULL;
+    private volatile PerfStats stats;     // optional stage timings
+    private volatile boolean closed = false;
+
+    private volatile float scoreThreshold = 0.50f;
+    private volatile int potholeClassId = 1;
+
+    /**
+     * @param slotCount  number of frames that may be between {@link #prepare} and
+     *                   {@link #infer} at the same time (pipeline depth)
+     * @param layoutHint forces the output layout when it cannot be told from the shapes
+     *                   alone (see {@link OutputDecoder#forShapes}); null to auto-detect
+     * @throws IllegalArgumentException if the output shapes match no supported layout
+     */
+    public DetectionEngine(ModelRunner runner, TensorSpec inSpec, TensorSpec[] outSpecs,
+                           int slotCount, OutputDecoder.Layout layoutHint) {
+        if (slotCount < 1) throw new IllegalArgumentException("slotCount must be >= 1");
+        this.runner = runner;
+        this.inSpec = inSpec;
+        this.decoder = OutputDecoder.forShapes(TensorSpec.shapes(outSpecs), TensorSpec.names(outSpecs),
+                inSpec.shape[2], inSpec.shape[1], layoutHint);
+        this.freeSlots = new ArrayBlockingQueue<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            FrameSlot slot = new FrameSlot(new InferenceBuffers(inSpec, outSpecs), decoder.maxCandidates());
+            slots.add(slot);
+            freeSlots.add(slot);
+        }
+    }
+
+    public OutputDecoder decoder() { return decoder; }
+
+    public TensorSpec inputSpec() { return inSpec; }
+
+    /** Set score threshold and class id at runtime. */
+    public void configure(float scoreThreshold, int potholeClassId) {
+        this.scoreThreshold = scoreThreshold;
+        this.potholeClassId = potholeClassId;
+    }
+
+    /** See {@link InferenceBuffers#setNormalization}. */
+    public void configureInput(float mean, float std) {
+        for (FrameSlot slot : slots) slot.buffers.setNormalization(mean, std);
+    }
+
+    /** Records preprocess, invoke, output-decode and NMS timings into {@code stats}; null to stop. */
+    public void setStats(PerfStats stats) {
+        this.stats = stats;
+    }
+
+    /** Restricts detection to part of the frame; boxes are still reported in full-frame coordinates. */
+    public void configureRegionOfInterest(RegionOfInterest roi) {
+        this.roi = roi != null ? roi : RegionOfInterest.FULL;
+    }
+
+    public RegionOfInterest regionOfInterest() { return roi; }
+
+    /** Configure the NMS stage applied by {@link #infer}. */
+    public void configureNms(Nms.Mode mode, float iouThreshold, boolean perClass, int maxDetections) {
+        for (FrameSlot slot : slots) {
+            slot.nms.mode(mode).iouThreshold(iouThreshold).perClass(perClass).maxDetections(maxDetections);
+        }
+    }
+
+    /** Buffers allocated so far; constant in steady state. */
+    public int getAllocationCount() {
+        int n = 0;
+        for (FrameSlot slot : slots) n += slot.buffers.allocationCount() + slot.argbAllocations;
+        return n;
+    }
+
+    /** Takes a free slot, blocking while all are in flight; null once closed. */
+    public FrameSlot takeSlot() throws InterruptedException {
+        return closed ? null : freeSlots.take();
+    }
+
+    /**
+     * Preprocess stage for frames decoded to ARGB pixels ({@code w x h}, row-major); the
+     * region of interest is read in place.
+     * @return the filled slot, or null once closed
+     */
+    public FrameSlot prepare(int[] argb, int w, int h) throws InterruptedException {
+        if (closed || argb == null) return null;
+        FrameSlot slot = freeSlots.take();
+        long t0 = PerfStats.start();
+
+        roi.crop(w, h, slot.crop);
+        slot.preprocessor.run(argb, w, slot.crop[0], slot.crop[1], slot.crop[2], slot.crop[3]);
+        slot.setCrop(w, h);
+        recordStage(PerfStats.Stage.PREPROCESS, t0);
+        return slot;
+    }
+
+    /**
+     * Preprocess stage for a slot whose {@code argb} already holds the cropped region
+     * ({@code crop[2] x crop[3]}) of a {@code w x h} frame.
+     */
+    void prepareCropped(FrameSlot slot, int w, int h) {
+        long t0 = PerfStats.start();
+        int cw = slot.crop[2], ch = slot.crop[3];
+        slot.preprocessor.run(slot.argb, cw, 0, 0, cw, ch);
+        slot.setCrop(w, h);
+        recordStage(PerfStats.Stage.PREPROCESS, t0);
+    }
+
+    /** Infer stage: runs the model on a prepared slot, parses it, applies NMS and returns the slot. */
+    public List<Detection> infer(FrameSlot slot) {
+        List<Detection> results = new ArrayList<>();
+        try {
+            int kept = runDecodeAndNms(slot);
+            for (int k = 0; k < kept; k++) {
+                int i = slot.keep[k], o = i * 4;
+                results.add(new Detection(slot.boxes[o], slot.boxes[o + 1], slot.boxes[o + 2], slot.boxes[o + 3],
+                        slot.scores[i], slot.classes[i]));
+            }
+        } finally {
+            release(slot);
+        }
+        return results;
+    }
+
+    /** Fast boolean on a prepared slot: any decoded candidate of the pothole class. Returns the slot. */
+    public boolean anyPothole(FrameSlot slot) {
+        try {
+            int n = runAndDecode(slot);
+            for (int i = 0; i < n; i++) {
+                if (slot.classes[i] == potholeClassId) return true;
+            }
+            return false;
+        } finally {
+            release(slot);
+        }
+    }
+
+    /**
+     * Detects in one crop of an ARGB frame on {@code slot}. Boxes come back in full-frame
+     * coordinates and are NMSed within the tile; the kept candidates are
+     * {@code slot.keep[0 .. return)}. The caller still owns the slot.
+     */
+    int detectTile(FrameSlot slot, int[] argb, int w, int h, int x, int y, int tw, int th) {
+        slot.crop[0] = x;
+        slot.crop[1] = y;
+        slot.crop[2] = tw;
+        slot.crop[3] = th;
+        slot.preprocessor.run(argb, w, x, y, tw, th);
+        slot.setCrop(w, h);
+        return runDecodeAndNms(slot);
+    }
+
+    /** Returns a slot that will not be passed to {@link #infer}, e.g. when a pipeline drops it. */
+    public void release(FrameSlot slot) {
+        if (slot == null) return;
+        if (slot.trimPending) slot.trimArgb();
+        freeSlots.offer(slot);
+    }
+
+    /**
+     * Frees the Bitmap ROI copies the slots hold, sized for the largest frame seen so far:
+     * free slots now, slots in flight when they are released. Frames after this allocate
+     * them again at their own, possibly downscaled, size.
+     */
+    public void trimMemory() {
+        for (FrameSlot slot : slots) slot.trimPending = true;
+        List<FrameSlot> idle = new ArrayList<>(slots.size());
+        freeSlots.drainTo(idle);
+        for (FrameSlot slot : idle) {
+            slot.trimArgb();
+            freeSlots.offer(slot);
+        }
+    }
+
+    /** True if any result is a pothole over the score threshold. */
+    public boolean containsPothole(List<Detection> detections) {
+        for (Detection d : detections) {
+            if (d.classId == potholeClassId && d.score >= scoreThreshold) return true;
+        }
+        return false;
+    }
+
+    /** Only the pothole-class results over the score threshold. */
+    public List<Detection> filterPotholes(List<Detection> detections) {
+        List<Detection> out = new ArrayList<>(detections.size());
+        for (Detection d : detections) {
+            if (d.classId == potholeClassId && d.score >= scoreThreshold) out.add(d);
+        }
+        return out;
+    }
+
+    /** Stops handing out slots; frames in flight decode to nothing. Does not close the runner. */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() { return closed; }
+
+    private void recordStage(PerfStats.Stage stage, long startNs) {
+        PerfStats s = stats;
+        if (s != null) s.record(stage, startNs);
+    }
+
+    private int runDecodeAndNms(FrameSlot slot) {
+        int n = runAndDecode(slot);
+        // Overlapping boxes of one pothole collapse into a single detection
+        long nmsStart = PerfStats.start();
+        int kept = slot.nms.scoreThreshold(scoreThreshold).run(slot.boxes, slot.scores, slot.classes, n, slot.keep);
+        recordStage(PerfStats.Stage.NMS, nmsStart);
+        return kept;
+    }
+
+    /**
+     * Invokes the model on a prepared slot and decodes the raw outputs into the slot's
+     * candidate arrays.
+     * @return number of candidates over the score threshold, 0 if the run failed
+     */
+    private int runAndDecode(FrameSlot slot) {
+        InferenceBuffers b = slot.buffers;
+        b.rewindOutputs();
+        if (closed) return 0;              // closed while the frame was in flight
+        try {
+            long t0 = PerfStats.start();
+            runner.run(b);
+            recordStage(PerfStats.Stage.INVOKE, t0);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (IllegalStateException | IllegalArgumentException failed) {
+            return 0;                      // runner closed, or logged the bad run itself
+        }
+        long decodeStart = PerfStats.start();
+        int n = decoder.decode(b.outputs, scoreThreshold, slot.boxes, slot.scores, slot.classes);
+        recordStage(PerfStats.Stage.OUTPUT_DECODE, decodeStart);
+        if (!slot.isFullFrame()) {
+            // ROI-relative -> full-frame coordinates
+            float[] boxes = slot.boxes;
+            for (int i = 0, o = 0; i < n; i++, o += 4) {
+                boxes[o] = slot.cropTop + boxes[o] * slot.cropHeight;
+                boxes[o + 1] = slot.cropLeft + boxes[o + 1] * slot.cropWidth;
+                boxes[o + 2] = slot.cropTop + boxes[o + 2] * slot.cropHeight;
+                boxes[o + 3] = slot.cropLeft + boxes[o + 3] * slot.cropWidth;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,61 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Reusable per-frame state: the cropped source pixels plus input/output tensors. A frame
+ * holds one slot from {@link DetectionEngine#prepare} until {@link DetectionEngine#infer}
+ * (or {@link DetectionEngine#release}) returns it, so several frames can be in flight in a
+ * pipeline without sharing buffers.
+ */
+public final class FrameSlot {
+    private static final int[] EMPTY = new int[0];
+
+    final InferenceBuffers buffers;
+    final Preprocessor preprocessor;
+    int[] argb = EMPTY;             // ROI pixels copied out of a Bitmap, grown to the largest crop
+    int argbAllocations = 0;
+    volatile boolean trimPending;   // drop argb when the slot is next released
+    final int[] crop = new int[4];  // x, y, w, h in source pixels
+
+    // Crop of the prepared frame as fractions, to map boxes back to the full frame
+    float cropLeft = 0f, cropTop = 0f, cropWidth = 1f, cropHeight = 1f;
+
+    // Candidate boxes parsed from the output, filtered by NMS
+    final float[] boxes;
+    final float[] scores;
+    final int[] classes;
+    final int[] keep;
+    final Nms nms = new Nms();
+
+    FrameSlot(InferenceBuffers buffers, int maxBoxes) {
+        this.buffers = buffers;
+        this.preprocessor = new Preprocessor(buffers);
+        this.boxes = new float[maxBoxes * 4];
+        this.scores = new float[maxBoxes];
+        this.classes = new int[maxBoxes];
+        this.keep = new int[maxBoxes];
+    }
+
+    void ensureArgb(int size) {
+        if (argb.length < size) {
+            argb = new int[size];
+            argbAllocations++;
+        }
+    }
+
+    /** Frees the ROI pixels; the next Bitmap frame allocates them again at its own size. */
+    void trimArgb() {
+        argb = EMPTY;
+        trimPending = false;
+    }
+
+    void setCrop(int frameW, int frameH) {
+        cropLeft = (float) crop[0] / frameW;
+        cropTop = (float) crop[1] / frameH;
+        cropWidth = (float) crop[2] / frameW;
+        cropHeight = (float) crop[3] / frameH;
+    }
+
+    boolean isFullFrame() {
+        return cropLeft == 0f && cropTop == 0f && cropWidth == 1f && cropHeight == 1f;
+    }
+}
@@ -0,0 +1,131 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Input/output tensors and the pixel scratch array for one inference.
+ * Everything is sized from the model's tensor shapes and allocated once, so the
+ * steady-state frame loop does not touch the heap.
+ */
+public class InferenceBuffers {
+
+    public final int inW, inH, inC;
+    public final DataType inType;
+    public final TensorSpec inSpec;
+
+    /** ARGB pixels of the resized frame, row-major, inW * inH. */
+    public final int[] pixels;
+    /** Native-order input tensor, [1, inH, inW, inC]. */
+    public final ByteBuffer input;
+    /** Output tensors, one per model output, filled by the interpreter. */
+    public final OutputTensor[] outputs;
+
+    // Prebuilt arguments for Interpreter.runForMultipleInputsOutputs
+    public final Object[] runInputs;
+    public final Map<Integer, Object> runOutputs = new HashMap<>();
+
+    // Channel value (0..255) -> tensor value, rebuilt when the normalization changes
+    private final float[] floatLut = new float[256];
+    private final byte[] quantLut = new byte[256];
+
+    private int allocations = 0;
+
+    /** Float outputs; kept for models and tests that carry no quantization. */
+    public InferenceBuffers(int inW, int inH, int inC, DataType inType, int[][] outShapes) {
+        this(new TensorSpec(new int[]{1, inH, inW, inC}, inType, 0f, 0), TensorSpec.ofFloat(outShapes));
+    }
+
+    /**
+     * @param inSpec  NHWC input, [1, H, W, C]
+     * @param outSpecs one per model output, in interpreter order
+     */
+    public InferenceBuffers(TensorSpec inSpec, TensorSpec[] outSpecs) {
+        this.inSpec = inSpec;
+        this.inH = inSpec.shape[1];
+        this.inW = inSpec.shape[2];
+        this.inC = inSpec.shape[3];
+        this.inType = inSpec.type;
+
+        pixels = new int[inW * inH];
+        allocations++;
+
+        input = ByteBuffer.allocateDirect(bytesPerSample(inType) * inW * inH * inC);
+        input.order(ByteOrder.nativeOrder());
+        allocations++;
+
+        runInputs = new Object[]{input};
+
+        outputs = new OutputTensor[outSpecs.length];
+        for (int i = 0; i < outSpecs.length; i++) {
+            outputs[i] = new OutputTensor(outSpecs[i]);
+            runOutputs.put(i, outputs[i].buffer);
+            allocations++;
+        }
+        setNormalization(0f, 255f);
+    }
+
+    public static int bytesPerSample(DataType type) { return (type == DataType.FLOAT32) ? 4 : 1; }
+
+    /**
+     * Sets the real value the model expects for a channel value {@code v}: {@code (v - mean) / std}.
+     * The default (0, 255) maps pixels to [0..1]. Quantized inputs are then quantized with the
+     * tensor's scale and zero point; without quantization parameters the raw channel byte is
+     * written, as before, shifted by -128 for INT8 so that it stays in range.
+     */
+    public void setNormalization(float mean, float std) {
+        for (int v = 0; v < 256; v++) {
+            float real = (v - mean) / std;
+            floatLut[v] = real;
+            if (inSpec.isQuantized()) {
+                int q = Math.round(real / inSpec.scale) + inSpec.zeroPoint;
+                quantLut[v] = (byte) Math.max(inSpec.minRaw(), Math.min(inSpec.maxRaw(), q));
+            } else {
+                // INT8 holds -128..127: (byte) v would wrap bright values to negative
+                quantLut[v] = (byte) (v + inSpec.minRaw());
+            }
+        }
+    }
+
+    // Channel lookup tables, shared with Preprocessor so both paths normalize identically
+    float[] floatLut() { return floatLut; }
+    byte[] quantLut() { return quantLut; }
+
+    /** Number of arrays/buffers this instance has allocated. Constant after construction. */
+    public int allocationCount() { return allocations; }
+
+    /** Rewinds the output buffers so the interpreter writes from the start. */
+    public void rewindOutputs() {
+        for (OutputTensor t : outputs) t.buffer.rewind();
+    }
+
+    /** Packs {@link #pixels} into {@link #input} (RGB, normalized and quantized per the model) and rewinds it. */
+    public ByteBuffer fillInput() {
+        ByteBuffer buf = input;
+        buf.clear();
+        int[] px = pixels;
+        if (inType == DataType.FLOAT32) {
+            float[] lut = floatLut;
+            for (int i = 0; i < px.length; i++) {
+                int p = px[i];
+                buf.putFloat(lut[(p >> 16) & 0xFF]);
+                buf.putFloat(lut[(p >> 8)  & 0xFF]);
+                buf.putFloat(lut[p & 0xFF]);
+            }
+        } else { // UINT8 / INT8
+            byte[] lut = quantLut;
+            for (int i = 0; i < px.length; i++) {
+                int p = px[i];
+                buf.put(lut[(p >> 16) & 0xFF]);
+                buf.put(lut[(p >> 8)  & 0xFF]);
+                buf.put(lut[p & 0xFF]);
+            }
+        }
+        buf.rewind();
+        return buf;
+    }
+}
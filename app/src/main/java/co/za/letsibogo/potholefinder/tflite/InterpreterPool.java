@@ -0,0 +1,189 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A fixed set of interpreters over one memory-mapped model, checked out for a single
+ * invocation at a time. An interpreter is not thread-safe, but separate interpreters are,
+ * so with {@code size > 1} several frames can be inferred in parallel.
+ * <p>
+ * {@code size * threadsPerInterpreter} should not exceed the big cores on the device:
+ * more interpreters favour throughput, more threads per interpreter favour latency. A
+ * thread count cannot be changed without rebuilding an interpreter, so to use fewer
+ * threads for a while (e.g. when the device runs hot) {@link #setActiveLimit} caps how
+ * many interpreters run at once instead.
+ */
+public class InterpreterPool implements ModelRunner, Closeable {
+
+    private static final String TAG = "InterpreterPool";
+
+    /** CPU backend the interpreters ended up with. */
+    public enum Backend { XNNPACK, NNAPI, CPU }
+
+    public static class Options {
+        /** Number of interpreters, i.e. inferences that can run at the same time. */
+        public int size = 1;
+        /** Intra-op threads per interpreter. */
+        public int threadsPerInterpreter = 2;
+        public boolean useXnnpack = true;
+        /** Try NNAPI when the XNNPACK (or plain CPU, if XNNPACK is off) build fails. */
+        public boolean nnapiFallback = false;
+    }
+
+    private final List<Interpreter> all;
+    private final BlockingQueue<Interpreter> idle;
+    private final Backend backend;
+    private boolean closed = false;    // guarded by this
+    private int activeLimit;           // guarded by this
+    private int checkedOut = 0;        // guarded by this
+
+    /**
+     * Builds every interpreter up front, so a bad model or delegate fails here and not on
+     * the first frame.
+     * @param model memory-mapped model, shared read-only by all interpreters
+     * @throws IllegalArgumentException if no backend can build the model
+     */
+    public InterpreterPool(ByteBuffer model, Options options) {
+        if (options.size < 1) throw new IllegalArgumentException("size must be >= 1");
+        List<Interpreter> built = new ArrayList<>(options.size);
+
+        Backend chosen = null;
+        RuntimeException lastFailure = null;
+        for (Backend candidate : candidates(options)) {
+            try {
+                built.add(new Interpreter(model, optionsFor(candidate, options)));
+                chosen = candidate;
+                break;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Backend " + candidate + " failed, trying next", e);
+                lastFailure = e;
+            }
+        }
+        if (chosen == null) {
+            throw new IllegalArgumentException("No backend could load the model", lastFailure);
+        }
+        // The rest use whatever worked for the first
+        for (int i = 1; i < options.size; i++) {
+            built.add(new Interpreter(model, optionsFor(chosen, options)));
+        }
+
+        this.backend = chosen;
+        this.all = Collections.unmodifiableList(built);
+        this.idle = new ArrayBlockingQueue<>(built.size(), false, built);
+        this.activeLimit = built.size();
+        Log.d(TAG, "Pool ready: " + built.size() + " x " + chosen + ", "
+                + options.threadsPerInterpreter + " threads each");
+    }
+
+    private static List<Backend> candidates(Options options) {
+        List<Backend> order = new ArrayList<>(3);
+        order.add(options.useXnnpack ? Backend.XNNPACK : Backend.CPU);
+        if (options.nnapiFallback) order.add(Backend.NNAPI);
+        if (options.useXnnpack) order.add(Backend.CPU);
+        return order;
+    }
+
+    private static Interpreter.Options optionsFor(Backend backend, Options options) {
+        Interpreter.Options o = new Interpreter.Options()
+                .setNumThreads(options.threadsPerInterpreter)
+                .setUseXNNPACK(backend == Backend.XNNPACK);
+        if (backend == Backend.NNAPI) o.setUseNNAPI(true);
+        return o;
+    }
+
+    /**
+     * Takes an idle interpreter, waiting while all are in use. Pair with {@link #release}.
+     * @throws IllegalStateException if the pool is closed
+     */
+    public synchronized Interpreter acquire() throws InterruptedException {
+        while (true) {
+            if (closed) throw new IllegalStateException("Pool closed");
+            if (checkedOut < activeLimit) {
+                Interpreter i = idle.poll();
+                if (i != null) {
+                    checkedOut++;
+                    return i;
+                }
+            }
+            wait(100);   // release, setActiveLimit and close notify
+        }
+    }
+
+    /** Runs one inference on any idle interpreter, waiting while all are in use. */
+    @Override
+    public void run(InferenceBuffers buffers) throws InterruptedException {
+        Interpreter tflite = acquire();
+        try {
+            tflite.runForMultipleInputsOutputs(buffers.runInputs, buffers.runOutputs);
+        } catch (IllegalArgumentException iae) {
+            Log.e(TAG, "Run failed. inputCap=" + buffers.input.capacity() + " expected="
+                    + buffers.inSpec.elements() * InferenceBuffers.bytesPerSample(buffers.inType)
+                    + " type=" + buffers.inType, iae);
+            throw iae;
+        } finally {
+            release(tflite);
+        }
+    }
+
+    public void release(Interpreter interpreter) {
+        if (interpreter == null) return;
+        synchronized (this) {
+            checkedOut--;
+            notifyAll();
+            if (closed) {
+                interpreter.close();   // closed while checked out
+                return;
+            }
+            idle.offer(interpreter);
+        }
+    }
+
+    /**
+     * Lets at most {@code limit} interpreters (at least 1, at most {@link #size}) be checked
+     * out at once from now on; inferences already running finish.
+     */
+    public synchronized void setActiveLimit(int limit) {
+        activeLimit = Math.max(1, Math.min(all.size(), limit));
+        notifyAll();
+    }
+
+    public synchronized int activeLimit() { return activeLimit; }
+
+    /**
+     * Any interpreter, for reading tensor metadata. Do not invoke it without
+     * {@link #acquire}ing it.
+     */
+    public Interpreter primary() { return all.get(0); }
+
+    /** All interpreters; callers must hold them via {@link #acquire} before invoking. */
+    public List<Interpreter> all() { return all; }
+
+    public int size() { return all.size(); }
+
+    public int idleCount() { return idle.size(); }
+
+    public Backend backend() { return backend; }
+
+    /**
+     * Closes idle interpreters now and checked-out ones when they are released, so an
+     * in-flight inference is never pulled from under its caller.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        notifyAll();
+        Interpreter i;
+        while ((i = idle.poll()) != null) i.close();
+    }
+}
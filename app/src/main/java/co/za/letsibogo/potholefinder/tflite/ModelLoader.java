@@ -0,0 +1,110 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a model off the calling thread and warms it up before handing it out.
+ * <p>
+ * State goes LOADING -&gt; WARMING -&gt; READY, or to FAILED from either step. Listener
+ * callbacks run on {@code callbackExecutor} (the UI thread in the app), the future
+ * completes on the loader thread. Load and warm-up times are recorded for start-up metrics.
+ */
+public class ModelLoader<T> {
+
+    public enum State { IDLE, LOADING, WARMING, READY, FAILED }
+
+    public interface Warmup<T> {
+        /** Runs one throw-away inference so lazy allocation happens before the first real frame. */
+        void run(T model) throws Exception;
+    }
+
+    public interface Listener<T> {
+        void onStateChanged(State state, ModelLoader<T> loader);
+    }
+
+    private final Callable<T> factory;
+    private final Warmup<T> warmup;
+    private final int warmupRuns;
+    private final Executor callbackExecutor;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    private volatile State state = State.IDLE;
+    private volatile T model;
+    private volatile Throwable error;
+    private volatile long loadTimeMs = -1;
+    private volatile long warmupTimeMs = -1;
+
+    /**
+     * @param factory    builds the model; a null result or an exception means failure
+     * @param warmup     one warm-up inference, run {@code warmupRuns} times; may be null
+     */
+    public ModelLoader(Callable<T> factory, Warmup<T> warmup, int warmupRuns, Executor callbackExecutor) {
+        this.factory = factory;
+        this.warmup = warmup;
+        this.warmupRuns = warmup != null ? Math.max(0, warmupRuns) : 0;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /** Starts loading on a new background thread. May be called once. */
+    public synchronized Future<T> start(Listener<T> listener) {
+        if (state != State.IDLE) throw new IllegalStateException("Loader already started");
+        state = State.LOADING;
+        Thread t = new Thread(() -> load(listener), "ModelLoader");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        t.start();
+        return result;
+    }
+
+    private void load(Listener<T> listener) {
+        notify(listener, State.LOADING);
+        try {
+            long t0 = System.nanoTime();
+            T m = factory.call();
+            loadTimeMs = (System.nanoTime() - t0) / 1_000_000;
+            if (m == null) throw new IllegalStateException("Model factory returned null");
+
+            if (warmupRuns > 0) {
+                setState(listener, State.WARMING);
+                long t1 = System.nanoTime();
+                for (int i = 0; i < warmupRuns; i++) warmup.run(m);
+                warmupTimeMs = (System.nanoTime() - t1) / 1_000_000;
+            } else {
+                warmupTimeMs = 0;
+            }
+
+            model = m;
+            setState(listener, State.READY);
+            result.complete(m);
+        } catch (Throwable e) {
+            error = e;
+            setState(listener, State.FAILED);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void setState(Listener<T> listener, State s) {
+        state = s;
+        notify(listener, s);
+    }
+
+    private void notify(Listener<T> listener, State s) {
+        if (listener != null) callbackExecutor.execute(() -> listener.onStateChanged(s, this));
+    }
+
+    public State state() { return state; }
+
+    /** The loaded model once READY, else null. */
+    public T model() { return model; }
+
+    /** Why loading failed, once FAILED. */
+    public Throwable error() { return error; }
+
+    /** Time to build the model (map, construct interpreters, read tensors), -1 until known. */
+    public long loadTimeMs() { return loadTimeMs; }
+
+    /** Total time of the warm-up runs, -1 until known. */
+    public long warmupTimeMs() { return warmupTimeMs; }
+}
@@ -0,0 +1,18 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Runs the model on one set of buffers: reads {@code buffers.runInputs} and fills
+ * {@code buffers.runOutputs}. Implementations may be called from several threads at once.
+ * <p>
+ * {@link InterpreterPool} is the device implementation; benchmarks and tests supply a fake
+ * that writes canned outputs, so the detection path runs on a plain JVM.
+ */
+public interface ModelRunner {
+
+    /**
+     * @throws InterruptedException  if interrupted while waiting for a free interpreter
+     * @throws IllegalStateException if the runner has been closed
+     * @throws IllegalArgumentException if the buffers do not match the model
+     */
+    void run(InferenceBuffers buffers) throws InterruptedException;
+}
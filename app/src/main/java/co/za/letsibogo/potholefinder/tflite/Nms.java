@@ -0,0 +1,288 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Non-maximum suppression over primitive arrays.
+ * <p>
+ * Boxes are packed as {@code [ymin, xmin, ymax, xmax]} per detection. Candidates below the
+ * score threshold are discarded first, then only the {@code topK} best are kept using a
+ * partial (quickselect) partition before they are sorted, so cost stays low when the
+ * model emits thousands of raw boxes. Work arrays are reused between calls and only grow.
+ * <p>
+ * Not thread-safe: use one instance per inference thread.
+ */
+public class Nms {
+
+    public enum Mode {
+        /** Classic greedy NMS: overlapping lower-scored boxes are removed. */
+        HARD,
+        /** Soft-NMS, linear decay: score *= (1 - IoU) for boxes over the IoU threshold. */
+        SOFT_LINEAR,
+        /** Soft-NMS, Gaussian decay: score *= exp(-IoU^2 / sigma) for every overlapping box. */
+        SOFT_GAUSSIAN
+    }
+
+    private Mode mode = Mode.HARD;
+    private float iouThreshold = 0.5f;
+    private float scoreThreshold = 0f;
+    private float sigma = 0.5f;
+    private boolean perClass = true;
+    private boolean mergeBoxes = false;
+    private int topK = 1000;
+    private int maxDetections = 100;
+
+    // Reused work arrays
+    private int[] order = new int[0];
+    private float[] work = new float[0];      // scores as they decay (soft) / sort keys
+    private float[] areas = new float[0];
+    private boolean[] suppressed = new boolean[0];
+    private float[] merged = new float[0];    // weighted box sums, 5 per kept box
+    private final int[] equalRange = new int[2];   // partition output: first and last pivot-equal slot
+
+    public Nms mode(Mode mode) { this.mode = mode; return this; }
+
+    /** Boxes overlapping a kept box by more than this are suppressed (or decayed). */
+    public Nms iouThreshold(float iou) { this.iouThreshold = iou; return this; }
+
+    /** Candidates (and, for soft-NMS, decayed boxes) below this score are dropped. */
+    public Nms scoreThreshold(float score) { this.scoreThreshold = score; return this; }
+
+    /** Gaussian soft-NMS spread. */
+    public Nms sigma(float sigma) { this.sigma = sigma; return this; }
+
+    /** Only suppress boxes of the same class; false suppresses across classes. */
+    public Nms perClass(boolean perClass) { this.perClass = perClass; return this; }
+
+    /**
+     * Hard NMS only: replace each kept box with the score-weighted average of itself and the
+     * boxes it suppressed, which steadies box edges across frames.
+     */
+    public Nms mergeBoxes(boolean merge) { this.mergeBoxes = merge; return this; }
+
+    /** Candidates considered after the score threshold, best first. */
+    public Nms topK(int k) { this.topK = Math.max(1, k); return this; }
+
+    /** Cap on the number of boxes returned. */
+    public Nms maxDetections(int max) { this.maxDetections = Math.max(1, max); return this; }
+
+    public Mode mode() { return mode; }
+
+    /**
+     * @param boxes   4 floats per detection; with {@link #mergeBoxes} the kept boxes are updated in place
+     * @param scores  one per detection; soft-NMS writes the decayed scores back in place
+     * @param classes one per detection (ignored unless {@link #perClass})
+     * @param n       number of detections in the arrays
+     * @param keep    receives indices of the surviving detections, best first
+     * @return number of entries written to {@code keep}
+     */
+    public int run(float[] boxes, float[] scores, int[] classes, int n, int[] keep) {
+        ensureCapacity(n);
+        int[] idx = order;
+
+        // 1. Score threshold
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (scores[i] >= scoreThreshold) {
+                idx[m] = i;
+                work[m] = scores[i];
+                m++;
+            }
+        }
+        if (m == 0) return 0;
+
+        // 2. Top-K partial selection, then sort only the survivors
+        if (m > topK) {
+            select(idx, work, 0, m - 1, topK);
+            m = topK;
+        }
+        sortDescending(idx, work, 0, m - 1);
+
+        for (int k = 0; k < m; k++) {
+            int i = idx[k];
+            areas[k] = area(boxes, i);
+            suppressed[k] = false;
+        }
+
+        int limit = Math.min(maxDetections, keep.length);
+        return mode == Mode.HARD
+                ? hard(boxes, scores, classes, m, keep, limit)
+                : soft(boxes, scores, classes, m, keep, limit);
+    }
+
+    private int hard(float[] boxes, float[] scores, int[] classes, int m, int[] keep, int limit) {
+        int kept = 0;
+        for (int a = 0; a < m && kept < limit; a++) {
+            if (suppressed[a]) continue;
+            int i = order[a];
+            if (mergeBoxes) {
+                int o = kept * 5;
+                float s = scores[i];
+                merged[o] = boxes[i * 4] * s;
+                merged[o + 1] = boxes[i * 4 + 1] * s;
+                merged[o + 2] = boxes[i * 4 + 2] * s;
+                merged[o + 3] = boxes[i * 4 + 3] * s;
+                merged[o + 4] = s;
+            }
+            for (int b = a + 1; b < m; b++) {
+                if (suppressed[b]) continue;
+                int j = order[b];
+                if (perClass && classes[i] != classes[j]) continue;
+                if (iou(boxes, i, areas[a], j, areas[b]) > iouThreshold) {
+                    suppressed[b] = true;
+                    if (mergeBoxes) {
+                        int o = kept * 5;
+                        float s = scores[j];
+                        merged[o] += boxes[j * 4] * s;
+                        merged[o + 1] += boxes[j * 4 + 1] * s;
+                        merged[o + 2] += boxes[j * 4 + 2] * s;
+                        merged[o + 3] += boxes[j * 4 + 3] * s;
+                        merged[o + 4] += s;
+                    }
+                }
+            }
+            keep[kept++] = i;
+        }
+        if (mergeBoxes) {
+            for (int k = 0; k < kept; k++) {
+                int i = keep[k], o = k * 5;
+                float w = merged[o + 4];
+                if (w <= 0) continue;
+                boxes[i * 4] = merged[o] / w;
+                boxes[i * 4 + 1] = merged[o + 1] / w;
+                boxes[i * 4 + 2] = merged[o + 2] / w;
+                boxes[i * 4 + 3] = merged[o + 3] / w;
+            }
+        }
+        return kept;
+    }
+
+    private int soft(float[] boxes, float[] scores, int[] classes, int m, int[] keep, int limit) {
+        // work[] holds the decaying scores, parallel to order[]/areas[]
+        int kept = 0;
+        int end = m;
+        for (int a = 0; a < end && kept < limit; a++) {
+            // Pick the best remaining box (scores change as boxes decay)
+            int best = a;
+            for (int b = a + 1; b < end; b++) if (work[b] > work[best]) best = b;
+            if (best != a) swap(a, best);
+            if (work[a] < scoreThreshold) break;
+
+            int i = order[a];
+            scores[i] = work[a];
+            keep[kept++] = i;
+
+            for (int b = a + 1; b < end; b++) {
+                int j = order[b];
+                if (perClass && classes[i] != classes[j]) continue;
+                float ov = iou(boxes, i, areas[a], j, areas[b]);
+                if (mode == Mode.SOFT_LINEAR) {
+                    if (ov > iouThreshold) work[b] *= (1f - ov);
+                } else {
+                    work[b] *= (float) Math.exp(-(ov * ov) / sigma);
+                }
+                if (work[b] < scoreThreshold) {
+                    // Drop it: move the last live candidate into its place
+                    end--;
+                    swap(b, end);
+                    b--;
+                }
+            }
+        }
+        return kept;
+    }
+
+    private void swap(int a, int b) {
+        int ti = order[a]; order[a] = order[b]; order[b] = ti;
+        float tw = work[a]; work[a] = work[b]; work[b] = tw;
+        float ta = areas[a]; areas[a] = areas[b]; areas[b] = ta;
+    }
+
+    private static float area(float[] boxes, int i) {
+        int o = i * 4;
+        return Math.max(0f, boxes[o + 2] - boxes[o]) * Math.max(0f, boxes[o + 3] - boxes[o + 1]);
+    }
+
+    private static float iou(float[] boxes, int i, float areaI, int j, float areaJ) {
+        int a = i * 4, b = j * 4;
+        float ymin = Math.max(boxes[a], boxes[b]);
+        float xmin = Math.max(boxes[a + 1], boxes[b + 1]);
+        float ymax = Math.min(boxes[a + 2], boxes[b + 2]);
+        float xmax = Math.min(boxes[a + 3], boxes[b + 3]);
+        float inter = Math.max(0f, ymax - ymin) * Math.max(0f, xmax - xmin);
+        float union = areaI + areaJ - inter;
+        return union > 0f ? inter / union : 0f;
+    }
+
+    /** Quickselect: moves the k highest keys into [lo, lo + k), unordered. */
+    private void select(int[] idx, float[] key, int lo, int hi, int k) {
+        int target = lo + k - 1;
+        while (lo < hi) {
+            partition(idx, key, lo, hi);
+            if (target < equalRange[0]) hi = equalRange[0] - 1;
+            else if (target > equalRange[1]) lo = equalRange[1] + 1;
+            else return;
+        }
+    }
+
+    private void sortDescending(int[] idx, float[] key, int lo, int hi) {
+        while (hi - lo > 16) {
+            partition(idx, key, lo, hi);
+            int lt = equalRange[0], gt = equalRange[1];
+            // Recurse into the smaller side to bound stack depth; the equal run is done
+            if (lt - lo < hi - gt) {
+                sortDescending(idx, key, lo, lt - 1);
+                lo = gt + 1;
+            } else {
+                sortDescending(idx, key, gt + 1, hi);
+                hi = lt - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int vi = idx[i];
+            float vk = key[i];
+            int j = i - 1;
+            while (j >= lo && key[j] < vk) {
+                idx[j + 1] = idx[j];
+                key[j + 1] = key[j];
+                j--;
+            }
+            idx[j + 1] = vi;
+            key[j + 1] = vk;
+        }
+    }
+
+    /**
+     * Three-way descending partition around a median-of-three pivot: keys above it, equal to
+     * it, then below it. Quantized models emit long runs of equal scores, which a two-way
+     * partition would split one entry at a time. The equal run's bounds go to
+     * {@link #equalRange}.
+     */
+    private void partition(int[] idx, float[] key, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (key[mid] > key[lo]) swapEntries(idx, key, mid, lo);
+        if (key[hi] > key[lo]) swapEntries(idx, key, hi, lo);
+        if (key[hi] > key[mid]) swapEntries(idx, key, hi, mid);
+        float pivot = key[mid];   // key[lo] >= pivot >= key[hi]
+        int lt = lo, i = lo, gt = hi;
+        while (i <= gt) {
+            if (key[i] > pivot) swapEntries(idx, key, lt++, i++);
+            else if (key[i] < pivot) swapEntries(idx, key, i, gt--);
+            else i++;
+        }
+        equalRange[0] = lt;
+        equalRange[1] = gt;
+    }
+
+    private static void swapEntries(int[] idx, float[] key, int a, int b) {
+        int ti = idx[a]; idx[a] = idx[b]; idx[b] = ti;
+        float tk = key[a]; key[a] = key[b]; key[b] = tk;
+    }
+
+    private void ensureCapacity(int n) {
+        if (order.length >= n) return;
+        order = new int[n];
+        work = new float[n];
+        areas = new float[n];
+        suppressed = new boolean[n];
+        merged = new float[n * 5];
+    }
+}
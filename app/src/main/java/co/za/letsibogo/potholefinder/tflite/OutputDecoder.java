@@ -0,0 +1,342 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Decodes raw detector output tensors into packed candidate arrays
+ * ({@code [ymin, xmin, ymax, xmax]} boxes normalized to [0..1], scores, classes).
+ * <p>
+ * The layout is resolved once from the output shapes at load time; decoding then reads
+ * straight from the interpreter's native-order buffers with absolute indexing, with no
+ * per-frame shape checks or intermediate arrays. Quantized outputs are thresholded in the
+ * raw domain and only survivors are dequantized.
+ * <p>
+ * What the shapes cannot tell, whether YOLO boxes are in pixels or normalized and (without
+ * telling output names) which SSD output holds the classes, is settled by {@link #resolve}
+ * from the first run's output, normally the warm-up, and fixed from then on.
+ */
+public class OutputDecoder {
+
+    public enum Layout {
+        /** One tensor [1, N, K>=6]: ymin, xmin, ymax, xmax, score, class, ... (the original pothole model). */
+        BOXES_N7,
+        /** YOLOv5 style [1, N, 5+C]: cx, cy, w, h, objectness, C class scores. */
+        YOLO_ROWS,
+        /** YOLOv8 style [1, 4+C, N]: cx, cy, w, h, C class scores, one column per candidate. */
+        YOLO_COLUMNS,
+        /** TFLite_Detection_PostProcess: boxes [1,N,4], classes [1,N], scores [1,N], count [1]. */
+        SSD
+    }
+
+    private final Layout layout;
+    private final int candidates;   // N
+    private final int attrs;        // values per candidate (row/column length)
+    private final int classCount;
+    private final float inW, inH;
+
+    // SSD: which output holds what
+    private int ssdBoxes = 0, ssdClasses = 1, ssdScores = 2, ssdCount = 3;
+    private boolean ssdOrderKnown;      // from the output names
+
+    // YOLO centre boxes are multiplied by these: 1, or 1/input size for pixel coordinates
+    private float boxScaleX = 1f, boxScaleY = 1f;
+    private boolean pixelBoxes;
+    private volatile boolean resolved;  // published after the fields above
+
+    /** Most rows a [1, N, 6|7] output can have and still be read as post-NMS boxes. */
+    static final int MAX_BOX_ROWS = 1000;
+
+    private OutputDecoder(Layout layout, int candidates, int attrs, int classCount, int inW, int inH) {
+        this.layout = layout;
+        this.candidates = candidates;
+        this.attrs = attrs;
+        this.classCount = classCount;
+        this.inW = inW;
+        this.inH = inH;
+        this.resolved = layout == Layout.BOXES_N7;   // nothing to settle
+    }
+
+    /**
+     * Picks the layout from the output tensor shapes.
+     * <p>
+     * A single [1, A, B] tensor with A &lt; B is read as YOLOv8 columns. With A &gt;= B,
+     * B = 6 or 7 with at most {@link #MAX_BOX_ROWS} rows is the original [1, N, 7] pothole
+     * model, whose rows are already filtered; anything wider, or with the thousands of raw
+     * candidates a YOLO head emits (1- and 2-class YOLOv5 are [1, 25200, 6] and [1, 25200, 7]),
+     * is YOLOv5 rows. Pass {@code hint} to force a layout when that guess is wrong.
+     *
+     * @throws IllegalArgumentException if no supported layout matches
+     */
+    public static OutputDecoder forShapes(int[][] shapes, int inW, int inH, Layout hint) {
+        return forShapes(shapes, null, inW, inH, hint);
+    }
+
+    /**
+     * As {@link #forShapes(int[][], int, int, Layout)}; the output tensor {@code names}
+     * (null, or null entries, if unknown) tell the SSD classes and scores outputs apart.
+     */
+    public static OutputDecoder forShapes(int[][] shapes, String[] names, int inW, int inH, Layout hint) {
+        if (shapes.length == 4 || hint == Layout.SSD) {
+            return ssd(shapes, names, inW, inH);
+        }
+        if (shapes.length != 1 || shapes[0].length != 3 || shapes[0][0] != 1) {
+            throw new IllegalArgumentException("Unsupported output shapes: " + Arrays.deepToString(shapes));
+        }
+        int a = shapes[0][1], b = shapes[0][2];
+        Layout layout = hint;
+        if (layout == null) {
+            if (a < b) layout = Layout.YOLO_COLUMNS;
+            else if ((b == 6 || b == 7) && a <= MAX_BOX_ROWS) layout = Layout.BOXES_N7;
+            else layout = Layout.YOLO_ROWS;
+        }
+        switch (layout) {
+            case BOXES_N7:
+                if (b < 6) break;
+                return new OutputDecoder(layout, a, b, 0, inW, inH);
+            case YOLO_ROWS:
+                if (b < 6) break;
+                return new OutputDecoder(layout, a, b, b - 5, inW, inH);
+            case YOLO_COLUMNS:
+                if (a < 5) break;
+                return new OutputDecoder(layout, b, a, a - 4, inW, inH);
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Shape " + Arrays.toString(shapes[0]) + " does not fit layout " + layout);
+    }
+
+    private static OutputDecoder ssd(int[][] shapes, String[] names, int inW, int inH) {
+        if (shapes.length != 4) {
+            throw new IllegalArgumentException("SSD postprocess needs 4 outputs, got " + shapes.length);
+        }
+        int boxes = -1, count = -1, first = -1, second = -1;
+        for (int i = 0; i < 4; i++) {
+            int[] s = shapes[i];
+            int elements = 1;
+            for (int dim : s) elements *= dim;
+            if (s.length == 3 && s[2] == 4) boxes = i;
+            else if (elements == 1) count = i;
+            else if (first < 0) first = i;
+            else second = i;
+        }
+        if (boxes < 0 || count < 0 || first < 0 || second < 0) {
+            throw new IllegalArgumentException("Unrecognised SSD outputs: " + Arrays.deepToString(shapes));
+        }
+        OutputDecoder d = new OutputDecoder(Layout.SSD, shapes[boxes][1], 4, 0, inW, inH);
+        d.ssdBoxes = boxes;
+        d.ssdClasses = first;    // conventional order: classes before scores
+        d.ssdScores = second;
+        d.ssdCount = count;
+        if (names != null) {
+            int byName = ssdRole(names[first]), other = ssdRole(names[second]);
+            if (byName == ROLE_SCORES || other == ROLE_CLASSES) {
+                d.ssdClasses = second;
+                d.ssdScores = first;
+                d.ssdOrderKnown = true;
+            } else if (byName == ROLE_CLASSES || other == ROLE_SCORES) {
+                d.ssdOrderKnown = true;
+            }
+        }
+        return d;
+    }
+
+    private static final int ROLE_UNKNOWN = 0, ROLE_CLASSES = 1, ROLE_SCORES = 2;
+
+    /**
+     * What an SSD output holds going by its name: "detection_classes" / "detection_scores"
+     * style names, or the TFLite_Detection_PostProcess op's numbering (:1 classes, :2 scores).
+     */
+    private static int ssdRole(String name) {
+        if (name == null) return ROLE_UNKNOWN;
+        String n = name.toLowerCase(Locale.US);
+        if (n.contains("score")) return ROLE_SCORES;
+        if (n.contains("class")) return ROLE_CLASSES;
+        if (n.startsWith("tflite_detection_postprocess")) {
+            if (n.endsWith(":1")) return ROLE_CLASSES;
+            if (n.endsWith(":2")) return ROLE_SCORES;
+        }
+        return ROLE_UNKNOWN;
+    }
+
+    /**
+     * Settles, from one run's output, what the shapes could not: for YOLO layouts whether
+     * boxes are in input pixels (any centre beyond 2) or normalized, and for SSD without
+     * telling names which of the two [1, N] outputs holds the scores (values in [0, 1], not
+     * all whole numbers). Call once after the warm-up; {@link #decode} calls it on its first
+     * frame otherwise. Later calls do nothing.
+     */
+    public synchronized void resolve(OutputTensor[] outputs) {
+        if (resolved) return;
+        if (layout == Layout.YOLO_ROWS || layout == Layout.YOLO_COLUMNS) {
+            OutputTensor out = outputs[0];
+            float max = 0f;
+            for (int i = 0; i < candidates; i++) {
+                int cx = layout == Layout.YOLO_ROWS ? i * attrs : i;
+                int cy = layout == Layout.YOLO_ROWS ? i * attrs + 1 : candidates + i;
+                max = Math.max(max, Math.max(out.get(cx), out.get(cy)));
+            }
+            pixelBoxes = max > 2f;
+            if (pixelBoxes) {
+                boxScaleX = 1f / inW;
+                boxScaleY = 1f / inH;
+            }
+        } else if (layout == Layout.SSD && !ssdOrderKnown) {
+            if (scoreLike(outputs[ssdClasses]) && !scoreLike(outputs[ssdScores])) {
+                int t = ssdClasses;
+                ssdClasses = ssdScores;
+                ssdScores = t;
+            }
+        }
+        resolved = true;
+    }
+
+    /** All of the first N values in [0, 1] and at least one not a whole number. */
+    private boolean scoreLike(OutputTensor t) {
+        boolean fractional = false;
+        for (int i = 0; i < candidates; i++) {
+            float v = t.get(i);
+            if (v < 0f || v > 1f) return false;
+            if (v != 0f && v != 1f) fractional = true;
+        }
+        return fractional;
+    }
+
+    public Layout layout() { return layout; }
+
+    /** True once {@link #resolve} found YOLO boxes in input pixels. */
+    public boolean pixelBoxes() { return pixelBoxes; }
+
+    /** Index of the SSD output read as class ids. */
+    public int ssdClassesOutput() { return ssdClasses; }
+
+    /** Upper bound on candidates one frame can produce; size the candidate arrays with it. */
+    public int maxCandidates() { return candidates; }
+
+    /**
+     * @param outputs one per output tensor, in interpreter output order
+     * @return number of candidates at or above {@code scoreThreshold} written to the arrays
+     */
+    public int decode(OutputTensor[] outputs, float scoreThreshold, float[] boxes, float[] scores, int[] classes) {
+        if (!resolved) resolve(outputs);
+        switch (layout) {
+            case YOLO_ROWS: return decodeYoloRows(outputs[0], scoreThreshold, boxes, scores, classes);
+            case YOLO_COLUMNS: return decodeYoloColumns(outputs[0], scoreThreshold, boxes, scores, classes);
+            case SSD: return decodeSsd(outputs, scoreThreshold, boxes, scores, classes);
+            case BOXES_N7:
+            default: return decodeBoxes(outputs[0], scoreThreshold, boxes, scores, classes);
+        }
+    }
+
+    private int decodeBoxes(OutputTensor out, float thresh, float[] boxes, float[] scores, int[] classes) {
+        int rawThresh = out.rawThreshold(thresh);
+        int n = 0;
+        for (int i = 0, base = 0; i < candidates; i++, base += attrs) {
+            if (out.below(base + 4, thresh, rawThresh)) continue;
+            float score = out.get(base + 4);
+            float ymin = out.get(base), xmin = out.get(base + 1);
+            float ymax = out.get(base + 2), xmax = out.get(base + 3);
+            // Basic sanity: coords in [0,1] and ymin<ymax etc. Skip obvious junk.
+            if (ymin < 0 || xmin < 0 || ymax > 1.001f || xmax > 1.001f || ymax <= ymin || xmax <= xmin) continue;
+            put(boxes, n, ymin, xmin, ymax, xmax);
+            scores[n] = score;
+            classes[n] = (int) out.get(base + 5);
+            n++;
+        }
+        return n;
+    }
+
+    private int decodeYoloRows(OutputTensor out, float thresh, float[] boxes, float[] scores, int[] classes) {
+        int rawThresh = out.rawThreshold(thresh);
+        int n = 0;
+        for (int i = 0, base = 0; i < candidates; i++, base += attrs) {
+            // class score <= 1, so a candidate below thresh on objectness alone can't reach it
+            if (out.below(base + 4, thresh, rawThresh)) continue;
+            float obj = out.get(base + 4);
+            int best = 0;
+            float bestScore = out.get(base + 5);
+            for (int c = 1; c < classCount; c++) {
+                float s = out.get(base + 5 + c);
+                if (s > bestScore) { bestScore = s; best = c; }
+            }
+            float score = obj * bestScore;
+            if (score < thresh) continue;
+            if (putCenterBox(boxes, n, out.get(base), out.get(base + 1), out.get(base + 2), out.get(base + 3))) {
+                scores[n] = score;
+                classes[n] = best;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private int decodeYoloColumns(OutputTensor out, float thresh, float[] boxes, float[] scores, int[] classes) {
+        // Walk class rows sequentially (cache-friendly), keeping the best class per column
+        // in scores[]/classes[], which are at least N long.
+        int N = candidates;
+        for (int i = 0; i < N; i++) {
+            scores[i] = out.get(4 * N + i);
+            classes[i] = 0;
+        }
+        for (int c = 1; c < classCount; c++) {
+            int row = (4 + c) * N;
+            for (int i = 0; i < N; i++) {
+                float s = out.get(row + i);
+                if (s > scores[i]) { scores[i] = s; classes[i] = c; }
+            }
+        }
+        // Compact survivors to the front
+        int n = 0;
+        for (int i = 0; i < N; i++) {
+            float score = scores[i];
+            if (score < thresh) continue;
+            int cls = classes[i];
+            if (putCenterBox(boxes, n, out.get(i), out.get(N + i), out.get(2 * N + i), out.get(3 * N + i))) {
+                scores[n] = score;
+                classes[n] = cls;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private int decodeSsd(OutputTensor[] outputs, float thresh, float[] boxes, float[] scores, int[] classes) {
+        OutputTensor b = outputs[ssdBoxes], c = outputs[ssdClasses], s = outputs[ssdScores];
+        int count = Math.min(candidates, (int) outputs[ssdCount].get(0));
+        int rawThresh = s.rawThreshold(thresh);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (s.below(i, thresh, rawThresh)) continue;
+            float score = s.get(i);
+            float ymin = clamp(b.get(i * 4)), xmin = clamp(b.get(i * 4 + 1));
+            float ymax = clamp(b.get(i * 4 + 2)), xmax = clamp(b.get(i * 4 + 3));
+            if (ymax <= ymin || xmax <= xmin) continue;
+            put(boxes, n, ymin, xmin, ymax, xmax);
+            scores[n] = score;
+            classes[n] = (int) c.get(i);
+            n++;
+        }
+        return n;
+    }
+
+    /** YOLO centre box to normalized corners; pixel coordinates are scaled by the input size. */
+    private boolean putCenterBox(float[] boxes, int n, float cx, float cy, float w, float h) {
+        cx *= boxScaleX; w *= boxScaleX;
+        cy *= boxScaleY; h *= boxScaleY;
+        float ymin = clamp(cy - h * 0.5f), xmin = clamp(cx - w * 0.5f);
+        float ymax = clamp(cy + h * 0.5f), xmax = clamp(cx + w * 0.5f);
+        if (ymax <= ymin || xmax <= xmin) return false;
+        put(boxes, n, ymin, xmin, ymax, xmax);
+        return true;
+    }
+
+    private static void put(float[] boxes, int n, float ymin, float xmin, float ymax, float xmax) {
+        int o = n * 4;
+        boxes[o] = ymin;
+        boxes[o + 1] = xmin;
+        boxes[o + 2] = ymax;
+        boxes[o + 3] = xmax;
+    }
+
+    private static float clamp(float v) { return v < 0f ? 0f : (v > 1f ? 1f : v); }
+}
@@ -0,0 +1,87 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * One output tensor's native buffer plus the element reads {@link OutputDecoder} needs.
+ * Float tensors are read through a FloatBuffer view; UINT8/INT8 tensors are read as raw
+ * bytes and dequantized on demand, so only candidates that survive a threshold compared
+ * in the quantized domain ({@link #rawThreshold}) pay for the conversion.
+ */
+public final class OutputTensor {
+
+    public final TensorSpec spec;
+    /** Native-order buffer the interpreter writes into. */
+    public final ByteBuffer buffer;
+
+    private final FloatBuffer floats;   // null for quantized tensors
+    private final boolean quantized;
+    private final boolean signed;
+    private final float scale;
+    private final int zeroPoint;
+
+    public OutputTensor(TensorSpec spec) {
+        this.spec = spec;
+        this.quantized = spec.type == DataType.UINT8 || spec.type == DataType.INT8;
+        this.signed = spec.type == DataType.INT8;
+        // Quantized outputs without parameters are read as plain integers
+        this.scale = spec.scale > 0f ? spec.scale : 1f;
+        this.zeroPoint = spec.scale > 0f ? spec.zeroPoint : 0;
+        this.buffer = ByteBuffer.allocateDirect(InferenceBuffers.bytesPerSample(spec.type) * spec.elements())
+                .order(ByteOrder.nativeOrder());
+        this.floats = quantized ? null : buffer.asFloatBuffer();
+    }
+
+    public boolean isQuantized() { return quantized; }
+
+    /** Element {@code i} as a real value. */
+    public float get(int i) {
+        if (!quantized) return floats.get(i);
+        return (raw(i) - zeroPoint) * scale;
+    }
+
+    /** Element {@code i} as stored. Only meaningful for quantized tensors. */
+    public int raw(int i) {
+        byte b = buffer.get(i);
+        return signed ? b : b & 0xFF;
+    }
+
+    /**
+     * Smallest raw value whose dequantized value is {@code >= threshold}, so
+     * {@code raw(i) >= rawThreshold(t)} agrees exactly with {@code get(i) >= t}.
+     * Returns one past the type's maximum when nothing can reach the threshold.
+     */
+    public int rawThreshold(float threshold) {
+        int lo = signed ? -128 : 0, hi = signed ? 127 : 255;
+        int q = zeroPoint + (int) Math.ceil(threshold / scale);
+        if (q < lo) q = lo;
+        if (q > hi + 1) q = hi + 1;
+        // Nudge across float rounding in the division
+        while (q > lo && (q - 1 - zeroPoint) * scale >= threshold) q--;
+        while (q <= hi && (q - zeroPoint) * scale < threshold) q++;
+        return q;
+    }
+
+    /**
+     * True if element {@code i} is below {@code threshold}; {@code rawThreshold} must be
+     * {@link #rawThreshold(float)} of the same value (ignored for float tensors).
+     */
+    public boolean below(int i, float threshold, int rawThreshold) {
+        return quantized ? raw(i) < rawThreshold : floats.get(i) < threshold;
+    }
+
+    /** Writes simulated interpreter output; used by tests and benchmarks. */
+    public void put(int i, float value) {
+        if (!quantized) {
+            floats.put(i, value);
+        } else {
+            int q = Math.round(value / scale) + zeroPoint;
+            int lo = signed ? -128 : 0, hi = signed ? 127 : 255;
+            buffer.put(i, (byte) Math.max(lo, Math.min(hi, q)));
+        }
+    }
+}
@@ -4,129 +4,181 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
 
-import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.Tensor;
 import org.tensorflow.lite.support.common.FileUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import co.za.letsibogo.potholefinder.metrics.PerfStats;
+
+/**
+ * Loads the bundled model into an {@link InterpreterPool} and runs Bitmap frames through a
+ * {@link DetectionEngine}, which holds everything that does not need Android.
+ */
 public class PotholeDetector {
 
-    public static class Detection {
-        public final float ymin, xmin, ymax, xmax; // normalized [0..1]
-        public final float score;
-        public final int classId;
+    private static final String TAG = "PotholeDetector";
 
-        public Detection(float ymin, float xmin, float ymax, float xmax, float score, int classId) {
-            this.ymin = ymin; this.xmin = xmin; this.ymax = ymax; this.xmax = xmax;
-            this.score = score; this.classId = classId;
-        }
+    private volatile InterpreterPool pool;   // null if loading failed or after close()
+    private DetectionEngine engine;          // null if loading failed
 
-        @Override public String toString() {
-            return "det{cls=" + classId + ", score=" + score + ", box=["+ymin+","+xmin+","+ymax+","+xmax+"]}";
-        }
+    public PotholeDetector(Context ctx) {
+        this(ctx, 1);
     }
 
-    private static final String TAG = "PotholeDetector";
-
-    private Interpreter tflite;
-    private int inW = 0, inH = 0, inC = 3;
-    private DataType inType = DataType.FLOAT32;
-    private boolean shapesLogged = false;
+    /**
+     * @param slotCount number of frames that may be between {@link #prepare} and
+     *                  {@link #infer} at the same time (pipeline depth)
+     */
+    public PotholeDetector(Context ctx, int slotCount) {
+        this(ctx, slotCount, null);
+    }
 
-    // Tune these for your model
-    private float SCORE_THRESH = 0.50f;
-    private int POTHOLE_CLASS_ID = 1;   // change to your pothole class index if different
+    /**
+     * @param layoutHint forces the output layout when it cannot be told from the shapes
+     *                   alone (see {@link OutputDecoder#forShapes}); null to auto-detect
+     */
+    public PotholeDetector(Context ctx, int slotCount, OutputDecoder.Layout layoutHint) {
+        this(ctx, slotCount, layoutHint, new InterpreterPool.Options());
+    }
 
-    public PotholeDetector(Context ctx) {
+    /**
+     * @param poolOptions interpreter count, threads per interpreter and CPU delegate; the
+     *                    pool size bounds how many {@link #infer} calls run in parallel
+     */
+    public PotholeDetector(Context ctx, int slotCount, OutputDecoder.Layout layoutHint,
+                           InterpreterPool.Options poolOptions) {
         try {
             ByteBuffer model = FileUtil.loadMappedFile(ctx, "pothole_model.tflite");
-            tflite = new Interpreter(model);
-
-            Tensor inT = tflite.getInputTensor(0);
-            int[] ishape = inT.shape();       // [1, H, W, 3] (assumed NHWC)
-            inType = inT.dataType();
-            inH = ishape[1];
-            inW = ishape[2];
-            inC = ishape[3];
-
-            if (!shapesLogged) {
-                Tensor outT = tflite.getOutputTensor(0);
-                Log.d(TAG, "Input shape=" + Arrays.toString(ishape) + " type=" + inType);
-                Log.d(TAG, "Output shape=" + Arrays.toString(outT.shape()) + " type=" + outT.dataType());
-                shapesLogged = true;
+            pool = new InterpreterPool(model, poolOptions);
+            Interpreter tflite = pool.primary();
+
+            TensorSpec inSpec = TensorSpec.of(tflite.getInputTensor(0));   // [1, H, W, 3] (assumed NHWC)
+            TensorSpec[] outSpecs = new TensorSpec[tflite.getOutputTensorCount()];
+            for (int i = 0; i < outSpecs.length; i++) {
+                outSpecs[i] = TensorSpec.of(tflite.getOutputTensor(i));
+            }
+            Log.d(TAG, "Input " + inSpec);
+            Log.d(TAG, "Outputs " + Arrays.toString(outSpecs));
+            try {
+                engine = new DetectionEngine(pool, inSpec, outSpecs, slotCount, layoutHint);
+            } catch (IllegalArgumentException iae) {
+                Log.e(TAG, "Unexpected output shape", iae);
+                pool.close();
+                pool = null;
+                return;
             }
-        } catch (IOException e) {
+            OutputDecoder decoder = engine.decoder();
+            Log.d(TAG, "Output layout=" + decoder.layout() + " candidates=" + decoder.maxCandidates());
+        } catch (IOException | IllegalArgumentException e) {
             Log.e(TAG, "Failed to load tflite", e);
+            if (pool != null) pool.close();
+            pool = null;
         }
     }
 
+    /** The Android-free detection path, or null if the model did not load. */
+    public DetectionEngine engine() {
+        return engine;
+    }
+
     /** Set score threshold and class id at runtime (optional) */
     public void configure(float scoreThreshold, int potholeClassId) {
-        this.SCORE_THRESH = scoreThreshold;
-        this.POTHOLE_CLASS_ID = potholeClassId;
+        if (engine != null) engine.configure(scoreThreshold, potholeClassId);
+    }
+
+    /**
+     * Sets the input normalization the model was trained with: a channel value v becomes
+     * {@code (v - mean) / std} before it is quantized (if the input is quantized).
+     * Default (0, 255) maps to [0..1]; MobileNet-style [-1..1] inputs use (127.5, 127.5).
+     */
+    public void configureInput(float mean, float std) {
+        if (engine != null) engine.configureInput(mean, std);
+    }
+
+    /** Records preprocess, invoke, output-decode and NMS timings into {@code stats}; null to stop. */
+    public void setStats(PerfStats stats) {
+        if (engine != null) engine.setStats(stats);
+    }
+
+    /**
+     * Restricts detection to part of the frame, e.g. {@link RegionOfInterest#lower}(0.6f) for
+     * the road in dash-cam footage. Boxes are still reported in full-frame coordinates.
+     */
+    public void configureRegionOfInterest(RegionOfInterest roi) {
+        if (engine != null) engine.configureRegionOfInterest(roi);
+    }
+
+    /**
+     * Configure the NMS stage applied by {@link #detectWithBoxes}/{@link #infer}.
+     * Defaults: hard NMS, IoU 0.5, per-class, 100 detections max.
+     */
+    public void configureNms(Nms.Mode mode, float iouThreshold, boolean perClass, int maxDetections) {
+        if (engine != null) engine.configureNms(mode, iouThreshold, perClass, maxDetections);
     }
 
-    /** Fast boolean: did we detect a pothole? */
+    /**
+     * Number of buffers allocated for inference so far. Stays constant once the
+     * detector is constructed; a change means the frame loop is allocating again.
+     */
+    public int getAllocationCount() {
+        return engine != null ? engine.getAllocationCount() : 0;
+    }
+
+    /** Fast boolean: did we detect a pothole? Checks the decoded candidates without building a list. */
     public boolean detect(Bitmap frame) {
-        List<Detection> ds = detectWithBoxes(frame);
-        for (Detection d : ds) {
-            if (d.classId == POTHOLE_CLASS_ID && d.score >= SCORE_THRESH) return true;
-        }
-        return false;
+        FrameSlot slot = prepareOrNull(frame);
+        return slot != null && engine.anyPothole(slot);
     }
 
     /** Full detections list (normalized boxes [0..1]). */
     public List<Detection> detectWithBoxes(Bitmap frame) {
-        List<Detection> results = new ArrayList<>();
-        if (tflite == null || frame == null) return results;
-
-        Bitmap resized = Bitmap.createScaledBitmap(frame, inW, inH, true);
-        ByteBuffer input = prepareInput(resized);
-
-        // Expecting output [1, N, 7]
-        Tensor outT = tflite.getOutputTensor(0);
-        int[] oshape = outT.shape();
-        if (oshape.length != 3 || oshape[0] != 1 || oshape[2] < 6) {
-            Log.e(TAG, "Unexpected output shape: " + Arrays.toString(oshape));
-            return results;
-        }
+        FrameSlot slot = prepareOrNull(frame);
+        return slot != null ? infer(slot) : new ArrayList<>();
+    }
 
-        float[][][] output = new float[oshape[0]][oshape[1]][oshape[2]];
-        try {
-            tflite.run(input, output);
-        } catch (IllegalArgumentException iae) {
-            Log.e(TAG, "Run failed. inputCap=" + input.capacity() + " expected="
-                    + bytesPerSample()*inW*inH*inC + " type=" + inType, iae);
-            return results;
-        }
+    /**
+     * Preprocess stage: takes a free slot (blocking while all are in flight), resizes the
+     * frame into it and packs the input tensor. The caller may recycle {@code frame} as
+     * soon as this returns.
+     * @return the filled slot, or null if the model is not loaded
+     */
+    public FrameSlot prepare(Bitmap frame) throws InterruptedException {
+        if (pool == null || frame == null) return null;
+        FrameSlot slot = engine.takeSlot();
+        if (slot == null) return null;
 
-        // Parse detections. Assumed format: [ymin, xmin, ymax, xmax, score, class, ?]
-        int N = oshape[1];
-        for (int i = 0; i < N; i++) {
-            float ymin  = output[0][i][0];
-            float xmin  = output[0][i][1];
-            float ymax  = output[0][i][2];
-            float xmax  = output[0][i][3];
-            float score = output[0][i][4];
-            int   cls   = (int) output[0][i][5];
-
-            // Basic sanity: coords in [0,1] and ymin<xmax etc. Skip obvious junk.
-            if (score >= SCORE_THRESH &&
-                    ymin >= 0 && xmin >= 0 && ymax <= 1.001f && xmax <= 1.001f &&
-                    ymax > ymin && xmax > xmin) {
-                results.add(new Detection(ymin, xmin, ymax, xmax, score, cls));
-            }
+        try {
+            int w = frame.getWidth(), h = frame.getHeight();
+            engine.regionOfInterest().crop(w, h, slot.crop);
+            int cw = slot.crop[2], ch = slot.crop[3];
+            // Only the region of interest leaves the Bitmap
+            slot.ensureArgb(cw * ch);
+            frame.getPixels(slot.argb, 0, cw, slot.crop[0], slot.crop[1], cw, ch);
+            engine.prepareCropped(slot, w, h);
+            return slot;
+        } catch (RuntimeException e) {
+            engine.release(slot);   // e.g. a recycled Bitmap: the caller never sees the slot
+            throw e;
         }
+    }
 
-        // Optional: NMS could be applied here if boxes overlap; omitted for brevity.
+    /**
+     * Same as {@link #prepare(Bitmap)} for frames already decoded to ARGB pixels
+     * ({@code w x h}, row-major); the region of interest is read in place.
+     */
+    public FrameSlot prepare(int[] argb, int w, int h) throws InterruptedException {
+        if (pool == null) return null;
+        return engine.prepare(argb, w, h);
+    }
 
+    /** Infer stage: runs the model on a prepared slot, parses it, applies NMS and returns the slot. */
+    public List<Detection> infer(FrameSlot slot) {
+        List<Detection> results = engine.infer(slot);
         if (!results.isEmpty()) {
             Log.d(TAG, "Detections: " + Math.min(3, results.size()) + " shown of " + results.size()
                     + " e.g. " + results.get(0));
@@ -134,33 +186,103 @@ public class PotholeDetector {
         return results;
     }
 
-    private int bytesPerSample() { return (inType == DataType.FLOAT32) ? 4 : 1; }
-
-    private ByteBuffer prepareInput(Bitmap bmp) {
-        int cap = bytesPerSample() * inW * inH * inC;
-        ByteBuffer buf = ByteBuffer.allocateDirect(cap);
-        buf.order(ByteOrder.nativeOrder());
+    /** Backend the interpreters were built with, or null if the model did not load. */
+    public InterpreterPool.Backend getBackend() {
+        return pool != null ? pool.backend() : null;
+    }
 
-        int[] pixels = new int[inW * inH];
-        bmp.getPixels(pixels, 0, inW, 0, 0, inW, inH);
+    /** False if the model or interpreters could not be built (see log), or after {@link #close}. */
+    public boolean isLoaded() {
+        return pool != null;
+    }
 
-        if (inType == DataType.FLOAT32) {
-            for (int p : pixels) {
-                float r = ((p >> 16) & 0xFF) / 255f;
-                float g = ((p >> 8)  & 0xFF) / 255f;
-                float b = (p & 0xFF) / 255f;
-                buf.putFloat(r);
-                buf.putFloat(g);
-                buf.putFloat(b);
-            }
-        } else { // UINT8
-            for (int p : pixels) {
-                buf.put((byte) ((p >> 16) & 0xFF));
-                buf.put((byte) ((p >> 8)  & 0xFF));
-                buf.put((byte) (p & 0xFF));
+    /**
+     * Runs one inference on a mid-grey dummy input on every interpreter, so their lazy
+     * tensor allocation and delegate setup happen now rather than on the first real frame.
+     */
+    public void warmUp() throws InterruptedException {
+        InterpreterPool pool = this.pool;
+        if (pool == null) return;
+        FrameSlot slot = engine.takeSlot();
+        if (slot == null) return;
+        try {
+            Arrays.fill(slot.buffers.pixels, 0xFF808080);
+            slot.buffers.fillInput();
+            // Hold every interpreter at once so each one gets a run
+            List<Interpreter> held = new ArrayList<>(pool.size());
+            try {
+                for (int i = 0; i < pool.size(); i++) held.add(pool.acquire());
+                for (Interpreter tflite : held) {
+                    slot.buffers.rewindOutputs();
+                    tflite.runForMultipleInputsOutputs(slot.buffers.runInputs, slot.buffers.runOutputs);
+                }
+                engine.decoder().resolve(slot.buffers.outputs);   // box units and SSD order, once
+            } finally {
+                for (Interpreter tflite : held) pool.release(tflite);
             }
+        } finally {
+            engine.release(slot);
+        }
+    }
+
+    /** Number of {@link #infer} calls that can run at once (interpreters in the pool). */
+    public int getParallelism() {
+        return pool != null ? pool.size() : 1;
+    }
+
+    /**
+     * Caps how many {@link #infer} calls run at once, between 1 and {@link #getParallelism};
+     * fewer interpreters at once means fewer inference threads, e.g. to keep a hot device
+     * from throttling. {@link #warmUp} holds every interpreter at once, so warm up first.
+     */
+    public void setActiveParallelism(int n) {
+        InterpreterPool p = pool;
+        if (p != null) p.setActiveLimit(n);
+    }
+
+    /** Closes the interpreters. Call once nothing is being prepared or inferred any more. */
+    public void close() {
+        if (engine != null) engine.close();
+        if (pool != null) pool.close();
+        pool = null;
+    }
+
+    /** Frees the per-slot frame pixel copies under memory pressure, see {@link DetectionEngine#trimMemory}. */
+    public void trimMemory() {
+        if (engine != null) engine.trimMemory();
+    }
+
+    /** Returns a slot that will not be passed to {@link #infer}, e.g. when a pipeline drops it. */
+    public void release(FrameSlot slot) {
+        if (engine != null) engine.release(slot);
+    }
+
+    /** True if any result is a pothole over the score threshold. */
+    public boolean containsPothole(List<Detection> detections) {
+        return engine != null && engine.containsPothole(detections);
+    }
+
+    /** Only the pothole-class results over the score threshold. */
+    public List<Detection> filterPotholes(List<Detection> detections) {
+        return engine != null ? engine.filterPotholes(detections) : new ArrayList<>();
+    }
+
+    /** Takes a free slot for {@link #detectTile}, blocking while all are in flight; null if not loaded. */
+    FrameSlot takeSlot() throws InterruptedException {
+        return pool != null ? engine.takeSlot() : null;
+    }
+
+    /** See {@link DetectionEngine#detectTile}. */
+    int detectTile(FrameSlot slot, int[] argb, int w, int h, int x, int y, int tw, int th) {
+        return engine.detectTile(slot, argb, w, h, x, y, tw, th);
+    }
+
+    private FrameSlot prepareOrNull(Bitmap frame) {
+        try {
+            return prepare(frame);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
         }
-        buf.rewind();
-        return buf;
     }
 }
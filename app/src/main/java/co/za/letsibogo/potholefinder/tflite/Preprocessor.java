@@ -0,0 +1,130 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Single-pass crop + bilinear resize + normalize from ARGB pixels straight into an
+ * {@link InferenceBuffers} input tensor.
+ * <p>
+ * Source coordinates and blend weights are tabulated once per crop size, the inner loop
+ * works in 8-bit fixed point and each output row goes to the tensor with one bulk put.
+ * Normalization/quantization uses the buffers' lookup tables, so the result matches
+ * {@link InferenceBuffers#fillInput} for the same pixels. Pure Java; one instance per
+ * buffer set, not thread-safe.
+ */
+public final class Preprocessor {
+
+    private final InferenceBuffers dst;
+    private final int outW, outH;
+
+    // Per-crop-size sampling tables: source column/row pairs and 0..256 weights of the second
+    private int mappedW = -1, mappedH = -1;
+    private final int[] x0, x1, wx;
+    private final int[] y0, y1, wy;
+
+    // One output row, written to the tensor in bulk
+    private final float[] rowF;
+    private final byte[] rowB;
+    private final FloatBuffer inputFloats;
+
+    public Preprocessor(InferenceBuffers dst) {
+        this.dst = dst;
+        this.outW = dst.inW;
+        this.outH = dst.inH;
+        x0 = new int[outW];
+        x1 = new int[outW];
+        wx = new int[outW];
+        y0 = new int[outH];
+        y1 = new int[outH];
+        wy = new int[outH];
+        if (dst.inType == DataType.FLOAT32) {
+            rowF = new float[outW * 3];
+            rowB = null;
+            inputFloats = dst.input.asFloatBuffer();
+        } else {
+            rowF = null;
+            rowB = new byte[outW * 3];
+            inputFloats = null;
+        }
+    }
+
+    /**
+     * Resamples the crop {@code (cx, cy, cw, ch)} of {@code src} into the input tensor and
+     * leaves the input rewound for the interpreter.
+     *
+     * @param src    ARGB pixels, row-major
+     * @param stride pixels per source row
+     */
+    public ByteBuffer run(int[] src, int stride, int cx, int cy, int cw, int ch) {
+        if (cw != mappedW || ch != mappedH) map(cw, ch);
+
+        ByteBuffer input = dst.input;
+        input.clear();
+        if (inputFloats != null) inputFloats.clear();
+
+        float[] flut = dst.floatLut();
+        byte[] qlut = dst.quantLut();
+        for (int y = 0; y < outH; y++) {
+            int row0 = (cy + y0[y]) * stride + cx;
+            int row1 = (cy + y1[y]) * stride + cx;
+            int fy = wy[y], gy = 256 - fy;
+            for (int x = 0, o = 0; x < outW; x++, o += 3) {
+                int fx = wx[x], gx = 256 - fx;
+                int p00 = src[row0 + x0[x]], p01 = src[row0 + x1[x]];
+                int p10 = src[row1 + x0[x]], p11 = src[row1 + x1[x]];
+                int r = blend(p00 >> 16, p01 >> 16, p10 >> 16, p11 >> 16, gx, fx, gy, fy);
+                int g = blend(p00 >> 8, p01 >> 8, p10 >> 8, p11 >> 8, gx, fx, gy, fy);
+                int b = blend(p00, p01, p10, p11, gx, fx, gy, fy);
+                if (rowF != null) {
+                    rowF[o] = flut[r];
+                    rowF[o + 1] = flut[g];
+                    rowF[o + 2] = flut[b];
+                } else {
+                    rowB[o] = qlut[r];
+                    rowB[o + 1] = qlut[g];
+                    rowB[o + 2] = qlut[b];
+                }
+            }
+            if (rowF != null) inputFloats.put(rowF);
+            else input.put(rowB);
+        }
+        input.rewind();
+        return input;
+    }
+
+    /** Whole source image. */
+    public ByteBuffer run(int[] src, int w, int h) {
+        return run(src, w, 0, 0, w, h);
+    }
+
+    private static int blend(int c00, int c01, int c10, int c11, int gx, int fx, int gy, int fy) {
+        int top = (c00 & 0xFF) * gx + (c01 & 0xFF) * fx;
+        int bot = (c10 & 0xFF) * gx + (c11 & 0xFF) * fx;
+        return (top * gy + bot * fy + 32768) >>> 16;
+    }
+
+    /** Half-pixel-centre sampling positions, as Canvas/OpenCV bilinear resize use. */
+    private void map(int cw, int ch) {
+        axis(cw, outW, x0, x1, wx);
+        axis(ch, outH, y0, y1, wy);
+        mappedW = cw;
+        mappedH = ch;
+    }
+
+    private static void axis(int srcLen, int outLen, int[] i0, int[] i1, int[] w) {
+        float scale = (float) srcLen / outLen;
+        for (int i = 0; i < outLen; i++) {
+            float s = (i + 0.5f) * scale - 0.5f;
+            if (s < 0f) s = 0f;
+            int a = (int) s;
+            if (a > srcLen - 1) a = srcLen - 1;
+            int b = Math.min(a + 1, srcLen - 1);
+            i0[i] = a;
+            i1[i] = b;
+            w[i] = Math.round((s - a) * 256f);
+        }
+    }
+}
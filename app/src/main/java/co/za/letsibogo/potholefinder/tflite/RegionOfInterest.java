@@ -0,0 +1,51 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Part of the frame the detector looks at, as fractions of the frame size, e.g. the lower
+ * 60% of a dash-cam frame where the road is. Pixels outside it are never read.
+ */
+public final class RegionOfInterest {
+
+    public static final RegionOfInterest FULL = new RegionOfInterest(0f, 0f, 1f, 1f);
+
+    public final float left, top, right, bottom;
+
+    public RegionOfInterest(float left, float top, float right, float bottom) {
+        if (left < 0f || top < 0f || right > 1f || bottom > 1f || right <= left || bottom <= top) {
+            throw new IllegalArgumentException("ROI must be a non-empty box inside [0,1]: "
+                    + left + "," + top + "," + right + "," + bottom);
+        }
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /** Full width, bottom {@code fraction} of the height. */
+    public static RegionOfInterest lower(float fraction) {
+        return new RegionOfInterest(0f, 1f - fraction, 1f, 1f);
+    }
+
+    public boolean isFull() {
+        return left == 0f && top == 0f && right == 1f && bottom == 1f;
+    }
+
+    /**
+     * Pixel crop of a {@code w x h} frame, written to {@code out} as x, y, width, height.
+     * Always at least one pixel.
+     */
+    public void crop(int w, int h, int[] out) {
+        int x0 = Math.round(left * w), y0 = Math.round(top * h);
+        int x1 = Math.max(x0 + 1, Math.round(right * w)), y1 = Math.max(y0 + 1, Math.round(bottom * h));
+        x0 = Math.min(x0, w - 1);
+        y0 = Math.min(y0, h - 1);
+        out[0] = x0;
+        out[1] = y0;
+        out[2] = Math.min(x1, w) - x0;
+        out[3] = Math.min(y1, h) - y0;
+    }
+
+    @Override public String toString() {
+        return "roi[" + left + "," + top + "," + right + "," + bottom + "]";
+    }
+}
@@ -0,0 +1,83 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Tensor;
+
+import java.util.Arrays;
+
+/**
+ * Shape, element type and affine quantization of one model tensor, captured once at load
+ * time so buffers can be sized and converted without going back to the interpreter.
+ * <p>
+ * For quantized tensors {@code real = (q - zeroPoint) * scale}. A scale of 0 means the
+ * model carries no quantization parameters for the tensor.
+ */
+public final class TensorSpec {
+
+    public final int[] shape;
+    public final DataType type;
+    public final float scale;
+    public final int zeroPoint;
+    /** Name in the model graph, or null if not known. */
+    public final String name;
+
+    public TensorSpec(int[] shape, DataType type, float scale, int zeroPoint) {
+        this(shape, type, scale, zeroPoint, null);
+    }
+
+    public TensorSpec(int[] shape, DataType type, float scale, int zeroPoint, String name) {
+        this.shape = shape;
+        this.type = type;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        this.name = name;
+    }
+
+    /** Float tensor of the given shape. */
+    public static TensorSpec ofFloat(int... shape) {
+        return new TensorSpec(shape, DataType.FLOAT32, 0f, 0);
+    }
+
+    public static TensorSpec of(Tensor t) {
+        Tensor.QuantizationParams q = t.quantizationParams();
+        return new TensorSpec(t.shape(), t.dataType(),
+                q != null ? q.getScale() : 0f, q != null ? q.getZeroPoint() : 0, t.name());
+    }
+
+    public static TensorSpec[] ofFloat(int[][] shapes) {
+        TensorSpec[] specs = new TensorSpec[shapes.length];
+        for (int i = 0; i < shapes.length; i++) specs[i] = ofFloat(shapes[i]);
+        return specs;
+    }
+
+    public static int[][] shapes(TensorSpec[] specs) {
+        int[][] shapes = new int[specs.length][];
+        for (int i = 0; i < specs.length; i++) shapes[i] = specs[i].shape;
+        return shapes;
+    }
+
+    public static String[] names(TensorSpec[] specs) {
+        String[] names = new String[specs.length];
+        for (int i = 0; i < specs.length; i++) names[i] = specs[i].name;
+        return names;
+    }
+
+    /** UINT8 or INT8 with usable quantization parameters. */
+    public boolean isQuantized() {
+        return (type == DataType.UINT8 || type == DataType.INT8) && scale > 0f;
+    }
+
+    public int elements() {
+        int n = 1;
+        for (int d : shape) n *= d;
+        return n;
+    }
+
+    /** Smallest and largest raw value the element type can hold. */
+    public int minRaw() { return type == DataType.INT8 ? -128 : 0; }
+    public int maxRaw() { return type == DataType.INT8 ? 127 : 255; }
+
+    @Override public String toString() {
+        return Arrays.toString(shape) + " " + type + (isQuantized() ? " q(" + scale + ", " + zeroPoint + ")" : "");
+    }
+}
@@ -0,0 +1,82 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Merges detections from overlapping tiles into full-frame detections.
+ * <p>
+ * An object on a tile seam shows up as two partial boxes, one per tile, and their IoU is
+ * low even though they are the same object. Overlap is therefore measured as intersection
+ * over the smaller box (IoS), and matched boxes are merged into their union, keeping the
+ * best score. Input is already per-tile NMSed, so n is small and a greedy O(n²) pass is fine.
+ * <p>
+ * Not thread-safe; work arrays are reused and only grow.
+ */
+public class TileMerger {
+
+    private float iosThreshold = 0.5f;
+    private int[] order = new int[0];
+    private boolean[] absorbed = new boolean[0];
+
+    /** Same-class boxes whose intersection covers more than this fraction of the smaller one are merged. */
+    public TileMerger iosThreshold(float ios) { this.iosThreshold = ios; return this; }
+
+    /**
+     * @param boxes   4 floats per detection, full-frame coordinates; merged boxes are written in place
+     * @param keep    receives the indices of the merged detections, best first
+     * @return number of entries written to {@code keep}
+     */
+    public int merge(float[] boxes, float[] scores, int[] classes, int n, int[] keep) {
+        if (order.length < n) {
+            order = new int[n];
+            absorbed = new boolean[n];
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            absorbed[i] = false;
+        }
+        // Insertion sort by score, descending; n is a few hundred at most
+        for (int i = 1; i < n; i++) {
+            int v = order[i];
+            int j = i - 1;
+            while (j >= 0 && scores[order[j]] < scores[v]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+
+        int kept = 0;
+        for (int a = 0; a < n && kept < keep.length; a++) {
+            if (absorbed[a]) continue;
+            int i = order[a];
+            // Keep absorbing until the growing union stops picking up boxes
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                for (int b = a + 1; b < n; b++) {
+                    if (absorbed[b]) continue;
+                    int j = order[b];
+                    if (classes[i] != classes[j] || ios(boxes, i, j) <= iosThreshold) continue;
+                    absorbed[b] = true;
+                    int oi = i * 4, oj = j * 4;
+                    boxes[oi] = Math.min(boxes[oi], boxes[oj]);
+                    boxes[oi + 1] = Math.min(boxes[oi + 1], boxes[oj + 1]);
+                    boxes[oi + 2] = Math.max(boxes[oi + 2], boxes[oj + 2]);
+                    boxes[oi + 3] = Math.max(boxes[oi + 3], boxes[oj + 3]);
+                    grew = true;
+                }
+            }
+            keep[kept++] = i;
+        }
+        return kept;
+    }
+
+    private static float ios(float[] boxes, int i, int j) {
+        int a = i * 4, b = j * 4;
+        float inter = Math.max(0f, Math.min(boxes[a + 2], boxes[b + 2]) - Math.max(boxes[a], boxes[b]))
+                * Math.max(0f, Math.min(boxes[a + 3], boxes[b + 3]) - Math.max(boxes[a + 1], boxes[b + 1]));
+        float areaA = (boxes[a + 2] - boxes[a]) * (boxes[a + 3] - boxes[a + 1]);
+        float areaB = (boxes[b + 2] - boxes[b]) * (boxes[b + 3] - boxes[b + 1]);
+        float smaller = Math.min(areaA, areaB);
+        return smaller > 0f ? inter / smaller : 0f;
+    }
+}
@@ -0,0 +1,70 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+/**
+ * Splits a large frame into overlapping tiles for detection at native resolution, so small
+ * objects in 4K aerial footage are not shrunk away by a whole-frame resize.
+ * <p>
+ * Tiles start at {@code tileW x tileH} source pixels (normally the model input size) and are
+ * spread evenly so the first and last touch the frame edges, which makes the actual overlap
+ * at least the requested one. If that needs more than {@code maxTiles}, the tile size grows
+ * until the grid fits: fewer, coarser tiles trade recall for throughput.
+ */
+public final class TilePlanner {
+
+    private final int tileW, tileH;
+    private final float overlap;
+    private final int maxTiles;
+
+    /**
+     * @param overlap fraction of a tile shared with its neighbour, [0, 0.9]
+     */
+    public TilePlanner(int tileW, int tileH, float overlap, int maxTiles) {
+        if (tileW < 1 || tileH < 1) throw new IllegalArgumentException("tile size must be positive");
+        if (overlap < 0f || overlap > 0.9f) throw new IllegalArgumentException("overlap must be in [0, 0.9]");
+        if (maxTiles < 1) throw new IllegalArgumentException("maxTiles must be >= 1");
+        this.tileW = tileW;
+        this.tileH = tileH;
+        this.overlap = overlap;
+        this.maxTiles = maxTiles;
+    }
+
+    public int maxTiles() { return maxTiles; }
+
+    /**
+     * Writes the tiles for a {@code frameW x frameH} frame to {@code out} as x, y, w, h
+     * (4 ints per tile, row-major order; {@code out} needs {@code 4 * maxTiles()}).
+     * @return number of tiles
+     */
+    public int plan(int frameW, int frameH, int[] out) {
+        float scale = 1f;
+        int tw, th, nx, ny;
+        while (true) {
+            tw = Math.min(frameW, Math.round(tileW * scale));
+            th = Math.min(frameH, Math.round(tileH * scale));
+            nx = count(frameW, tw);
+            ny = count(frameH, th);
+            if (nx * ny <= maxTiles) break;
+            scale *= 1.1f;
+        }
+        int n = 0;
+        for (int j = 0; j < ny; j++) {
+            int y = ny == 1 ? (frameH - th) / 2 : Math.round((float) j * (frameH - th) / (ny - 1));
+            for (int i = 0; i < nx; i++) {
+                int x = nx == 1 ? (frameW - tw) / 2 : Math.round((float) i * (frameW - tw) / (nx - 1));
+                out[n * 4] = x;
+                out[n * 4 + 1] = y;
+                out[n * 4 + 2] = tw;
+                out[n * 4 + 3] = th;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Tiles needed along one axis for the requested overlap. */
+    private int count(int length, int tile) {
+        if (tile >= length) return 1;
+        float step = tile * (1f - overlap);
+        return (int) Math.ceil((length - tile) / step) + 1;
+    }
+}
@@ -0,0 +1,157 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detection on high-resolution frames at native resolution: the frame is cut into
+ * overlapping tiles ({@link TilePlanner}), each tile runs through the detector, and the
+ * per-tile boxes are mapped to full-frame coordinates and merged across seams
+ * ({@link TileMerger}).
+ * <p>
+ * Tiles are spread over the detector's interpreter pool, one worker per interpreter, so a
+ * pool of N runs N tiles at once. One frame is tiled at a time; a tile that fails is
+ * logged and the frame is merged from the others.
+ */
+public class TiledDetector implements Closeable {
+
+    private static final String TAG = "TiledDetector";
+    private static final int MAX_PER_TILE = 100;
+
+    private final PotholeDetector detector;
+    private final TilePlanner planner;
+    private final TileMerger merger = new TileMerger();
+    private final ExecutorService workers;   // null: tiles run on the calling thread
+
+    private final int[] tiles;
+    private int[] frame = new int[0];        // ARGB copy of a Bitmap frame
+
+    // Candidates from all tiles of the current frame
+    private final float[] boxes;
+    private final float[] scores;
+    private final int[] classes;
+    private final int[] keep;
+    private int count;                       // guarded by appendLock while tiles run
+    private final Object appendLock = new Object();
+
+    public TiledDetector(PotholeDetector detector, TilePlanner planner) {
+        this.detector = detector;
+        this.planner = planner;
+        this.tiles = new int[planner.maxTiles() * 4];
+        int cap = planner.maxTiles() * MAX_PER_TILE;
+        this.boxes = new float[cap * 4];
+        this.scores = new float[cap];
+        this.classes = new int[cap];
+        this.keep = new int[cap];
+
+        int parallelism = detector.getParallelism();
+        if (parallelism > 1) {
+            AtomicInteger n = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "TiledDetector-" + n.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            workers = null;
+        }
+    }
+
+    /** Same-class boxes overlapping more than this (intersection over the smaller box) are one object. */
+    public TiledDetector seamThreshold(float ios) {
+        merger.iosThreshold(ios);
+        return this;
+    }
+
+    public synchronized List<Detection> detect(Bitmap bitmap) throws InterruptedException {
+        int w = bitmap.getWidth(), h = bitmap.getHeight();
+        if (frame.length < w * h) frame = new int[w * h];
+        bitmap.getPixels(frame, 0, w, 0, 0, w, h);
+        return detect(frame, w, h);
+    }
+
+    /** @param argb {@code w x h} ARGB pixels, row-major; not modified */
+    public synchronized List<Detection> detect(int[] argb, int w, int h) throws InterruptedException {
+        List<Detection> results = new ArrayList<>();
+        if (!detector.isLoaded()) return results;
+
+        int n = planner.plan(w, h, tiles);
+        synchronized (appendLock) {
+            count = 0;
+        }
+        if (workers == null) {
+            for (int t = 0; t < n; t++) runTile(argb, w, h, t);
+        } else {
+            List<Future<?>> pending = new ArrayList<>(n);
+            for (int t = 0; t < n; t++) {
+                final int tile = t;
+                pending.add(workers.submit(() -> {
+                    runTile(argb, w, h, tile);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> f : pending) {
+                    try {
+                        f.get();
+                    } catch (ExecutionException e) {
+                        // Keep waiting: the other tiles are still writing this frame's candidates
+                        Log.e(TAG, "Tile failed", e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                for (Future<?> f : pending) f.cancel(true);
+                throw e;
+            }
+        }
+
+        int kept;
+        synchronized (appendLock) {
+            kept = merger.merge(boxes, scores, classes, count, keep);
+        }
+        for (int k = 0; k < kept; k++) {
+            int i = keep[k], o = i * 4;
+            results.add(new Detection(boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], scores[i], classes[i]));
+        }
+        return results;
+    }
+
+    private void runTile(int[] argb, int w, int h, int t) throws InterruptedException {
+        FrameSlot slot = detector.takeSlot();
+        if (slot == null) return;
+        try {
+            int o = t * 4;
+            int kept = detector.detectTile(slot, argb, w, h, tiles[o], tiles[o + 1], tiles[o + 2], tiles[o + 3]);
+            append(slot, Math.min(kept, MAX_PER_TILE));
+        } finally {
+            detector.release(slot);
+        }
+    }
+
+    private void append(FrameSlot slot, int kept) {
+        // Not on `this`: detect() holds that monitor while it waits for the tiles
+        synchronized (appendLock) {
+            for (int k = 0; k < kept && count < scores.length; k++) {
+                int i = slot.keep[k];
+                System.arraycopy(slot.boxes, i * 4, boxes, count * 4, 4);
+                scores[count] = slot.scores[i];
+                classes[count] = slot.classes[i];
+                count++;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) workers.shutdownNow();
+    }
+}
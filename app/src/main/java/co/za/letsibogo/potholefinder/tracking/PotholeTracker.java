@@ -0,0 +1,257 @@
+package co.za.letsibogo.potholefinder.tracking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import co.za.letsibogo.potholefinder.tflite.Detection;
+
+/**
+ * Lightweight multi-object tracker between the detector and the UI, so a pothole that
+ * stays in view for several frames is reported once.
+ * <p>
+ * Each frame, live tracks are moved along their constant-velocity prediction and then
+ * greedily associated with detections of the same class, preferring IoU overlap and
+ * falling back to centroid distance (boxes jump between samples at low frame rates).
+ * Unmatched detections start tentative tracks; a track is confirmed, and reported as a
+ * new pothole, after {@link Config#minHits} associations, and dropped after
+ * {@link Config#maxMisses} frames without one. Cost per frame is O(tracks x detections).
+ * <p>
+ * Frames may arrive slightly out of order from a parallel pipeline. One older than the
+ * last frame is dropped as late, since folding it in would run the tracks backwards in
+ * time; only a jump back of more than {@link Config#rewindThresholdUs}, i.e. the video
+ * restarting or being seeked, resets the tracks.
+ * <p>
+ * Not thread-safe: call {@link #update} from a single thread.
+ */
+public class PotholeTracker {
+
+    public static class Config {
+        /** Minimum IoU for an overlap match. */
+        public float iouThreshold = 0.3f;
+        /** Maximum centre distance (normalized) for a fallback match; 0 disables it. */
+        public float maxCentroidDistance = 0.15f;
+        /** Associations needed before a track counts as a pothole. */
+        public int minHits = 2;
+        /** Consecutive frames without a match before a track is dropped. */
+        public int maxMisses = 3;
+        /** Predict box motion from the track's velocity between frames. */
+        public boolean useMotionModel = true;
+        /** Velocity smoothing gain, 0..1. */
+        public float velocityGain = 0.5f;
+        /** A frame further back in time than this is a rewind and resets the tracks; a nearer one is late and dropped. */
+        public long rewindThresholdUs = 1_000_000;
+    }
+
+    private final Config config;
+    private final List<Track> tracks = new ArrayList<>();
+    private long nextId = 1;
+    private long confirmedCount = 0;
+    private long lastTimestampUs = Long.MIN_VALUE;
+    private int matchedLastFrame = 0;
+    private long lateFrameCount = 0;
+
+    // Reused association scratch
+    private float[] affinity = new float[0];
+    private int[] pairTrack = new int[0];
+    private int[] pairDet = new int[0];
+    private boolean[] trackUsed = new boolean[0];
+    private boolean[] detUsed = new boolean[0];
+    private float[] prevCy = new float[0];
+    private float[] prevCx = new float[0];
+
+    public PotholeTracker() { this(new Config()); }
+
+    public PotholeTracker(Config config) { this.config = config; }
+
+    /**
+     * Feeds one frame of detections.
+     * @return tracks confirmed by this frame, i.e. newly found potholes (usually empty)
+     */
+    public List<Track> update(long timestampUs, List<Detection> detections) {
+        if (lastTimestampUs != Long.MIN_VALUE && timestampUs < lastTimestampUs) {
+            if (lastTimestampUs - timestampUs > config.rewindThresholdUs) {
+                reset();  // video restarted or seeked back
+            } else {
+                lateFrameCount++;  // overtaken in the pipeline by a newer frame
+                return Collections.emptyList();
+            }
+        }
+        long dt = lastTimestampUs == Long.MIN_VALUE ? 0 : timestampUs - lastTimestampUs;
+        lastTimestampUs = timestampUs;
+
+        int t = tracks.size();
+        int d = detections.size();
+        ensureCapacity(t, d);
+
+        // 1. Predict
+        for (int i = 0; i < t; i++) {
+            Track tr = tracks.get(i);
+            prevCy[i] = tr.centerY();
+            prevCx[i] = tr.centerX();
+            if (config.useMotionModel && dt > 0) {
+                float dy = tr.vy * dt, dx = tr.vx * dt;
+                tr.ymin += dy; tr.ymax += dy;
+                tr.xmin += dx; tr.xmax += dx;
+            }
+            trackUsed[i] = false;
+        }
+        for (int j = 0; j < d; j++) detUsed[j] = false;
+
+        // 2. Score candidate pairs
+        int pairs = 0;
+        float maxDist = config.maxCentroidDistance;
+        for (int i = 0; i < t; i++) {
+            Track tr = tracks.get(i);
+            for (int j = 0; j < d; j++) {
+                Detection det = detections.get(j);
+                if (det.classId != tr.classId) continue;
+                float a = iou(tr, det);
+                if (a >= config.iouThreshold) {
+                    a += 1f;  // any overlap match beats any distance match
+                } else if (maxDist > 0) {
+                    float dy = (det.ymin + det.ymax) * 0.5f - tr.centerY();
+                    float dx = (det.xmin + det.xmax) * 0.5f - tr.centerX();
+                    float dist = (float) Math.sqrt(dy * dy + dx * dx);
+                    if (dist > maxDist) continue;
+                    a = 1f - dist / maxDist;
+                } else {
+                    continue;
+                }
+                affinity[pairs] = a;
+                pairTrack[pairs] = i;
+                pairDet[pairs] = j;
+                pairs++;
+            }
+        }
+
+        // 3. Greedy assignment, best affinity first
+        sortPairsDescending(pairs);
+        int matched = 0;
+        for (int p = 0; p < pairs; p++) {
+            int i = pairTrack[p], j = pairDet[p];
+            if (trackUsed[i] || detUsed[j]) continue;
+            trackUsed[i] = true;
+            detUsed[j] = true;
+            matched++;
+            correct(tracks.get(i), detections.get(j), prevCy[i], prevCx[i], dt, timestampUs);
+        }
+        matchedLastFrame = matched;
+
+        // 4. Confirm, age and drop tracks
+        List<Track> confirmedNow = new ArrayList<>(0);
+        for (int i = 0; i < t; i++) {
+            Track tr = tracks.get(i);
+            if (trackUsed[i]) {
+                tr.misses = 0;
+                if (!tr.confirmed && tr.hits >= config.minHits) {
+                    tr.confirmed = true;
+                    confirmedCount++;
+                    confirmedNow.add(tr);
+                }
+            } else {
+                tr.misses++;
+            }
+        }
+        Iterator<Track> it = tracks.iterator();
+        while (it.hasNext()) {
+            if (it.next().misses > config.maxMisses) it.remove();
+        }
+
+        // 5. New tentative tracks for unmatched detections
+        for (int j = 0; j < d; j++) {
+            if (detUsed[j]) continue;
+            Detection det = detections.get(j);
+            Track tr = new Track(nextId++, det.classId, det.ymin, det.xmin, det.ymax, det.xmax, det.score, timestampUs);
+            tracks.add(tr);
+            if (config.minHits <= 1) {
+                tr.confirmed = true;
+                confirmedCount++;
+                confirmedNow.add(tr);
+            }
+        }
+        return confirmedNow;
+    }
+
+    /** Drops all tracks; confirmed totals are kept. */
+    public void reset() {
+        tracks.clear();
+        lastTimestampUs = Long.MIN_VALUE;
+        matchedLastFrame = 0;
+    }
+
+    public int liveTrackCount() { return tracks.size(); }
+
+    /** Confirmed potholes currently in view (matched in the last frame). */
+    public int visibleCount() {
+        int n = 0;
+        for (Track tr : tracks) if (tr.confirmed && tr.misses == 0) n++;
+        return n;
+    }
+
+    /** Tracks associated with a detection in the last frame. */
+    public int matchedLastFrame() { return matchedLastFrame; }
+
+    /** Frames dropped for arriving after a newer one. */
+    public long lateFrameCount() { return lateFrameCount; }
+
+    /** Total potholes confirmed since construction. */
+    public long confirmedCount() { return confirmedCount; }
+
+    private void correct(Track tr, Detection det, float prevCy, float prevCx, long dt, long timestampUs) {
+        if (config.useMotionModel && dt > 0) {
+            float cy = (det.ymin + det.ymax) * 0.5f, cx = (det.xmin + det.xmax) * 0.5f;
+            float g = config.velocityGain;
+            tr.vy = (1 - g) * tr.vy + g * (cy - prevCy) / dt;
+            tr.vx = (1 - g) * tr.vx + g * (cx - prevCx) / dt;
+        }
+        tr.ymin = det.ymin; tr.xmin = det.xmin; tr.ymax = det.ymax; tr.xmax = det.xmax;
+        tr.hits++;
+        tr.lastSeenUs = timestampUs;
+        if (det.score > tr.bestScore) tr.bestScore = det.score;
+    }
+
+    private static float iou(Track tr, Detection d) {
+        float ymin = Math.max(tr.ymin, d.ymin), xmin = Math.max(tr.xmin, d.xmin);
+        float ymax = Math.min(tr.ymax, d.ymax), xmax = Math.min(tr.xmax, d.xmax);
+        float inter = Math.max(0f, ymax - ymin) * Math.max(0f, xmax - xmin);
+        float a = (tr.ymax - tr.ymin) * (tr.xmax - tr.xmin);
+        float b = (d.ymax - d.ymin) * (d.xmax - d.xmin);
+        float union = a + b - inter;
+        return union > 0f ? inter / union : 0f;
+    }
+
+    // Pair counts are tiny (live tracks x detections after NMS): insertion sort
+    private void sortPairsDescending(int n) {
+        for (int i = 1; i < n; i++) {
+            float a = affinity[i];
+            int ti = pairTrack[i], di = pairDet[i];
+            int j = i - 1;
+            while (j >= 0 && affinity[j] < a) {
+                affinity[j + 1] = affinity[j];
+                pairTrack[j + 1] = pairTrack[j];
+                pairDet[j + 1] = pairDet[j];
+                j--;
+            }
+            affinity[j + 1] = a;
+            pairTrack[j + 1] = ti;
+            pairDet[j + 1] = di;
+        }
+    }
+
+    private void ensureCapacity(int t, int d) {
+        if (trackUsed.length < t) {
+            trackUsed = new boolean[t * 2];
+            prevCy = new float[t * 2];
+            prevCx = new float[t * 2];
+        }
+        if (detUsed.length < d) detUsed = new boolean[d * 2];
+        int pairs = t * d;
+        if (affinity.length < pairs) {
+            affinity = new float[pairs * 2];
+            pairTrack = new int[pairs * 2];
+            pairDet = new int[pairs * 2];
+        }
+    }
+}
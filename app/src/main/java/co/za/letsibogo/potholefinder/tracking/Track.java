@@ -0,0 +1,45 @@
+package co.za.letsibogo.potholefinder.tracking;
+
+/** One pothole followed across frames. Box coordinates are normalized [0..1]. */
+public class Track {
+
+    public final long id;
+    public final int classId;
+    public final long firstSeenUs;
+
+    // Last associated (or predicted) box
+    float ymin, xmin, ymax, xmax;
+    // Centre velocity in normalized units per microsecond
+    float vy, vx;
+
+    int hits = 1;
+    int misses = 0;
+    boolean confirmed = false;
+    long lastSeenUs;
+    float bestScore;
+
+    Track(long id, int classId, float ymin, float xmin, float ymax, float xmax, float score, long timestampUs) {
+        this.id = id;
+        this.classId = classId;
+        this.ymin = ymin; this.xmin = xmin; this.ymax = ymax; this.xmax = xmax;
+        this.bestScore = score;
+        this.firstSeenUs = timestampUs;
+        this.lastSeenUs = timestampUs;
+    }
+
+    public float ymin() { return ymin; }
+    public float xmin() { return xmin; }
+    public float ymax() { return ymax; }
+    public float xmax() { return xmax; }
+    public int hits() { return hits; }
+    public boolean isConfirmed() { return confirmed; }
+    public long lastSeenUs() { return lastSeenUs; }
+    public float bestScore() { return bestScore; }
+
+    float centerY() { return (ymin + ymax) * 0.5f; }
+    float centerX() { return (xmin + xmax) * 0.5f; }
+
+    @Override public String toString() {
+        return "track{#" + id + " cls=" + classId + " hits=" + hits + (confirmed ? " confirmed" : "") + "}";
+    }
+}
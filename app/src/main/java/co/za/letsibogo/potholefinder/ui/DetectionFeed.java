@@ -0,0 +1,135 @@
+package co.za.letsibogo.potholefinder.ui;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * What the detection screen shows, handed from the worker threads to the UI without locks.
+ * <p>
+ * Writers {@link #publish} results as they come; each publish swaps in a new immutable
+ * {@link Snapshot} that folds in everything before it (the recent labels live in a
+ * fixed-size ring, the counts are cumulative). The UI reads only the newest snapshot, at
+ * most once per display frame, however many results arrived in between. {@link #publish}
+ * returns true only for the first result after a {@link #take}, so the caller wakes the
+ * UI once per frame rather than once per result.
+ * <p>
+ * Thread-safe; {@link #take} is for the one thread that renders.
+ */
+public class DetectionFeed {
+
+    /** One consistent view of the screen state. Immutable. */
+    public static final class Snapshot {
+        /** Bumped by {@link #clear}, so a renderer can tell a reset from a quiet spell. */
+        public final int generation;
+        /** Frame results published, all generations. */
+        public final long frames;
+        /** Potholes currently tracked, as of the newest frame. */
+        public final int visible;
+        /** Labels ever added this generation; the ring keeps the newest. */
+        public final long recentTotal;
+        /** Confirmed potholes with no position, this generation. */
+        public final int unlocated;
+        /** Bumped whenever new potholes were added to the map's index. */
+        public final long markerVersion;
+        private final String[] ring;   // label n is at n % ring.length
+
+        Snapshot(int generation, long frames, int visible, String[] ring, long recentTotal,
+                 int unlocated, long markerVersion) {
+            this.generation = generation;
+            this.frames = frames;
+            this.visible = visible;
+            this.ring = ring;
+            this.recentTotal = recentTotal;
+            this.unlocated = unlocated;
+            this.markerVersion = markerVersion;
+        }
+
+        /** Labels held, at most the ring's capacity. */
+        public int recentCount() {
+            return (int) Math.min(recentTotal, ring.length);
+        }
+
+        /** @param i 0 for the newest label */
+        public String recent(int i) {
+            return ring[(int) ((recentTotal - 1 - i) % ring.length)];
+        }
+
+        public int capacity() {
+            return ring.length;
+        }
+    }
+
+    private final AtomicReference<Snapshot> latest;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile long wokenNs;
+
+    /** @param capacity recent labels kept */
+    public DetectionFeed(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        latest = new AtomicReference<>(new Snapshot(0, 0, 0, new String[capacity], 0, 0, 0));
+    }
+
+    /**
+     * Folds one result into the feed.
+     * @param visible        tracked potholes now, or -1 to keep the last count (not a frame result)
+     * @param labels         recent-list lines to add, oldest first; may be empty
+     * @param unlocated      confirmed potholes with no position to add to the count
+     * @param markersChanged whether the map's index gained potholes
+     * @return true if the renderer has to be woken; false if it already is
+     */
+    public boolean publish(int visible, String[] labels, int unlocated, boolean markersChanged) {
+        Snapshot prev, next;
+        do {
+            prev = latest.get();
+            String[] ring = prev.ring;
+            long total = prev.recentTotal;
+            if (labels.length > 0) {
+                ring = ring.clone();
+                // Only the newest labels survive a batch bigger than the ring
+                for (int i = Math.max(0, labels.length - ring.length); i < labels.length; i++) {
+                    ring[(int) ((total + i) % ring.length)] = labels[i];
+                }
+                total += labels.length;
+            }
+            next = new Snapshot(prev.generation,
+                    visible >= 0 ? prev.frames + 1 : prev.frames,
+                    visible >= 0 ? visible : prev.visible,
+                    ring, total, prev.unlocated + unlocated,
+                    markersChanged ? prev.markerVersion + 1 : prev.markerVersion);
+        } while (!latest.compareAndSet(prev, next));
+        return wake();
+    }
+
+    /** Empties the recent list and counts; tracked and marker state keep counting. */
+    public boolean clear() {
+        Snapshot prev, next;
+        do {
+            prev = latest.get();
+            next = new Snapshot(prev.generation + 1, prev.frames, 0, new String[prev.ring.length], 0, 0,
+                    prev.markerVersion + 1);
+        } while (!latest.compareAndSet(prev, next));
+        return wake();
+    }
+
+    private boolean wake() {
+        if (!pending.compareAndSet(false, true)) return false;
+        wokenNs = System.nanoTime();
+        return true;
+    }
+
+    /** The newest snapshot; publishes from here on wake the renderer again. */
+    public Snapshot take() {
+        pending.set(false);
+        return latest.get();
+    }
+
+    /** The newest snapshot, without re-arming the wake-up. */
+    public Snapshot peek() {
+        return latest.get();
+    }
+
+    /** {@link System#nanoTime()} of the publish that last woke the renderer. */
+    public long wokenNs() {
+        return wokenNs;
+    }
+}
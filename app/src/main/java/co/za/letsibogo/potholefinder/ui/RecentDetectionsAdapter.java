@@ -0,0 +1,68 @@
+package co.za.letsibogo.potholefinder.ui;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import co.za.letsibogo.potholefinder.R;
+
+/**
+ * The recent-detections list, newest first, straight off a {@link DetectionFeed.Snapshot}'s
+ * ring. Rows are recycled, so a new detection rebinds an existing row instead of inflating
+ * one, and {@link #show} tells the RecyclerView only which rows moved in and out.
+ * <p>
+ * Main thread only.
+ */
+public class RecentDetectionsAdapter extends RecyclerView.Adapter<RecentDetectionsAdapter.Row> {
+
+    static final class Row extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        Row(TextView text) {
+            super(text);
+            this.text = text;
+        }
+    }
+
+    private DetectionFeed.Snapshot shown;
+
+    public RecentDetectionsAdapter(DetectionFeed.Snapshot initial) {
+        this.shown = initial;
+    }
+
+    /** Shows {@code next}, as a range insert at the top and a range removal at the bottom. */
+    public void show(DetectionFeed.Snapshot next) {
+        DetectionFeed.Snapshot prev = shown;
+        shown = next;
+        long added = next.recentTotal - prev.recentTotal;
+        if (next.generation != prev.generation || added < 0 || added >= next.capacity()) {
+            notifyDataSetChanged();
+            return;
+        }
+        if (added == 0) return;
+        notifyItemRangeInserted(0, (int) added);
+        int overflow = prev.recentCount() + (int) added - next.recentCount();
+        if (overflow > 0) notifyItemRangeRemoved(next.recentCount(), overflow);
+    }
+
+    @NonNull
+    @Override
+    public Row onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_recent_detection, parent, false);
+        return new Row((TextView) v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Row row, int position) {
+        row.text.setText(shown.recent(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return shown.recentCount();
+    }
+}
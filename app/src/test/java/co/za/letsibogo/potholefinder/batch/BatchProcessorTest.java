@@ -0,0 +1,131 @@
+package co.za.letsibogo.potholefinder.batch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import co.za.letsibogo.potholefinder.source.FrameSource;
+import co.za.letsibogo.potholefinder.source.TimedFrame;
+import co.za.letsibogo.potholefinder.tflite.Detection;
+
+import static org.junit.Assert.*;
+
+public class BatchProcessorTest {
+
+    /** 30 fps fake video whose frames are just their index. */
+    static class FakeSource implements FrameSource<Integer> {
+        final int frames;
+        int next = 0;
+        int skipped = 0;
+        boolean closed = false;
+
+        FakeSource(int frames) { this.frames = frames; }
+
+        @Override public TimedFrame<Integer> next() {
+            if (next >= frames) return null;
+            int i = next++;
+            return new TimedFrame<>(i, i * 33_333L, i);
+        }
+
+        @Override public TimedFrame<Integer> nextAt(long timestampUs) {
+            TimedFrame<Integer> f;
+            while ((f = next()) != null && f.timestampUs < timestampUs) { }
+            return f;
+        }
+
+        @Override public int skip(int count) {
+            int n = Math.min(count, frames - next);
+            next += n;
+            skipped += n;
+            return n;
+        }
+
+        @Override public long durationUs() { return frames * 33_333L; }
+
+        @Override public void close() { closed = true; }
+    }
+
+    /** Fake detector: one pothole on every 10th frame. */
+    private static List<Detection> detectEveryTenth(Integer frame) {
+        List<Detection> out = new ArrayList<>();
+        if (frame % 10 == 0) out.add(new Detection(0.1f, 0.1f, 0.2f, 0.2f, 0.9f, 1));
+        return out;
+    }
+
+    @Test
+    public void processesEveryFrameAndReportsHitsInOrder() throws Exception {
+        FakeSource source = new FakeSource(300);
+        BatchProcessor.Options opts = new BatchProcessor.Options();
+        opts.inferThreads = 3;
+        BatchProcessor<Integer, Integer> p = new BatchProcessor<>(source, f -> f,
+                BatchProcessorTest::detectEveryTenth, opts, null);
+
+        BatchReport report = p.run();
+
+        assertEquals(300, report.framesDecoded);
+        assertEquals(300, report.framesProcessed);
+        assertEquals(30, report.totalDetections);
+        assertEquals(30, report.hits.size());
+        for (int i = 1; i < report.hits.size(); i++) {
+            assertTrue(report.hits.get(i - 1).timestampUs < report.hits.get(i).timestampUs);
+        }
+        assertFalse(report.cancelled);
+        assertTrue(report.framesPerSecond() > 0);
+    }
+
+    @Test
+    public void strideSkipsFramesInTheSource() throws Exception {
+        FakeSource source = new FakeSource(100);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        BatchProcessor.Options opts = new BatchProcessor.Options();
+        opts.stride = 5;
+        BatchProcessor<Integer, Integer> p = new BatchProcessor<>(source, f -> { seen.add(f); return f; },
+                BatchProcessorTest::detectEveryTenth, opts, null);
+
+        BatchReport report = p.run();
+
+        assertEquals(20, report.framesProcessed);
+        assertEquals(80, source.skipped);
+        for (int f : seen) assertEquals(0, f % 5);
+        assertEquals(10, report.hits.size());  // 0, 10, 20, ... 90
+    }
+
+    @Test
+    public void reportsProgress() throws Exception {
+        List<BatchProcessor.Progress> progress = Collections.synchronizedList(new ArrayList<>());
+        BatchProcessor.Options opts = new BatchProcessor.Options();
+        opts.progressIntervalMs = 0;
+        BatchProcessor<Integer, Integer> p = new BatchProcessor<>(new FakeSource(50), f -> f,
+                BatchProcessorTest::detectEveryTenth, opts, progress::add);
+
+        p.run();
+
+        assertFalse(progress.isEmpty());
+        BatchProcessor.Progress last = progress.get(progress.size() - 1);
+        assertTrue(last.fraction() > 0 && last.fraction() <= 1);
+    }
+
+    @Test
+    public void cancelStopsEarlyAndRecyclesQueuedFrames() throws Exception {
+        AtomicInteger recycled = new AtomicInteger();
+        BatchProcessor.Options opts = new BatchProcessor.Options();
+        opts.recycler = item -> recycled.incrementAndGet();
+        AtomicReference<BatchProcessor<Integer, Integer>> processor = new AtomicReference<>();
+        processor.set(new BatchProcessor<>(new FakeSource(10_000), f -> f,
+                f -> {
+                    if (f == 20) processor.get().cancel();
+                    Thread.sleep(1);
+                    return detectEveryTenth(f);
+                }, opts, null));
+
+        BatchReport report = processor.get().run();
+
+        assertTrue(report.cancelled);
+        assertTrue(report.framesProcessed < 10_000);
+        assertEquals(report.framesDecoded, report.framesProcessed + recycled.get());
+    }
+}
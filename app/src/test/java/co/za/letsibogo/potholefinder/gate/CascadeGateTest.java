@@ -0,0 +1,91 @@
+package co.za.letsibogo.potholefinder.gate;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CascadeGateTest {
+
+    private static CascadeGate gate(float threshold, int auditEvery) {
+        CascadeGate.Config c = new CascadeGate.Config();
+        c.threshold = threshold;
+        c.auditEvery = auditEvery;
+        c.bins = 10;
+        return new CascadeGate(c);
+    }
+
+    @Test
+    public void framesUnderTheThresholdAreSkipped() {
+        CascadeGate g = gate(0.5f, 0);
+        assertEquals(CascadeGate.Decision.PASS, g.decide(0, 0.5f, 1000));
+        assertEquals(CascadeGate.Decision.SKIP, g.decide(1, 0.49f, 1000));
+        assertEquals(CascadeGate.Decision.PASS, g.decide(2, 0.9f, 1000));
+        assertEquals(2f / 3, g.passRate(), 1e-6f);
+        assertEquals(1, g.skippedCount());
+        assertEquals(0, g.auditedCount());
+    }
+
+    @Test
+    public void fullAuditCountsMissesAndRecall() {
+        CascadeGate g = gate(0.5f, 1);
+        // Scores and whether the detector finds a pothole in each frame
+        float[] scores = {0.9f, 0.8f, 0.7f, 0.3f, 0.2f, 0.1f, 0.05f, 0.6f};
+        boolean[] potholes = {true, true, false, true, false, false, false, true};
+        for (int i = 0; i < scores.length; i++) {
+            CascadeGate.Decision d = g.decide(i, scores[i], 1000);
+            assertNotEquals(CascadeGate.Decision.SKIP, d);
+            g.detected(i, potholes[i]);
+        }
+        assertEquals(4, g.passedCount());
+        assertEquals(4, g.auditedCount());
+        assertEquals(1, g.missedCount());
+        assertEquals(3f / 4, g.recall(), 1e-6f);
+
+        // Every frame was detected, so the sweep is exact
+        assertEquals(1f, g.recallAt(0.3f), 1e-6f);
+        assertEquals(5f / 8, g.passRateAt(0.3f), 1e-6f);
+        assertEquals(2f / 4, g.recallAt(0.75f), 1e-6f);
+    }
+
+    @Test
+    public void sampledAuditsAreWeighted() {
+        CascadeGate g = gate(0.5f, 4);
+        int audits = 0;
+        for (int i = 0; i < 8; i++) {
+            CascadeGate.Decision d = g.decide(i, 0.1f, 1000);
+            if (d == CascadeGate.Decision.AUDIT) {
+                audits++;
+                g.detected(i, true);
+            }
+        }
+        assertEquals(2, audits);
+        assertEquals(6, g.skippedCount());
+        g.decide(8, 0.9f, 1000);
+        g.detected(8, true);
+        // 1 pothole frame passed; 2 audited misses stand for 8 skipped pothole frames
+        assertEquals(1f / 9, g.recall(), 1e-6f);
+    }
+
+    @Test
+    public void savingsAreSkippedDetectorTimeLessGateCost() {
+        CascadeGate g = gate(0.5f, 0);
+        g.decide(0, 0.9f, 1_000_000);
+        g.recordDetector(40_000_000);
+        g.detected(0, false);
+        for (int i = 1; i < 4; i++) g.decide(i, 0.1f, 1_000_000);
+
+        assertEquals(40f, g.meanDetectorMs(), 1e-3f);
+        assertEquals(1f, g.meanGateMs(), 1e-3f);
+        assertEquals(3 * 40f / 4 - 1f, g.savedMsPerFrame(), 1e-3f);
+        assertTrue(g.toJson().contains("\"savedMsPerFrame\":29.000"));
+    }
+
+    @Test
+    public void droppedFramesLeaveNoOutcome() {
+        CascadeGate g = gate(0.5f, 0);
+        g.decide(0, 0.9f, 0);
+        g.dropped(0);
+        g.detected(0, true);
+        assertTrue(Float.isNaN(g.recall()));
+    }
+}
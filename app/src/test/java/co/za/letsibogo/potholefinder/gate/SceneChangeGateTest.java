@@ -0,0 +1,88 @@
+package co.za.letsibogo.potholefinder.gate;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SceneChangeGateTest {
+
+    private static final int W = 640, H = 360;
+    private static final long FRAME_US = 100_000;
+
+    private static int[] scene(long seed) {
+        Random rnd = new Random(seed);
+        int[] px = new int[W * H];
+        // Blocky content so point sampling sees real structure
+        for (int by = 0; by < H; by += 20) {
+            for (int bx = 0; bx < W; bx += 20) {
+                int v = rnd.nextInt(256);
+                int p = 0xFF000000 | (v << 16) | (v << 8) | v;
+                for (int y = by; y < Math.min(H, by + 20); y++)
+                    for (int x = bx; x < Math.min(W, bx + 20); x++) px[y * W + x] = p;
+            }
+        }
+        return px;
+    }
+
+    private static int[] withNoise(int[] src, int amplitude, long seed) {
+        Random rnd = new Random(seed);
+        int[] out = src.clone();
+        for (int i = 0; i < out.length; i++) {
+            int v = Math.max(0, Math.min(255, (out[i] & 0xFF) + rnd.nextInt(2 * amplitude + 1) - amplitude));
+            out[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        return out;
+    }
+
+    @Test
+    public void stationaryFramesAreSkippedAndSceneChangesPass() {
+        SceneChangeGate gate = new SceneChangeGate();
+        int[] a = scene(1), b = scene(2);
+
+        assertTrue(gate.accept(a, W, H, 0));                 // first frame always passes
+        for (int f = 1; f <= 8; f++) {
+            assertFalse(gate.accept(withNoise(a, 2, f), W, H, f * FRAME_US));
+        }
+        assertTrue(gate.accept(b, W, H, 9 * FRAME_US));
+
+        assertEquals(10, gate.framesSeen());
+        assertEquals(8, gate.framesSkipped());
+        assertEquals(0.8f, gate.skipRate(), 1e-6f);
+    }
+
+    @Test
+    public void maxSkipForcesARefresh() {
+        SceneChangeGate.Config cfg = new SceneChangeGate.Config();
+        cfg.maxSkipUs = 5 * FRAME_US;
+        SceneChangeGate gate = new SceneChangeGate(cfg);
+        int[] a = scene(3);
+
+        int passed = 0;
+        for (int f = 0; f < 11; f++) if (gate.accept(a, W, H, f * FRAME_US)) passed++;
+
+        assertEquals(3, passed);   // frames 0, 5 and 10
+    }
+
+    @Test
+    public void rowSourceAndArrayAgree() {
+        int[] a = scene(4), b = scene(5);
+        SceneChangeGate viaArray = new SceneChangeGate(), viaRows = new SceneChangeGate();
+        viaArray.accept(a, W, H, 0);
+        viaRows.accept((y, dst) -> System.arraycopy(a, y * W, dst, 0, W), W, H, 0);
+        viaArray.accept(b, W, H, FRAME_US);
+        viaRows.accept((y, dst) -> System.arraycopy(b, y * W, dst, 0, W), W, H, FRAME_US);
+
+        assertEquals(viaArray.lastDifference(), viaRows.lastDifference(), 1e-6f);
+        assertTrue(viaArray.lastDifference() > 20f);
+    }
+
+    @Test
+    public void goingBackInTimeResetsTheReference() {
+        SceneChangeGate gate = new SceneChangeGate();
+        int[] a = scene(6);
+        gate.accept(a, W, H, 10 * FRAME_US);
+        assertTrue(gate.accept(a, W, H, 0));
+    }
+}
@@ -0,0 +1,60 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class DjiSrtReaderTest {
+
+    private static TelemetryTrack read(String srt) throws IOException {
+        return DjiSrtReader.read(new ByteArrayInputStream(srt.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readsBracketedFormat() throws IOException {
+        TelemetryTrack t = read("1\n"
+                + "00:00:00,000 --> 00:00:00,033\n"
+                + "<font size=\"28\">FrameCnt: 1, DiffTime: 33ms\n"
+                + "2023-03-10 14:22:31.123\n"
+                + "[iso: 100] [shutter: 1/1000.0] [latitude: -26.041317] [longitude: 28.958024] "
+                + "[rel_alt: 50.000 abs_alt: 1650.123] </font>\n"
+                + "\n"
+                + "2\n"
+                + "00:01:02,500 --> 00:01:02,533\n"
+                + "[latitude: -26.041400] [longitude: 28.958100] [rel_alt: 50.000 abs_alt: 1650.500]\n");
+
+        assertEquals(TelemetryTrack.TimeBase.MEDIA, t.timeBase());
+        assertEquals(2, t.size());
+        assertEquals(62_500_000L, t.endUs());
+        double[] out = new double[4];
+        assertTrue(t.locate(0, out));
+        assertEquals(-26.041317, out[TelemetryTrack.LAT], 1e-9);
+        assertEquals(28.958024, out[TelemetryTrack.LON], 1e-9);
+        assertEquals(1650.123, out[TelemetryTrack.ALT], 1e-3);
+    }
+
+    @Test
+    public void readsLegacyGpsFormatLongitudeFirst() throws IOException {
+        TelemetryTrack t = read("1\n00:00:01,000 --> 00:00:02,000\n"
+                + "HOME(28.9500,-26.0400) 2017.08.05 14:11:51\n"
+                + "GPS(28.958024,-26.041317,19) BAROMETER:64.4\n\n");
+
+        double[] out = new double[4];
+        assertTrue(t.locate(1_000_000, out));
+        assertEquals(-26.041317, out[TelemetryTrack.LAT], 1e-9);
+        assertEquals(28.958024, out[TelemetryTrack.LON], 1e-9);
+        assertEquals(19, out[TelemetryTrack.ALT], 1e-6);
+    }
+
+    @Test
+    public void skipsEntriesWithoutALock() throws IOException {
+        TelemetryTrack t = read("1\n00:00:00,000 --> 00:00:00,033\n[latitude: 0.000000] [longitude: 0.000000]\n\n"
+                + "2\n00:00:00,033 --> 00:00:00,066\n[iso: 100]\n\n");
+
+        assertTrue(t.isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GpxReaderTest {
+
+    private static TelemetryTrack read(String xml) throws IOException {
+        return GpxReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readsTrackPointsWithTimesAndSpeed() throws IOException {
+        TelemetryTrack t = read("<?xml version='1.0'?>"
+                + "<gpx version='1.1' xmlns:gpxtpx='http://www.garmin.com/xmlschemas/TrackPointExtension/v2'><trk><trkseg>"
+                + "<trkpt lat='-26.0413' lon='28.9580'><ele>1601.5</ele><time>2023-03-10T14:22:31Z</time></trkpt>"
+                + "<trkpt lat='-26.0414' lon='28.9581'><time>2023-03-10T14:22:32.500Z</time>"
+                + "<extensions><gpxtpx:TrackPointExtension><gpxtpx:speed>7.5</gpxtpx:speed></gpxtpx:TrackPointExtension></extensions></trkpt>"
+                + "<trkpt lat='-26.0415' lon='28.9582'></trkpt>"   // no time: unusable
+                + "</trkseg></trk></gpx>");
+
+        assertEquals(TelemetryTrack.TimeBase.EPOCH, t.timeBase());
+        assertEquals(2, t.size());
+        assertEquals(1_678_458_151_000_000L, t.startUs());
+        assertEquals(1_678_458_152_500_000L, t.endUs());
+
+        double[] out = new double[4];
+        assertTrue(t.locate(t.endUs(), out));
+        assertEquals(-26.0414, out[TelemetryTrack.LAT], 1e-9);
+        assertEquals(7.5, out[TelemetryTrack.SPEED], 1e-6);
+    }
+
+    @Test
+    public void parsesIsoTimesWithOffsetsAndFractions() {
+        assertEquals(0L, GpxReader.parseIso8601Us("1970-01-01T00:00:00Z"));
+        assertEquals(1_678_458_151_123_456L, GpxReader.parseIso8601Us("2023-03-10T14:22:31.123456Z"));
+        assertEquals(1_678_458_151_000_000L, GpxReader.parseIso8601Us("2023-03-10T16:22:31+02:00"));
+        assertEquals(951_782_400_000_000L, GpxReader.parseIso8601Us("2000-02-29T00:00:00"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedXml() throws IOException {
+        read("<gpx><trk>");
+    }
+}
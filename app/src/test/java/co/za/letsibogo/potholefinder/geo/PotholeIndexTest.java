@@ -0,0 +1,117 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PotholeIndexTest {
+
+    // About 1 m of latitude
+    private static final double M = 1 / 111_320.0;
+
+    @Test
+    public void sightingsWithinRadiusMergeIntoOnePothole() {
+        PotholeIndex index = new PotholeIndex();
+        int a = index.add(-26.0, 28.0, 0.6f, 1000);
+        int b = index.add(-26.0 + 2 * M, 28.0, 0.6f, 5000);   // second pass, 2 m off
+
+        assertEquals(a, b);
+        assertEquals(1, index.size());
+        assertEquals(2, index.hits(a));
+        assertEquals(1 - 0.4f * 0.4f, index.confidence(a), 1e-6f);
+        assertEquals(1000, index.firstSeenMs(a));
+        assertEquals(5000, index.lastSeenMs(a));
+        assertEquals(-26.0 + M, index.latitude(a), 1e-9);      // score-weighted mean
+    }
+
+    @Test
+    public void addTellsWhetherTheSightingStartedAPothole() {
+        PotholeIndex index = new PotholeIndex();
+        boolean[] created = new boolean[1];
+
+        index.add(-26.0, 28.0, 0.6f, 0, created);
+        assertTrue(created[0]);
+        index.add(-26.0 + M, 28.0, 0.6f, 0, created);
+        assertFalse(created[0]);
+    }
+
+    @Test
+    public void sightingsBeyondRadiusStaySeparate() {
+        PotholeIndex index = new PotholeIndex();
+        int a = index.add(-26.0, 28.0, 0.9f, 0);
+        int b = index.add(-26.0, 28.0 + 10 * M, 0.9f, 0);
+
+        assertNotEquals(a, b);
+        assertEquals(2, index.size());
+        assertEquals(b, index.nearest(-26.0, 28.0 + 9 * M, 3));
+        assertEquals(-1, index.nearest(-26.0 + 50 * M, 28.0, 3));
+    }
+
+    @Test
+    public void boundingBoxMatchesLinearScan() {
+        PotholeIndex index = new PotholeIndex();
+        Random rnd = new Random(9);
+        for (int i = 0; i < 20_000; i++) {
+            index.add(-26.2 + rnd.nextDouble() * 0.2, 27.9 + rnd.nextDouble() * 0.2, 0.7f, i);
+        }
+        int[] out = new int[index.size()];
+        // Street-level box (walks cells) and a city-wide one (walks occupied cells)
+        double[][] boxes = {{-26.11, 27.99, -26.10, 28.00}, {-26.3, 27.8, -26.0, 28.05}};
+        for (double[] box : boxes) {
+            int n = index.query(box[0], box[1], box[2], box[3], out);
+            int[] got = Arrays.copyOf(out, n);
+            Arrays.sort(got);
+
+            int expected = 0;
+            int[] want = new int[index.size()];
+            for (int id = 0; id < index.size(); id++) {
+                double la = index.latitude(id), lo = index.longitude(id);
+                if (la >= box[0] && la <= box[2] && lo >= box[1] && lo <= box[3]) want[expected++] = id;
+            }
+            assertArrayEquals(Arrays.copyOf(want, expected), got);
+        }
+    }
+
+    @Test
+    public void importsAPreJournalSnapshotAndMergesIntoExistingRecords() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x50484958);   // "PHIX", version 1, two records
+        out.writeInt(1);
+        out.writeInt(2);
+        writeRecord(out, -26.0, 28.0, 100);
+        writeRecord(out, -26.1, 28.1, 200);
+
+        PotholeIndex index = new PotholeIndex();
+        index.add(-26.0, 28.0 + M, 0.5f, 300);   // same pothole, new session
+        index.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(2, index.size());
+        int id = index.nearest(-26.0, 28.0, 4);
+        assertEquals(2, index.hits(id));
+        assertEquals(100, index.firstSeenMs(id));
+        assertEquals(300, index.lastSeenMs(id));
+    }
+
+    private static void writeRecord(DataOutputStream out, double lat, double lon, long timeMs) throws IOException {
+        out.writeDouble(lat);
+        out.writeDouble(lon);
+        out.writeFloat(0.8f);    // weight
+        out.writeFloat(0.8f);    // confidence
+        out.writeInt(1);         // hits
+        out.writeLong(timeMs);   // first seen
+        out.writeLong(timeMs);   // last seen
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        new PotholeIndex().readFrom(new ByteArrayInputStream(new byte[12]));
+    }
+}
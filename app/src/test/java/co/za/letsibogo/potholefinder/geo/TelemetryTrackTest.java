@@ -0,0 +1,80 @@
+package co.za.letsibogo.potholefinder.geo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TelemetryTrackTest {
+
+    private final double[] out = new double[4];
+
+    private static TelemetryTrack line(int fixes, long stepUs) {
+        TelemetryTrack t = new TelemetryTrack(TelemetryTrack.TimeBase.MEDIA);
+        for (int i = 0; i < fixes; i++) t.add(i * stepUs, -26.0 + i * 1e-4, 28.0, 1600f + i, Float.NaN);
+        return t;
+    }
+
+    @Test
+    public void interpolatesBetweenFixes() {
+        TelemetryTrack t = line(3, 1_000_000);
+
+        assertTrue(t.locate(1_500_000, out));
+
+        assertEquals(-26.0 + 1.5e-4, out[TelemetryTrack.LAT], 1e-9);
+        assertEquals(28.0, out[TelemetryTrack.LON], 1e-9);
+        assertEquals(1601.5, out[TelemetryTrack.ALT], 1e-3);
+    }
+
+    @Test
+    public void derivesSpeedWhenNotReported() {
+        TelemetryTrack t = line(10, 1_000_000);   // 1e-4 deg latitude per second, about 11.1 m/s
+
+        assertTrue(t.locate(4_000_000, out));
+
+        assertEquals(11.1, out[TelemetryTrack.SPEED], 0.1);
+    }
+
+    @Test
+    public void noPositionFarFromAnyFix() {
+        TelemetryTrack t = new TelemetryTrack(TelemetryTrack.TimeBase.MEDIA, 2_000_000);
+        t.add(0, -26.0, 28.0, Float.NaN, 5f);
+        t.add(20_000_000, -26.1, 28.0, Float.NaN, 5f);
+
+        assertTrue(t.locate(1_000_000, out));        // near the first fix only
+        assertEquals(-26.0, out[TelemetryTrack.LAT], 1e-9);
+        assertFalse(t.locate(10_000_000, out));      // GPS outage
+        assertFalse(t.locate(-5_000_000, out));      // before the track
+    }
+
+    @Test
+    public void dropsOutOfOrderAndNullIslandFixes() {
+        TelemetryTrack t = line(3, 1_000_000);
+
+        assertFalse(t.add(1_000_000, -26.5, 28.5, 0f, 0f));
+        assertFalse(t.add(5_000_000, 0, 0, 0f, 0f));
+        assertEquals(3, t.size());
+    }
+
+    @Test
+    public void cursorAgreesWithBinarySearch() {
+        TelemetryTrack t = line(10_000, 100_000);
+        TelemetryTrack.Cursor c = t.cursor();
+        double[] expected = new double[4];
+        Random rnd = new Random(5);
+        long time = 0;
+        for (int i = 0; i < 5000; i++) {
+            // Mostly forward in small steps, with the odd seek either way
+            time = rnd.nextInt(20) == 0 ? rnd.nextInt(1_100_000_000) - 50_000_000L : time + rnd.nextInt(60_000);
+            boolean found = t.locate(time, expected);
+            assertEquals(found, c.locate(time, out));
+            if (found) assertArrayEquals(expected, out, 1e-12);
+        }
+    }
+
+    @Test
+    public void distance_oneDegreeOfLatitude() {
+        assertEquals(111_195, TelemetryTrack.distanceMeters(0, 0, 1, 0), 10);
+    }
+}
@@ -0,0 +1,141 @@
+package co.za.letsibogo.potholefinder.journal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionJournalTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    private static DetectionJournal.Config smallSegments() {
+        DetectionJournal.Config c = new DetectionJournal.Config();
+        c.segmentRecords = 10;
+        c.bufferRecords = 4;
+        c.syncIntervalMs = 0;
+        return c;
+    }
+
+    private static DetectionRecord record(int i) {
+        DetectionRecord r = new DetectionRecord();
+        r.wallTimeMs = 1_000_000L + i;
+        r.frameTimeUs = i * 40_000L;
+        r.ymin = 0.1f; r.xmin = 0.2f; r.ymax = 0.3f; r.xmax = 0.4f;
+        r.score = 0.5f + i / 1000f;
+        r.classId = 0;
+        r.latitude = i % 3 == 0 ? Double.NaN : -26.0 + i * 1e-5;
+        r.longitude = i % 3 == 0 ? Double.NaN : 28.0;
+        r.trackId = i;
+        return r;
+    }
+
+    private static List<Long> replayTimes(DetectionJournal journal) throws IOException {
+        List<Long> times = new ArrayList<>();
+        journal.replay((seq, r) -> {
+            assertEquals(r.trackId, (int) seq);
+            times.add(r.wallTimeMs);
+        });
+        return times;
+    }
+
+    @Test
+    public void recordsSurviveReopenAcrossSegments() throws IOException {
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            for (int i = 0; i < 25; i++) assertEquals(i, journal.append(record(i)));
+        }
+        assertEquals(3, dir.listFiles().length);
+
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            assertEquals(25, journal.nextSequence());
+            List<DetectionRecord> seen = new ArrayList<>();
+            journal.replay((seq, r) -> {
+                DetectionRecord copy = record((int) seq);
+                assertEquals(copy.wallTimeMs, r.wallTimeMs);
+                assertEquals(copy.frameTimeUs, r.frameTimeUs);
+                assertEquals(copy.score, r.score, 0f);
+                assertEquals(copy.isLocated(), r.isLocated());
+                if (r.isLocated()) assertEquals(copy.latitude, r.latitude, 0);
+                seen.add(r);
+            });
+            assertEquals(25, seen.size());
+        }
+    }
+
+    @Test
+    public void tornTailIsCutOffOnOpen() throws IOException {
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            for (int i = 0; i < 5; i++) journal.append(record(i));
+        }
+        File segment = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            // A crash mid-write: one record with a bad checksum, then half a record
+            raf.seek(raf.length());
+            byte[] bad = new byte[DetectionRecord.BYTES + DetectionRecord.BYTES / 2];
+            Arrays.fill(bad, (byte) 7);
+            raf.write(bad);
+        }
+
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            assertEquals(DetectionRecord.BYTES + DetectionRecord.BYTES / 2, journal.truncatedBytes());
+            assertEquals(5, journal.nextSequence());
+            journal.append(record(5));
+            assertEquals(Arrays.asList(1_000_000L, 1_000_001L, 1_000_002L, 1_000_003L, 1_000_004L, 1_000_005L),
+                    replayTimes(journal));
+        }
+    }
+
+    @Test
+    public void corruptRecordInSealedSegmentIsSkipped() throws IOException {
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            for (int i = 0; i < 15; i++) journal.append(record(i));
+        }
+        File first = dir.listFiles((d, n) -> n.startsWith("0000000000000000"))[0];
+        try (RandomAccessFile raf = new RandomAccessFile(first, "rw")) {
+            raf.seek(DetectionJournal.HEADER_BYTES + 3 * DetectionRecord.BYTES + 10);
+            raf.write(0x55);
+        }
+
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            List<Long> times = replayTimes(journal);
+            assertEquals(14, times.size());
+            assertFalse(times.contains(1_000_003L));
+        }
+    }
+
+    @Test
+    public void replaySeesBufferedRecordsAndClearKeepsSequence() throws IOException {
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            for (int i = 0; i < 3; i++) journal.append(record(i));   // still in the buffer
+            assertEquals(3, replayTimes(journal).size());
+
+            journal.clear();
+            assertTrue(replayTimes(journal).isEmpty());
+            assertEquals(3, journal.append(record(3)));
+        }
+        try (DetectionJournal journal = new DetectionJournal(dir, smallSegments())) {
+            assertEquals(Arrays.asList(1_000_003L), replayTimes(journal));
+        }
+    }
+}
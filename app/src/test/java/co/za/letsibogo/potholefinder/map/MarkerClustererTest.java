@@ -0,0 +1,70 @@
+package co.za.letsibogo.potholefinder.map;
+
+import co.za.letsibogo.potholefinder.geo.PotholeIndex;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MarkerClustererTest {
+
+    // About 1 m of latitude
+    private static final double M = 1 / 111_320.0;
+
+    private static PotholeIndex street() {
+        // Ten potholes 10 m apart along one street
+        PotholeIndex index = new PotholeIndex();
+        for (int i = 0; i < 10; i++) index.add(-26.0 + i * 10 * M, 28.0, 0.8f, 0);
+        return index;
+    }
+
+    @Test
+    public void nearbyPotholesClusterWhenZoomedOut() {
+        MarkerClusterer.Clusters c = new MarkerClusterer().cluster(street(), -26.01, 27.99, -25.99, 28.01, 12f);
+
+        assertEquals(1, c.size);
+        assertEquals(10, c.counts[0]);
+        assertTrue(c.keys[0] < 0);
+        assertEquals(-26.0 + 45 * M, c.latitudes[0], 1e-9);   // mean position
+    }
+
+    @Test
+    public void everyPotholeIsItsOwnMarkerWhenZoomedIn() {
+        MarkerClusterer.Clusters c = new MarkerClusterer().cluster(street(), -26.001, 27.999, -25.998, 28.001, 18f);
+
+        assertEquals(10, c.size);
+        for (int i = 0; i < c.size; i++) {
+            assertEquals(1, c.counts[i]);
+            assertTrue(c.keys[i] >= 0);
+        }
+    }
+
+    @Test
+    public void potholesOutsideTheViewportAreCulled() {
+        PotholeIndex index = street();
+        index.add(-27.0, 29.0, 0.8f, 0);   // far away
+
+        MarkerClusterer.Clusters c = new MarkerClusterer().cluster(index, -26.01, 27.99, -25.99, 28.01, 12f);
+        int total = 0;
+        for (int i = 0; i < c.size; i++) total += c.counts[i];
+        assertEquals(10, total);
+    }
+
+    @Test
+    public void clusterKeysAreStableWhilePanning() {
+        PotholeIndex index = street();
+        MarkerClusterer clusterer = new MarkerClusterer();
+        MarkerClusterer.Clusters a = clusterer.cluster(index, -26.01, 27.99, -25.99, 28.01, 12f);
+        MarkerClusterer.Clusters b = clusterer.cluster(index, -26.012, 27.985, -25.992, 28.005, 12f);
+
+        assertEquals(1, b.size);
+        assertEquals(a.keys[0], b.keys[0]);
+    }
+
+    @Test
+    public void mercatorRoundTrips() {
+        double world = 256 * (1 << 15);
+        assertEquals(-26.2, MarkerClusterer.yToLat(MarkerClusterer.latToY(-26.2, world), world), 1e-9);
+        assertEquals(28.05, MarkerClusterer.xToLon(MarkerClusterer.lonToX(28.05, world), world), 1e-9);
+    }
+}
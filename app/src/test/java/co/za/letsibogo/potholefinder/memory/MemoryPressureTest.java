@@ -0,0 +1,57 @@
+package co.za.letsibogo.potholefinder.memory;
+
+import org.junit.Test;
+
+import static co.za.letsibogo.potholefinder.memory.MemoryPressure.Level.*;
+import static org.junit.Assert.*;
+
+public class MemoryPressureTest {
+
+    private static MemoryPressure pressure() {
+        MemoryPressure.Config c = new MemoryPressure.Config();
+        c.recoveryMs = 1000;
+        return new MemoryPressure(c);
+    }
+
+    @Test
+    public void trimLevelsMapToDegradationLevels() {
+        assertEquals(MODERATE, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(LOW, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(CRITICAL, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(MODERATE, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(LOW, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_BACKGROUND));
+        assertEquals(CRITICAL, MemoryPressure.forTrimLevel(MemoryPressure.TRIM_MEMORY_COMPLETE));
+        assertEquals(NORMAL, MemoryPressure.forTrimLevel(0));
+    }
+
+    @Test
+    public void signalsOnlyRaiseTheLevel() {
+        MemoryPressure p = pressure();
+        assertTrue(p.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_LOW, 0));
+        assertEquals(LOW, p.level());
+        assertFalse(p.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_MODERATE, 10));
+        assertEquals(LOW, p.level());
+        assertTrue(p.onLowMemory(20));
+        assertEquals(CRITICAL, p.level());
+        assertFalse(p.level().modelsLoaded);
+    }
+
+    @Test
+    public void recoversOneStepPerQuietPeriod() {
+        MemoryPressure p = pressure();
+        p.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_CRITICAL, 0);
+
+        assertFalse(p.tick(999));
+        assertTrue(p.tick(1000));
+        assertEquals(LOW, p.level());
+        assertFalse(p.tick(1500));   // each step waits a full period
+        // A repeated signal, even a milder one, restarts the wait
+        p.onTrimMemory(MemoryPressure.TRIM_MEMORY_RUNNING_MODERATE, 1900);
+        assertFalse(p.tick(2500));
+        assertTrue(p.tick(2900));
+        assertEquals(MODERATE, p.level());
+        assertTrue(p.tick(3900));
+        assertEquals(NORMAL, p.level());
+        assertFalse(p.tick(10_000));
+    }
+}
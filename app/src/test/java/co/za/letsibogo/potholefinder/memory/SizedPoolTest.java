@@ -0,0 +1,82 @@
+package co.za.letsibogo.potholefinder.memory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SizedPoolTest {
+
+    /** Byte arrays as buffers, recording which were destroyed. */
+    private static final class ByteArrays implements SizedPool.Allocator<byte[]> {
+        final List<byte[]> destroyed = new ArrayList<>();
+
+        @Override
+        public byte[] create(int width, int height) {
+            return new byte[width * height];
+        }
+
+        @Override
+        public void destroy(byte[] item) {
+            destroyed.add(item);
+        }
+    }
+
+    @Test
+    public void reusesBuffersOfTheSameSize() {
+        ByteArrays alloc = new ByteArrays();
+        SizedPool<byte[]> pool = new SizedPool<>(alloc, 1, 1000);
+        byte[] a = pool.acquire(10, 10);
+        pool.release(a, 10, 10);
+
+        assertSame(a, pool.acquire(10, 10));
+        assertNotSame(a, pool.acquire(10, 10));   // only one was idle
+        pool.release(a, 10, 10);
+        assertEquals(100, pool.acquire(20, 5).length);   // same bytes, other size: new
+        assertEquals(1, pool.hitCount());
+        assertEquals(3, pool.missCount());
+        assertEquals(1, pool.idleCount());
+    }
+
+    @Test
+    public void evictsOldestOverBudget() {
+        ByteArrays alloc = new ByteArrays();
+        SizedPool<byte[]> pool = new SizedPool<>(alloc, 4, 800);   // two 10x10 buffers
+        byte[] a = pool.acquire(10, 10), b = pool.acquire(10, 10), c = pool.acquire(10, 10);
+        pool.release(a, 10, 10);
+        pool.release(b, 10, 10);
+        pool.release(c, 10, 10);
+
+        assertEquals(1, alloc.destroyed.size());
+        assertSame(a, alloc.destroyed.get(0));
+        assertEquals(800, pool.idleBytes());
+        byte[] big = new byte[1000];
+        pool.release(big, 50, 5);   // larger than the whole budget
+        assertSame(big, alloc.destroyed.get(1));
+    }
+
+    @Test
+    public void shrinkingTheBudgetEvictsNow() {
+        ByteArrays alloc = new ByteArrays();
+        SizedPool<byte[]> pool = new SizedPool<>(alloc, 1, 1000);
+        for (int i = 0; i < 5; i++) pool.release(new byte[100], 10, 10);
+        assertEquals(500, pool.idleBytes());
+
+        pool.setMaxBytes(250);
+        assertEquals(2, pool.idleCount());
+        assertEquals(3, alloc.destroyed.size());
+        pool.setMaxBytes(0);
+        assertEquals(0, pool.idleBytes());
+        pool.release(new byte[100], 10, 10);   // pooling off: destroyed at once
+        assertEquals(0, pool.idleCount());
+        assertEquals(6, alloc.destroyed.size());
+
+        pool.setMaxBytes(1000);
+        pool.release(new byte[100], 10, 10);
+        pool.clear();
+        assertEquals(0, pool.idleCount());
+        assertEquals(1000, pool.maxBytes());
+    }
+}
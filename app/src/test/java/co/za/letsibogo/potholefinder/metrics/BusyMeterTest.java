@@ -0,0 +1,38 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BusyMeterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void busyTimeIsReportedPerSecond() {
+        BusyMeter meter = new BusyMeter();
+        // 100 messages of 2 ms, one every 10 ms
+        for (int i = 0; i < 100; i++) {
+            meter.begin(i * 10 * MS);
+            meter.end(i * 10 * MS + 2 * MS);
+        }
+        assertEquals(0, meter.windows());   // the last one ends at 992 ms
+
+        meter.begin(1000 * MS);
+        meter.end(1008 * MS);
+        assertEquals(1, meter.windows());
+        assertEquals(208f * 1000 / 1008, meter.msPerSecond(), 0.01f);
+        assertEquals(8000, meter.longestUs());
+    }
+
+    @Test
+    public void anEndWithoutABeginIsIgnored() {
+        BusyMeter meter = new BusyMeter();
+        meter.end(5 * MS);
+        meter.begin(10 * MS);
+        meter.end(1500 * MS);
+        assertEquals(1, meter.windows());
+        assertEquals(1490f * 1000 / 1490, meter.msPerSecond(), 0.01f);
+        assertEquals(meter.msPerSecond(), meter.peakMsPerSecond(), 0f);
+    }
+}
@@ -0,0 +1,56 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverTheRangeMonotonically() {
+        int prev = -1;
+        for (long us = 0; us < 5_000_000; us = us < 100 ? us + 1 : us + us / 50) {
+            int b = LatencyHistogram.bucketOf(us);
+            assertTrue(b >= prev);
+            assertTrue("upper bound of bucket holds " + us, LatencyHistogram.upperBound(b) >= us);
+            if (b > 0) assertTrue(LatencyHistogram.upperBound(b - 1) < us);
+            prev = b;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int us = 1; us <= 10_000; us++) h.recordMicros(us);
+
+        assertEquals(10_000, h.count());
+        assertEquals(10_000, h.maxMicros());
+        assertEquals(5000.5, h.meanMicros(), 1e-9);
+        assertEquals(5000, h.percentileMicros(50), 5000 * 0.07);
+        assertEquals(9500, h.percentileMicros(95), 9500 * 0.07);
+        assertEquals(9900, h.percentileMicros(99), 9900 * 0.07);
+        assertEquals(10_000, h.percentileMicros(100));
+        assertTrue(h.percentileMicros(50) >= 5000);
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) h.recordNanos(1_000_000);
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        assertEquals(200_000, h.count());
+        assertEquals(1000, h.maxMicros());
+        assertEquals(1000, h.percentileMicros(99));
+    }
+}
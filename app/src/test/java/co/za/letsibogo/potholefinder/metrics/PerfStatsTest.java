@@ -0,0 +1,26 @@
+package co.za.letsibogo.potholefinder.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerfStatsTest {
+
+    @Test
+    public void jsonHasEveryStage() {
+        PerfStats stats = new PerfStats();
+        stats.record(PerfStats.Stage.INVOKE, System.nanoTime() - 12_000_000);
+        stats.frameCompleted();
+        stats.frameDropped();
+        stats.queueDepths(1, 2, 0);
+
+        String json = stats.toJson();
+
+        for (PerfStats.Stage s : PerfStats.Stage.values()) assertTrue(json.contains("\"" + s.key + "\":{"));
+        assertTrue(json.contains("\"framesCompleted\":1"));
+        assertTrue(json.contains("\"framesDropped\":1"));
+        assertTrue(json.contains("\"infer\":2"));
+        assertTrue(json.startsWith("{") && json.endsWith("}"));
+        assertTrue(stats.summary().contains("invoke"));
+    }
+}
@@ -0,0 +1,124 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveSamplerTest {
+
+    private static AdaptiveSampler.Config config(long latencyUs) {
+        AdaptiveSampler.Config c = new AdaptiveSampler.Config();
+        c.initialLatencyUs = latencyUs;
+        c.maxInFlight = 2;
+        c.targetUtilization = 1f;
+        c.minRateHz = 0.5f;
+        c.maxRateHz = 30f;
+        return c;
+    }
+
+    @Test
+    public void rateFollowsLatency() {
+        // 2 in flight / 200 ms = 10 frames/s
+        assertEquals(10f, new AdaptiveSampler(config(200_000)).rateHz(), 1e-3f);
+        // Faster device: capped at maxRate
+        assertEquals(30f, new AdaptiveSampler(config(10_000)).rateHz(), 1e-3f);
+        // Very slow device: floor at minRate
+        assertEquals(0.5f, new AdaptiveSampler(config(10_000_000)).rateHz(), 1e-3f);
+    }
+
+    @Test
+    public void measuredLatencyMovesTheEstimate() throws Exception {
+        AdaptiveSampler.Config c = config(1_000_000);
+        c.smoothing = 1f;   // take each measurement as-is
+        AdaptiveSampler s = new AdaptiveSampler(c);
+        assertEquals(2f, s.rateHz(), 1e-3f);
+
+        s.onSampled(0, 0);
+        s.onCompleted(0);   // near-zero latency
+
+        assertTrue(s.latencyUs() < 100_000);
+        assertEquals(30f, s.rateHz(), 1e-3f);
+    }
+
+    @Test
+    public void speedCapsTheRate() {
+        AdaptiveSampler.Config c = config(100_000);   // capacity 20/s
+        c.metersPerSample = 2f;
+        AdaptiveSampler s = new AdaptiveSampler(c);
+
+        s.setSpeed(10f);   // 36 km/h -> 5 samples/s
+        assertEquals(5f, s.rateHz(), 1e-3f);
+        s.setSpeed(0f);    // stopped -> floor
+        assertEquals(0.5f, s.rateHz(), 1e-3f);
+        s.setSpeed(100f);  // faster than capacity -> capacity
+        assertEquals(20f, s.rateHz(), 1e-3f);
+        s.setSpeed(Float.NaN);
+        assertEquals(20f, s.rateHz(), 1e-3f);
+    }
+
+    @Test
+    public void rateLimitCapsBelowMaxButNotBelowMin() {
+        AdaptiveSampler s = new AdaptiveSampler(config(10_000));   // capacity far over max
+        s.setRateLimitHz(7.5f);
+        assertEquals(7.5f, s.rateHz(), 1e-3f);
+        s.setRateLimitHz(0.1f);
+        assertEquals(0.5f, s.rateHz(), 1e-3f);
+        s.setRateLimitHz(Float.POSITIVE_INFINITY);
+        assertEquals(30f, s.rateHz(), 1e-3f);
+    }
+
+    @Test
+    public void samplesAreSpacedInMediaTime() {
+        AdaptiveSampler s = new AdaptiveSampler(config(200_000));   // 10/s -> 100 ms
+        assertTrue(s.isDue(0));
+        s.onSampled(0, 0);
+        assertFalse(s.isDue(50_000));
+        assertEquals(100_000, s.nextSampleUs(50_000));
+        assertTrue(s.isDue(100_000));
+        assertTrue("rewind is always due", s.isDue(-1_000));
+    }
+
+    @Test
+    public void capacityBlocksUntilAFrameCompletesOrDrops() throws Exception {
+        AdaptiveSampler s = new AdaptiveSampler(config(200_000));
+        s.onSampled(0, 0);
+        s.onSampled(1, 100_000);
+        assertFalse(s.awaitCapacity(20));
+
+        CountDownLatch got = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                if (s.awaitCapacity(5_000)) got.countDown();
+            } catch (InterruptedException ignored) {}
+        });
+        waiter.start();
+        Thread.sleep(20);
+        s.onDropped(1);
+
+        assertTrue(got.await(2, TimeUnit.SECONDS));
+        assertEquals(1, s.inFlight());
+        assertEquals(1, s.droppedCount());
+    }
+
+    @Test
+    public void framesFromBeforeAResetDoNotFreeCapacity() {
+        AdaptiveSampler s = new AdaptiveSampler(config(200_000));
+        s.onSampled(0, 0);
+        s.onSampled(1, 100_000);
+        s.reset();   // seek
+        s.onSampled(2, 5_000_000);
+        s.onSampled(66, 5_100_000);   // same ring position as 2
+
+        s.onCompleted(0);
+        s.onDropped(1);
+        assertEquals(2, s.inFlight());
+
+        s.onCompleted(2);
+        assertEquals(1, s.inFlight());
+        s.onCompleted(66);
+        assertEquals(0, s.inFlight());
+    }
+}
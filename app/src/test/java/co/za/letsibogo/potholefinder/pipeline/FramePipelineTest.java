@@ -0,0 +1,166 @@
+package co.za.letsibogo.potholefinder.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FramePipelineTest {
+
+    /** Fake frame source: emits 0..count-1, then end of stream. */
+    private static FramePipeline.Decoder<Integer> counter(int count) {
+        AtomicInteger next = new AtomicInteger();
+        return () -> {
+            int n = next.getAndIncrement();
+            return n < count ? n : null;
+        };
+    }
+
+    @Test
+    public void block_processesEveryFrameThroughAllStages() throws Exception {
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(counter(100))
+                .preprocess(f -> f * 2)
+                .infer(t -> t + 1)
+                .postprocess(results::add)
+                .dropPolicy(DropPolicy.BLOCK)
+                .build();
+
+        p.start();
+        assertTrue(p.awaitCompletion(5, TimeUnit.SECONDS));
+
+        assertEquals(100, p.decodedCount());
+        assertEquals(100, p.completedCount());
+        assertEquals(0, p.droppedCount());
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) assertEquals(Integer.valueOf(i * 2 + 1), results.get(i));
+    }
+
+    @Test
+    public void dropOldest_slowDetectorDropsFramesAndReleasesThem() throws Exception {
+        AtomicInteger released = new AtomicInteger();
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(counter(200))
+                .preprocess(f -> f)
+                .infer(t -> { Thread.sleep(5); return t; })
+                .postprocess(r -> { })
+                .queueCapacity(1)
+                .dropPolicy(DropPolicy.DROP_OLDEST)
+                .onDrop(item -> released.incrementAndGet())
+                .build();
+
+        p.start();
+        assertTrue(p.awaitCompletion(10, TimeUnit.SECONDS));
+
+        assertTrue("expected drops with a slow detector", p.droppedCount() > 0);
+        assertEquals(p.droppedCount(), released.get());
+        assertEquals(200, p.completedCount() + p.droppedCount());
+    }
+
+    @Test
+    public void dropNewest_rejectsIncomingFramesWhenFull() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger next = new AtomicInteger();
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(() -> {
+                    int n = next.getAndIncrement();
+                    if (n == 1) held.await();  // first frame is inside preprocess before the rest arrive
+                    return n < 20 ? n : null;
+                })
+                .preprocess(f -> { held.countDown(); unblock.await(); return f; })
+                .infer(t -> t)
+                .postprocess(results::add)
+                .queueCapacity(2)
+                .dropPolicy(DropPolicy.DROP_NEWEST)
+                .build();
+
+        p.start();
+        // Give the decoder time to fill the queue while preprocess is held
+        held.await();
+        Thread.sleep(100);
+        unblock.countDown();
+        assertTrue(p.awaitCompletion(5, TimeUnit.SECONDS));
+
+        // One frame held in preprocess, two queued; everything after that was rejected
+        assertEquals(20, p.decodedCount());
+        assertTrue(p.droppedCount() >= 17);
+        assertEquals(20, p.completedCount() + p.droppedCount());
+        assertTrue(results.contains(0));
+        for (int r : results) assertTrue("newer frame " + r + " should have been rejected", r <= 2);
+    }
+
+    @Test
+    public void multipleInferThreads_runConcurrently() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(counter(40))
+                .preprocess(f -> f)
+                .infer(t -> {
+                    int now = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(now, Math::max);
+                    Thread.sleep(10);
+                    inFlight.decrementAndGet();
+                    return t;
+                })
+                .postprocess(r -> { })
+                .dropPolicy(DropPolicy.BLOCK)
+                .threads(FramePipeline.Stage.INFER, 4)
+                .build();
+
+        p.start();
+        assertTrue(p.awaitCompletion(5, TimeUnit.SECONDS));
+
+        assertEquals(40, p.completedCount());
+        assertTrue("infer stage never overlapped", maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void failingStage_isCountedAndDoesNotStopThePipeline() throws Exception {
+        List<Object> failedInputs = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(counter(10))
+                .preprocess(f -> { if (f % 2 == 0) throw new IllegalStateException("bad frame"); return f; })
+                .infer(t -> { if (t == 9) throw new IllegalStateException("bad result"); return t; })
+                .postprocess(r -> { })
+                .dropPolicy(DropPolicy.BLOCK)
+                .onFailure((input, e) -> failedInputs.add(input))
+                .build();
+
+        p.start();
+        assertTrue(p.awaitCompletion(5, TimeUnit.SECONDS));
+
+        assertEquals(6, p.failedCount());
+        assertEquals(4, p.completedCount());
+        assertTrue(p.lastError() instanceof IllegalStateException);
+        // Each failed frame is handed back once, so its bookkeeping can be undone
+        Collections.sort(failedInputs, (x, y) -> (Integer) x - (Integer) y);
+        assertEquals(Arrays.<Object>asList(0, 2, 4, 6, 8, 9), failedInputs);
+    }
+
+    @Test
+    public void stop_endsAnInfiniteSource() throws Exception {
+        FramePipeline<Integer, Integer, Integer> p = new FramePipeline.Builder<Integer, Integer, Integer>()
+                .decoder(() -> { Thread.sleep(1); return 1; })
+                .preprocess(f -> f)
+                .infer(t -> t)
+                .postprocess(r -> { })
+                .build();
+
+        p.start();
+        Thread.sleep(50);
+        p.stop();
+        assertTrue(p.awaitCompletion(5, TimeUnit.SECONDS));
+        assertFalse(p.isRunning());
+    }
+}
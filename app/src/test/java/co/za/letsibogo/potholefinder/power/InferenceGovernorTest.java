@@ -0,0 +1,107 @@
+package co.za.letsibogo.potholefinder.power;
+
+import org.junit.Test;
+
+import static co.za.letsibogo.potholefinder.power.InferenceGovernor.Tier.*;
+import static org.junit.Assert.*;
+
+public class InferenceGovernorTest {
+
+    private static final int NONE = InferenceGovernor.THERMAL_STATUS_NONE;
+    private static final int LIGHT = InferenceGovernor.THERMAL_STATUS_LIGHT;
+    private static final int SEVERE = InferenceGovernor.THERMAL_STATUS_SEVERE;
+
+    private static InferenceGovernor governor() {
+        InferenceGovernor.Config c = new InferenceGovernor.Config();
+        c.minDwellMs = 60_000;
+        return new InferenceGovernor(c);
+    }
+
+    /** Feeds one reading every 5 s; returns the tier after each. */
+    private static InferenceGovernor.Tier[] replay(InferenceGovernor g, long startMs, int[] status, float[] headroom) {
+        InferenceGovernor.Conditions c = new InferenceGovernor.Conditions();
+        InferenceGovernor.Tier[] tiers = new InferenceGovernor.Tier[status.length];
+        for (int i = 0; i < status.length; i++) {
+            g.update(c.set(status[i], headroom[i], 80, true), startMs + i * 5_000L);
+            tiers[i] = g.tier();
+        }
+        return tiers;
+    }
+
+    @Test
+    public void heatingDashboardStepsDownBeforeTheStatusChanges() {
+        InferenceGovernor g = governor();
+        // Headroom climbs while the OS still reports no throttling, then it reports SEVERE
+        int[] status = {NONE, NONE, NONE, NONE, LIGHT, SEVERE};
+        float[] headroom = {0.5f, 0.7f, 0.85f, 0.97f, 1.0f, 1.2f};
+        InferenceGovernor.Tier[] tiers = replay(g, 0, status, headroom);
+
+        assertArrayEquals(new InferenceGovernor.Tier[]{FULL, FULL, REDUCED, LOW, LOW, MINIMAL}, tiers);
+        assertEquals(3, g.decisionCount());
+    }
+
+    @Test
+    public void headroomHoveringAtAThresholdDoesNotOscillate() {
+        InferenceGovernor g = governor();
+        int n = 60;   // 5 minutes of readings
+        int[] status = new int[n];
+        float[] headroom = new float[n];
+        for (int i = 0; i < n; i++) headroom[i] = i % 2 == 0 ? 0.82f : 0.76f;   // around 0.8
+        InferenceGovernor.Tier[] tiers = replay(g, 0, status, headroom);
+
+        for (InferenceGovernor.Tier t : tiers) assertEquals(REDUCED, t);
+        assertEquals(1, g.decisionCount());
+    }
+
+    @Test
+    public void coolingRecoversOneStepPerDwell() {
+        InferenceGovernor g = governor();
+        InferenceGovernor.Conditions c = new InferenceGovernor.Conditions();
+        g.update(c.set(SEVERE, 1.2f, 80, true), 0);
+        assertEquals(MINIMAL, g.tier());
+
+        c.set(NONE, 0.3f, 80, true);   // cooled right down
+        assertNull(g.update(c, 30_000));   // too soon
+        InferenceGovernor.Decision d = g.update(c, 60_000);
+        assertEquals(MINIMAL, d.from);
+        assertEquals(LOW, d.to);
+        assertEquals("recovered", d.reason);
+        assertNull(g.update(c, 90_000));
+        assertEquals(REDUCED, g.update(c, 120_000).to);
+        assertEquals(FULL, g.update(c, 180_000).to);
+
+        // Warming again is acted on at once, dwell or not
+        assertEquals(LOW, g.update(c.set(NONE, 0.96f, 80, true), 185_000).to);
+        assertEquals(60_000, g.timeInTierMs(REDUCED));   // 120 s to 180 s
+    }
+
+    @Test
+    public void batteryCountsOnlyWhenNotCharging() {
+        InferenceGovernor g = governor();
+        InferenceGovernor.Conditions c = new InferenceGovernor.Conditions();
+        assertNull(g.update(c.set(NONE, Float.NaN, 12, true), 0));
+        InferenceGovernor.Decision d = g.update(c.set(NONE, Float.NaN, 12, false), 5_000);
+        assertEquals(LOW, d.to);
+        assertEquals("battery 12%", d.reason);
+
+        // Just over the threshold is not enough to recover; clear of its margin is
+        assertNull(g.update(c.set(NONE, Float.NaN, 18, false), 100_000));
+        assertEquals(REDUCED, g.update(c.set(NONE, Float.NaN, 21, false), 105_000).to);
+        // Plugged in: the battery no longer holds it back
+        assertEquals(FULL, g.update(c.set(NONE, Float.NaN, 21, true), 200_000).to);
+    }
+
+    @Test
+    public void decisionsAreKeptForAnalysis() {
+        InferenceGovernor g = governor();
+        InferenceGovernor.Conditions c = new InferenceGovernor.Conditions();
+        g.update(c.set(LIGHT, 0.5f, 50, false), 1_000);
+        g.update(c.set(SEVERE, Float.NaN, 50, false), 2_000);
+
+        String json = g.toJson();
+        assertTrue(json, json.contains("\"tier\":\"MINIMAL\""));
+        assertTrue(json, json.contains("\"from\":\"FULL\",\"to\":\"REDUCED\",\"reason\":\"thermal status 1\""));
+        assertTrue(json, json.contains("\"thermalStatus\":3,\"headroom\":null"));
+        assertTrue(g.summary().startsWith("Governor: MINIMAL, 2 changes in 2 readings"));
+    }
+}
@@ -0,0 +1,128 @@
+package co.za.letsibogo.potholefinder.snapshot;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SnapshotEncoderTest {
+
+    /** Frames are strings; "encoding" writes the frame name and box. */
+    private static final class FakeCodec implements SnapshotEncoder.Codec<String> {
+        final Map<String, Integer> released = new ConcurrentHashMap<>();
+        final CountDownLatch gate;
+
+        FakeCodec(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public byte[] encodeCrop(String frame, float ymin, float xmin, float ymax, float xmax) throws IOException {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return (frame + ":" + ymin + "," + xmin + "," + ymax + "," + xmax).getBytes();
+        }
+
+        @Override
+        public byte[] encodeFull(String frame) {
+            return frame.getBytes();
+        }
+
+        @Override
+        public void release(String frame) {
+            released.merge(frame, 1, Integer::sum);
+        }
+    }
+
+    private static final class MapStore implements SnapshotEncoder.Store {
+        final Map<String, String> crops = new ConcurrentHashMap<>();
+        final Map<String, String> fulls = new ConcurrentHashMap<>();
+        final AtomicInteger puts = new AtomicInteger();
+
+        @Override
+        public void put(String key, byte[] crop, byte[] full) {
+            crops.put(key, new String(crop));
+            if (full != null) fulls.put(key, new String(full));
+            puts.incrementAndGet();
+        }
+    }
+
+    private static SnapshotEncoder.Config config(int maxQueued) {
+        SnapshotEncoder.Config c = new SnapshotEncoder.Config();
+        c.threads = 1;
+        c.maxQueued = maxQueued;
+        c.cropPadding = 0f;
+        return c;
+    }
+
+    private static void awaitWritten(SnapshotEncoder<?> encoder, long n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.writtenCount() + encoder.failedCount() < n && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void everyDetectionInAFrameIsStoredAndTheFrameReleasedOnce() throws InterruptedException {
+        FakeCodec codec = new FakeCodec(new CountDownLatch(0));
+        MapStore store = new MapStore();
+        SnapshotEncoder<String> encoder = new SnapshotEncoder<>(config(4), codec, store);
+
+        assertTrue(encoder.submit("f1", new String[]{"a", "b"},
+                new float[]{0.1f, 0.2f, 0.3f, 0.4f, 0.5f, 0.5f, 0.6f, 0.7f}));
+        awaitWritten(encoder, 2);
+        encoder.close();
+
+        assertEquals("f1:0.1,0.2,0.3,0.4", store.crops.get("a"));
+        assertEquals("f1:0.5,0.5,0.6,0.7", store.crops.get("b"));
+        assertEquals("f1", store.fulls.get("a"));
+        assertEquals(2, encoder.writtenCount());
+        assertEquals(Integer.valueOf(1), codec.released.get("f1"));
+    }
+
+    @Test
+    public void fullQueueShedsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        FakeCodec codec = new FakeCodec(gate);
+        MapStore store = new MapStore();
+        SnapshotEncoder<String> encoder = new SnapshotEncoder<>(config(2), codec, store);
+        float[] box = {0f, 0f, 1f, 1f};
+
+        encoder.submit("busy", new String[]{"k0"}, box);
+        // Wait until the worker holds the first frame, so the queue is empty
+        long deadline = System.currentTimeMillis() + 2000;
+        while (encoder.queueDepth() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        Thread.sleep(20);
+
+        long t0 = System.nanoTime();
+        int accepted = 0;
+        for (int i = 1; i <= 5; i++) {
+            if (encoder.submit("f" + i, new String[]{"k" + i}, box)) accepted++;
+        }
+        assertTrue("submit must not block", (System.nanoTime() - t0) / 1_000_000 < 500);
+        assertEquals(2, accepted);
+        assertEquals(3, encoder.shedCount());
+        assertEquals(Integer.valueOf(1), codec.released.get("f5"));   // shed frames are released at once
+
+        gate.countDown();
+        awaitWritten(encoder, 3);
+        encoder.close();
+        assertEquals(3, store.puts.get());
+        for (int i = 1; i <= 5; i++) assertEquals(Integer.valueOf(1), codec.released.get("f" + i));
+    }
+
+    @Test
+    public void paddingWidensTheBoxWithinTheFrame() {
+        float[] padded = SnapshotEncoder.pad(new float[]{0.1f, 0.4f, 0.3f, 0.6f}, 0, 0.5f);
+        assertArrayEquals(new float[]{0f, 0.3f, 0.4f, 0.7f}, padded, 1e-6f);
+    }
+}
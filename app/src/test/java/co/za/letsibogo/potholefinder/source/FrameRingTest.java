@@ -0,0 +1,87 @@
+package co.za.letsibogo.potholefinder.source;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrameRingTest {
+
+    private static void produce(FrameRing<int[]> ring, long timestampUs) {
+        FrameRing.Slot<int[]> slot = ring.claim();
+        assertNotNull(slot);
+        slot.payload[0] = (int) timestampUs;
+        ring.publish(slot, timestampUs);
+    }
+
+    @Test
+    public void slowConsumerGetsTheNewestFrames() throws InterruptedException {
+        FrameRing<int[]> ring = new FrameRing<>(3, () -> new int[1]);
+        for (int t = 0; t < 5; t++) produce(ring, t);
+
+        assertEquals(2, ring.droppedCount());
+        for (int t = 2; t < 5; t++) {
+            FrameRing.Slot<int[]> slot = ring.take(0);
+            assertEquals(t, slot.timestampUs());
+            assertEquals(t, slot.payload[0]);
+            assertEquals(t, slot.index());
+            ring.release(slot);
+        }
+        assertNull(ring.take(0));
+    }
+
+    @Test
+    public void payloadsArePreallocatedAndReused() {
+        AtomicInteger created = new AtomicInteger();
+        FrameRing<int[]> ring = new FrameRing<>(4, () -> {
+            created.incrementAndGet();
+            return new int[1];
+        });
+        for (int t = 0; t < 100; t++) produce(ring, t);
+        assertEquals(4, created.get());
+        assertEquals(4, ring.depth());
+        assertEquals(96, ring.droppedCount());
+    }
+
+    @Test
+    public void slotHeldByConsumerIsNeverOverwritten() throws InterruptedException {
+        FrameRing<int[]> ring = new FrameRing<>(2, () -> new int[1]);
+        produce(ring, 0);
+        FrameRing.Slot<int[]> held = ring.take(0);
+        for (int t = 1; t < 10; t++) produce(ring, t);
+
+        assertEquals(0, held.payload[0]);
+        assertEquals(0, held.timestampUs());
+        ring.release(held);
+        assertEquals(9, ring.take(0).timestampUs());
+    }
+
+    @Test
+    public void producerGetsNothingWhenConsumerHoldsEverySlot() throws InterruptedException {
+        FrameRing<int[]> ring = new FrameRing<>(2, () -> new int[1]);
+        produce(ring, 0);
+        produce(ring, 1);
+        ring.take(0);
+        ring.take(0);
+
+        assertNull(ring.claim());
+        assertEquals(1, ring.droppedCount());
+    }
+
+    @Test
+    public void closeWakesWaitingConsumer() throws InterruptedException {
+        FrameRing<int[]> ring = new FrameRing<>(2, () -> new int[1]);
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {}
+            ring.close();
+        });
+        closer.start();
+        long t0 = System.currentTimeMillis();
+        assertNull(ring.take(5000));
+        assertTrue(System.currentTimeMillis() - t0 < 2000);
+        assertNull(ring.claim());
+    }
+}
@@ -0,0 +1,93 @@
+package co.za.letsibogo.potholefinder.source;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class H264FileStreamTest {
+
+    private static final byte[] SPS = {0, 0, 0, 1, 0x67, 0x42, 0x00, 0x1F};
+    private static final byte[] PPS = {0, 0, 0, 1, 0x68, (byte) 0xCE, 0x3C};
+    private static final byte[] IDR = {0, 0, 0, 1, 0x65, (byte) 0x88, 0x11, 0x22};
+    private static final byte[] P = {0, 0, 1, 0x41, (byte) 0x9A, 0x33};
+    private static final byte[] P_SECOND_SLICE = {0, 0, 1, 0x41, 0x40, 0x44};   // first_mb_in_slice != 0
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.write(p, 0, p.length);
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> split(byte[] stream, int chunk) throws InterruptedException {
+        List<byte[]> units = new ArrayList<>();
+        H264FileStream.AccessUnitSplitter splitter = new H264FileStream.AccessUnitSplitter(
+                (data, off, len) -> units.add(Arrays.copyOfRange(data, off, off + len)));
+        for (int i = 0; i < stream.length; i += chunk) {
+            splitter.feed(stream, i, Math.min(chunk, stream.length - i));
+        }
+        splitter.finish();
+        return units;
+    }
+
+    @Test
+    public void splitsIntoAccessUnitsWhateverTheReadSize() throws InterruptedException {
+        byte[] stream = concat(SPS, PPS, IDR, P, P_SECOND_SLICE, P);
+        for (int chunk : new int[]{1, 3, 7, 1000}) {
+            List<byte[]> units = split(stream, chunk);
+            assertEquals("chunk " + chunk, 3, units.size());
+            assertArrayEquals(concat(SPS, PPS, IDR), units.get(0));
+            assertArrayEquals(concat(P, P_SECOND_SLICE), units.get(1));
+            assertArrayEquals(P, units.get(2));
+        }
+    }
+
+    @Test
+    public void keyframesAreRecognized() {
+        byte[] idr = concat(SPS, PPS, IDR);
+        assertTrue(H264Stream.containsKeyframe(idr, 0, idr.length));
+        assertFalse(H264Stream.containsKeyframe(P, 0, P.length));
+    }
+
+    @Test
+    public void replaysAtRealTimeRate() throws IOException, InterruptedException {
+        File file = File.createTempFile("stream", ".h264");
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(concat(SPS, PPS, IDR, P, P, P, P));
+            }
+            List<Long> timestamps = new ArrayList<>();
+            CountDownLatch ended = new CountDownLatch(1);
+            long t0 = System.nanoTime();
+            try (H264FileStream stream = new H264FileStream(file, 50f)) {
+                stream.start(new H264Stream.Sink() {
+                    @Override
+                    public void onData(byte[] data, int offset, int length, long timestampUs) {
+                        timestamps.add(timestampUs);
+                    }
+
+                    @Override
+                    public void onEnd() {
+                        ended.countDown();
+                    }
+                });
+                assertTrue(ended.await(5, TimeUnit.SECONDS));
+            }
+            long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+
+            assertEquals(Arrays.asList(0L, 20_000L, 40_000L, 60_000L, 80_000L), timestamps);
+            assertTrue("took " + elapsedMs + " ms", elapsedMs >= 75);
+        } finally {
+            file.delete();
+        }
+    }
+}
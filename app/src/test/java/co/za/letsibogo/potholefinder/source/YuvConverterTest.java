@@ -0,0 +1,76 @@
+package co.za.letsibogo.potholefinder.source;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    private static int[] convertSolid(int y, int u, int v, int uvPixelStride) {
+        int w = 4, h = 2;
+        ByteBuffer yb = ByteBuffer.allocate(w * h);
+        for (int i = 0; i < w * h; i++) yb.put(i, (byte) y);
+        int uvRowStride = (w / 2) * uvPixelStride;
+        ByteBuffer ub = ByteBuffer.allocate(uvRowStride * (h / 2));
+        ByteBuffer vb = ByteBuffer.allocate(uvRowStride * (h / 2));
+        for (int i = 0; i < ub.capacity(); i++) {
+            ub.put(i, (byte) u);
+            vb.put(i, (byte) v);
+        }
+        int[] out = new int[w * h];
+        YuvConverter.yuv420ToArgb(yb, w, 1, ub, vb, uvRowStride, uvPixelStride, w, h, out);
+        return out;
+    }
+
+    private static void assertRgb(int expectedRgb, int actualArgb, int tolerance) {
+        assertEquals(0xFF, actualArgb >>> 24);
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int e = (expectedRgb >> shift) & 0xFF;
+            int a = (actualArgb >> shift) & 0xFF;
+            assertTrue("channel " + shift + ": expected " + e + " got " + a, Math.abs(e - a) <= tolerance);
+        }
+    }
+
+    @Test
+    public void blackAndWhite() {
+        assertRgb(0x000000, convertSolid(16, 128, 128, 1)[0], 1);
+        assertRgb(0xFFFFFF, convertSolid(235, 128, 128, 1)[0], 1);
+    }
+
+    @Test
+    public void primaryColours() {
+        assertRgb(0xFF0000, convertSolid(81, 90, 240, 1)[3], 3);
+        assertRgb(0x00FF00, convertSolid(145, 54, 34, 1)[3], 3);
+        assertRgb(0x0000FF, convertSolid(41, 240, 110, 1)[3], 3);
+    }
+
+    @Test
+    public void semiPlanarLayoutGivesSameResult() {
+        int[] planar = convertSolid(81, 90, 240, 1);
+        int[] interleaved = convertSolid(81, 90, 240, 2);
+        assertArrayEquals(planar, interleaved);
+    }
+
+    @Test
+    public void stepTakesEveryNthPixel() {
+        // 4x4 luma ramp, neutral chroma: the output is grey levels of the sampled pixels
+        int w = 4, h = 4;
+        ByteBuffer yb = ByteBuffer.allocate(w * h);
+        for (int i = 0; i < w * h; i++) yb.put(i, (byte) (16 + i * 10));
+        ByteBuffer ub = ByteBuffer.allocate(w / 2 * h / 2);
+        ByteBuffer vb = ByteBuffer.allocate(w / 2 * h / 2);
+        for (int i = 0; i < ub.capacity(); i++) {
+            ub.put(i, (byte) 128);
+            vb.put(i, (byte) 128);
+        }
+        int[] full = new int[w * h];
+        YuvConverter.yuv420ToArgb(yb, w, 1, ub, vb, w / 2, 1, w, h, full);
+        int[] half = new int[4];
+        YuvConverter.yuv420ToArgb(yb, w, 1, ub, vb, w / 2, 1, w, h, 2, half);
+
+        assertEquals(2, YuvConverter.scaledSize(w, 2));
+        assertArrayEquals(new int[]{full[0], full[2], full[8], full[10]}, half);
+    }
+}
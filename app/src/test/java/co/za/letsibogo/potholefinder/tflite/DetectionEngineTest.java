@@ -0,0 +1,87 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionEngineTest {
+
+    // [1, 3, 7] rows of ymin, xmin, ymax, xmax, score, class, unused
+    private static final float[] ROWS = {
+            0.10f, 0.10f, 0.30f, 0.30f, 0.9f, 1f, 0f,
+            0.11f, 0.12f, 0.31f, 0.32f, 0.8f, 1f, 0f,   // same pothole, suppressed
+            0.60f, 0.60f, 0.80f, 0.80f, 0.2f, 1f, 0f,   // under the score threshold
+    };
+
+    private static DetectionEngine engine(ModelRunner runner) {
+        return new DetectionEngine(runner, TensorSpec.ofFloat(1, 8, 8, 3),
+                new TensorSpec[]{TensorSpec.ofFloat(1, 3, 7)}, 1, OutputDecoder.Layout.BOXES_N7);
+    }
+
+    private static final ModelRunner CANNED = buffers -> {
+        OutputTensor out = buffers.outputs[0];
+        for (int i = 0; i < ROWS.length; i++) out.put(i, ROWS[i]);
+    };
+
+    @Test
+    public void infer_decodesAndSuppressesCandidates() throws Exception {
+        DetectionEngine e = engine(CANNED);
+
+        List<Detection> d = e.infer(e.prepare(new int[16 * 16], 16, 16));
+
+        assertEquals(1, d.size());
+        assertEquals(0.9f, d.get(0).score, 1e-6f);
+        assertEquals(0.10f, d.get(0).ymin, 1e-6f);
+        assertTrue(e.containsPothole(d));
+    }
+
+    @Test
+    public void infer_mapsRegionOfInterestBoxesToFullFrame() throws Exception {
+        DetectionEngine e = engine(CANNED);
+        e.configureRegionOfInterest(RegionOfInterest.lower(0.5f));
+
+        Detection d = e.infer(e.prepare(new int[16 * 16], 16, 16)).get(0);
+
+        assertEquals(0.5f + 0.10f * 0.5f, d.ymin, 1e-6f);
+        assertEquals(0.10f, d.xmin, 1e-6f);
+    }
+
+    @Test
+    public void failedRun_returnsNothingAndFreesTheSlot() throws Exception {
+        DetectionEngine e = engine(buffers -> { throw new IllegalStateException("closed"); });
+
+        assertTrue(e.infer(e.prepare(new int[16 * 16], 16, 16)).isEmpty());
+        // With one slot, this would block forever if the first one leaked
+        assertNotNull(e.prepare(new int[16 * 16], 16, 16));
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() throws Exception {
+        DetectionEngine e = engine(CANNED);
+        e.infer(e.prepare(new int[16 * 16], 16, 16));
+        int allocations = e.getAllocationCount();
+
+        for (int i = 0; i < 10; i++) e.infer(e.prepare(new int[16 * 16], 16, 16));
+
+        assertEquals(allocations, e.getAllocationCount());
+    }
+
+    @Test
+    public void trimMemory_dropsRoiCopiesOfFreeAndInFlightSlots() throws Exception {
+        DetectionEngine e = new DetectionEngine(CANNED, TensorSpec.ofFloat(1, 8, 8, 3),
+                new TensorSpec[]{TensorSpec.ofFloat(1, 3, 7)}, 2, OutputDecoder.Layout.BOXES_N7);
+        FrameSlot idle = e.takeSlot(), busy = e.takeSlot();
+        idle.ensureArgb(64 * 64);
+        busy.ensureArgb(64 * 64);
+        e.release(idle);
+
+        e.trimMemory();
+
+        assertEquals(0, idle.argb.length);
+        assertEquals(64 * 64, busy.argb.length);   // still being filled
+        e.release(busy);
+        assertEquals(0, busy.argb.length);
+    }
+}
@@ -0,0 +1,121 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+import org.tensorflow.lite.DataType;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class InferenceBuffersTest {
+
+    @Test
+    public void fillInput_packsRgbAsNormalizedFloats() {
+        InferenceBuffers b = new InferenceBuffers(2, 1, 3, DataType.FLOAT32, new int[][]{{1, 4, 7}});
+        b.pixels[0] = 0xFFFF8000;
+        b.pixels[1] = 0xFF0000FF;
+
+        ByteBuffer in = b.fillInput();
+
+        assertEquals(0, in.position());
+        assertEquals(1f, in.getFloat(), 1e-6f);
+        assertEquals(128 / 255f, in.getFloat(), 1e-6f);
+        assertEquals(0f, in.getFloat(), 1e-6f);
+        assertEquals(0f, in.getFloat(), 1e-6f);
+        assertEquals(0f, in.getFloat(), 1e-6f);
+        assertEquals(1f, in.getFloat(), 1e-6f);
+    }
+
+    @Test
+    public void fillInput_packsRawBytesForUint8() {
+        InferenceBuffers b = new InferenceBuffers(1, 1, 3, DataType.UINT8, new int[][]{{1, 4, 7}});
+        b.pixels[0] = 0xFF102030;
+
+        ByteBuffer in = b.fillInput();
+
+        assertEquals(3, in.capacity());
+        assertEquals(0x10, in.get() & 0xFF);
+        assertEquals(0x20, in.get() & 0xFF);
+        assertEquals(0x30, in.get() & 0xFF);
+    }
+
+    @Test
+    public void fillInput_int8WithoutQuantizationShiftsIntoRange() {
+        InferenceBuffers b = new InferenceBuffers(1, 1, 3, DataType.INT8, new int[][]{{1, 4, 7}});
+        b.pixels[0] = 0xFF00FF80;
+
+        ByteBuffer in = b.fillInput();
+
+        assertEquals(-128, in.get());
+        assertEquals(127, in.get());   // not wrapped to -1
+        assertEquals(0, in.get());
+    }
+
+    @Test
+    public void steadyState_reusesBuffersAndDoesNotAllocate() {
+        InferenceBuffers b = new InferenceBuffers(320, 320, 3, DataType.FLOAT32, new int[][]{{1, 100, 7}});
+        int allocsAfterInit = b.allocationCount();
+        ByteBuffer first = b.fillInput();
+
+        // Warm up so the JIT has compiled the packing loop
+        for (int i = 0; i < 200; i++) b.fillInput();
+
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        boolean measurable = mx instanceof com.sun.management.ThreadMXBean;
+        long before = measurable ? ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(tid) : 0;
+
+        for (int frame = 0; frame < 500; frame++) {
+            assertSame(first, b.fillInput());
+        }
+
+        if (measurable) {
+            long allocated = ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(tid) - before;
+            // A single per-frame ByteBuffer would already be > 500 * 1.2 MB; allow only measurement noise.
+            assertTrue("allocated " + allocated + " bytes over 500 frames", allocated < 16 * 1024);
+        }
+        assertEquals(allocsAfterInit, b.allocationCount());
+    }
+
+    @Test
+    public void fillInput_quantizesWithScaleAndZeroPoint() {
+        // int8 input expecting [-1..1]: real = (v - 127.5) / 127.5, q = real / (1/128) - 1
+        TensorSpec in = new TensorSpec(new int[]{1, 1, 1, 3}, DataType.INT8, 1 / 128f, -1);
+        InferenceBuffers b = new InferenceBuffers(in, new TensorSpec[]{TensorSpec.ofFloat(1, 4, 7)});
+        b.setNormalization(127.5f, 127.5f);
+        b.pixels[0] = 0xFF00FF80;
+
+        ByteBuffer buf = b.fillInput();
+
+        assertEquals(-128, buf.get());          // -1.0 -> -129, clamped
+        assertEquals(127, buf.get());           //  1.0 ->  127
+        assertEquals(0, buf.get());             //  0.5/127.5 -> round(0.5) - 1 = 0
+    }
+
+    @Test
+    public void fillInput_uint8WithUnitScaleKeepsPixelValues() {
+        TensorSpec in = new TensorSpec(new int[]{1, 1, 1, 3}, DataType.UINT8, 1 / 255f, 0);
+        InferenceBuffers b = new InferenceBuffers(in, new TensorSpec[]{TensorSpec.ofFloat(1, 4, 7)});
+        b.pixels[0] = 0xFF00FF7F;
+
+        ByteBuffer buf = b.fillInput();
+
+        assertEquals(0, buf.get() & 0xFF);
+        assertEquals(255, buf.get() & 0xFF);
+        assertEquals(127, buf.get() & 0xFF);
+    }
+
+    @Test
+    public void fillInput_floatHonoursNormalization() {
+        InferenceBuffers b = new InferenceBuffers(1, 1, 3, DataType.FLOAT32, new int[][]{{1, 4, 7}});
+        b.setNormalization(127.5f, 127.5f);
+        b.pixels[0] = 0xFF00FF80;
+
+        ByteBuffer in = b.fillInput();
+
+        assertEquals(-1f, in.getFloat(), 1e-6f);
+        assertEquals(1f, in.getFloat(), 1e-6f);
+        assertEquals(0.5f / 127.5f, in.getFloat(), 1e-6f);
+    }
+}
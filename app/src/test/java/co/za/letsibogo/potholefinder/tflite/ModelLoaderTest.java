@@ -0,0 +1,83 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelLoaderTest {
+
+    @Test
+    public void loadsOffThreadWarmsUpThenReportsReady() throws Exception {
+        AtomicInteger warmups = new AtomicInteger();
+        List<ModelLoader.State> states = new CopyOnWriteArrayList<>();
+        String caller = Thread.currentThread().getName();
+        List<String> loadThread = new CopyOnWriteArrayList<>();
+
+        ModelLoader<String> loader = new ModelLoader<>(() -> {
+            loadThread.add(Thread.currentThread().getName());
+            return "model";
+        }, m -> warmups.incrementAndGet(), 3, Runnable::run);
+
+        Future<String> f = loader.start((s, l) -> states.add(s));
+
+        assertEquals("model", f.get(5, TimeUnit.SECONDS));
+        assertEquals(3, warmups.get());
+        assertNotEquals(caller, loadThread.get(0));
+        assertEquals(ModelLoader.State.READY, loader.state());
+        assertEquals("model", loader.model());
+        assertTrue(loader.loadTimeMs() >= 0);
+        assertTrue(loader.warmupTimeMs() >= 0);
+        // READY is delivered before the future completes
+        assertEquals(java.util.Arrays.asList(ModelLoader.State.LOADING, ModelLoader.State.WARMING,
+                ModelLoader.State.READY), states);
+    }
+
+    @Test
+    public void factoryFailureReportsFailed() throws Exception {
+        List<ModelLoader.State> states = new CopyOnWriteArrayList<>();
+        ModelLoader<String> loader = new ModelLoader<>(() -> {
+            throw new IOException("missing asset");
+        }, m -> fail("no warm-up after a failed load"), 2, Runnable::run);
+
+        Future<String> f = loader.start((s, l) -> states.add(s));
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(ModelLoader.State.FAILED, loader.state());
+        assertTrue(loader.error() instanceof IOException);
+        assertNull(loader.model());
+        assertEquals(ModelLoader.State.FAILED, states.get(states.size() - 1));
+    }
+
+    @Test
+    public void warmupFailureReportsFailed() throws Exception {
+        ModelLoader<String> loader = new ModelLoader<>(() -> "model",
+                m -> { throw new IllegalStateException("bad delegate"); }, 1, Runnable::run);
+        Future<String> f = loader.start(null);
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(ModelLoader.State.FAILED, loader.state());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startTwiceIsRejected() {
+        ModelLoader<String> loader = new ModelLoader<>(() -> "model", null, 0, Runnable::run);
+        loader.start(null);
+        loader.start(null);
+    }
+}
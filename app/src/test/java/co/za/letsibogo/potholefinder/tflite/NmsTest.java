@@ -0,0 +1,163 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NmsTest {
+
+    // Two overlapping boxes on one pothole, a third far away
+    private static final float[] BOXES = {
+            0.10f, 0.10f, 0.30f, 0.30f,
+            0.11f, 0.12f, 0.31f, 0.32f,
+            0.60f, 0.60f, 0.80f, 0.80f,
+    };
+
+    @Test
+    public void hard_suppressesOverlappingLowerScore() {
+        float[] scores = {0.9f, 0.8f, 0.7f};
+        int[] classes = {1, 1, 1};
+        int[] keep = new int[3];
+
+        int n = new Nms().run(BOXES.clone(), scores, classes, 3, keep);
+
+        assertEquals(2, n);
+        assertEquals(0, keep[0]);
+        assertEquals(2, keep[1]);
+    }
+
+    @Test
+    public void perClass_keepsOverlappingBoxesOfDifferentClasses() {
+        float[] scores = {0.9f, 0.8f, 0.7f};
+        int[] classes = {1, 2, 1};
+        int[] keep = new int[3];
+
+        assertEquals(3, new Nms().perClass(true).run(BOXES.clone(), scores, classes, 3, keep));
+        assertEquals(2, new Nms().perClass(false).run(BOXES.clone(), scores.clone(), classes, 3, keep));
+    }
+
+    @Test
+    public void resultsAreOrderedByScore() {
+        float[] scores = {0.5f, 0.1f, 0.95f};
+        int[] keep = new int[3];
+
+        int n = new Nms().run(BOXES.clone(), scores, new int[3], 3, keep);
+
+        assertEquals(2, n);
+        assertEquals(2, keep[0]);
+        assertEquals(0, keep[1]);
+    }
+
+    @Test
+    public void softLinear_decaysInsteadOfRemoving() {
+        float[] scores = {0.9f, 0.8f, 0.7f};
+        int[] keep = new int[3];
+
+        int n = new Nms().mode(Nms.Mode.SOFT_LINEAR).iouThreshold(0.3f)
+                .run(BOXES.clone(), scores, new int[3], 3, keep);
+
+        assertEquals(3, n);
+        assertEquals(0, keep[0]);
+        assertEquals(2, keep[1]);   // untouched 0.7 now beats the decayed duplicate
+        assertEquals(1, keep[2]);
+        assertTrue(scores[1] < 0.8f * 0.3f);
+        assertEquals(0.7f, scores[2], 1e-6f);
+    }
+
+    @Test
+    public void softGaussian_dropsBoxesDecayedBelowThreshold() {
+        float[] boxes = {
+                0.1f, 0.1f, 0.3f, 0.3f,
+                0.1f, 0.1f, 0.3f, 0.3f,   // identical: IoU 1
+        };
+        float[] scores = {0.9f, 0.6f};
+        int[] keep = new int[2];
+
+        int n = new Nms().mode(Nms.Mode.SOFT_GAUSSIAN).sigma(0.5f).scoreThreshold(0.2f)
+                .run(boxes, scores, new int[2], 2, keep);
+
+        // 0.6 * exp(-1 / 0.5) = 0.08 < 0.2
+        assertEquals(1, n);
+        assertEquals(0, keep[0]);
+    }
+
+    @Test
+    public void mergeBoxes_averagesSuppressedClusterIntoKeptBox() {
+        float[] boxes = {
+                0.0f, 0.0f, 0.4f, 0.4f,
+                0.0f, 0.0f, 0.5f, 0.5f,
+        };
+        float[] scores = {0.5f, 0.5f};
+        int[] keep = new int[2];
+
+        int n = new Nms().mergeBoxes(true).run(boxes, scores, new int[2], 2, keep);
+
+        assertEquals(1, n);
+        int k = keep[0] * 4;
+        assertEquals(0.45f, boxes[k + 2], 1e-6f);
+        assertEquals(0.45f, boxes[k + 3], 1e-6f);
+    }
+
+    @Test
+    public void maxDetectionsAndTopKCapTheOutput() {
+        int count = 5000;
+        float[] boxes = new float[count * 4];
+        float[] scores = new float[count];
+        Random rnd = new Random(42);
+        for (int i = 0; i < count; i++) {
+            // Disjoint tiny boxes on a grid: nothing overlaps
+            float y = (i / 100) / 50f, x = (i % 100) / 100f;
+            boxes[i * 4] = y;
+            boxes[i * 4 + 1] = x;
+            boxes[i * 4 + 2] = y + 0.005f;
+            boxes[i * 4 + 3] = x + 0.005f;
+            scores[i] = rnd.nextFloat();
+        }
+        int[] keep = new int[count];
+
+        int n = new Nms().topK(500).maxDetections(20).run(boxes, scores.clone(), new int[count], count, keep);
+
+        assertEquals(20, n);
+        float[] sorted = scores.clone();
+        java.util.Arrays.sort(sorted);
+        // The 20 kept are exactly the 20 best, in descending order
+        for (int k = 0; k < 20; k++) assertEquals(sorted[count - 1 - k], scores[keep[k]], 0f);
+    }
+
+    @Test
+    public void equalScoresAreSelectedAndSortedCorrectly() {
+        // A uint8 model's scores come in 1/256 steps, so thousands of boxes share a few values
+        int count = 20_000;
+        float[] boxes = new float[count * 4];
+        float[] scores = new float[count];
+        for (int i = 0; i < count; i++) {
+            float y = (i / 200) / 100f, x = (i % 200) / 200f;
+            boxes[i * 4] = y;
+            boxes[i * 4 + 1] = x;
+            boxes[i * 4 + 2] = y + 0.002f;
+            boxes[i * 4 + 3] = x + 0.002f;
+            scores[i] = i % 97 == 0 ? 0.9f : 0.5f;   // 207 at 0.9, the rest all equal
+        }
+        int[] keep = new int[count];
+
+        int n = new Nms().topK(1000).maxDetections(300).run(boxes, scores.clone(), new int[count], count, keep);
+
+        assertEquals(300, n);
+        for (int k = 0; k < 207; k++) assertEquals(0.9f, scores[keep[k]], 0f);
+        for (int k = 207; k < n; k++) assertEquals(0.5f, scores[keep[k]], 0f);
+
+        // All equal: every partition step must place the whole run at once
+        java.util.Arrays.fill(scores, 0.5f);
+        n = new Nms().topK(count - 1).maxDetections(20).run(boxes, scores.clone(), new int[count], count, keep);
+        assertEquals(20, n);
+    }
+
+    @Test
+    public void scoreThresholdFiltersCandidates() {
+        float[] scores = {0.2f, 0.1f, 0.3f};
+        int[] keep = new int[3];
+        assertEquals(0, new Nms().scoreThreshold(0.5f).run(BOXES.clone(), scores, new int[3], 3, keep));
+    }
+}
@@ -0,0 +1,232 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+
+import org.tensorflow.lite.DataType;
+
+import static org.junit.Assert.*;
+
+public class OutputDecoderTest {
+
+    private final float[] boxes = new float[4 * 8];
+    private final float[] scores = new float[8];
+    private final int[] classes = new int[8];
+
+    private static OutputTensor buffer(float... values) {
+        return tensor(TensorSpec.ofFloat(values.length), values);
+    }
+
+    private static OutputTensor tensor(TensorSpec spec, float... values) {
+        OutputTensor t = new OutputTensor(spec);
+        for (int i = 0; i < values.length; i++) t.put(i, values[i]);
+        return t;
+    }
+
+    @Test
+    public void detectsLayoutsFromShapes() {
+        assertEquals(OutputDecoder.Layout.BOXES_N7,
+                OutputDecoder.forShapes(new int[][]{{1, 100, 7}}, 320, 320, null).layout());
+        assertEquals(OutputDecoder.Layout.YOLO_ROWS,
+                OutputDecoder.forShapes(new int[][]{{1, 25200, 85}}, 640, 640, null).layout());
+        assertEquals(OutputDecoder.Layout.YOLO_COLUMNS,
+                OutputDecoder.forShapes(new int[][]{{1, 6, 8400}}, 640, 640, null).layout());
+        assertEquals(OutputDecoder.Layout.SSD,
+                OutputDecoder.forShapes(new int[][]{{1, 10, 4}, {1, 10}, {1, 10}, {1}}, 300, 300, null).layout());
+        assertEquals(OutputDecoder.Layout.YOLO_ROWS,
+                OutputDecoder.forShapes(new int[][]{{1, 100, 7}}, 320, 320, OutputDecoder.Layout.YOLO_ROWS).layout());
+    }
+
+    @Test
+    public void fewClassYoloIsNotMistakenForBoxRows() {
+        assertEquals(OutputDecoder.Layout.YOLO_ROWS,
+                OutputDecoder.forShapes(new int[][]{{1, 25200, 6}}, 640, 640, null).layout());
+        assertEquals(OutputDecoder.Layout.YOLO_ROWS,
+                OutputDecoder.forShapes(new int[][]{{1, 25200, 7}}, 640, 640, null).layout());
+        assertEquals(OutputDecoder.Layout.YOLO_ROWS,
+                OutputDecoder.forShapes(new int[][]{{1, 6300, 6}}, 320, 320, null).layout());
+        assertEquals(OutputDecoder.Layout.BOXES_N7,
+                OutputDecoder.forShapes(new int[][]{{1, 300, 6}}, 320, 320, null).layout());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownShapes() {
+        OutputDecoder.forShapes(new int[][]{{1, 100}}, 320, 320, null);
+    }
+
+    @Test
+    public void boxesN7_filtersByScoreAndSanity() {
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 3, 7}}, 320, 320, OutputDecoder.Layout.BOXES_N7);
+        OutputTensor out = buffer(
+                0.1f, 0.2f, 0.3f, 0.4f, 0.9f, 1f, 0f,
+                0.1f, 0.2f, 0.3f, 0.4f, 0.2f, 1f, 0f,   // low score
+                0.5f, 0.2f, 0.3f, 0.4f, 0.9f, 1f, 0f);  // ymax < ymin
+
+        int n = d.decode(new OutputTensor[]{out}, 0.5f, boxes, scores, classes);
+
+        assertEquals(1, n);
+        assertArrayEquals(new float[]{0.1f, 0.2f, 0.3f, 0.4f}, java.util.Arrays.copyOf(boxes, 4), 1e-6f);
+        assertEquals(0.9f, scores[0], 1e-6f);
+        assertEquals(1, classes[0]);
+    }
+
+    @Test
+    public void yoloRows_multipliesObjectnessAndConvertsCentreBoxes() {
+        // [1, 2, 5+2]: cx, cy, w, h, obj, cls0, cls1
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 2, 7}}, 100, 100, OutputDecoder.Layout.YOLO_ROWS);
+        OutputTensor out = buffer(
+                0.5f, 0.5f, 0.2f, 0.4f, 0.9f, 0.1f, 0.8f,
+                0.5f, 0.5f, 0.2f, 0.4f, 0.3f, 0.9f, 0.1f);
+
+        int n = d.decode(new OutputTensor[]{out}, 0.5f, boxes, scores, classes);
+
+        assertEquals(1, n);
+        assertEquals(0.72f, scores[0], 1e-6f);
+        assertEquals(1, classes[0]);
+        assertArrayEquals(new float[]{0.3f, 0.4f, 0.7f, 0.6f}, java.util.Arrays.copyOf(boxes, 4), 1e-6f);
+    }
+
+    @Test
+    public void yoloColumns_readsTransposedTensorAndScalesPixelCoords() {
+        // [1, 4+2, 3]: one column per candidate, coordinates in input pixels (640).
+        // Too few candidates for shape detection to tell it apart from rows, so hint it.
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 6, 3}}, 640, 640, OutputDecoder.Layout.YOLO_COLUMNS);
+        OutputTensor out = buffer(
+                320f, 100f, 100f,     // cx
+                320f, 100f, 100f,     // cy
+                64f, 10f, 10f,        // w
+                128f, 10f, 10f,       // h
+                0.1f, 0.2f, 0.95f,    // class 0
+                0.7f, 0.1f, 0.01f);   // class 1
+
+        int n = d.decode(new OutputTensor[]{out}, 0.5f, boxes, scores, classes);
+
+        assertEquals(2, n);
+        assertEquals(0.7f, scores[0], 1e-6f);
+        assertEquals(1, classes[0]);
+        assertArrayEquals(new float[]{0.4f, 0.45f, 0.6f, 0.55f}, java.util.Arrays.copyOf(boxes, 4), 1e-6f);
+        assertEquals(0.95f, scores[1], 1e-6f);
+        assertEquals(0, classes[1]);
+    }
+
+    @Test
+    public void ssd_honoursDetectionCount() {
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 3, 4}, {1, 3}, {1, 3}, {1}}, 300, 300, null);
+        OutputTensor[] outs = {
+                buffer(0.1f, 0.1f, 0.2f, 0.2f, 0.3f, 0.3f, 0.4f, 0.4f, 0.5f, 0.5f, 0.6f, 0.6f),
+                buffer(0f, 2f, 1f),
+                buffer(0.9f, 0.8f, 0.99f),
+                buffer(2f),   // third slot is padding
+        };
+
+        int n = d.decode(outs, 0.5f, boxes, scores, classes);
+
+        assertEquals(2, n);
+        assertEquals(0, classes[0]);
+        assertEquals(2, classes[1]);
+        assertEquals(0.8f, scores[1], 1e-6f);
+    }
+
+    @Test
+    public void yolo_boxUnitsAreDecidedOnceFromTheFirstOutput() {
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 2, 7}}, 640, 640, OutputDecoder.Layout.YOLO_ROWS);
+        // Warm-up output in input pixels
+        d.resolve(new OutputTensor[]{buffer(
+                320f, 320f, 64f, 64f, 0.1f, 0.1f, 0.1f,
+                600f, 40f, 32f, 32f, 0.1f, 0.1f, 0.1f)});
+        assertTrue(d.pixelBoxes());
+
+        // A box near the corner has every coordinate under 2, but is still in pixels
+        OutputTensor out = buffer(
+                1.5f, 1.5f, 1f, 1f, 0.9f, 0.9f, 0.1f,
+                0f, 0f, 0f, 0f, 0f, 0f, 0f);
+        assertEquals(1, d.decode(new OutputTensor[]{out}, 0.5f, boxes, scores, classes));
+        assertEquals(2f / 640, boxes[2], 1e-6f);
+    }
+
+    @Test
+    public void ssd_classesAndScoresOrderFromNamesOrValues() {
+        int[][] shapes = {{1, 2, 4}, {1, 2}, {1, 2}, {1}};
+        OutputTensor[] outs = {
+                buffer(0.1f, 0.1f, 0.5f, 0.5f, 0.2f, 0.2f, 0.6f, 0.6f),
+                buffer(0.9f, 0.3f),   // scores first
+                buffer(3f, 1f),
+                buffer(2f),
+        };
+
+        OutputDecoder named = OutputDecoder.forShapes(shapes, new String[]{
+                "TFLite_Detection_PostProcess", "TFLite_Detection_PostProcess:2",
+                "TFLite_Detection_PostProcess:1", "TFLite_Detection_PostProcess:3"}, 300, 300, null);
+        assertEquals(2, named.ssdClassesOutput());
+
+        OutputDecoder unnamed = OutputDecoder.forShapes(shapes, 300, 300, null);
+        assertEquals(1, unnamed.decode(outs, 0.5f, boxes, scores, classes));
+        assertEquals(2, unnamed.ssdClassesOutput());
+        assertEquals(0.9f, scores[0], 1e-6f);
+        assertEquals(3, classes[0]);
+    }
+
+    @Test
+    public void rawThreshold_agreesWithDequantizedComparison() {
+        OutputTensor u8 = new OutputTensor(new TensorSpec(new int[]{256}, DataType.UINT8, 1 / 256f, 0));
+        OutputTensor i8 = new OutputTensor(new TensorSpec(new int[]{256}, DataType.INT8, 0.0078125f, -128));
+        for (float t : new float[]{0f, 0.25f, 0.5f, 0.5001f, 0.99f, 1.5f}) {
+            int ru = u8.rawThreshold(t), ri = i8.rawThreshold(t);
+            for (int q = 0; q < 256; q++) {
+                assertEquals(q * (1 / 256f) >= t, q >= ru);
+                assertEquals((q - 128 + 128) * 0.0078125f >= t, (q - 128) >= ri);
+            }
+        }
+    }
+
+    @Test
+    public void quantizedOutputs_roundTripThroughPut() {
+        OutputTensor u8 = new OutputTensor(new TensorSpec(new int[]{2}, DataType.UINT8, 0.02f, 10));
+        u8.put(0, 0.5f);
+        u8.put(1, 100f);  // saturates
+        assertEquals(35, u8.raw(0));
+        assertEquals(0.5f, u8.get(0), 1e-6f);
+        assertEquals(255, u8.raw(1));
+
+        OutputTensor i8 = new OutputTensor(new TensorSpec(new int[]{1}, DataType.INT8, 0.1f, -5));
+        i8.put(0, -1f);
+        assertEquals(-15, i8.raw(0));
+        assertEquals(-1f, i8.get(0), 1e-6f);
+    }
+
+    @Test
+    public void boxesN7_quantizedMatchesFloatDecode() {
+        float[] values = {
+                0.1f, 0.2f, 0.3f, 0.4f, 0.9f, 1f, 0f,
+                0.1f, 0.2f, 0.3f, 0.4f, 0.3f, 1f, 0f,
+                0.5f, 0.5f, 0.75f, 0.75f, 0.6f, 2f, 0f};
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 3, 7}}, 320, 320, OutputDecoder.Layout.BOXES_N7);
+        OutputTensor q = tensor(new TensorSpec(new int[]{1, 3, 7}, DataType.UINT8, 1 / 64f, 0), values);
+
+        int n = d.decode(new OutputTensor[]{q}, 0.5f, boxes, scores, classes);
+
+        assertEquals(2, n);
+        assertEquals(0.9f, scores[0], 1 / 128f);
+        assertEquals(1, classes[0]);
+        assertEquals(0.6f, scores[1], 1 / 128f);
+        assertEquals(2, classes[1]);
+        assertEquals(0.75f, boxes[6], 1e-6f);
+    }
+
+    @Test
+    public void ssd_quantizedScoresThresholdInRawDomain() {
+        OutputDecoder d = OutputDecoder.forShapes(new int[][]{{1, 2, 4}, {1, 2}, {1, 2}, {1}}, 300, 300, null);
+        OutputTensor[] outs = {
+                tensor(new TensorSpec(new int[]{1, 2, 4}, DataType.UINT8, 1 / 255f, 0),
+                        0.1f, 0.1f, 0.5f, 0.5f, 0.2f, 0.2f, 0.6f, 0.6f),
+                buffer(1f, 1f),
+                tensor(new TensorSpec(new int[]{1, 2}, DataType.INT8, 1 / 256f, -128), 0.49f, 0.51f),
+                buffer(2f),
+        };
+
+        int n = d.decode(outs, 0.5f, boxes, scores, classes);
+
+        assertEquals(1, n);
+        assertEquals(0.51f, scores[0], 1 / 256f);
+        assertEquals(0.2f, boxes[0], 1 / 255f);
+    }
+}
@@ -0,0 +1,92 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class PreprocessorTest {
+
+    private static int rgb(int r, int g, int b) {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    @Test
+    public void sameSizeMatchesFillInput() {
+        InferenceBuffers viaFill = new InferenceBuffers(4, 3, 3, DataType.FLOAT32, new int[][]{{1, 4, 7}});
+        InferenceBuffers viaKernel = new InferenceBuffers(4, 3, 3, DataType.FLOAT32, new int[][]{{1, 4, 7}});
+        int[] src = new int[12];
+        for (int i = 0; i < src.length; i++) src[i] = rgb(i * 20, 255 - i * 20, i * 7);
+        System.arraycopy(src, 0, viaFill.pixels, 0, src.length);
+
+        ByteBuffer expected = viaFill.fillInput();
+        ByteBuffer actual = new Preprocessor(viaKernel).run(src, 4, 3);
+
+        assertEquals(0, actual.position());
+        for (int i = 0; i < 36; i++) {
+            assertEquals("sample " + i, expected.getFloat(), actual.getFloat(), 1e-6f);
+        }
+    }
+
+    @Test
+    public void halvingAveragesPixelPairs() {
+        InferenceBuffers b = new InferenceBuffers(1, 1, 3, DataType.UINT8, new int[][]{{1, 4, 7}});
+        int[] src = {rgb(0, 100, 200), rgb(100, 100, 0),
+                     rgb(0, 100, 200), rgb(100, 100, 0)};
+
+        ByteBuffer in = new Preprocessor(b).run(src, 2, 2);
+
+        assertEquals(50, in.get() & 0xFF);
+        assertEquals(100, in.get() & 0xFF);
+        assertEquals(100, in.get() & 0xFF);
+    }
+
+    @Test
+    public void cropReadsOnlyTheRegionOfInterest() {
+        // 2x4 frame: top half red (sky), bottom half grey (road)
+        int[] src = new int[8];
+        for (int i = 0; i < 4; i++) src[i] = rgb(255, 0, 0);
+        for (int i = 4; i < 8; i++) src[i] = rgb(90, 90, 90);
+        int[] crop = new int[4];
+        RegionOfInterest.lower(0.5f).crop(2, 4, crop);
+        assertArrayEquals(new int[]{0, 2, 2, 2}, crop);
+
+        InferenceBuffers b = new InferenceBuffers(2, 2, 3, DataType.UINT8, new int[][]{{1, 4, 7}});
+        ByteBuffer in = new Preprocessor(b).run(src, 2, crop[0], crop[1], crop[2], crop[3]);
+
+        for (int i = 0; i < 12; i++) assertEquals(90, in.get() & 0xFF);
+    }
+
+    @Test
+    public void quantizedInputUsesBuffersLookupTable() {
+        TensorSpec spec = new TensorSpec(new int[]{1, 1, 1, 3}, DataType.INT8, 1 / 128f, 0);
+        InferenceBuffers b = new InferenceBuffers(spec, new TensorSpec[]{TensorSpec.ofFloat(1, 4, 7)});
+        b.setNormalization(127.5f, 127.5f);
+
+        ByteBuffer in = new Preprocessor(b).run(new int[]{rgb(255, 0, 128)}, 1, 1);
+
+        assertEquals(127, in.get());   // 1.0 saturates
+        assertEquals(-128, in.get());
+        assertEquals(1, in.get());     // 0.5 / 127.5 * 128 = 0.502
+    }
+
+    @Test
+    public void repeatedRunsReuseTheInputBuffer() {
+        InferenceBuffers b = new InferenceBuffers(8, 8, 3, DataType.FLOAT32, new int[][]{{1, 4, 7}});
+        Preprocessor p = new Preprocessor(b);
+        int[] src = new int[32 * 24];
+        ByteBuffer first = p.run(src, 32, 24);
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, p.run(src, 32, 24));
+            assertSame(first, p.run(src, 32, 0, 8, 32, 16));
+        }
+        assertEquals(0, first.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyRegionIsRejected() {
+        new RegionOfInterest(0.5f, 0f, 0.5f, 1f);
+    }
+}
@@ -0,0 +1,82 @@
+package co.za.letsibogo.potholefinder.tflite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TilePlannerTest {
+
+    @Test
+    public void uhdFrameIsCoveredWithOverlappingModelSizedTiles() {
+        TilePlanner planner = new TilePlanner(640, 640, 0.2f, 64);
+        int[] tiles = new int[64 * 4];
+
+        int n = planner.plan(3840, 2160, tiles);
+
+        // step 512: ceil(3200/512)+1 = 8 columns, ceil(1520/512)+1 = 4 rows
+        assertEquals(32, n);
+        boolean[][] covered = new boolean[2160 / 40][3840 / 40];
+        for (int t = 0; t < n; t++) {
+            int x = tiles[t * 4], y = tiles[t * 4 + 1], w = tiles[t * 4 + 2], h = tiles[t * 4 + 3];
+            assertEquals(640, w);
+            assertEquals(640, h);
+            assertTrue(x >= 0 && y >= 0 && x + w <= 3840 && y + h <= 2160);
+            for (int cy = y / 40; cy < (y + h) / 40; cy++)
+                for (int cx = x / 40; cx < (x + w) / 40; cx++) covered[cy][cx] = true;
+        }
+        for (boolean[] row : covered) for (boolean c : row) assertTrue(c);
+        // Neighbours overlap by at least the requested 20%
+        assertTrue(tiles[4] - tiles[0] <= 512);
+        // Last column and row touch the frame edge
+        assertEquals(3840 - 640, tiles[7 * 4]);
+        assertEquals(2160 - 640, tiles[31 * 4 + 1]);
+    }
+
+    @Test
+    public void tilesGrowToRespectMaxTiles() {
+        TilePlanner planner = new TilePlanner(640, 640, 0.2f, 6);
+        int[] tiles = new int[6 * 4];
+
+        int n = planner.plan(3840, 2160, tiles);
+
+        assertTrue(n <= 6);
+        assertTrue(tiles[2] > 640);
+        int lastX = tiles[(n - 1) * 4], lastW = tiles[(n - 1) * 4 + 2];
+        assertEquals(3840, lastX + lastW);
+    }
+
+    @Test
+    public void smallFrameIsOneTile() {
+        TilePlanner planner = new TilePlanner(640, 640, 0.25f, 16);
+        int[] tiles = new int[16 * 4];
+
+        assertEquals(1, planner.plan(320, 240, tiles));
+        assertArrayEquals(new int[]{0, 0, 320, 240}, java.util.Arrays.copyOf(tiles, 4));
+    }
+
+    @Test
+    public void seamSplitBoxesMergeIntoTheirUnion() {
+        // Same pothole seen as two partial boxes by neighbouring tiles, plus an unrelated one
+        float[] boxes = {
+                0.40f, 0.45f, 0.50f, 0.52f,
+                0.40f, 0.48f, 0.50f, 0.60f,
+                0.10f, 0.10f, 0.20f, 0.20f};
+        float[] scores = {0.7f, 0.9f, 0.6f};
+        int[] classes = {1, 1, 1};
+        int[] keep = new int[3];
+
+        int kept = new TileMerger().merge(boxes, scores, classes, 3, keep);
+
+        assertEquals(2, kept);
+        assertEquals(1, keep[0]);
+        assertArrayEquals(new float[]{0.40f, 0.45f, 0.50f, 0.60f}, java.util.Arrays.copyOfRange(boxes, 4, 8), 1e-6f);
+        assertEquals(2, keep[1]);
+    }
+
+    @Test
+    public void differentClassesAreNotMerged() {
+        float[] boxes = {0.4f, 0.4f, 0.5f, 0.5f, 0.4f, 0.4f, 0.5f, 0.5f};
+        int kept = new TileMerger().merge(boxes, new float[]{0.9f, 0.8f}, new int[]{1, 2}, 2, new int[2]);
+        assertEquals(2, kept);
+    }
+}
@@ -0,0 +1,112 @@
+package co.za.letsibogo.potholefinder.tracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import co.za.letsibogo.potholefinder.tflite.Detection;
+
+import static org.junit.Assert.*;
+
+public class PotholeTrackerTest {
+
+    private static final long FRAME_US = 500_000;
+
+    private static Detection box(float cy, float cx, float size) {
+        float h = size / 2;
+        return new Detection(cy - h, cx - h, cy + h, cx + h, 0.8f, 1);
+    }
+
+    @Test
+    public void samePotholeAcrossFramesIsReportedOnce() {
+        PotholeTracker tracker = new PotholeTracker();
+        int reported = 0;
+        // Pothole drifts down the frame as the car approaches, visible for 6 samples
+        for (int f = 0; f < 6; f++) {
+            reported += tracker.update(f * FRAME_US, Collections.singletonList(box(0.4f + f * 0.03f, 0.5f, 0.1f))).size();
+        }
+        assertEquals(1, reported);
+        assertEquals(1, tracker.confirmedCount());
+        assertEquals(1, tracker.liveTrackCount());
+    }
+
+    @Test
+    public void singleFrameFalsePositiveIsNotConfirmed() {
+        PotholeTracker tracker = new PotholeTracker();
+        assertTrue(tracker.update(0, Collections.singletonList(box(0.5f, 0.5f, 0.1f))).isEmpty());
+        for (int f = 1; f <= 5; f++) {
+            assertTrue(tracker.update(f * FRAME_US, Collections.<Detection>emptyList()).isEmpty());
+        }
+        assertEquals(0, tracker.confirmedCount());
+        assertEquals(0, tracker.liveTrackCount());
+    }
+
+    @Test
+    public void twoPotholesGetTwoStableTracks() {
+        PotholeTracker tracker = new PotholeTracker();
+        List<Track> confirmed = new ArrayList<>();
+        for (int f = 0; f < 4; f++) {
+            confirmed.addAll(tracker.update(f * FRAME_US, Arrays.asList(
+                    box(0.3f + f * 0.02f, 0.2f, 0.1f),
+                    box(0.3f + f * 0.02f, 0.8f, 0.1f))));
+        }
+        assertEquals(2, confirmed.size());
+        assertNotEquals(confirmed.get(0).id, confirmed.get(1).id);
+        assertEquals(2, tracker.visibleCount());
+    }
+
+    @Test
+    public void motionModelBridgesAMissedFrameWithLargeJumps() {
+        PotholeTracker.Config cfg = new PotholeTracker.Config();
+        cfg.maxCentroidDistance = 0.05f;  // too small to catch the jump without prediction
+        cfg.iouThreshold = 0.1f;
+        PotholeTracker tracker = new PotholeTracker(cfg);
+
+        // Moves 0.08 per frame; box is 0.1 tall
+        tracker.update(0, Collections.singletonList(box(0.20f, 0.5f, 0.1f)));
+        tracker.update(FRAME_US, Collections.singletonList(box(0.28f, 0.5f, 0.1f)));
+        tracker.update(2 * FRAME_US, Collections.<Detection>emptyList());   // missed
+        tracker.update(3 * FRAME_US, Collections.singletonList(box(0.44f, 0.5f, 0.1f)));
+
+        assertEquals(1, tracker.confirmedCount());
+        assertEquals(1, tracker.liveTrackCount());
+    }
+
+    @Test
+    public void differentClassesAreNotAssociated() {
+        PotholeTracker tracker = new PotholeTracker();
+        tracker.update(0, Collections.singletonList(box(0.5f, 0.5f, 0.1f)));
+        Detection other = new Detection(0.45f, 0.45f, 0.55f, 0.55f, 0.8f, 2);
+        tracker.update(FRAME_US, Collections.singletonList(other));
+        assertEquals(2, tracker.liveTrackCount());
+        assertEquals(0, tracker.confirmedCount());
+    }
+
+    @Test
+    public void rewindingTimeResetsTracks() {
+        PotholeTracker tracker = new PotholeTracker();
+        tracker.update(10 * FRAME_US, Collections.singletonList(box(0.5f, 0.5f, 0.1f)));
+        tracker.update(0, Collections.<Detection>emptyList());
+        assertEquals(0, tracker.liveTrackCount());
+    }
+
+    @Test
+    public void framesOvertakenInThePipelineDoNotResetTracks() {
+        PotholeTracker tracker = new PotholeTracker();
+        int reported = 0;
+        // Parallel inference delivers every pair of frames swapped
+        for (int f = 0; f < 10; f += 2) {
+            for (int k : new int[]{f + 1, f}) {
+                reported += tracker.update(k * FRAME_US,
+                        Collections.singletonList(box(0.4f + k * 0.02f, 0.5f, 0.1f))).size();
+            }
+        }
+        assertEquals(1, reported);
+        assertEquals(1, tracker.confirmedCount());
+        assertEquals(1, tracker.liveTrackCount());
+        assertEquals(5, tracker.lateFrameCount());
+    }
+}
@@ -0,0 +1,85 @@
+package co.za.letsibogo.potholefinder.ui;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionFeedTest {
+
+    @Test
+    public void ringKeepsTheNewestLabelsNewestFirst() {
+        DetectionFeed feed = new DetectionFeed(3);
+        feed.publish(1, new String[]{"a", "b"}, 0, false);
+        feed.publish(2, new String[]{"c", "d"}, 1, true);
+
+        DetectionFeed.Snapshot s = feed.take();
+        assertEquals(3, s.recentCount());
+        assertEquals("d", s.recent(0));
+        assertEquals("c", s.recent(1));
+        assertEquals("b", s.recent(2));
+        assertEquals(4, s.recentTotal);
+        assertEquals(2, s.visible);
+        assertEquals(2, s.frames);
+        assertEquals(1, s.unlocated);
+        assertEquals(1, s.markerVersion);
+    }
+
+    @Test
+    public void onlyTheFirstPublishAfterATakeWakesTheRenderer() {
+        DetectionFeed feed = new DetectionFeed(5);
+        assertTrue(feed.publish(0, new String[0], 0, false));
+        for (int i = 0; i < 100; i++) assertFalse(feed.publish(i, new String[0], 0, false));
+
+        DetectionFeed.Snapshot s = feed.take();
+        assertEquals(101, s.frames);
+        assertEquals(99, s.visible);
+        assertTrue(feed.publish(-1, new String[]{"x"}, 0, false));
+        assertEquals(101, feed.peek().frames);   // -1 is not a frame result
+        assertEquals(99, feed.peek().visible);
+    }
+
+    @Test
+    public void batchLargerThanTheRingKeepsItsTail() {
+        DetectionFeed feed = new DetectionFeed(2);
+        feed.publish(-1, new String[]{"a", "b", "c", "d", "e"}, 0, false);
+
+        DetectionFeed.Snapshot s = feed.peek();
+        assertEquals(2, s.recentCount());
+        assertEquals("e", s.recent(0));
+        assertEquals("d", s.recent(1));
+    }
+
+    @Test
+    public void clearStartsANewGeneration() {
+        DetectionFeed feed = new DetectionFeed(4);
+        feed.publish(3, new String[]{"a"}, 2, true);
+        DetectionFeed.Snapshot before = feed.take();
+        feed.clear();
+        feed.publish(0, new String[]{"b"}, 0, false);
+
+        DetectionFeed.Snapshot s = feed.take();
+        assertEquals(before.generation + 1, s.generation);
+        assertEquals(before.recentTotal, s.recentTotal);   // same count, but a different list
+        assertEquals("b", s.recent(0));
+        assertEquals(0, s.unlocated);
+        assertTrue(s.markerVersion > before.markerVersion);
+    }
+
+    @Test
+    public void concurrentPublishersLoseNothing() throws InterruptedException {
+        DetectionFeed feed = new DetectionFeed(8);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) feed.publish(i, new String[]{"p"}, 1, false);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+
+        DetectionFeed.Snapshot s = feed.peek();
+        assertEquals(40_000, s.frames);
+        assertEquals(40_000, s.recentTotal);
+        assertEquals(40_000, s.unlocated);
+    }
+}
@@ -0,0 +1,52 @@
+package co.za.letsibogo.potholefinder.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+
+import co.za.letsibogo.potholefinder.tflite.Detection;
+import co.za.letsibogo.potholefinder.tflite.DetectionEngine;
+import co.za.letsibogo.potholefinder.tflite.OutputDecoder;
+import co.za.letsibogo.potholefinder.tflite.RegionOfInterest;
+
+/**
+ * One frame end to end through {@link DetectionEngine}: preprocess, a fake invoke that only
+ * copies canned outputs, decode and NMS. The model's own cost is left out, so this is the
+ * overhead the app adds per frame.
+ */
+@State(Scope.Thread)
+public class DetectBenchmark {
+
+    @Param({"BOXES_N7", "YOLO_ROWS", "YOLO_COLUMNS", "SSD"})
+    public OutputDecoder.Layout layout;
+
+    /** Fraction of the frame height inferred, from the bottom; 1 is the full frame. */
+    @Param({"1", "0.6"})
+    public float roi;
+
+    private static final int W = 1280, H = 720;
+
+    private DetectionEngine engine;
+    private int[] argb;
+
+    @Setup
+    public void setUp() {
+        engine = new DetectionEngine(new FakeModelRunner(layout, 0.05f), SyntheticModel.input(),
+                SyntheticModel.outputs(layout), 1, layout);
+        engine.configure(SyntheticModel.SCORE_THRESHOLD, 1);
+        engine.configureRegionOfInterest(roi >= 1f ? RegionOfInterest.FULL : RegionOfInterest.lower(roi));
+        argb = new int[W * H];
+        Random rnd = new Random(3);
+        for (int i = 0; i < argb.length; i++) argb[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+    }
+
+    @Benchmark
+    public List<Detection> detect() throws InterruptedException {
+        return engine.infer(engine.prepare(argb, W, H));
+    }
+}
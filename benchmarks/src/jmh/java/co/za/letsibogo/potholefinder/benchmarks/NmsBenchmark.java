@@ -0,0 +1,55 @@
+package co.za.letsibogo.potholefinder.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import co.za.letsibogo.potholefinder.tflite.Nms;
+
+/** NMS over increasing candidate counts (YOLO-style outputs), per mode. */
+@State(Scope.Thread)
+public class NmsBenchmark {
+
+    @Param({"100", "1000", "8400", "25200"})
+    public int candidates;
+
+    @Param({"HARD", "SOFT_LINEAR", "SOFT_GAUSSIAN"})
+    public Nms.Mode mode;
+
+    private float[] boxes, scores, scratch;
+    private int[] classes, keep;
+    private Nms nms;
+
+    @Setup
+    public void setUp() {
+        int n = candidates;
+        Random rnd = new Random(1);
+        boxes = new float[n * 4];
+        scores = new float[n];
+        classes = new int[n];
+        for (int i = 0; i < n; i++) {
+            float y = rnd.nextFloat() * 0.9f, x = rnd.nextFloat() * 0.9f;
+            float h = 0.02f + rnd.nextFloat() * 0.08f, w = 0.02f + rnd.nextFloat() * 0.08f;
+            boxes[i * 4] = y;
+            boxes[i * 4 + 1] = x;
+            boxes[i * 4 + 2] = y + h;
+            boxes[i * 4 + 3] = x + w;
+            scores[i] = rnd.nextFloat();
+            classes[i] = rnd.nextInt(2);
+        }
+        scratch = new float[n];
+        keep = new int[n];
+        nms = new Nms().mode(mode).scoreThreshold(0.25f).topK(1000).maxDetections(100);
+    }
+
+    @Benchmark
+    public int run() {
+        // Soft modes rescore in place
+        System.arraycopy(scores, 0, scratch, 0, candidates);
+        return nms.run(boxes, scratch, classes, candidates, keep);
+    }
+}
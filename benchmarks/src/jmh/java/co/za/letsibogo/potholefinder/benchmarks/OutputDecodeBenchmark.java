@@ -0,0 +1,43 @@
+package co.za.letsibogo.potholefinder.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import co.za.letsibogo.potholefinder.tflite.OutputDecoder;
+import co.za.letsibogo.potholefinder.tflite.OutputTensor;
+
+/** Raw output tensors to thresholded candidates, for each supported layout. */
+@State(Scope.Thread)
+public class OutputDecodeBenchmark {
+
+    @Param({"BOXES_N7", "YOLO_ROWS", "YOLO_COLUMNS", "SSD"})
+    public OutputDecoder.Layout layout;
+
+    /** Fraction of candidates over the score threshold. */
+    @Param({"0.01", "0.2"})
+    public float hitRate;
+
+    private OutputDecoder decoder;
+    private OutputTensor[] outputs;
+    private float[] boxes, scores;
+    private int[] classes;
+
+    @Setup
+    public void setUp() {
+        decoder = SyntheticModel.decoder(layout);
+        outputs = SyntheticModel.tensors(layout);
+        SyntheticModel.fill(layout, outputs, hitRate, 7);
+        int n = decoder.maxCandidates();
+        boxes = new float[n * 4];
+        scores = new float[n];
+        classes = new int[n];
+    }
+
+    @Benchmark
+    public int decode() {
+        return decoder.decode(outputs, SyntheticModel.SCORE_THRESHOLD, boxes, scores, classes);
+    }
+}
@@ -0,0 +1,86 @@
+package co.za.letsibogo.potholefinder.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import co.za.letsibogo.potholefinder.tflite.InferenceBuffers;
+import co.za.letsibogo.potholefinder.tflite.OutputDecoder;
+import co.za.letsibogo.potholefinder.tflite.Preprocessor;
+import co.za.letsibogo.potholefinder.tflite.TensorSpec;
+
+/**
+ * Frame pixels to input tensor. {@code baselinePrepareInput} is the original path: scale the
+ * frame to a new bitmap, copy its pixels out and pack them into a freshly allocated buffer
+ * one channel at a time. {@code preprocessor} is the fused crop/resize/normalize pass.
+ */
+@State(Scope.Thread)
+public class PreprocessBenchmark {
+
+    @Param({"640x360", "1920x1080"})
+    public String frame;
+
+    @Param({"FLOAT32", "UINT8"})
+    public String inputType;
+
+    private int w, h, inW, inH;
+    private DataType type;
+    private int[] argb;
+    private Preprocessor preprocessor;
+
+    @Setup
+    public void setUp() {
+        String[] size = frame.split("x");
+        w = Integer.parseInt(size[0]);
+        h = Integer.parseInt(size[1]);
+        argb = new int[w * h];
+        Random rnd = new Random(1);
+        for (int i = 0; i < argb.length; i++) argb[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+
+        type = DataType.valueOf(inputType);
+        inW = inH = SyntheticModel.INPUT_SIZE;
+        TensorSpec in = new TensorSpec(new int[]{1, inH, inW, 3}, type, 0f, 0);
+        preprocessor = new Preprocessor(new InferenceBuffers(in,
+                SyntheticModel.outputs(OutputDecoder.Layout.BOXES_N7)));
+    }
+
+    @Benchmark
+    public ByteBuffer baselinePrepareInput() {
+        // Bitmap.createScaledBitmap + getPixels: a new inW x inH pixel array per frame
+        int[] pixels = new int[inW * inH];
+        for (int y = 0; y < inH; y++) {
+            int row = (y * h / inH) * w;
+            for (int x = 0; x < inW; x++) pixels[y * inW + x] = argb[row + x * w / inW];
+        }
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(InferenceBuffers.bytesPerSample(type) * inW * inH * 3);
+        buf.order(ByteOrder.nativeOrder());
+        if (type == DataType.FLOAT32) {
+            for (int p : pixels) {
+                buf.putFloat(((p >> 16) & 0xFF) / 255f);
+                buf.putFloat(((p >> 8) & 0xFF) / 255f);
+                buf.putFloat((p & 0xFF) / 255f);
+            }
+        } else {
+            for (int p : pixels) {
+                buf.put((byte) ((p >> 16) & 0xFF));
+                buf.put((byte) ((p >> 8) & 0xFF));
+                buf.put((byte) (p & 0xFF));
+            }
+        }
+        buf.rewind();
+        return buf;
+    }
+
+    @Benchmark
+    public ByteBuffer preprocessor() {
+        return preprocessor.run(argb, w, h);
+    }
+}
@@ -0,0 +1,109 @@
+package co.za.letsibogo.potholefinder.benchmarks;
+
+import java.util.Random;
+
+import co.za.letsibogo.potholefinder.tflite.OutputDecoder;
+import co.za.letsibogo.potholefinder.tflite.OutputTensor;
+import co.za.letsibogo.potholefinder.tflite.TensorSpec;
+
+/**
+ * Output tensors shaped like the models each {@link OutputDecoder.Layout} stands for, filled
+ * with random candidates of which a fixed fraction clears the score threshold.
+ */
+final class SyntheticModel {
+
+    static final int INPUT_SIZE = 320;
+    static final float SCORE_THRESHOLD = 0.5f;
+
+    private SyntheticModel() {}
+
+    static TensorSpec input() {
+        return TensorSpec.ofFloat(1, INPUT_SIZE, INPUT_SIZE, 3);
+    }
+
+    static TensorSpec[] outputs(OutputDecoder.Layout layout) {
+        switch (layout) {
+            case YOLO_ROWS: return TensorSpec.ofFloat(new int[][]{{1, 6300, 7}});           // 2 classes
+            case YOLO_COLUMNS: return TensorSpec.ofFloat(new int[][]{{1, 6, 2100}});        // 2 classes
+            case SSD: return TensorSpec.ofFloat(new int[][]{{1, 10, 4}, {1, 10}, {1, 10}, {1}});
+            case BOXES_N7:
+            default: return TensorSpec.ofFloat(new int[][]{{1, 100, 7}});
+        }
+    }
+
+    static OutputDecoder decoder(OutputDecoder.Layout layout) {
+        return OutputDecoder.forShapes(TensorSpec.shapes(outputs(layout)), INPUT_SIZE, INPUT_SIZE, layout);
+    }
+
+    static OutputTensor[] tensors(OutputDecoder.Layout layout) {
+        TensorSpec[] specs = outputs(layout);
+        OutputTensor[] out = new OutputTensor[specs.length];
+        for (int i = 0; i < specs.length; i++) out[i] = new OutputTensor(specs[i]);
+        return out;
+    }
+
+    /** Fills {@code out} with candidates, {@code hitRate} of them over {@link #SCORE_THRESHOLD}. */
+    static void fill(OutputDecoder.Layout layout, OutputTensor[] out, float hitRate, long seed) {
+        Random rnd = new Random(seed);
+        int[] shape = out[0].spec.shape;
+        switch (layout) {
+            case YOLO_ROWS: {
+                int n = shape[1], attrs = shape[2];
+                for (int i = 0, base = 0; i < n; i++, base += attrs) {
+                    putCenter(out[0], base, 1, rnd);
+                    out[0].put(base + 4, score(rnd, hitRate));
+                    for (int c = 5; c < attrs; c++) out[0].put(base + c, 0.7f + rnd.nextFloat() * 0.3f);
+                }
+                break;
+            }
+            case YOLO_COLUMNS: {
+                int attrs = shape[1], n = shape[2];
+                for (int i = 0; i < n; i++) {
+                    putCenter(out[0], i, n, rnd);
+                    for (int c = 4; c < attrs; c++) out[0].put(c * n + i, score(rnd, hitRate));
+                }
+                break;
+            }
+            case SSD: {
+                int n = shape[1];
+                for (int i = 0; i < n; i++) {
+                    putCorners(out[0], i * 4, rnd);
+                    out[1].put(i, rnd.nextInt(2));
+                    out[2].put(i, score(rnd, hitRate));
+                }
+                out[3].put(0, n);
+                break;
+            }
+            case BOXES_N7:
+            default: {
+                int n = shape[1], attrs = shape[2];
+                for (int i = 0, base = 0; i < n; i++, base += attrs) {
+                    putCorners(out[0], base, rnd);
+                    out[0].put(base + 4, score(rnd, hitRate));
+                    out[0].put(base + 5, rnd.nextInt(2));
+                }
+                break;
+            }
+        }
+    }
+
+    private static float score(Random rnd, float hitRate) {
+        return rnd.nextFloat() < hitRate ? 0.6f + rnd.nextFloat() * 0.4f : rnd.nextFloat() * 0.3f;
+    }
+
+    /** Normalized cx, cy, w, h at {@code base}, {@code base + stride}, ... */
+    private static void putCenter(OutputTensor t, int base, int stride, Random rnd) {
+        t.put(base, 0.05f + rnd.nextFloat() * 0.9f);
+        t.put(base + stride, 0.05f + rnd.nextFloat() * 0.9f);
+        t.put(base + 2 * stride, 0.02f + rnd.nextFloat() * 0.08f);
+        t.put(base + 3 * stride, 0.02f + rnd.nextFloat() * 0.08f);
+    }
+
+    private static void putCorners(OutputTensor t, int base, Random rnd) {
+        float y = rnd.nextFloat() * 0.9f, x = rnd.nextFloat() * 0.9f;
+        t.put(base, y);
+        t.put(base + 1, x);
+        t.put(base + 2, y + 0.02f + rnd.nextFloat() * 0.08f);
+        t.put(base + 3, x + 0.02f + rnd.nextFloat() * 0.08f);
+    }
+}